@@ -22,8 +22,8 @@ import edu.nps.moves.disenum.DeadReckoningAlgorithm;
  */
 public class DeadReckoner {
 
-    private static double MIN_ROTATION_RATE = 0.2 * Math.PI / 180;  // minimum significant rate = 1deg/5sec
-    private static double MIN_ACCELERATION_RATE = 0.1;  // minimum significant rate = 1m/l0sec^2
+    static final double MIN_ROTATION_RATE = 0.2 * Math.PI / 180;  // minimum significant rate = 1deg/5sec
+    static final double MIN_ACCELERATION_RATE = 0.1;  // minimum significant rate = 1m/l0sec^2
 
     /**
      * Performs Dead Reckoning using any algorithm 1 through 9.
@@ -322,4 +322,172 @@ public class DeadReckoner {
 
     } // end of perform_DR
 
+    /**
+     * Performs Dead Reckoning using any algorithm 1 through 9 on primitive
+     * state, without creating any objects. Gives the same results as
+     * {@link #perform_DR(EntityStatePdu, double)} for location, velocity and
+     * orientation, but does not round them to float, does not update a
+     * timestamp and does not process articulation parameters.
+     * <code>state</code> and <code>result</code> may be the same object.
+     *
+     * @param algorithm the dead reckoning algorithm, 1 through 9
+     * @param state state at the start of the interval
+     * @param deltaTime interval in seconds
+     * @param result receives the state at the end of the interval
+     */
+    public static void deadReckon(int algorithm, DeadReckoningState state, double deltaTime, DeadReckoningState result) {
+
+        // Check for invalid input parameters
+        if (!DeadReckoningAlgorithm.enumerationForValueExists(algorithm) || deltaTime < 0.0) {
+            throw new IllegalArgumentException();
+        }
+        DeadReckoningAlgorithm DRalg = DeadReckoningAlgorithm.lookup[algorithm];
+        if (DRalg == DeadReckoningAlgorithm.OTHER) {
+            throw new IllegalArgumentException();
+        }
+
+        if (result != state) {
+            result.set(state);
+        }
+        if (deltaTime == 0.0 || DRalg == DeadReckoningAlgorithm.STATIC_ENTITY_DOES_NOT_MOVE) {
+            return;
+        }
+
+        final double vx = state.velocityX, vy = state.velocityY, vz = state.velocityZ;
+        final double ax = state.accelerationX, ay = state.accelerationY, az = state.accelerationZ;
+        final double wx = state.angularVelocityX, wy = state.angularVelocityY, wz = state.angularVelocityZ;
+
+        boolean rotating = (DRalg == DeadReckoningAlgorithm.DRMR_P_W ||
+                DRalg == DeadReckoningAlgorithm.DRMR_V_W ||
+                DRalg == DeadReckoningAlgorithm.DRMR_P_B ||
+                DRalg == DeadReckoningAlgorithm.DRMR_V_B) &&
+                (Math.abs(wx) >= MIN_ROTATION_RATE ||
+                 Math.abs(wy) >= MIN_ROTATION_RATE ||
+                 Math.abs(wz) >= MIN_ROTATION_RATE);
+
+        boolean accelerating = (DRalg == DeadReckoningAlgorithm.DRMR_V_W ||
+                DRalg == DeadReckoningAlgorithm.DRMF_V_W ||
+                DRalg == DeadReckoningAlgorithm.DRMR_V_B ||
+                DRalg == DeadReckoningAlgorithm.DRMF_V_B) &&
+                (Math.abs(ax) >= MIN_ACCELERATION_RATE ||
+                 Math.abs(ay) >= MIN_ACCELERATION_RATE ||
+                 Math.abs(az) >= MIN_ACCELERATION_RATE);
+
+        boolean bodyCoords = DRalg == DeadReckoningAlgorithm.DRMF_P_B ||
+                DRalg == DeadReckoningAlgorithm.DRMR_P_B ||
+                DRalg == DeadReckoningAlgorithm.DRMR_V_B ||
+                DRalg == DeadReckoningAlgorithm.DRMF_V_B;
+
+        // World to initial entity coordinates (DIS psi, theta, phi order)
+        double r00 = 1, r01 = 0, r02 = 0, r10 = 0, r11 = 1, r12 = 0, r20 = 0, r21 = 0, r22 = 1;
+        if (rotating || bodyCoords) {
+            final double cPsi = Math.cos(state.psi), sPsi = Math.sin(state.psi);
+            final double cTheta = Math.cos(state.theta), sTheta = Math.sin(state.theta);
+            final double cPhi = Math.cos(state.phi), sPhi = Math.sin(state.phi);
+            r00 = cTheta * cPsi;
+            r01 = cTheta * sPsi;
+            r02 = -sTheta;
+            r10 = sPhi * sTheta * cPsi - cPhi * sPsi;
+            r11 = sPhi * sTheta * sPsi + cPhi * cPsi;
+            r12 = sPhi * cTheta;
+            r20 = cPhi * sTheta * cPsi + sPhi * sPsi;
+            r21 = cPhi * sTheta * sPsi - sPhi * cPsi;
+            r22 = cPhi * cTheta;
+        }
+
+        // Movement in initial entity coordinates
+        double dx = 0, dy = 0, dz = 0;
+
+        if (rotating) {
+            final double wMagSq = wx * wx + wy * wy + wz * wz;
+            final double wMag = Math.sqrt(wMagSq);
+            final double wMagT = wMag * deltaTime;
+            final double cosWMagT = Math.cos(wMagT);
+            final double term1 = (1.0 - cosWMagT) / wMagSq;
+            final double sinWMagT = Math.sin(wMagT);
+            final double term3 = sinWMagT / wMag;
+
+            if (bodyCoords) {
+                // (vIntTerm1 * w w' + term3 * I + term1 * W) v, where W v = w x v
+                final double wMag3 = wMagSq * wMag;
+                final double vIntTerm1 = (wMagT - sinWMagT) / wMag3;
+                final double wDotV = wx * vx + wy * vy + wz * vz;
+                dx = vIntTerm1 * wDotV * wx + term3 * vx + term1 * (wy * vz - wz * vy);
+                dy = vIntTerm1 * wDotV * wy + term3 * vy + term1 * (wz * vx - wx * vz);
+                dz = vIntTerm1 * wDotV * wz + term3 * vz + term1 * (wx * vy - wy * vx);
+
+                if (accelerating) {
+                    final double wMag4 = wMag3 * wMag;
+                    final double aIntTerm2Top = cosWMagT + (wMagT * sinWMagT) - 1.0;
+                    final double aIntTerm1 = ((0.5 * wMagT * wMagT) - aIntTerm2Top) / wMag4;
+                    final double aIntTerm2 = aIntTerm2Top / wMagSq;
+                    final double aIntTerm3 = (sinWMagT - (wMagT * cosWMagT)) / wMag3;
+                    final double wDotA = wx * ax + wy * ay + wz * az;
+                    dx += aIntTerm1 * wDotA * wx + aIntTerm2 * ax + aIntTerm3 * (wy * az - wz * ay);
+                    dy += aIntTerm1 * wDotA * wy + aIntTerm2 * ay + aIntTerm3 * (wz * ax - wx * az);
+                    dz += aIntTerm1 * wDotA * wz + aIntTerm2 * az + aIntTerm3 * (wx * ay - wy * ax);
+                }
+            }
+
+            // Initial to final entity coordinates: term1 * w w' + cos * I - term3 * W
+            final double m00 = term1 * wx * wx + cosWMagT;
+            final double m01 = term1 * wx * wy + term3 * wz;
+            final double m02 = term1 * wx * wz - term3 * wy;
+            final double m10 = term1 * wy * wx - term3 * wz;
+            final double m11 = term1 * wy * wy + cosWMagT;
+            final double m12 = term1 * wy * wz + term3 * wx;
+            final double m20 = term1 * wz * wx + term3 * wy;
+            final double m21 = term1 * wz * wy - term3 * wx;
+            final double m22 = term1 * wz * wz + cosWMagT;
+
+            // Final Euler angles from world to final entity coordinates
+            final double n00 = m00 * r00 + m01 * r10 + m02 * r20;
+            final double n01 = m00 * r01 + m01 * r11 + m02 * r21;
+            final double n02 = m00 * r02 + m01 * r12 + m02 * r22;
+            final double n12 = m10 * r02 + m11 * r12 + m12 * r22;
+            final double n22 = m20 * r02 + m21 * r12 + m22 * r22;
+            result.psi = Math.atan2(n01, n00);
+            result.theta = -Math.asin(Math.max(-1.0, Math.min(1.0, n02)));
+            result.phi = Math.atan2(n12, n22);
+        }
+
+        // Compute final velocity and position
+        if (bodyCoords) {
+            if (!rotating) {
+                dx = vx * deltaTime;
+                dy = vy * deltaTime;
+                dz = vz * deltaTime;
+            }
+            if (accelerating) {
+                result.velocityX = vx + deltaTime * ax;
+                result.velocityY = vy + deltaTime * ay;
+                result.velocityZ = vz + deltaTime * az;
+                if (!rotating) {
+                    final double halfDtSq = 0.5 * deltaTime * deltaTime;
+                    dx += ax * halfDtSq;
+                    dy += ay * halfDtSq;
+                    dz += az * halfDtSq;
+                }
+            }
+            // Back to world coordinates with the transpose
+            result.x = state.x + r00 * dx + r10 * dy + r20 * dz;
+            result.y = state.y + r01 * dx + r11 * dy + r21 * dz;
+            result.z = state.z + r02 * dx + r12 * dy + r22 * dz;
+        } else if (accelerating) {
+            final double fx = vx + deltaTime * ax;
+            final double fy = vy + deltaTime * ay;
+            final double fz = vz + deltaTime * az;
+            result.x = state.x + 0.5 * deltaTime * (vx + fx);
+            result.y = state.y + 0.5 * deltaTime * (vy + fy);
+            result.z = state.z + 0.5 * deltaTime * (vz + fz);
+            result.velocityX = fx;
+            result.velocityY = fy;
+            result.velocityZ = fz;
+        } else {
+            result.x = state.x + deltaTime * vx;
+            result.y = state.y + deltaTime * vy;
+            result.z = state.z + deltaTime * vz;
+        }
+    } // end of deadReckon
+
 }
@@ -0,0 +1,479 @@
+package edu.nps.moves.deadreckoning;
+
+import edu.nps.moves.disenum.DeadReckoningAlgorithm;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Dead reckons many entities by the same time step. State is held as a
+ * structure of arrays of doubles, sorted so that entities using the same
+ * algorithm are contiguous. The world coordinate algorithms then run as
+ * straight loops over primitive arrays with no branches the JIT cannot turn
+ * into conditional moves, which lets C2 vectorize them; the rotating and body
+ * coordinate algorithms fall back to
+ * {@link DeadReckoner#deadReckon(int, DeadReckoningState, double, DeadReckoningState)}
+ * one entity at a time.<p>
+ *
+ * Entities are addressed by the index returned from
+ * {@link #add(int, DeadReckoningState)}, which stays the same however the
+ * storage is reordered. Callers that already keep their entities as parallel
+ * arrays can instead pass the arrays to
+ * {@link #advance(double, int, int[], double[], double[], double[], double[], double[], double[], double[], double[], double[], double[], double[], double[], double[], double[], double[])},
+ * which dead reckons them in place. Batches larger than the parallel threshold are split
+ * across a ForkJoinPool.<p>
+ *
+ * Results match {@link DeadReckoner#perform_DR(edu.nps.moves.dis.EntityStatePdu, double)}
+ * for location, velocity and orientation, without rounding to float and
+ * without timestamps or articulation parameters. Not thread safe: one thread
+ * adds, updates and advances the batch.
+ */
+public class DeadReckoningBatch {
+
+    /**
+     * Default number of entities below which a batch is not split
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 8192;
+
+    private static final int X = 0, Y = 1, Z = 2;
+    private static final int VX = 3, VY = 4, VZ = 5;
+    private static final int AX = 6, AY = 7, AZ = 8;
+    private static final int PSI = 9, THETA = 10, PHI = 11;
+    private static final int WX = 12, WY = 13, WZ = 14;
+    private static final int FIELD_COUNT = 15;
+
+    private static final int ALGORITHM_COUNT = 10;
+
+    private double[][] fields;
+    private double[] scratch;
+    private int[] algorithms;
+
+    /**
+     * Storage slot of each entity index, and entity index of each slot
+     */
+    private int[] slotOf;
+    private int[] indexOf;
+
+    /**
+     * First slot of each algorithm; slots of algorithm a are
+     * [groupStart[a], groupStart[a + 1])
+     */
+    private final int[] groupStart = new int[ALGORITHM_COUNT + 1];
+    private boolean sorted = true;
+    private int size;
+
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private final DeadReckoningState state = new DeadReckoningState();
+
+    /**
+     * @param capacity initial number of entities; the batch grows as needed
+     */
+    public DeadReckoningBatch(int capacity) {
+        capacity = Math.max(capacity, 16);
+        fields = new double[FIELD_COUNT][capacity];
+        scratch = new double[capacity];
+        algorithms = new int[capacity];
+        slotOf = new int[capacity];
+        indexOf = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every entity.
+     */
+    public void clear() {
+        size = 0;
+        sorted = true;
+        Arrays.fill(groupStart, 0);
+    }
+
+    /**
+     * @param parallelThreshold batches with more entities than this are split
+     * across the pool
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException("parallelThreshold must be at least 1");
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * Adds an entity.
+     *
+     * @param algorithm dead reckoning algorithm, 1 through 9
+     * @param state the entity's state; copied
+     * @return the entity's index
+     */
+    public int add(int algorithm, DeadReckoningState state) {
+        checkAlgorithm(algorithm);
+        if (size == algorithms.length) {
+            grow();
+        }
+        final int index = size++;
+        slotOf[index] = index;
+        indexOf[index] = index;
+        sorted = false;
+        algorithms[index] = algorithm;
+        store(index, state);
+        return index;
+    }
+
+    /**
+     * Replaces the state and algorithm of an entity.
+     */
+    public void set(int index, int algorithm, DeadReckoningState state) {
+        checkIndex(index);
+        checkAlgorithm(algorithm);
+        final int slot = slotOf[index];
+        if (algorithms[slot] != algorithm) {
+            algorithms[slot] = algorithm;
+            sorted = false;
+        }
+        store(slot, state);
+    }
+
+    /**
+     * Copies the current state of an entity.
+     */
+    public void get(int index, DeadReckoningState into) {
+        checkIndex(index);
+        load(slotOf[index], into);
+    }
+
+    public int getAlgorithm(int index) {
+        checkIndex(index);
+        return algorithms[slotOf[index]];
+    }
+
+    private static void checkAlgorithm(int algorithm) {
+        if (algorithm < 1 || algorithm >= ALGORITHM_COUNT || !DeadReckoningAlgorithm.enumerationForValueExists(algorithm)) {
+            throw new IllegalArgumentException("Unsupported dead reckoning algorithm " + algorithm);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Entity " + index + " of " + size);
+        }
+    }
+
+    private void grow() {
+        final int capacity = algorithms.length * 2;
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            fields[f] = Arrays.copyOf(fields[f], capacity);
+        }
+        scratch = new double[capacity];
+        algorithms = Arrays.copyOf(algorithms, capacity);
+        slotOf = Arrays.copyOf(slotOf, capacity);
+        indexOf = Arrays.copyOf(indexOf, capacity);
+    }
+
+    private void store(int slot, DeadReckoningState s) {
+        final double[][] f = fields;
+        f[X][slot] = s.x;
+        f[Y][slot] = s.y;
+        f[Z][slot] = s.z;
+        f[VX][slot] = s.velocityX;
+        f[VY][slot] = s.velocityY;
+        f[VZ][slot] = s.velocityZ;
+        f[AX][slot] = s.accelerationX;
+        f[AY][slot] = s.accelerationY;
+        f[AZ][slot] = s.accelerationZ;
+        f[PSI][slot] = s.psi;
+        f[THETA][slot] = s.theta;
+        f[PHI][slot] = s.phi;
+        f[WX][slot] = s.angularVelocityX;
+        f[WY][slot] = s.angularVelocityY;
+        f[WZ][slot] = s.angularVelocityZ;
+    }
+
+    private void load(int slot, DeadReckoningState s) {
+        final double[][] f = fields;
+        s.x = f[X][slot];
+        s.y = f[Y][slot];
+        s.z = f[Z][slot];
+        s.velocityX = f[VX][slot];
+        s.velocityY = f[VY][slot];
+        s.velocityZ = f[VZ][slot];
+        s.accelerationX = f[AX][slot];
+        s.accelerationY = f[AY][slot];
+        s.accelerationZ = f[AZ][slot];
+        s.psi = f[PSI][slot];
+        s.theta = f[THETA][slot];
+        s.phi = f[PHI][slot];
+        s.angularVelocityX = f[WX][slot];
+        s.angularVelocityY = f[WY][slot];
+        s.angularVelocityZ = f[WZ][slot];
+    }
+
+    /**
+     * Counting sort of the slots by algorithm, keeping the order within each
+     * algorithm.
+     */
+    private void sortByAlgorithm() {
+        final int[] next = new int[ALGORITHM_COUNT + 1];
+        for (int slot = 0; slot < size; slot++) {
+            next[algorithms[slot] + 1]++;
+        }
+        for (int a = 0; a < ALGORITHM_COUNT; a++) {
+            next[a + 1] += next[a];
+        }
+        System.arraycopy(next, 0, groupStart, 0, ALGORITHM_COUNT + 1);
+
+        // new slot of each old slot
+        final int[] moveTo = new int[size];
+        for (int slot = 0; slot < size; slot++) {
+            moveTo[slot] = next[algorithms[slot]]++;
+        }
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            final double[] from = fields[f];
+            final double[] to = scratch;
+            for (int slot = 0; slot < size; slot++) {
+                to[moveTo[slot]] = from[slot];
+            }
+            fields[f] = to;
+            scratch = from;
+        }
+        final int[] newAlgorithms = new int[algorithms.length];
+        final int[] newIndexOf = new int[indexOf.length];
+        for (int slot = 0; slot < size; slot++) {
+            newAlgorithms[moveTo[slot]] = algorithms[slot];
+            newIndexOf[moveTo[slot]] = indexOf[slot];
+            slotOf[indexOf[slot]] = moveTo[slot];
+        }
+        algorithms = newAlgorithms;
+        indexOf = newIndexOf;
+        sorted = true;
+    }
+
+    /**
+     * Dead reckons every entity by <code>deltaTime</code> seconds.
+     */
+    public void advance(double deltaTime) {
+        if (deltaTime < 0.0) {
+            throw new IllegalArgumentException("deltaTime must not be negative");
+        }
+        if (deltaTime == 0.0 || size == 0) {
+            return;
+        }
+        if (!sorted) {
+            sortByAlgorithm();
+        }
+        if (size <= parallelThreshold) {
+            advance(0, size, deltaTime, state);
+        } else {
+            pool.invoke(new Chunk(0, size, deltaTime));
+        }
+    }
+
+    /**
+     * Dead reckons entities held by the caller as parallel arrays, in place.
+     * Entity <code>i</code> is element <code>i</code> of every array, with
+     * angles in radians and velocity and acceleration in the frame its
+     * algorithm uses, as in {@link DeadReckoningState}. The arrays replace
+     * any entities in the batch, which serves as working storage.
+     *
+     * @param deltaTime seconds to advance by
+     * @param count number of entities, from element 0
+     * @param algorithm dead reckoning algorithm of each entity, 1 through 9
+     */
+    public void advance(double deltaTime, int count, int[] algorithm,
+            double[] x, double[] y, double[] z,
+            double[] velocityX, double[] velocityY, double[] velocityZ,
+            double[] accelerationX, double[] accelerationY, double[] accelerationZ,
+            double[] psi, double[] theta, double[] phi,
+            double[] angularVelocityX, double[] angularVelocityY, double[] angularVelocityZ) {
+        if (deltaTime < 0.0) {
+            throw new IllegalArgumentException("deltaTime must not be negative");
+        }
+        for (int i = 0; i < count; i++) {
+            checkAlgorithm(algorithm[i]);
+        }
+        clear();
+        while (algorithms.length < count) {
+            grow();
+        }
+        System.arraycopy(algorithm, 0, algorithms, 0, count);
+        for (int i = 0; i < count; i++) {
+            slotOf[i] = i;
+            indexOf[i] = i;
+        }
+        copyIn(X, x, count);
+        copyIn(Y, y, count);
+        copyIn(Z, z, count);
+        copyIn(VX, velocityX, count);
+        copyIn(VY, velocityY, count);
+        copyIn(VZ, velocityZ, count);
+        copyIn(AX, accelerationX, count);
+        copyIn(AY, accelerationY, count);
+        copyIn(AZ, accelerationZ, count);
+        copyIn(PSI, psi, count);
+        copyIn(THETA, theta, count);
+        copyIn(PHI, phi, count);
+        copyIn(WX, angularVelocityX, count);
+        copyIn(WY, angularVelocityY, count);
+        copyIn(WZ, angularVelocityZ, count);
+        size = count;
+        sorted = false;
+
+        advance(deltaTime);
+
+        copyOut(X, x);
+        copyOut(Y, y);
+        copyOut(Z, z);
+        copyOut(VX, velocityX);
+        copyOut(VY, velocityY);
+        copyOut(VZ, velocityZ);
+        copyOut(PSI, psi);
+        copyOut(THETA, theta);
+        copyOut(PHI, phi);
+    }
+
+    private void copyIn(int field, double[] from, int count) {
+        System.arraycopy(from, 0, fields[field], 0, count);
+    }
+
+    /**
+     * Copies a field back in entity order
+     */
+    private void copyOut(int field, double[] to) {
+        final double[] from = fields[field];
+        for (int i = 0; i < size; i++) {
+            to[i] = from[slotOf[i]];
+        }
+    }
+
+    private class Chunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+        private final double deltaTime;
+
+        Chunk(int from, int to, double deltaTime) {
+            this.from = from;
+            this.to = to;
+            this.deltaTime = deltaTime;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= parallelThreshold) {
+                advance(from, to, deltaTime, new DeadReckoningState());
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new Chunk(from, middle, deltaTime), new Chunk(middle, to, deltaTime));
+            }
+        }
+    }
+
+    /**
+     * Advances the slots [from, to), one algorithm group at a time.
+     */
+    private void advance(int from, int to, double deltaTime, DeadReckoningState work) {
+        for (int a = 1; a < ALGORITHM_COUNT; a++) {
+            final int start = Math.max(from, groupStart[a]);
+            final int end = Math.min(to, groupStart[a + 1]);
+            if (start >= end) {
+                continue;
+            }
+            switch (a) {
+                case 1:  // static
+                    break;
+                case 2:  // DRM(F, P, W)
+                    linear(start, end, deltaTime);
+                    break;
+                case 3:  // DRM(R, P, W)
+                    linear(start, end, deltaTime);
+                    rotate(start, end, deltaTime, work);
+                    break;
+                case 4:  // DRM(R, V, W)
+                    accelerated(start, end, deltaTime);
+                    rotate(start, end, deltaTime, work);
+                    break;
+                case 5:  // DRM(F, V, W)
+                    accelerated(start, end, deltaTime);
+                    break;
+                default:  // body coordinates
+                    for (int slot = start; slot < end; slot++) {
+                        load(slot, work);
+                        DeadReckoner.deadReckon(a, work, deltaTime, work);
+                        store(slot, work);
+                    }
+            }
+        }
+    }
+
+    /**
+     * First order position update in world coordinates
+     */
+    private void linear(int start, int end, double dt) {
+        final double[] x = fields[X], y = fields[Y], z = fields[Z];
+        final double[] vx = fields[VX], vy = fields[VY], vz = fields[VZ];
+        for (int i = start; i < end; i++) {
+            x[i] += dt * vx[i];
+            y[i] += dt * vy[i];
+            z[i] += dt * vz[i];
+        }
+    }
+
+    /**
+     * Second order position and velocity update in world coordinates.
+     * Accelerations below the significance threshold are ignored, as in
+     * {@link DeadReckoner}, by scaling them by zero rather than branching.
+     */
+    private void accelerated(int start, int end, double dt) {
+        final double[] x = fields[X], y = fields[Y], z = fields[Z];
+        final double[] vx = fields[VX], vy = fields[VY], vz = fields[VZ];
+        final double[] ax = fields[AX], ay = fields[AY], az = fields[AZ];
+        final double halfDtSq = 0.5 * dt * dt;
+        final double min = DeadReckoner.MIN_ACCELERATION_RATE;
+        for (int i = start; i < end; i++) {
+            final double significant = Math.abs(ax[i]) >= min | Math.abs(ay[i]) >= min | Math.abs(az[i]) >= min ? 1.0 : 0.0;
+            final double sx = significant * ax[i], sy = significant * ay[i], sz = significant * az[i];
+            x[i] += dt * vx[i] + halfDtSq * sx;
+            y[i] += dt * vy[i] + halfDtSq * sy;
+            z[i] += dt * vz[i] + halfDtSq * sz;
+            vx[i] += dt * sx;
+            vy[i] += dt * sy;
+            vz[i] += dt * sz;
+        }
+    }
+
+    /**
+     * Orientation update for the rotating world coordinate algorithms, whose
+     * position does not depend on orientation.
+     */
+    private void rotate(int start, int end, double dt, DeadReckoningState work) {
+        final double[] psi = fields[PSI], theta = fields[THETA], phi = fields[PHI];
+        final double[] wx = fields[WX], wy = fields[WY], wz = fields[WZ];
+        final int rotating = DeadReckoningAlgorithm.DRMR_P_W.value;
+        for (int i = start; i < end; i++) {
+            work.x = work.y = work.z = 0;
+            work.velocityX = work.velocityY = work.velocityZ = 0;
+            work.accelerationX = work.accelerationY = work.accelerationZ = 0;
+            work.psi = psi[i];
+            work.theta = theta[i];
+            work.phi = phi[i];
+            work.angularVelocityX = wx[i];
+            work.angularVelocityY = wy[i];
+            work.angularVelocityZ = wz[i];
+            DeadReckoner.deadReckon(rotating, work, dt, work);
+            psi[i] = work.psi;
+            theta[i] = work.theta;
+            phi[i] = work.phi;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package edu.nps.moves.deadreckoning;
+
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.disenum.DeadReckoningAlgorithm;
+import java.util.Arrays;
+
+/**
+ * Hides the jump a remote entity makes when a new Entity State PDU arrives.
+ * Instead of switching straight to the new dead reckoned trajectory, the
+ * displayed state converges on it over a time window, starting from where the
+ * entity was displayed when the update arrived. Three convergence methods
+ * are available:
+ * <ul>
+ * <li>{@link Method#LINEAR}: interpolates between the old and new
+ * trajectories.</li>
+ * <li>{@link Method#CUBIC_HERMITE}: a cubic curve from the displayed position
+ * and velocity to the point and velocity the new trajectory will have at the
+ * end of the window.</li>
+ * <li>{@link Method#PROJECTIVE_VELOCITY}: projective velocity blending, which
+ * blends the velocities and projects along the blended velocity before
+ * interpolating towards the new trajectory.</li>
+ * </ul>
+ * Orientation is interpolated along the shortest arc between the displayed
+ * orientation and the new dead reckoned one in every method.<p>
+ *
+ * Per-entity state is held in primitive arrays and the new trajectory is dead
+ * reckoned with
+ * {@link DeadReckoner#deadReckon(int, DeadReckoningState, double, DeadReckoningState)},
+ * so updates and queries create no objects. Entities are addressed by the
+ * index returned by {@link #add()}. Times are in seconds on any clock, as long
+ * as the same clock is used throughout. Not thread safe.<p>
+ *
+ * Unlike the input states, the velocity and acceleration of the smoothed
+ * states returned by {@link #getState(int, double, DeadReckoningState)} are
+ * always in world coordinates, since a blend of two trajectories has no
+ * single body frame.
+ */
+public class DeadReckoningSmoother {
+
+    /**
+     * How the displayed state converges on the new trajectory
+     */
+    public enum Method {
+        LINEAR,
+        CUBIC_HERMITE,
+        PROJECTIVE_VELOCITY
+    }
+
+    // displayed state when the last update arrived, world coordinates
+    private static final int OLD_X = 0, OLD_Y = 1, OLD_Z = 2;
+    private static final int OLD_VX = 3, OLD_VY = 4, OLD_VZ = 5;
+    private static final int OLD_AX = 6, OLD_AY = 7, OLD_AZ = 8;
+    private static final int OLD_PSI = 9, OLD_THETA = 10, OLD_PHI = 11;
+    // velocity and acceleration of the last update in world coordinates
+    private static final int NEW_VX = 12, NEW_VY = 13, NEW_VZ = 14;
+    private static final int NEW_AX = 15, NEW_AY = 16, NEW_AZ = 17;
+    // the last update as received
+    private static final int X = 18, Y = 19, Z = 20;
+    private static final int VX = 21, VY = 22, VZ = 23;
+    private static final int AX = 24, AY = 25, AZ = 26;
+    private static final int PSI = 27, THETA = 28, PHI = 29;
+    private static final int WX = 30, WY = 31, WZ = 32;
+    private static final int FIELD_COUNT = 33;
+
+    private final Method method;
+    private final double window;
+
+    private double[][] fields;
+    private int[] algorithms;
+    private double[] receiveTimes;
+    private boolean[] blending;
+    private int size;
+
+    private final DeadReckoningState work = new DeadReckoningState();
+    private final DeadReckoningState received = new DeadReckoningState();
+    private final DeadReckoningState end = new DeadReckoningState();
+    private final DeadReckoningState displayed = new DeadReckoningState();
+    private final double[] quaternion = new double[8];
+
+    /**
+     * @param method convergence method
+     * @param window convergence time in seconds; 0 disables smoothing
+     * @param capacity initial number of entities; grows as needed
+     */
+    public DeadReckoningSmoother(Method method, double window, int capacity) {
+        if (method == null) {
+            throw new IllegalArgumentException("method must not be null");
+        }
+        if (!(window >= 0.0)) {
+            throw new IllegalArgumentException("window must not be negative");
+        }
+        this.method = method;
+        this.window = window;
+        capacity = Math.max(capacity, 16);
+        fields = new double[FIELD_COUNT][capacity];
+        algorithms = new int[capacity];
+        receiveTimes = new double[capacity];
+        blending = new boolean[capacity];
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public double getWindow() {
+        return window;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds an entity with no state; it must be updated before it is queried.
+     *
+     * @return the entity's index
+     */
+    public int add() {
+        if (size == algorithms.length) {
+            final int capacity = size * 2;
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                fields[f] = Arrays.copyOf(fields[f], capacity);
+            }
+            algorithms = Arrays.copyOf(algorithms, capacity);
+            receiveTimes = Arrays.copyOf(receiveTimes, capacity);
+            blending = Arrays.copyOf(blending, capacity);
+        }
+        return size++;
+    }
+
+    /**
+     * Takes the state of a newly received Entity State PDU.
+     *
+     * @param index the entity
+     * @param espdu the PDU
+     * @param receiveTime when it arrived
+     */
+    public void update(int index, EntityStatePdu espdu, double receiveTime) {
+        work.set(espdu);
+        update(index, espdu.getDeadReckoningParameters().getDeadReckoningAlgorithm(), work, receiveTime);
+    }
+
+    /**
+     * Takes a newly received state. The displayed state at
+     * <code>receiveTime</code> becomes the start of the convergence.
+     *
+     * @param index the entity
+     * @param algorithm the dead reckoning algorithm of the new state
+     * @param state the new state; copied
+     * @param receiveTime when it arrived
+     */
+    public void update(int index, int algorithm, DeadReckoningState state, double receiveTime) {
+        checkIndex(index);
+        if (!DeadReckoningAlgorithm.enumerationForValueExists(algorithm) || algorithm == DeadReckoningAlgorithm.OTHER.value) {
+            throw new IllegalArgumentException("Unsupported dead reckoning algorithm " + algorithm);
+        }
+        final double[][] f = fields;
+        if (algorithms[index] != 0 && window > 0.0) {
+            getState(index, receiveTime, displayed);
+            f[OLD_X][index] = displayed.x;
+            f[OLD_Y][index] = displayed.y;
+            f[OLD_Z][index] = displayed.z;
+            f[OLD_VX][index] = displayed.velocityX;
+            f[OLD_VY][index] = displayed.velocityY;
+            f[OLD_VZ][index] = displayed.velocityZ;
+            f[OLD_AX][index] = displayed.accelerationX;
+            f[OLD_AY][index] = displayed.accelerationY;
+            f[OLD_AZ][index] = displayed.accelerationZ;
+            f[OLD_PSI][index] = displayed.psi;
+            f[OLD_THETA][index] = displayed.theta;
+            f[OLD_PHI][index] = displayed.phi;
+            blending[index] = true;
+        } else {
+            blending[index] = false;
+        }
+
+        f[X][index] = state.x;
+        f[Y][index] = state.y;
+        f[Z][index] = state.z;
+        f[VX][index] = state.velocityX;
+        f[VY][index] = state.velocityY;
+        f[VZ][index] = state.velocityZ;
+        f[AX][index] = state.accelerationX;
+        f[AY][index] = state.accelerationY;
+        f[AZ][index] = state.accelerationZ;
+        f[PSI][index] = state.psi;
+        f[THETA][index] = state.theta;
+        f[PHI][index] = state.phi;
+        f[WX][index] = state.angularVelocityX;
+        f[WY][index] = state.angularVelocityY;
+        f[WZ][index] = state.angularVelocityZ;
+        algorithms[index] = algorithm;
+        receiveTimes[index] = receiveTime;
+        end.set(state);
+        toWorld(algorithm, end);
+        f[NEW_VX][index] = end.velocityX;
+        f[NEW_VY][index] = end.velocityY;
+        f[NEW_VZ][index] = end.velocityZ;
+        f[NEW_AX][index] = end.accelerationX;
+        f[NEW_AY][index] = end.accelerationY;
+        f[NEW_AZ][index] = end.accelerationZ;
+    }
+
+    /**
+     * @return true if the entity is still converging at the given time
+     */
+    public boolean isConverging(int index, double time) {
+        checkIndex(index);
+        return blending[index] && time - receiveTimes[index] < window;
+    }
+
+    /**
+     * Works out the smoothed state of an entity. Nothing is changed, so
+     * states may be asked for at any times in any order.
+     *
+     * @param index the entity
+     * @param time time of interest, normally the current frame time
+     * @param out receives the state, with velocity and acceleration in world
+     * coordinates
+     * @throws IllegalStateException if the entity has never been updated
+     */
+    public void getState(int index, double time, DeadReckoningState out) {
+        checkIndex(index);
+        final int algorithm = algorithms[index];
+        if (algorithm == 0) {
+            throw new IllegalStateException("Entity " + index + " has not been updated");
+        }
+        final double sinceUpdate = time - receiveTimes[index];
+        final double[][] f = fields;
+        loadReceived(index, received);
+        DeadReckoner.deadReckon(algorithm, received, Math.max(0.0, sinceUpdate), out);
+        toWorld(algorithm, out);
+        if (!blending[index] || sinceUpdate >= window) {
+            return;
+        }
+        final double t = Math.max(0.0, sinceUpdate);
+        final double alpha = t / window;
+
+        // old trajectory projected from the displayed state at the update
+        final double oax = f[OLD_AX][index], oay = f[OLD_AY][index], oaz = f[OLD_AZ][index];
+        final double ovx = f[OLD_VX][index] + oax * t;
+        final double ovy = f[OLD_VY][index] + oay * t;
+        final double ovz = f[OLD_VZ][index] + oaz * t;
+
+        switch (method) {
+            case LINEAR: {
+                final double halfTSq = 0.5 * t * t;
+                final double ox = f[OLD_X][index] + f[OLD_VX][index] * t + oax * halfTSq;
+                final double oy = f[OLD_Y][index] + f[OLD_VY][index] * t + oay * halfTSq;
+                final double oz = f[OLD_Z][index] + f[OLD_VZ][index] * t + oaz * halfTSq;
+                out.x = ox + (out.x - ox) * alpha;
+                out.y = oy + (out.y - oy) * alpha;
+                out.z = oz + (out.z - oz) * alpha;
+                out.velocityX = ovx + (out.velocityX - ovx) * alpha;
+                out.velocityY = ovy + (out.velocityY - ovy) * alpha;
+                out.velocityZ = ovz + (out.velocityZ - ovz) * alpha;
+                break;
+            }
+            case PROJECTIVE_VELOCITY: {
+                // blended velocity, projected with the new acceleration
+                final double nax = f[NEW_AX][index], nay = f[NEW_AY][index], naz = f[NEW_AZ][index];
+                final double bvx = f[OLD_VX][index] + (f[NEW_VX][index] - f[OLD_VX][index]) * alpha;
+                final double bvy = f[OLD_VY][index] + (f[NEW_VY][index] - f[OLD_VY][index]) * alpha;
+                final double bvz = f[OLD_VZ][index] + (f[NEW_VZ][index] - f[OLD_VZ][index]) * alpha;
+                final double halfTSq = 0.5 * t * t;
+                final double px = f[OLD_X][index] + bvx * t + nax * halfTSq;
+                final double py = f[OLD_Y][index] + bvy * t + nay * halfTSq;
+                final double pz = f[OLD_Z][index] + bvz * t + naz * halfTSq;
+                out.x = px + (out.x - px) * alpha;
+                out.y = py + (out.y - py) * alpha;
+                out.z = pz + (out.z - pz) * alpha;
+                final double pvx = bvx + nax * t, pvy = bvy + nay * t, pvz = bvz + naz * t;
+                out.velocityX = pvx + (out.velocityX - pvx) * alpha;
+                out.velocityY = pvy + (out.velocityY - pvy) * alpha;
+                out.velocityZ = pvz + (out.velocityZ - pvz) * alpha;
+                break;
+            }
+            default: {
+                // cubic Hermite from the displayed state to the new trajectory at the end of the window
+                DeadReckoner.deadReckon(algorithm, received, window, end);
+                toWorld(algorithm, end);
+                final double s = alpha, s2 = s * s, s3 = s2 * s;
+                final double h00 = 2 * s3 - 3 * s2 + 1, h10 = s3 - 2 * s2 + s;
+                final double h01 = -2 * s3 + 3 * s2, h11 = s3 - s2;
+                final double d00 = 6 * s2 - 6 * s, d10 = 3 * s2 - 4 * s + 1;
+                final double d01 = -6 * s2 + 6 * s, d11 = 3 * s2 - 2 * s;
+                final double w = window;
+                out.x = h00 * f[OLD_X][index] + h10 * w * f[OLD_VX][index] + h01 * end.x + h11 * w * end.velocityX;
+                out.y = h00 * f[OLD_Y][index] + h10 * w * f[OLD_VY][index] + h01 * end.y + h11 * w * end.velocityY;
+                out.z = h00 * f[OLD_Z][index] + h10 * w * f[OLD_VZ][index] + h01 * end.z + h11 * w * end.velocityZ;
+                out.velocityX = (d00 * f[OLD_X][index] + d01 * end.x) / w + d10 * f[OLD_VX][index] + d11 * end.velocityX;
+                out.velocityY = (d00 * f[OLD_Y][index] + d01 * end.y) / w + d10 * f[OLD_VY][index] + d11 * end.velocityY;
+                out.velocityZ = (d00 * f[OLD_Z][index] + d01 * end.z) / w + d10 * f[OLD_VZ][index] + d11 * end.velocityZ;
+            }
+        }
+        blendOrientation(f[OLD_PSI][index], f[OLD_THETA][index], f[OLD_PHI][index], alpha, out);
+    }
+
+    private void loadReceived(int index, DeadReckoningState s) {
+        final double[][] f = fields;
+        s.x = f[X][index];
+        s.y = f[Y][index];
+        s.z = f[Z][index];
+        s.velocityX = f[VX][index];
+        s.velocityY = f[VY][index];
+        s.velocityZ = f[VZ][index];
+        s.accelerationX = f[AX][index];
+        s.accelerationY = f[AY][index];
+        s.accelerationZ = f[AZ][index];
+        s.psi = f[PSI][index];
+        s.theta = f[THETA][index];
+        s.phi = f[PHI][index];
+        s.angularVelocityX = f[WX][index];
+        s.angularVelocityY = f[WY][index];
+        s.angularVelocityZ = f[WZ][index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Entity " + index + " of " + size);
+        }
+    }
+
+    /**
+     * Expresses velocity and acceleration in world coordinates, dropping
+     * acceleration that the algorithm does not use.
+     */
+    private static void toWorld(int algorithm, DeadReckoningState s) {
+        final DeadReckoningAlgorithm DRalg = DeadReckoningAlgorithm.lookup[algorithm];
+        if (DRalg == DeadReckoningAlgorithm.STATIC_ENTITY_DOES_NOT_MOVE) {
+            s.velocityX = s.velocityY = s.velocityZ = 0;
+        }
+        if (DRalg != DeadReckoningAlgorithm.DRMR_V_W && DRalg != DeadReckoningAlgorithm.DRMF_V_W
+                && DRalg != DeadReckoningAlgorithm.DRMR_V_B && DRalg != DeadReckoningAlgorithm.DRMF_V_B) {
+            s.accelerationX = s.accelerationY = s.accelerationZ = 0;
+        }
+        if (DRalg == DeadReckoningAlgorithm.DRMF_P_B || DRalg == DeadReckoningAlgorithm.DRMR_P_B
+                || DRalg == DeadReckoningAlgorithm.DRMR_V_B || DRalg == DeadReckoningAlgorithm.DRMF_V_B) {
+            // transpose of the world to body matrix, see RotationUtils.body2ecef
+            final double cPsi = Math.cos(s.psi), sPsi = Math.sin(s.psi);
+            final double cTheta = Math.cos(s.theta), sTheta = Math.sin(s.theta);
+            final double cPhi = Math.cos(s.phi), sPhi = Math.sin(s.phi);
+            final double m00 = cTheta * cPsi, m01 = sPhi * sTheta * cPsi - cPhi * sPsi, m02 = cPhi * sTheta * cPsi + sPhi * sPsi;
+            final double m10 = cTheta * sPsi, m11 = sPhi * sTheta * sPsi + cPhi * cPsi, m12 = cPhi * sTheta * sPsi - sPhi * cPsi;
+            final double m20 = -sTheta, m21 = sPhi * cTheta, m22 = cPhi * cTheta;
+            double x = s.velocityX, y = s.velocityY, z = s.velocityZ;
+            s.velocityX = m00 * x + m01 * y + m02 * z;
+            s.velocityY = m10 * x + m11 * y + m12 * z;
+            s.velocityZ = m20 * x + m21 * y + m22 * z;
+            x = s.accelerationX;
+            y = s.accelerationY;
+            z = s.accelerationZ;
+            s.accelerationX = m00 * x + m01 * y + m02 * z;
+            s.accelerationY = m10 * x + m11 * y + m12 * z;
+            s.accelerationZ = m20 * x + m21 * y + m22 * z;
+        }
+    }
+
+    /**
+     * Normalized linear interpolation of quaternions from the displayed
+     * orientation towards the orientation in <code>out</code>.
+     */
+    private void blendOrientation(double psi, double theta, double phi, double alpha, DeadReckoningState out) {
+        final double[] q = quaternion;
+        toQuaternion(psi, theta, phi, q, 0);
+        toQuaternion(out.psi, out.theta, out.phi, q, 4);
+        final double dot = q[0] * q[4] + q[1] * q[5] + q[2] * q[6] + q[3] * q[7];
+        final double sign = dot < 0 ? -1.0 : 1.0;
+        double q0 = q[0] + (sign * q[4] - q[0]) * alpha;
+        double q1 = q[1] + (sign * q[5] - q[1]) * alpha;
+        double q2 = q[2] + (sign * q[6] - q[2]) * alpha;
+        double q3 = q[3] + (sign * q[7] - q[3]) * alpha;
+        final double norm = Math.sqrt(q0 * q0 + q1 * q1 + q2 * q2 + q3 * q3);
+        q0 /= norm;
+        q1 /= norm;
+        q2 /= norm;
+        q3 /= norm;
+        out.psi = Math.atan2(2 * (q0 * q3 + q1 * q2), 1 - 2 * (q2 * q2 + q3 * q3));
+        out.theta = Math.asin(Math.max(-1.0, Math.min(1.0, 2 * (q0 * q2 - q3 * q1))));
+        out.phi = Math.atan2(2 * (q0 * q1 + q2 * q3), 1 - 2 * (q1 * q1 + q2 * q2));
+    }
+
+    private static void toQuaternion(double psi, double theta, double phi, double[] q, int at) {
+        final double cr = Math.cos(phi / 2.0), sr = Math.sin(phi / 2.0);
+        final double cp = Math.cos(theta / 2.0), sp = Math.sin(theta / 2.0);
+        final double cy = Math.cos(psi / 2.0), sy = Math.sin(psi / 2.0);
+        q[at] = cr * cp * cy + sr * sp * sy;
+        q[at + 1] = sr * cp * cy - cr * sp * sy;
+        q[at + 2] = cr * sp * cy + sr * cp * sy;
+        q[at + 3] = cr * cp * sy - sr * sp * cy;
+    }
+}
@@ -0,0 +1,95 @@
+package edu.nps.moves.deadreckoning;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * The kinematic state of an entity as plain doubles, for dead reckoning with
+ * {@link DeadReckoner#deadReckon(int, DeadReckoningState, double, DeadReckoningState)}
+ * without creating objects. Fields are public so that a holder can be reused
+ * freely on a hot path. Units and frames are those of the Entity State PDU:
+ * location in metres in world (geocentric) coordinates, velocity and
+ * acceleration in metres per second (squared) in world or body coordinates
+ * depending on the algorithm, orientation as DIS Euler angles in radians and
+ * angular velocity in radians per second about the body axes.
+ */
+public class DeadReckoningState {
+
+    public double x, y, z;
+    public double velocityX, velocityY, velocityZ;
+    public double accelerationX, accelerationY, accelerationZ;
+    public double psi, theta, phi;
+    public double angularVelocityX, angularVelocityY, angularVelocityZ;
+
+    public DeadReckoningState() {
+    }
+
+    /**
+     * Copies the kinematic fields of an Entity State PDU into this state.
+     *
+     * @return this state
+     */
+    public DeadReckoningState set(EntityStatePdu espdu) {
+        x = espdu.getEntityLocation().getX();
+        y = espdu.getEntityLocation().getY();
+        z = espdu.getEntityLocation().getZ();
+        velocityX = espdu.getEntityLinearVelocity().getX();
+        velocityY = espdu.getEntityLinearVelocity().getY();
+        velocityZ = espdu.getEntityLinearVelocity().getZ();
+        accelerationX = espdu.getDeadReckoningParameters().getEntityLinearAcceleration().getX();
+        accelerationY = espdu.getDeadReckoningParameters().getEntityLinearAcceleration().getY();
+        accelerationZ = espdu.getDeadReckoningParameters().getEntityLinearAcceleration().getZ();
+        psi = espdu.getEntityOrientation().getPsi();
+        theta = espdu.getEntityOrientation().getTheta();
+        phi = espdu.getEntityOrientation().getPhi();
+        angularVelocityX = espdu.getDeadReckoningParameters().getEntityAngularVelocity().getX();
+        angularVelocityY = espdu.getDeadReckoningParameters().getEntityAngularVelocity().getY();
+        angularVelocityZ = espdu.getDeadReckoningParameters().getEntityAngularVelocity().getZ();
+        return this;
+    }
+
+    /**
+     * Copies another state into this one.
+     *
+     * @return this state
+     */
+    public DeadReckoningState set(DeadReckoningState other) {
+        x = other.x;
+        y = other.y;
+        z = other.z;
+        velocityX = other.velocityX;
+        velocityY = other.velocityY;
+        velocityZ = other.velocityZ;
+        accelerationX = other.accelerationX;
+        accelerationY = other.accelerationY;
+        accelerationZ = other.accelerationZ;
+        psi = other.psi;
+        theta = other.theta;
+        phi = other.phi;
+        angularVelocityX = other.angularVelocityX;
+        angularVelocityY = other.angularVelocityY;
+        angularVelocityZ = other.angularVelocityZ;
+        return this;
+    }
+
+    /**
+     * Writes location, orientation, velocity and acceleration back to an
+     * Entity State PDU, rounding to the PDU's field types.
+     */
+    public void copyTo(EntityStatePdu espdu) {
+        espdu.getEntityLocation().setX(x);
+        espdu.getEntityLocation().setY(y);
+        espdu.getEntityLocation().setZ(z);
+        espdu.getEntityLinearVelocity().setX((float) velocityX);
+        espdu.getEntityLinearVelocity().setY((float) velocityY);
+        espdu.getEntityLinearVelocity().setZ((float) velocityZ);
+        espdu.getDeadReckoningParameters().getEntityLinearAcceleration().setX((float) accelerationX);
+        espdu.getDeadReckoningParameters().getEntityLinearAcceleration().setY((float) accelerationY);
+        espdu.getDeadReckoningParameters().getEntityLinearAcceleration().setZ((float) accelerationZ);
+        espdu.getEntityOrientation().setPsi((float) psi);
+        espdu.getEntityOrientation().setTheta((float) theta);
+        espdu.getEntityOrientation().setPhi((float) phi);
+        espdu.getDeadReckoningParameters().getEntityAngularVelocity().setX((float) angularVelocityX);
+        espdu.getDeadReckoningParameters().getEntityAngularVelocity().setY((float) angularVelocityY);
+        espdu.getDeadReckoningParameters().getEntityAngularVelocity().setZ((float) angularVelocityZ);
+    }
+}
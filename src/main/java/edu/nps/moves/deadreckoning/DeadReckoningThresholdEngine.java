@@ -0,0 +1,233 @@
+package edu.nps.moves.deadreckoning;
+
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.disenum.DeadReckoningAlgorithm;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Decides when Entity State PDUs for locally owned entities need to be sent,
+ * see IEEE Std 1278.1-2012 section 5.2.5 and annex E. For each entity the
+ * engine keeps the state last sent and dead reckons it exactly as a remote
+ * receiver would. An ESPDU is sent only when the true state has drifted from
+ * the dead reckoned one by more than the position or orientation threshold,
+ * or when the heartbeat interval has passed since the last ESPDU.<p>
+ *
+ * The application reports the true state of its entities with
+ * {@link #report(int, DeadReckoningState)} and calls {@link #tick(long)}
+ * regularly, typically at its frame rate; both must be called from the same
+ * thread. Checking an entity that does not need an update creates no objects.
+ * <p>
+ *
+ * Example:
+ * <pre>
+ * DeadReckoningThresholdEngine engine = new DeadReckoningThresholdEngine(espdu -&gt; {
+ *     try {
+ *         connection.send(espdu);
+ *     } catch (IOException e) {
+ *         throw new UncheckedIOException(e);
+ *     }
+ * });
+ * int tank = engine.addEntity(tankEspdu);
+ * ...
+ * engine.report(tank, tankState);      // every frame
+ * engine.tick(System.nanoTime());
+ * </pre>
+ *
+ * @see RotationUtils#quaternionThresholdExceeded(double, double, double, double, double, double, double)
+ */
+public class DeadReckoningThresholdEngine {
+
+    /**
+     * Default position threshold in metres (DRA_POS_THRSH)
+     */
+    public static final double DEFAULT_POSITION_THRESHOLD = 1.0;
+
+    /**
+     * Default orientation threshold in radians (DRA_ORIENT_THRSH, 3 degrees)
+     */
+    public static final double DEFAULT_ORIENTATION_THRESHOLD = 3.0 * Math.PI / 180.0;
+
+    /**
+     * Default heartbeat interval in seconds (HBT_ESPDU_KIND)
+     */
+    public static final double DEFAULT_HEARTBEAT_SECONDS = 5.0;
+
+    private static final double NANOS_PER_SECOND = 1.0e9;
+
+    /**
+     * One owned entity
+     */
+    private static final class Entry {
+
+        final EntityStatePdu espdu;
+        final int algorithm;
+        final DeadReckoningState truth = new DeadReckoningState();
+        final DeadReckoningState sent = new DeadReckoningState();
+        long sentNanos;
+        boolean reported;
+        boolean sendPending = true;
+
+        Entry(EntityStatePdu espdu, int algorithm) {
+            this.espdu = espdu;
+            this.algorithm = algorithm;
+        }
+    }
+
+    private final Consumer<EntityStatePdu> output;
+    private final List<Entry> entities = new ArrayList<>();
+    private final DeadReckoningState predicted = new DeadReckoningState();
+
+    private double positionThresholdSquared = DEFAULT_POSITION_THRESHOLD * DEFAULT_POSITION_THRESHOLD;
+    private double quaternionEpsilon = RotationUtils.epsilonQuaternionThreshold(DEFAULT_ORIENTATION_THRESHOLD);
+    private long heartbeatNanos = (long) (DEFAULT_HEARTBEAT_SECONDS * NANOS_PER_SECOND);
+
+    private long sentCount;
+    private long suppressedCount;
+
+    /**
+     * @param output called with the ESPDU of an entity whenever one must be
+     * sent; the PDU belongs to the engine and is reused
+     */
+    public DeadReckoningThresholdEngine(Consumer<EntityStatePdu> output) {
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null");
+        }
+        this.output = output;
+    }
+
+    /**
+     * @param metres position error that triggers an update
+     */
+    public void setPositionThreshold(double metres) {
+        positionThresholdSquared = metres * metres;
+    }
+
+    /**
+     * @param radians orientation error that triggers an update
+     */
+    public void setOrientationThreshold(double radians) {
+        quaternionEpsilon = RotationUtils.epsilonQuaternionThreshold(radians);
+    }
+
+    /**
+     * @param seconds longest time between updates of an entity
+     */
+    public void setHeartbeat(double seconds) {
+        heartbeatNanos = (long) (seconds * NANOS_PER_SECOND);
+    }
+
+    /**
+     * Adds an owned entity. The PDU supplies the entity's identity, type,
+     * marking and dead reckoning algorithm; the engine fills in the kinematic
+     * fields each time it sends it. The first ESPDU is sent on the first tick
+     * after the entity's state is reported.
+     *
+     * @param espdu the entity's ESPDU, owned by the engine from now on
+     * @return handle for reporting the entity's state
+     * @throws IllegalArgumentException if the PDU's dead reckoning algorithm
+     * is not 1 through 9
+     */
+    public int addEntity(EntityStatePdu espdu) {
+        final int algorithm = espdu.getDeadReckoningParameters().getDeadReckoningAlgorithm();
+        if (!DeadReckoningAlgorithm.enumerationForValueExists(algorithm) || algorithm == DeadReckoningAlgorithm.OTHER.value) {
+            throw new IllegalArgumentException("Unsupported dead reckoning algorithm " + algorithm);
+        }
+        entities.add(new Entry(espdu, algorithm));
+        return entities.size() - 1;
+    }
+
+    public int getEntityCount() {
+        return entities.size();
+    }
+
+    /**
+     * Gives access to an entity's ESPDU, for example to change its appearance.
+     * Call {@link #sendNow(int)} afterwards if receivers must see the change
+     * before the next threshold or heartbeat update.
+     */
+    public EntityStatePdu getPdu(int handle) {
+        return entities.get(handle).espdu;
+    }
+
+    /**
+     * Records the true state of an entity. The state is copied.
+     */
+    public void report(int handle, DeadReckoningState truth) {
+        final Entry entry = entities.get(handle);
+        entry.truth.set(truth);
+        entry.reported = true;
+    }
+
+    /**
+     * Sends the entity's ESPDU on the next tick regardless of thresholds.
+     */
+    public void sendNow(int handle) {
+        entities.get(handle).sendPending = true;
+    }
+
+    /**
+     * Checks every entity and sends the ESPDUs that are due.
+     *
+     * @param nowNanos the current time on the {@link System#nanoTime()} clock
+     * @return number of ESPDUs sent
+     */
+    public int tick(long nowNanos) {
+        int sent = 0;
+        for (int i = 0; i < entities.size(); i++) {
+            final Entry entry = entities.get(i);
+            if (!entry.reported) {
+                continue;
+            }
+            if (entry.sendPending || nowNanos - entry.sentNanos >= heartbeatNanos || thresholdExceeded(entry, nowNanos)) {
+                send(entry, nowNanos);
+                sent++;
+            } else {
+                suppressedCount++;
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Compares the true state with the state receivers are dead reckoning.
+     */
+    private boolean thresholdExceeded(Entry entry, long nowNanos) {
+        final double deltaTime = (nowNanos - entry.sentNanos) / NANOS_PER_SECOND;
+        DeadReckoner.deadReckon(entry.algorithm, entry.sent, Math.max(0.0, deltaTime), predicted);
+        final DeadReckoningState truth = entry.truth;
+        final double dx = truth.x - predicted.x;
+        final double dy = truth.y - predicted.y;
+        final double dz = truth.z - predicted.z;
+        if (dx * dx + dy * dy + dz * dz > positionThresholdSquared) {
+            return true;
+        }
+        return RotationUtils.quaternionThresholdExceeded(truth.phi, truth.theta, truth.psi,
+                predicted.phi, predicted.theta, predicted.psi, quaternionEpsilon);
+    }
+
+    private void send(Entry entry, long nowNanos) {
+        entry.truth.copyTo(entry.espdu);
+        // receivers dead reckon from what is on the wire, which is rounded to float
+        entry.sent.set(entry.espdu);
+        entry.sentNanos = nowNanos;
+        entry.sendPending = false;
+        sentCount++;
+        output.accept(entry.espdu);
+    }
+
+    /**
+     * @return number of ESPDUs sent
+     */
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * @return number of checks that found no ESPDU was needed
+     */
+    public long getSuppressedCount() {
+        return suppressedCount;
+    }
+}
@@ -304,4 +304,34 @@ public class RotationUtils {
         double S = RA.getQ0() * RD.getQ0() + RA.getQ1() * RD.getQ1() + RA.getQ2() * RD.getQ2() + RA.getQ3() * RD.getQ3();
         return 1 - S > epsilon; 
     }
+
+    /**
+     * Check if quaternion threshold is exceeded, see IEE Std 1278.1-2012,
+     * comparing two orientations given as DIS Euler angles without creating
+     * Rotation objects.
+     * @param phiA actual x'' rotation in radians
+     * @param thetaA actual y' rotation in radians
+     * @param psiA actual z rotation in radians
+     * @param phiD dead reckoned x'' rotation in radians
+     * @param thetaD dead reckoned y' rotation in radians
+     * @param psiD dead reckoned z rotation in radians
+     * @param epsilon threshold for 1-S
+     * @return true if exceeded
+     */
+    public static boolean quaternionThresholdExceeded(double phiA, double thetaA, double psiA,
+            double phiD, double thetaD, double psiD, double epsilon) {
+        double crA = Math.cos(phiA / 2.0), srA = Math.sin(phiA / 2.0);
+        double cpA = Math.cos(thetaA / 2.0), spA = Math.sin(thetaA / 2.0);
+        double cyA = Math.cos(psiA / 2.0), syA = Math.sin(psiA / 2.0);
+        double crD = Math.cos(phiD / 2.0), srD = Math.sin(phiD / 2.0);
+        double cpD = Math.cos(thetaD / 2.0), spD = Math.sin(thetaD / 2.0);
+        double cyD = Math.cos(psiD / 2.0), syD = Math.sin(psiD / 2.0);
+
+        double S = (crA * cpA * cyA + srA * spA * syA) * (crD * cpD * cyD + srD * spD * syD)
+                + (srA * cpA * cyA - crA * spA * syA) * (srD * cpD * cyD - crD * spD * syD)
+                + (crA * spA * cyA + srA * cpA * syA) * (crD * spD * cyD + srD * cpD * syD)
+                + (crA * cpA * syA - srA * spA * cyA) * (crD * cpD * syD - srD * spD * cyD);
+        // q and -q are the same orientation
+        return 1 - Math.abs(S) > epsilon;
+    }
 }
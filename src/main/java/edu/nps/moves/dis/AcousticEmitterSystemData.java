@@ -162,9 +162,14 @@ public class AcousticEmitterSystemData extends Object implements Serializable {
         acousticEmitterSystem.unmarshal(buff);
         emitterLocation.unmarshal(buff);
         for (int idx = 0; idx < numberOfBeams; idx++) {
-            AcousticBeamData anX = new AcousticBeamData();
+            AcousticBeamData anX = idx < beamRecords.size() ? beamRecords.get(idx) : new AcousticBeamData();
             anX.unmarshal(buff);
-            beamRecords.add(anX);
+            if (idx == beamRecords.size()) {
+                beamRecords.add(anX);
+            }
+        }
+        while (beamRecords.size() > Math.max(numberOfBeams, 0)) {
+            beamRecords.remove(beamRecords.size() - 1);
         }
 
     } // end of unmarshal method 
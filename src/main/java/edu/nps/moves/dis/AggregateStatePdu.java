@@ -470,15 +470,25 @@ public class AggregateStatePdu extends EntityManagementFamilyPdu implements Seri
         numberOfSilentAggregateTypes = (int) (buff.getShort() & 0xFFFF);
         numberOfSilentEntityTypes = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfDisAggregates; idx++) {
-            AggregateID anX = new AggregateID();
+            AggregateID anX = idx < aggregateIDList.size() ? aggregateIDList.get(idx) : new AggregateID();
             anX.unmarshal(buff);
-            aggregateIDList.add(anX);
+            if (idx == aggregateIDList.size()) {
+                aggregateIDList.add(anX);
+            }
+        }
+        while (aggregateIDList.size() > Math.max(numberOfDisAggregates, 0)) {
+            aggregateIDList.remove(aggregateIDList.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfDisEntities; idx++) {
-            EntityID anX = new EntityID();
+            EntityID anX = idx < entityIDList.size() ? entityIDList.get(idx) : new EntityID();
             anX.unmarshal(buff);
-            entityIDList.add(anX);
+            if (idx == entityIDList.size()) {
+                entityIDList.add(anX);
+            }
+        }
+        while (entityIDList.size() > Math.max(numberOfDisEntities, 0)) {
+            entityIDList.remove(entityIDList.size() - 1);
         }
         //Determine if pad2 is present
         int padBits = 16 * ((numberOfDisAggregates + numberOfDisEntities) % 2);
@@ -486,22 +496,37 @@ public class AggregateStatePdu extends EntityManagementFamilyPdu implements Seri
             pad2 = buff.getShort();
         }
         for (int idx = 0; idx < numberOfSilentAggregateTypes; idx++) {
-            SilentAggregateSystem anX = new SilentAggregateSystem();
+            SilentAggregateSystem anX = idx < silentAggregateSystemList.size() ? silentAggregateSystemList.get(idx) : new SilentAggregateSystem();
             anX.unmarshal(buff);
-            silentAggregateSystemList.add(anX);
+            if (idx == silentAggregateSystemList.size()) {
+                silentAggregateSystemList.add(anX);
+            }
+        }
+        while (silentAggregateSystemList.size() > Math.max(numberOfSilentAggregateTypes, 0)) {
+            silentAggregateSystemList.remove(silentAggregateSystemList.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfSilentEntityTypes; idx++) {
-            SilentEntitySystem anX = new SilentEntitySystem();
+            SilentEntitySystem anX = idx < silentEntitySystemList.size() ? silentEntitySystemList.get(idx) : new SilentEntitySystem();
             anX.unmarshal(buff);
-            silentEntitySystemList.add(anX);
+            if (idx == silentEntitySystemList.size()) {
+                silentEntitySystemList.add(anX);
+            }
+        }
+        while (silentEntitySystemList.size() > Math.max(numberOfSilentEntityTypes, 0)) {
+            silentEntitySystemList.remove(silentEntitySystemList.size() - 1);
         }
 
         numberOfVariableDatumRecords = buff.getInt();
         for (int idx = 0; idx < numberOfVariableDatumRecords; idx++) {
-            VariableDatum anX = new VariableDatum();
+            VariableDatum anX = idx < variableDatumList.size() ? variableDatumList.get(idx) : new VariableDatum();
             anX.unmarshal(buff);
-            variableDatumList.add(anX);
+            if (idx == variableDatumList.size()) {
+                variableDatumList.add(anX);
+            }
+        }
+        while (variableDatumList.size() > Math.max(numberOfVariableDatumRecords, 0)) {
+            variableDatumList.remove(variableDatumList.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -246,9 +246,14 @@ public class ArealObjectStatePdu extends SyntheticEnvironmentFamilyPdu implement
         requesterID.unmarshal(buff);
         receivingID.unmarshal(buff);
         for (int idx = 0; idx < numberOfPoints; idx++) {
-            Vector3Double anX = new Vector3Double();
+            Vector3Double anX = idx < objectLocation.size() ? objectLocation.get(idx) : new Vector3Double();
             anX.unmarshal(buff);
-            objectLocation.add(anX);
+            if (idx == objectLocation.size()) {
+                objectLocation.add(anX);
+            }
+        }
+        while (objectLocation.size() > Math.max(numberOfPoints, 0)) {
+            objectLocation.remove(objectLocation.size() - 1);
         }
 
     } // end of unmarshal method 
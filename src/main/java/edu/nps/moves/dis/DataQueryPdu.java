@@ -176,15 +176,25 @@ public class DataQueryPdu extends SimulationManagementFamilyPdu implements Seria
         numberOfFixedDatumRecords = buff.getInt();
         numberOfVariableDatumRecords = buff.getInt();
         for (int idx = 0; idx < numberOfFixedDatumRecords; idx++) {
-            UnsignedIntegerWrapper anX = new UnsignedIntegerWrapper();
+            UnsignedIntegerWrapper anX = idx < fixedDatums.size() ? fixedDatums.get(idx) : new UnsignedIntegerWrapper();
             anX.unmarshal(buff);
-            fixedDatums.add(anX);
+            if (idx == fixedDatums.size()) {
+                fixedDatums.add(anX);
+            }
+        }
+        while (fixedDatums.size() > Math.max(numberOfFixedDatumRecords, 0)) {
+            fixedDatums.remove(fixedDatums.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfVariableDatumRecords; idx++) {
-            UnsignedIntegerWrapper anX = new UnsignedIntegerWrapper();
+            UnsignedIntegerWrapper anX = idx < variableDatums.size() ? variableDatums.get(idx) : new UnsignedIntegerWrapper();
             anX.unmarshal(buff);
-            variableDatums.add(anX);
+            if (idx == variableDatums.size()) {
+                variableDatums.add(anX);
+            }
+        }
+        while (variableDatums.size() > Math.max(numberOfVariableDatumRecords, 0)) {
+            variableDatums.remove(variableDatums.size() - 1);
         }
 
     } // end of unmarshal method 
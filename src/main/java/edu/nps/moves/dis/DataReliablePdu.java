@@ -209,15 +209,25 @@ public class DataReliablePdu extends SimulationManagementWithReliabilityFamilyPd
         numberOfFixedDatumRecords = buff.getInt();
         numberOfVariableDatumRecords = buff.getInt();
         for (int idx = 0; idx < numberOfFixedDatumRecords; idx++) {
-            FixedDatum anX = new FixedDatum();
+            FixedDatum anX = idx < fixedDatumRecords.size() ? fixedDatumRecords.get(idx) : new FixedDatum();
             anX.unmarshal(buff);
-            fixedDatumRecords.add(anX);
+            if (idx == fixedDatumRecords.size()) {
+                fixedDatumRecords.add(anX);
+            }
+        }
+        while (fixedDatumRecords.size() > Math.max(numberOfFixedDatumRecords, 0)) {
+            fixedDatumRecords.remove(fixedDatumRecords.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfVariableDatumRecords; idx++) {
-            VariableDatum anX = new VariableDatum();
+            VariableDatum anX = idx < variableDatumRecords.size() ? variableDatumRecords.get(idx) : new VariableDatum();
             anX.unmarshal(buff);
-            variableDatumRecords.add(anX);
+            if (idx == variableDatumRecords.size()) {
+                variableDatumRecords.add(anX);
+            }
+        }
+        while (variableDatumRecords.size() > Math.max(numberOfVariableDatumRecords, 0)) {
+            variableDatumRecords.remove(variableDatumRecords.size() - 1);
         }
 
     } // end of unmarshal method 
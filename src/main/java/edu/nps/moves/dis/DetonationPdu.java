@@ -226,9 +226,14 @@ public class DetonationPdu extends WarfareFamilyPdu implements Serializable {
         numberOfArticulationParameters = (short) (buff.get() & 0xFF);
         pad = buff.getShort();
         for (int idx = 0; idx < numberOfArticulationParameters; idx++) {
-            ArticulationParameter anX = new ArticulationParameter();
+            ArticulationParameter anX = idx < articulationParameters.size() ? articulationParameters.get(idx) : new ArticulationParameter();
             anX.unmarshal(buff);
-            articulationParameters.add(anX);
+            if (idx == articulationParameters.size()) {
+                articulationParameters.add(anX);
+            }
+        }
+        while (articulationParameters.size() > Math.max(numberOfArticulationParameters, 0)) {
+            articulationParameters.remove(articulationParameters.size() - 1);
         }
 
     } // end of unmarshal method 
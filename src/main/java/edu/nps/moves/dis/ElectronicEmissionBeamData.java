@@ -230,9 +230,14 @@ public class ElectronicEmissionBeamData extends Object implements Serializable {
         pad4 = (short) (buff.get() & 0xFF);
         jammingModeSequence = buff.getInt();
         for (int idx = 0; idx < numberOfTrackJamTargets; idx++) {
-            TrackJamTarget anX = new TrackJamTarget();
+            TrackJamTarget anX = idx < trackJamTargets.size() ? trackJamTargets.get(idx) : new TrackJamTarget();
             anX.unmarshal(buff);
-            trackJamTargets.add(anX);
+            if (idx == trackJamTargets.size()) {
+                trackJamTargets.add(anX);
+            }
+        }
+        while (trackJamTargets.size() > Math.max(numberOfTrackJamTargets, 0)) {
+            trackJamTargets.remove(trackJamTargets.size() - 1);
         }
 
     } // end of unmarshal method 
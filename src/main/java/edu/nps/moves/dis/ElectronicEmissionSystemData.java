@@ -168,9 +168,14 @@ public class ElectronicEmissionSystemData extends Object implements Serializable
         emitterSystem.unmarshal(buff);
         location.unmarshal(buff);
         for (int idx = 0; idx < numberOfBeams; idx++) {
-            ElectronicEmissionBeamData anX = new ElectronicEmissionBeamData();
+            ElectronicEmissionBeamData anX = idx < beamDataRecords.size() ? beamDataRecords.get(idx) : new ElectronicEmissionBeamData();
             anX.unmarshal(buff);
-            beamDataRecords.add(anX);
+            if (idx == beamDataRecords.size()) {
+                beamDataRecords.add(anX);
+            }
+        }
+        while (beamDataRecords.size() > Math.max(numberOfBeams, 0)) {
+            beamDataRecords.remove(beamDataRecords.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -171,9 +171,14 @@ public class ElectronicEmissionsPdu extends DistributedEmissionsFamilyPdu implem
         numberOfSystems = (short) (buff.get() & 0xFF);
         paddingForEmissionsPdu = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfSystems; idx++) {
-            ElectronicEmissionSystemData anX = new ElectronicEmissionSystemData();
+            ElectronicEmissionSystemData anX = idx < systems.size() ? systems.get(idx) : new ElectronicEmissionSystemData();
             anX.unmarshal(buff);
-            systems.add(anX);
+            if (idx == systems.size()) {
+                systems.add(anX);
+            }
+        }
+        while (systems.size() > Math.max(numberOfSystems, 0)) {
+            systems.remove(systems.size() - 1);
         }
 
     } // end of unmarshal method 
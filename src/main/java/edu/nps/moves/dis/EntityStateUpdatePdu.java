@@ -432,9 +432,14 @@ public class EntityStateUpdatePdu extends EntityInformationFamilyPdu implements
         entityOrientation.unmarshal(buff);
         entityAppearance = buff.getInt();
         for (int idx = 0; idx < numberOfArticulationParameters; idx++) {
-            ArticulationParameter anX = new ArticulationParameter();
+            ArticulationParameter anX = idx < articulationParameters.size() ? articulationParameters.get(idx) : new ArticulationParameter();
             anX.unmarshal(buff);
-            articulationParameters.add(anX);
+            if (idx == articulationParameters.size()) {
+                articulationParameters.add(anX);
+            }
+        }
+        while (articulationParameters.size() > Math.max(numberOfArticulationParameters, 0)) {
+            articulationParameters.remove(articulationParameters.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -183,9 +183,14 @@ public class EnvironmentalProcessPdu extends SyntheticEnvironmentFamilyPdu imple
         numberOfEnvironmentRecords = (short) (buff.get() & 0xFF);
         sequenceNumber = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfEnvironmentRecords; idx++) {
-            Environment anX = new Environment();
+            Environment anX = idx < environmentRecords.size() ? environmentRecords.get(idx) : new Environment();
             anX.unmarshal(buff);
-            environmentRecords.add(anX);
+            if (idx == environmentRecords.size()) {
+                environmentRecords.add(anX);
+            }
+        }
+        while (environmentRecords.size() > Math.max(numberOfEnvironmentRecords, 0)) {
+            environmentRecords.remove(environmentRecords.size() - 1);
         }
 
     } // end of unmarshal method 
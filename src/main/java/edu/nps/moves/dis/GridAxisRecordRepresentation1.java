@@ -132,9 +132,14 @@ public class GridAxisRecordRepresentation1 extends GridAxisRecord implements Ser
         fieldOffset = buff.getFloat();
         numberOfValues = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfValues; idx++) {
-            TwoByteChunk anX = new TwoByteChunk();
+            TwoByteChunk anX = idx < dataValues.size() ? dataValues.get(idx) : new TwoByteChunk();
             anX.unmarshal(buff);
-            dataValues.add(anX);
+            if (idx == dataValues.size()) {
+                dataValues.add(anX);
+            }
+        }
+        while (dataValues.size() > Math.max(numberOfValues, 0)) {
+            dataValues.remove(dataValues.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -100,9 +100,14 @@ public class GridAxisRecordRepresentation2 extends GridAxisRecord implements Ser
 
         numberOfValues = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfValues; idx++) {
-            FourByteChunk anX = new FourByteChunk();
+            FourByteChunk anX = idx < dataValues.size() ? dataValues.get(idx) : new FourByteChunk();
             anX.unmarshal(buff);
-            dataValues.add(anX);
+            if (idx == dataValues.size()) {
+                dataValues.add(anX);
+            }
+        }
+        while (dataValues.size() > Math.max(numberOfValues, 0)) {
+            dataValues.remove(dataValues.size() - 1);
         }
 
     } // end of unmarshal method 
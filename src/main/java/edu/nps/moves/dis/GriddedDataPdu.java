@@ -310,9 +310,14 @@ public class GriddedDataPdu extends SyntheticEnvironmentFamilyPdu implements Ser
         padding1 = (int) (buff.getShort() & 0xFFFF);
         padding2 = (short) (buff.get() & 0xFF);
         for (int idx = 0; idx < numberOfGridAxes; idx++) {
-            GridAxisRecord anX = new GridAxisRecord();
+            GridAxisRecord anX = idx < gridDataList.size() ? gridDataList.get(idx) : new GridAxisRecord();
             anX.unmarshal(buff);
-            gridDataList.add(anX);
+            if (idx == gridDataList.size()) {
+                gridDataList.add(anX);
+            }
+        }
+        while (gridDataList.size() > Math.max(numberOfGridAxes, 0)) {
+            gridDataList.remove(gridDataList.size() - 1);
         }
 
     } // end of unmarshal method 
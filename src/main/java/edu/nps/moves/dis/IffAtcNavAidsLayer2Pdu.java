@@ -125,9 +125,14 @@ public class IffAtcNavAidsLayer2Pdu extends IffAtcNavAidsLayer1Pdu implements Se
         beamData.unmarshal(buff);
         secondaryOperationalData.unmarshal(buff);
         for (int idx = 0; idx < secondaryOperationalData.getNumberofFundamentalParameterDataSets(); idx++) {
-            FundamentalParameterDataIff anX = new FundamentalParameterDataIff();
+            FundamentalParameterDataIff anX = idx < fundamentalIffParameters.size() ? fundamentalIffParameters.get(idx) : new FundamentalParameterDataIff();
             anX.unmarshal(buff);
-            fundamentalIffParameters.add(anX);
+            if (idx == fundamentalIffParameters.size()) {
+                fundamentalIffParameters.add(anX);
+            }
+        }
+        while (fundamentalIffParameters.size() > Math.max(secondaryOperationalData.getNumberofFundamentalParameterDataSets(), 0)) {
+            fundamentalIffParameters.remove(fundamentalIffParameters.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -264,9 +264,14 @@ public class IntercomControlPdu extends RadioCommunicationsFamilyPdu implements
         masterCommunicationsDeviceID = (int) (buff.getShort() & 0xFFFF);
         intercomParametersLength = buff.getInt();
         for (int idx = 0; idx < intercomParametersLength; idx++) {
-            IntercomCommunicationsParameters anX = new IntercomCommunicationsParameters();
+            IntercomCommunicationsParameters anX = idx < intercomParameters.size() ? intercomParameters.get(idx) : new IntercomCommunicationsParameters();
             anX.unmarshal(buff);
-            intercomParameters.add(anX);
+            if (idx == intercomParameters.size()) {
+                intercomParameters.add(anX);
+            }
+        }
+        while (intercomParameters.size() > Math.max(intercomParametersLength, 0)) {
+            intercomParameters.remove(intercomParameters.size() - 1);
         }
 
     } // end of unmarshal method 
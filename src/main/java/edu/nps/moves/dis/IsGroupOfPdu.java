@@ -184,9 +184,14 @@ public class IsGroupOfPdu extends EntityManagementFamilyPdu implements Serializa
         latitude = buff.getDouble();
         longitude = buff.getDouble();
         for (int idx = 0; idx < numberOfGroupedEntities; idx++) {
-            VariableDatum anX = new VariableDatum();
+            VariableDatum anX = idx < groupedEntityDescriptions.size() ? groupedEntityDescriptions.get(idx) : new VariableDatum();
             anX.unmarshal(buff);
-            groupedEntityDescriptions.add(anX);
+            if (idx == groupedEntityDescriptions.size()) {
+                groupedEntityDescriptions.add(anX);
+            }
+        }
+        while (groupedEntityDescriptions.size() > Math.max(numberOfGroupedEntities, 0)) {
+            groupedEntityDescriptions.remove(groupedEntityDescriptions.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -214,9 +214,14 @@ public class LinearObjectStatePdu extends SyntheticEnvironmentFamilyPdu implemen
         receivingID.unmarshal(buff);
         objectType.unmarshal(buff);
         for (int idx = 0; idx < numberOfSegments; idx++) {
-            LinearSegmentParameter anX = new LinearSegmentParameter();
+            LinearSegmentParameter anX = idx < linearSegmentParameters.size() ? linearSegmentParameters.get(idx) : new LinearSegmentParameter();
             anX.unmarshal(buff);
-            linearSegmentParameters.add(anX);
+            if (idx == linearSegmentParameters.size()) {
+                linearSegmentParameters.add(anX);
+            }
+        }
+        while (linearSegmentParameters.size() > Math.max(numberOfSegments, 0)) {
+            linearSegmentParameters.remove(linearSegmentParameters.size() - 1);
         }
 
     } // end of unmarshal method 
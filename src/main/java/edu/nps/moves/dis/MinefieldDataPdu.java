@@ -306,16 +306,26 @@ public class MinefieldDataPdu extends MinefieldFamilyPdu implements Serializable
         dataFilter = buff.getInt();
         mineType.unmarshal(buff);
         for (int idx = 0; idx < numberOfSensorTypes; idx++) {
-            TwoByteChunk anX = new TwoByteChunk();
+            TwoByteChunk anX = idx < sensorTypes.size() ? sensorTypes.get(idx) : new TwoByteChunk();
             anX.unmarshal(buff);
-            sensorTypes.add(anX);
+            if (idx == sensorTypes.size()) {
+                sensorTypes.add(anX);
+            }
+        }
+        while (sensorTypes.size() > Math.max(numberOfSensorTypes, 0)) {
+            sensorTypes.remove(sensorTypes.size() - 1);
         }
 
         pad3 = (short) (buff.get() & 0xFF);
         for (int idx = 0; idx < numberOfMinesInThisPdu; idx++) {
-            Vector3Float anX = new Vector3Float();
+            Vector3Float anX = idx < mineLocation.size() ? mineLocation.get(idx) : new Vector3Float();
             anX.unmarshal(buff);
-            mineLocation.add(anX);
+            if (idx == mineLocation.size()) {
+                mineLocation.add(anX);
+            }
+        }
+        while (mineLocation.size() > Math.max(numberOfMinesInThisPdu, 0)) {
+            mineLocation.remove(mineLocation.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -241,15 +241,25 @@ public class MinefieldQueryPdu extends MinefieldFamilyPdu implements Serializabl
         dataFilter = buff.getInt();
         requestedMineType.unmarshal(buff);
         for (int idx = 0; idx < numberOfPerimeterPoints; idx++) {
-            Point anX = new Point();
+            Point anX = idx < requestedPerimeterPoints.size() ? requestedPerimeterPoints.get(idx) : new Point();
             anX.unmarshal(buff);
-            requestedPerimeterPoints.add(anX);
+            if (idx == requestedPerimeterPoints.size()) {
+                requestedPerimeterPoints.add(anX);
+            }
+        }
+        while (requestedPerimeterPoints.size() > Math.max(numberOfPerimeterPoints, 0)) {
+            requestedPerimeterPoints.remove(requestedPerimeterPoints.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfSensorTypes; idx++) {
-            TwoByteChunk anX = new TwoByteChunk();
+            TwoByteChunk anX = idx < sensorTypes.size() ? sensorTypes.get(idx) : new TwoByteChunk();
             anX.unmarshal(buff);
-            sensorTypes.add(anX);
+            if (idx == sensorTypes.size()) {
+                sensorTypes.add(anX);
+            }
+        }
+        while (sensorTypes.size() > Math.max(numberOfSensorTypes, 0)) {
+            sensorTypes.remove(sensorTypes.size() - 1);
         }
 
     } // end of unmarshal method 
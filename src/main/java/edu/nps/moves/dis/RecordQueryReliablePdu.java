@@ -197,9 +197,14 @@ public class RecordQueryReliablePdu extends SimulationManagementWithReliabilityF
         time = buff.getInt();
         numberOfRecords = buff.getInt();
         for (int idx = 0; idx < numberOfRecords; idx++) {
-            FourByteChunk anX = new FourByteChunk();
+            FourByteChunk anX = idx < recordIDs.size() ? recordIDs.get(idx) : new FourByteChunk();
             anX.unmarshal(buff);
-            recordIDs.add(anX);
+            if (idx == recordIDs.size()) {
+                recordIDs.add(anX);
+            }
+        }
+        while (recordIDs.size() > Math.max(numberOfRecords, 0)) {
+            recordIDs.remove(recordIDs.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -161,9 +161,14 @@ public class ResupplyReceivedPdu extends LogisticsFamilyPdu implements Serializa
         padding1 = buff.getShort();
         padding2 = buff.get();
         for (int idx = 0; idx < numberOfSupplyTypes; idx++) {
-            SupplyQuantity anX = new SupplyQuantity();
+            SupplyQuantity anX = idx < supplies.size() ? supplies.get(idx) : new SupplyQuantity();
             anX.unmarshal(buff);
-            supplies.add(anX);
+            if (idx == supplies.size()) {
+                supplies.add(anX);
+            }
+        }
+        while (supplies.size() > Math.max(numberOfSupplyTypes, 0)) {
+            supplies.remove(supplies.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -177,15 +177,25 @@ public class SetDataPdu extends SimulationManagementFamilyPdu implements Seriali
         numberOfFixedDatumRecords = buff.getInt();
         numberOfVariableDatumRecords = buff.getInt();
         for (int idx = 0; idx < numberOfFixedDatumRecords; idx++) {
-            FixedDatum fd = new FixedDatum();
+            FixedDatum fd = idx < fixedDatums.size() ? fixedDatums.get(idx) : new FixedDatum();
             fd.unmarshal(buff);
-            fixedDatums.add(fd);
+            if (idx == fixedDatums.size()) {
+                fixedDatums.add(fd);
+            }
+        }
+        while (fixedDatums.size() > Math.max(numberOfFixedDatumRecords, 0)) {
+            fixedDatums.remove(fixedDatums.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfVariableDatumRecords; idx++) {
-            VariableDatum vd = new VariableDatum();
+            VariableDatum vd = idx < variableDatums.size() ? variableDatums.get(idx) : new VariableDatum();
             vd.unmarshal(buff);
-            variableDatums.add(vd);
+            if (idx == variableDatums.size()) {
+                variableDatums.add(vd);
+            }
+        }
+        while (variableDatums.size() > Math.max(numberOfVariableDatumRecords, 0)) {
+            variableDatums.remove(variableDatums.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -165,9 +165,14 @@ public class SetRecordReliablePdu extends SimulationManagementWithReliabilityFam
         pad2 = (short) (buff.get() & 0xFF);
         numberOfRecordSets = buff.getInt();
         for (int idx = 0; idx < numberOfRecordSets; idx++) {
-            RecordSet anX = new RecordSet();
+            RecordSet anX = idx < recordSets.size() ? recordSets.get(idx) : new RecordSet();
             anX.unmarshal(buff);
-            recordSets.add(anX);
+            if (idx == recordSets.size()) {
+                recordSets.add(anX);
+            }
+        }
+        while (recordSets.size() > Math.max(numberOfRecordSets, 0)) {
+            recordSets.remove(recordSets.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -106,6 +106,7 @@ public class SilentEntitySystem {
         entityNr = (short) (buff.getShort() & 0xFF);
         recordNr = (short) (buff.getShort() & 0xFF);
         entityType.unmarshal(buff);
+        entityAppearanceList.clear();
         for (int i = 0; i < recordNr; i++) {
             entityAppearanceList.add((int) buff.getInt());
         }
@@ -96,9 +96,14 @@ public class SphericalHarmonicAntennaPattern extends Object implements Serializa
         harmonicOrder = buff.get();
         int coeffientCount = (harmonicOrder * harmonicOrder + 2 * harmonicOrder + 1); // Total of N^2+2N+1 coefficients for an order of N
         for (int idx = 0; idx < coeffientCount; idx++) {
-            FourByteChunk anX = new FourByteChunk();
+            FourByteChunk anX = idx < coefficients.size() ? coefficients.get(idx) : new FourByteChunk();
             anX.unmarshal(buff);
-            coefficients.add(anX);
+            if (idx == coefficients.size()) {
+                coefficients.add(anX);
+            }
+        }
+        while (coefficients.size() > Math.max(coeffientCount, 0)) {
+            coefficients.remove(coefficients.size() - 1);
         }
         referenceSystem = (short) (buff.get() & 0xFF);
     } // end of unmarshal method 
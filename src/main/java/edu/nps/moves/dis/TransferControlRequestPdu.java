@@ -198,9 +198,14 @@ public class TransferControlRequestPdu extends EntityManagementFamilyPdu impleme
         transferEntityID.unmarshal(buff);
         numberOfRecordSets = (short) (buff.get() & 0xFF);
         for (int idx = 0; idx < numberOfRecordSets; idx++) {
-            RecordSet anX = new RecordSet();
+            RecordSet anX = idx < recordSets.size() ? recordSets.get(idx) : new RecordSet();
             anX.unmarshal(buff);
-            recordSets.add(anX);
+            if (idx == recordSets.size()) {
+                recordSets.add(anX);
+            }
+        }
+        while (recordSets.size() > Math.max(numberOfRecordSets, 0)) {
+            recordSets.remove(recordSets.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -614,6 +614,9 @@ public class TransmitterPdu extends RadioCommunicationsFamilyPdu implements Seri
 
         int remainder = 0;
         int modRecordSize = 0;
+        cctSincarsModulationParametersList.clear();
+        jtidsMidsModulationParametersList.clear();
+        modulationParametersList.clear();
         switch (getModulationType().getSystem()) {
             case 6:                                  // CCTT SINCGARS
                 for (int idx = 0; idx < modulationParameterCount / 15; idx++) {
@@ -656,6 +659,10 @@ public class TransmitterPdu extends RadioCommunicationsFamilyPdu implements Seri
                 buff.get();//Read padding bytes
             }
         }
+        antennaPatternList.clear();
+        if (antennaPatternType != 2) {
+            sphericalHarmonicAntennaPatternList.clear();
+        }
         switch (antennaPatternType) {
             case 0:
                 break; //Omni-directional antenna pattern record
@@ -697,9 +704,14 @@ public class TransmitterPdu extends RadioCommunicationsFamilyPdu implements Seri
 
                 }
                 for (int idx = 0; idx < recordCount; idx++) {
-                    SphericalHarmonicAntennaPattern anX = new SphericalHarmonicAntennaPattern();
+                    SphericalHarmonicAntennaPattern anX = idx < sphericalHarmonicAntennaPatternList.size() ? sphericalHarmonicAntennaPatternList.get(idx) : new SphericalHarmonicAntennaPattern();
                     anX.unmarshal(buffCopy);
-                    sphericalHarmonicAntennaPatternList.add(anX);
+                    if (idx == sphericalHarmonicAntennaPatternList.size()) {
+                        sphericalHarmonicAntennaPatternList.add(anX);
+                    }
+                }
+                while (sphericalHarmonicAntennaPatternList.size() > Math.max(recordCount, 0)) {
+                    sphericalHarmonicAntennaPatternList.remove(sphericalHarmonicAntennaPatternList.size() - 1);
                 }
                 break;
         }
@@ -382,15 +382,25 @@ public class AggregateStatePdu extends EntityManagementFamilyPdu implements Seri
         numberOfSilentAggregateSystems = (int) (buff.getShort() & 0xFFFF);
         numberOfSilentEntitySystems = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfAggregateIds; idx++) {
-            AggregateIdentifier anX = new AggregateIdentifier();
+            AggregateIdentifier anX = idx < aggregateIDList.size() ? aggregateIDList.get(idx) : new AggregateIdentifier();
             anX.unmarshal(buff);
-            aggregateIDList.add(anX);
+            if (idx == aggregateIDList.size()) {
+                aggregateIDList.add(anX);
+            }
+        }
+        while (aggregateIDList.size() > Math.max(numberOfAggregateIds, 0)) {
+            aggregateIDList.remove(aggregateIDList.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfEntitiyIds; idx++) {
-            EntityID anX = new EntityID();
+            EntityID anX = idx < entityIDList.size() ? entityIDList.get(idx) : new EntityID();
             anX.unmarshal(buff);
-            entityIDList.add(anX);
+            if (idx == entityIDList.size()) {
+                entityIDList.add(anX);
+            }
+        }
+        while (entityIDList.size() > Math.max(numberOfEntitiyIds, 0)) {
+            entityIDList.remove(entityIDList.size() - 1);
         }
         //Determine if pad2 is present
         int padBits = 16 * ((numberOfAggregateIds + numberOfEntitiyIds) % 2);
@@ -398,22 +408,37 @@ public class AggregateStatePdu extends EntityManagementFamilyPdu implements Seri
             pad2 = buff.getShort();
         }
         for (int idx = 0; idx < numberOfSilentAggregateSystems; idx++) {
-            SilentAggregateSystem anX = new SilentAggregateSystem();
+            SilentAggregateSystem anX = idx < silentAggregateSystemList.size() ? silentAggregateSystemList.get(idx) : new SilentAggregateSystem();
             anX.unmarshal(buff);
-            silentAggregateSystemList.add(anX);
+            if (idx == silentAggregateSystemList.size()) {
+                silentAggregateSystemList.add(anX);
+            }
+        }
+        while (silentAggregateSystemList.size() > Math.max(numberOfSilentAggregateSystems, 0)) {
+            silentAggregateSystemList.remove(silentAggregateSystemList.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfSilentEntitySystems; idx++) {
-            SilentEntitySystem anX = new SilentEntitySystem();
+            SilentEntitySystem anX = idx < silentEntitySystemList.size() ? silentEntitySystemList.get(idx) : new SilentEntitySystem();
             anX.unmarshal(buff);
-            silentEntitySystemList.add(anX);
+            if (idx == silentEntitySystemList.size()) {
+                silentEntitySystemList.add(anX);
+            }
+        }
+        while (silentEntitySystemList.size() > Math.max(numberOfSilentEntitySystems, 0)) {
+            silentEntitySystemList.remove(silentEntitySystemList.size() - 1);
         }
 
         numberOfVariableDatumRecords = buff.getInt();
         for (int idx = 0; idx < numberOfVariableDatumRecords; idx++) {
-            VariableDatum anX = new VariableDatum();
+            VariableDatum anX = idx < variableDatumList.size() ? variableDatumList.get(idx) : new VariableDatum();
             anX.unmarshal(buff);
-            variableDatumList.add(anX);
+            if (idx == variableDatumList.size()) {
+                variableDatumList.add(anX);
+            }
+        }
+        while (variableDatumList.size() > Math.max(numberOfVariableDatumRecords, 0)) {
+            variableDatumList.remove(variableDatumList.size() - 1);
         }
     } // end of unmarshal method 
 
@@ -489,15 +514,25 @@ public class AggregateStatePdu extends EntityManagementFamilyPdu implements Seri
             numberOfSilentAggregateSystems = (int) dis.readShort();
             numberOfSilentEntitySystems = (int) dis.readShort();
             for (int idx = 0; idx < numberOfAggregateIds; idx++) {
-                AggregateIdentifier anX = new AggregateIdentifier();
+                AggregateIdentifier anX = idx < aggregateIDList.size() ? aggregateIDList.get(idx) : new AggregateIdentifier();
                 anX.unmarshal(dis);
-                aggregateIDList.add(anX);
+                if (idx == aggregateIDList.size()) {
+                    aggregateIDList.add(anX);
+                }
+            }
+            while (aggregateIDList.size() > Math.max(numberOfAggregateIds, 0)) {
+                aggregateIDList.remove(aggregateIDList.size() - 1);
             }
 
             for (int idx = 0; idx < numberOfEntitiyIds; idx++) {
-                EntityID anX = new EntityID();
+                EntityID anX = idx < entityIDList.size() ? entityIDList.get(idx) : new EntityID();
                 anX.unmarshal(dis);
-                entityIDList.add(anX);
+                if (idx == entityIDList.size()) {
+                    entityIDList.add(anX);
+                }
+            }
+            while (entityIDList.size() > Math.max(numberOfEntitiyIds, 0)) {
+                entityIDList.remove(entityIDList.size() - 1);
             }
             //Determine if pad2 is present
             int padBits = 16 * ((numberOfAggregateIds + numberOfEntitiyIds) % 2);
@@ -505,22 +540,37 @@ public class AggregateStatePdu extends EntityManagementFamilyPdu implements Seri
                 pad2 = dis.readShort();
             }
             for (int idx = 0; idx < numberOfSilentAggregateSystems; idx++) {
-                SilentAggregateSystem anX = new SilentAggregateSystem();
+                SilentAggregateSystem anX = idx < silentAggregateSystemList.size() ? silentAggregateSystemList.get(idx) : new SilentAggregateSystem();
                 anX.unmarshal(dis);
-                silentAggregateSystemList.add(anX);
+                if (idx == silentAggregateSystemList.size()) {
+                    silentAggregateSystemList.add(anX);
+                }
+            }
+            while (silentAggregateSystemList.size() > Math.max(numberOfSilentAggregateSystems, 0)) {
+                silentAggregateSystemList.remove(silentAggregateSystemList.size() - 1);
             }
 
             for (int idx = 0; idx < numberOfSilentEntitySystems; idx++) {
-                SilentEntitySystem anX = new SilentEntitySystem();
+                SilentEntitySystem anX = idx < silentEntitySystemList.size() ? silentEntitySystemList.get(idx) : new SilentEntitySystem();
                 anX.unmarshal(dis);
-                silentEntitySystemList.add(anX);
+                if (idx == silentEntitySystemList.size()) {
+                    silentEntitySystemList.add(anX);
+                }
+            }
+            while (silentEntitySystemList.size() > Math.max(numberOfSilentEntitySystems, 0)) {
+                silentEntitySystemList.remove(silentEntitySystemList.size() - 1);
             }
 
             numberOfVariableDatumRecords = dis.readInt();
             for (int idx = 0; idx < numberOfVariableDatumRecords; idx++) {
-                VariableDatum anX = new VariableDatum();
+                VariableDatum anX = idx < variableDatumList.size() ? variableDatumList.get(idx) : new VariableDatum();
                 anX.unmarshal(dis);
-                variableDatumList.add(anX);
+                if (idx == variableDatumList.size()) {
+                    variableDatumList.add(anX);
+                }
+            }
+            while (variableDatumList.size() > Math.max(numberOfVariableDatumRecords, 0)) {
+                variableDatumList.remove(variableDatumList.size() - 1);
             }
         } // end try  
         catch (Exception e) {
@@ -80,6 +80,7 @@ public class AntennaPatternGeneric extends AntennaPattern {
 
     public void unmarshal(DataInputStream dis, int byteCount) {
         try {
+            listAntennaPatternOctets.clear();
             for (int i = 0; i < byteCount; i++) {
                 byte nextByte = dis.readByte();
                 listAntennaPatternOctets.add(nextByte);
@@ -133,6 +134,7 @@ public class AntennaPatternGeneric extends AntennaPattern {
      */
     public void unmarshal(java.nio.ByteBuffer buff, int byteCount) {
         try {
+            listAntennaPatternOctets.clear();
             for (int i = 0; i < byteCount; i++) {
                 byte nextByte = buff.get();
                 listAntennaPatternOctets.add(nextByte);
@@ -165,15 +165,25 @@ public class DataQueryPdu extends SimulationManagementFamilyPdu implements Seria
             numberOfFixedDatumRecords = dis.readInt();
             numberOfVariableDatumRecords = dis.readInt();
             for (int idx = 0; idx < numberOfFixedDatumRecords; idx++) {
-                FixedDatum anX = new FixedDatum();
+                FixedDatum anX = idx < fixedDatums.size() ? fixedDatums.get(idx) : new FixedDatum();
                 anX.unmarshal(dis);
-                fixedDatums.add(anX);
+                if (idx == fixedDatums.size()) {
+                    fixedDatums.add(anX);
+                }
+            }
+            while (fixedDatums.size() > Math.max(numberOfFixedDatumRecords, 0)) {
+                fixedDatums.remove(fixedDatums.size() - 1);
             }
 
             for (int idx = 0; idx < numberOfVariableDatumRecords; idx++) {
-                VariableDatum anX = new VariableDatum();
+                VariableDatum anX = idx < variableDatums.size() ? variableDatums.get(idx) : new VariableDatum();
                 anX.unmarshal(dis);
-                variableDatums.add(anX);
+                if (idx == variableDatums.size()) {
+                    variableDatums.add(anX);
+                }
+            }
+            while (variableDatums.size() > Math.max(numberOfVariableDatumRecords, 0)) {
+                variableDatums.remove(variableDatums.size() - 1);
             }
 
         } // end try 
@@ -226,15 +236,25 @@ public class DataQueryPdu extends SimulationManagementFamilyPdu implements Seria
         numberOfFixedDatumRecords = buff.getInt();
         numberOfVariableDatumRecords = buff.getInt();
         for (int idx = 0; idx < numberOfFixedDatumRecords; idx++) {
-            FixedDatum anX = new FixedDatum();
+            FixedDatum anX = idx < fixedDatums.size() ? fixedDatums.get(idx) : new FixedDatum();
             anX.unmarshal(buff);
-            fixedDatums.add(anX);
+            if (idx == fixedDatums.size()) {
+                fixedDatums.add(anX);
+            }
+        }
+        while (fixedDatums.size() > Math.max(numberOfFixedDatumRecords, 0)) {
+            fixedDatums.remove(fixedDatums.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfVariableDatumRecords; idx++) {
-            VariableDatum anX = new VariableDatum();
+            VariableDatum anX = idx < variableDatums.size() ? variableDatums.get(idx) : new VariableDatum();
             anX.unmarshal(buff);
-            variableDatums.add(anX);
+            if (idx == variableDatums.size()) {
+                variableDatums.add(anX);
+            }
+        }
+        while (variableDatums.size() > Math.max(numberOfVariableDatumRecords, 0)) {
+            variableDatums.remove(variableDatums.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -295,6 +295,7 @@ public class DetonationPdu extends WarfareFamilyPdu implements Serializable {
             detonationResult = (short) dis.readUnsignedByte();
             numberOfVariableParameters = (short) dis.readUnsignedByte();
             pad = (int) dis.readUnsignedShort();
+            variableParameters.clear();
             for (int idx = 0; idx < numberOfVariableParameters; idx++) {
                 VariableParameter anX = new VariableParameter();
                 anX.unmarshal(dis);
@@ -406,15 +407,21 @@ public class DetonationPdu extends WarfareFamilyPdu implements Serializable {
         switch (detonationTypeIndicator) {
             case 0:
             default:
-                descriptor = new MunitionDescriptor();
+                if (descriptor == null || descriptor.getClass() != MunitionDescriptor.class) {
+                    descriptor = new MunitionDescriptor();
+                }
                 ((MunitionDescriptor) descriptor).unmarshal(buff);
                 break;
             case 1:
-                descriptor = new ExpendableDescriptor();
+                if (descriptor == null || descriptor.getClass() != ExpendableDescriptor.class) {
+                    descriptor = new ExpendableDescriptor();
+                }
                 ((ExpendableDescriptor) descriptor).unmarshal(buff);
                 break;
             case 2:
-                descriptor = new ExplosionDescriptor();
+                if (descriptor == null || descriptor.getClass() != ExplosionDescriptor.class) {
+                    descriptor = new ExplosionDescriptor();
+                }
                 ((ExplosionDescriptor) descriptor).unmarshal(buff);
                 break;
         }       
@@ -423,32 +430,14 @@ public class DetonationPdu extends WarfareFamilyPdu implements Serializable {
         numberOfVariableParameters = (short) (buff.get() & 0xFF);
         pad = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfVariableParameters; idx++) {
-            VariableParameter anX = new VariableParameter();
-            anX.unmarshal(buff);
-            switch (anX.getRecordType()) {
-                case 0:
-                    anX = new ArticulatedParts();
-                    ((ArticulatedParts) anX).unmarshal(buff);
-                    break;
-                case 1:
-                    anX = new AttachedParts();
-                    ((AttachedParts) anX).unmarshal(buff);
-                    break;
-                case 2:
-                    anX = new SeparationVP();
-                    ((SeparationVP) anX).unmarshal(buff);
-                    break;
-                case 3:
-                    anX = new EntityTypeVP();
-                    ((EntityTypeVP) anX).unmarshal(buff);
-                    break;
-                case 4:
-                    anX = new EntityAssociation();
-                    ((EntityAssociation) anX).unmarshal(buff);
-                    break;
+            if (idx < variableParameters.size()) {
+                variableParameters.set(idx, VariableParameter.unmarshal(buff, variableParameters.get(idx)));
+            } else {
+                variableParameters.add(VariableParameter.unmarshal(buff, null));
             }
-
-            variableParameters.add(anX);
+        }
+        while (variableParameters.size() > numberOfVariableParameters) {
+            variableParameters.remove(variableParameters.size() - 1);
         }
 
     } // end of unmarshal method 
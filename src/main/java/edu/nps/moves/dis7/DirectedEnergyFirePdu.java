@@ -326,9 +326,14 @@ public class DirectedEnergyFirePdu extends WarfareFamilyPdu implements Serializa
             padding3 = (int) dis.readUnsignedShort();
             numberOfDERecords = (int) dis.readUnsignedShort();
             for (int idx = 0; idx < numberOfDERecords; idx++) {
-                StandardVariableSpecification anX = new StandardVariableSpecification();
+                StandardVariableSpecification anX = idx < dERecords.size() ? dERecords.get(idx) : new StandardVariableSpecification();
                 anX.unmarshal(dis);
-                dERecords.add(anX);
+                if (idx == dERecords.size()) {
+                    dERecords.add(anX);
+                }
+            }
+            while (dERecords.size() > Math.max(numberOfDERecords, 0)) {
+                dERecords.remove(dERecords.size() - 1);
             }
 
         } // end try 
@@ -398,9 +403,14 @@ public class DirectedEnergyFirePdu extends WarfareFamilyPdu implements Serializa
         padding3 = (int) (buff.getShort() & 0xFFFF);
         numberOfDERecords = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfDERecords; idx++) {
-            StandardVariableSpecification anX = new StandardVariableSpecification();
+            StandardVariableSpecification anX = idx < dERecords.size() ? dERecords.get(idx) : new StandardVariableSpecification();
             anX.unmarshal(buff);
-            dERecords.add(anX);
+            if (idx == dERecords.size()) {
+                dERecords.add(anX);
+            }
+        }
+        while (dERecords.size() > Math.max(numberOfDERecords, 0)) {
+            dERecords.remove(dERecords.size() - 1);
         }
 
     } // end of unmarshal method 
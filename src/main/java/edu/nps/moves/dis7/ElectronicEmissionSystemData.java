@@ -178,9 +178,14 @@ public class ElectronicEmissionSystemData extends Object implements Serializable
             emitterSystem.unmarshal(dis);
             location.unmarshal(dis);
             for (int idx = 0; idx < numberOfBeams; idx++) {
-                ElectronicEmissisionBeamData anX = new ElectronicEmissisionBeamData();
+                ElectronicEmissisionBeamData anX = idx < beamDataRecords.size() ? beamDataRecords.get(idx) : new ElectronicEmissisionBeamData();
                 anX.unmarshal(dis);
-                beamDataRecords.add(anX);
+                if (idx == beamDataRecords.size()) {
+                    beamDataRecords.add(anX);
+                }
+            }
+            while (beamDataRecords.size() > Math.max(numberOfBeams, 0)) {
+                beamDataRecords.remove(beamDataRecords.size() - 1);
             }
         } // end try
         catch (Exception e) {
@@ -203,9 +208,14 @@ public class ElectronicEmissionSystemData extends Object implements Serializable
         emitterSystem.unmarshal(buff);
         location.unmarshal(buff);
         for (int idx = 0; idx < numberOfBeams; idx++) {
-            ElectronicEmissisionBeamData anX = new ElectronicEmissisionBeamData();
+            ElectronicEmissisionBeamData anX = idx < beamDataRecords.size() ? beamDataRecords.get(idx) : new ElectronicEmissisionBeamData();
             anX.unmarshal(buff);
-            beamDataRecords.add(anX);
+            if (idx == beamDataRecords.size()) {
+                beamDataRecords.add(anX);
+            }
+        }
+        while (beamDataRecords.size() > Math.max(numberOfBeams, 0)) {
+            beamDataRecords.remove(beamDataRecords.size() - 1);
         }
 
     } // end of unmarshal method 
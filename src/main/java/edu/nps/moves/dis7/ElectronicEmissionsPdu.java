@@ -69,9 +69,6 @@ public class ElectronicEmissionsPdu extends DistributedEmissionsFamilyPdu implem
         marshalSize = marshalSize + 1;  // stateUpdateIndicator
         marshalSize = marshalSize + 1;  // numberOfSystems
         marshalSize = marshalSize + 2;  // paddingForEmissionsPdu
-        marshalSize = marshalSize + 1;  // systemDataLength
-        marshalSize = marshalSize + 1;  // numberOfBeams
-        marshalSize = marshalSize + 2;  // paddingForEmissionsPdu
         for (int idx = 0; idx < systems.size(); idx++) {
             ElectronicEmissionSystemData listElement = systems.get(idx);
             marshalSize = marshalSize + listElement.getMarshalledSize();
@@ -164,9 +161,14 @@ public class ElectronicEmissionsPdu extends DistributedEmissionsFamilyPdu implem
             numberOfSystems = (short) dis.readUnsignedByte();
             paddingForEmissionsPdu = (int) dis.readUnsignedShort();
         for (int idx = 0; idx < numberOfSystems; idx++) {
-            ElectronicEmissionSystemData anX = new ElectronicEmissionSystemData();
+            ElectronicEmissionSystemData anX = idx < systems.size() ? systems.get(idx) : new ElectronicEmissionSystemData();
             anX.unmarshal(dis);
-            systems.add(anX);
+            if (idx == systems.size()) {
+                systems.add(anX);
+            }
+        }
+        while (systems.size() > Math.max(numberOfSystems, 0)) {
+            systems.remove(systems.size() - 1);
         }
         } // end try
         catch (Exception e) {
@@ -213,9 +215,14 @@ public class ElectronicEmissionsPdu extends DistributedEmissionsFamilyPdu implem
         numberOfSystems = (short) (buff.get() & 0xFF);
         paddingForEmissionsPdu = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfSystems; idx++) {
-            ElectronicEmissionSystemData anX = new ElectronicEmissionSystemData();
+            ElectronicEmissionSystemData anX = idx < systems.size() ? systems.get(idx) : new ElectronicEmissionSystemData();
             anX.unmarshal(buff);
-            systems.add(anX);
+            if (idx == systems.size()) {
+                systems.add(anX);
+            }
+        }
+        while (systems.size() > Math.max(numberOfSystems, 0)) {
+            systems.remove(systems.size() - 1);
         }
     } // end of unmarshal method
 
@@ -282,9 +282,14 @@ public class ElectronicEmissisionBeamData extends Object implements Serializable
             beamStatus.unmarshal(dis);
             jammingTechnique.unmarshal(dis);
             for (int idx = 0; idx < numberOfTargets; idx++) {
-                TrackJamData anX = new TrackJamData();
+                TrackJamData anX = idx < trackJamData.size() ? trackJamData.get(idx) : new TrackJamData();
                 anX.unmarshal(dis);
-                trackJamData.add(anX);
+                if (idx == trackJamData.size()) {
+                    trackJamData.add(anX);
+                }
+            }
+            while (trackJamData.size() > Math.max(numberOfTargets, 0)) {
+                trackJamData.remove(trackJamData.size() - 1);
             }
 
         } // end try
@@ -313,9 +318,14 @@ public class ElectronicEmissisionBeamData extends Object implements Serializable
         beamStatus.unmarshal(buff);
         jammingTechnique.unmarshal(buff);
         for (int idx = 0; idx < numberOfTargets; idx++) {
-            TrackJamData anX = new TrackJamData();
+            TrackJamData anX = idx < trackJamData.size() ? trackJamData.get(idx) : new TrackJamData();
             anX.unmarshal(buff);
-            trackJamData.add(anX);
+            if (idx == trackJamData.size()) {
+                trackJamData.add(anX);
+            }
+        }
+        while (trackJamData.size() > Math.max(numberOfTargets, 0)) {
+            trackJamData.remove(trackJamData.size() - 1);
         }
     } // end of unmarshal method
 
@@ -141,9 +141,14 @@ public class EntityDamageStatusPdu extends WarfareFamilyPdu implements Serializa
             padding2 = (int) dis.readUnsignedShort();
             numberOfDamageDescription = (int) dis.readUnsignedShort();
             for (int idx = 0; idx < numberOfDamageDescription; idx++) {
-                DirectedEnergyDamage anX = new DirectedEnergyDamage();
+                DirectedEnergyDamage anX = idx < damageDescriptionRecords.size() ? damageDescriptionRecords.get(idx) : new DirectedEnergyDamage();
                 anX.unmarshal(dis);
-                damageDescriptionRecords.add(anX);
+                if (idx == damageDescriptionRecords.size()) {
+                    damageDescriptionRecords.add(anX);
+                }
+            }
+            while (damageDescriptionRecords.size() > Math.max(numberOfDamageDescription, 0)) {
+                damageDescriptionRecords.remove(damageDescriptionRecords.size() - 1);
             }
 
         } // end try 
@@ -191,9 +196,14 @@ public class EntityDamageStatusPdu extends WarfareFamilyPdu implements Serializa
         padding2 = (int) (buff.getShort() & 0xFFFF);
         numberOfDamageDescription = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfDamageDescription; idx++) {
-            DirectedEnergyDamage anX = new DirectedEnergyDamage();
+            DirectedEnergyDamage anX = idx < damageDescriptionRecords.size() ? damageDescriptionRecords.get(idx) : new DirectedEnergyDamage();
             anX.unmarshal(buff);
-            damageDescriptionRecords.add(anX);
+            if (idx == damageDescriptionRecords.size()) {
+                damageDescriptionRecords.add(anX);
+            }
+        }
+        while (damageDescriptionRecords.size() > Math.max(numberOfDamageDescription, 0)) {
+            damageDescriptionRecords.remove(damageDescriptionRecords.size() - 1);
         }
 
     } // end of unmarshal method 
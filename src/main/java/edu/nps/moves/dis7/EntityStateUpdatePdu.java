@@ -230,6 +230,7 @@ public class EntityStateUpdatePdu extends EntityInformationFamilyPdu implements
             entityLocation.unmarshal(dis);
             entityOrientation.unmarshal(dis);
             entityAppearance = dis.readInt();
+            variableParameters.clear();
             for (int idx = 0; idx < numberOfVariableParameters; idx++) {
                 VariableParameter anX = new VariableParameter();
                 anX.unmarshal(dis);
@@ -327,32 +328,14 @@ public class EntityStateUpdatePdu extends EntityInformationFamilyPdu implements
         entityOrientation.unmarshal(buff);
         entityAppearance = buff.getInt();
         for (int idx = 0; idx < numberOfVariableParameters; idx++) {
-            VariableParameter anX = new VariableParameter();
-            anX.unmarshal(buff);
-            switch (anX.getRecordType()) {
-                case 0:
-                    anX = new ArticulatedParts();
-                    ((ArticulatedParts) anX).unmarshal(buff);
-                    break;
-                case 1:
-                    anX = new AttachedParts();
-                    ((AttachedParts) anX).unmarshal(buff);
-                    break;
-                case 2:
-                    anX = new SeparationVP();
-                    ((SeparationVP) anX).unmarshal(buff);
-                    break;
-                case 3:
-                    anX = new EntityTypeVP();
-                    ((EntityTypeVP) anX).unmarshal(buff);
-                    break;
-                case 4:
-                    anX = new EntityAssociation();
-                    ((EntityAssociation) anX).unmarshal(buff);
-                    break;
+            if (idx < variableParameters.size()) {
+                variableParameters.set(idx, VariableParameter.unmarshal(buff, variableParameters.get(idx)));
+            } else {
+                variableParameters.add(VariableParameter.unmarshal(buff, null));
             }
-
-            variableParameters.add(anX);
+        }
+        while (variableParameters.size() > numberOfVariableParameters) {
+            variableParameters.remove(variableParameters.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -238,10 +238,14 @@ public class FirePdu extends WarfareFamilyPdu implements Serializable {
         locationInWorldCoordinates.unmarshal(buff);
         int fireTypeIndicator = getFireTypeIndicator();
         if (fireTypeIndicator == 0) {
-            descriptor = new MunitionDescriptor();
+            if (descriptor == null || descriptor.getClass() != MunitionDescriptor.class) {
+                descriptor = new MunitionDescriptor();
+            }
             ((MunitionDescriptor) descriptor).unmarshal(buff);
         } else {
-            descriptor = new ExpendableDescriptor();
+            if (descriptor == null || descriptor.getClass() != ExpendableDescriptor.class) {
+                descriptor = new ExpendableDescriptor();
+            }
             ((ExpendableDescriptor) descriptor).unmarshal(buff);
         }
         velocity.unmarshal(buff);
@@ -216,9 +216,14 @@ public class GridAxisDescriptorVariable extends Object implements Serializable {
             coordinateScaleXi = dis.readDouble();
             coordinateOffsetXi = dis.readDouble();
             for (int idx = 0; idx < numberOfPointsOnXiAxis; idx++) {
-                TwoByteChunk anX = new TwoByteChunk();
+                TwoByteChunk anX = idx < xiValues.size() ? xiValues.get(idx) : new TwoByteChunk();
                 anX.unmarshal(dis);
-                xiValues.add(anX);
+                if (idx == xiValues.size()) {
+                    xiValues.add(anX);
+                }
+            }
+            while (xiValues.size() > Math.max(numberOfPointsOnXiAxis, 0)) {
+                xiValues.remove(xiValues.size() - 1);
             }
 
         } // end try 
@@ -273,9 +278,14 @@ public class GridAxisDescriptorVariable extends Object implements Serializable {
         coordinateScaleXi = buff.getDouble();
         coordinateOffsetXi = buff.getDouble();
         for (int idx = 0; idx < numberOfPointsOnXiAxis; idx++) {
-            TwoByteChunk anX = new TwoByteChunk();
+            TwoByteChunk anX = idx < xiValues.size() ? xiValues.get(idx) : new TwoByteChunk();
             anX.unmarshal(buff);
-            xiValues.add(anX);
+            if (idx == xiValues.size()) {
+                xiValues.add(anX);
+            }
+        }
+        while (xiValues.size() > Math.max(numberOfPointsOnXiAxis, 0)) {
+            xiValues.remove(xiValues.size() - 1);
         }
 
     } // end of unmarshal method 
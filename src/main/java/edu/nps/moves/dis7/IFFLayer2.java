@@ -105,9 +105,14 @@ public class IFFLayer2 extends Object implements Serializable {
             beamData.unmarshal(dis);
             secondaryOperationalData.unmarshal(dis);
             for (int idx = 0; idx < secondaryOperationalData.getNumberOfIFFFundamentalParameterRecords(); idx++) {
-                IFFFundamentalParameterData paramData = new IFFFundamentalParameterData();
+                IFFFundamentalParameterData paramData = idx < iffFundamentalParameterData.size() ? iffFundamentalParameterData.get(idx) : new IFFFundamentalParameterData();
                 paramData.unmarshal(dis);
-                iffFundamentalParameterData.add(paramData);
+                if (idx == iffFundamentalParameterData.size()) {
+                    iffFundamentalParameterData.add(paramData);
+                }
+            }
+            while (iffFundamentalParameterData.size() > Math.max(secondaryOperationalData.getNumberOfIFFFundamentalParameterRecords(), 0)) {
+                iffFundamentalParameterData.remove(iffFundamentalParameterData.size() - 1);
             }
         } // end try 
         catch (Exception e) {
@@ -140,9 +145,14 @@ public class IFFLayer2 extends Object implements Serializable {
         beamData.unmarshal(buff);
         secondaryOperationalData.unmarshal(buff);
         for (int idx = 0; idx < secondaryOperationalData.getNumberOfIFFFundamentalParameterRecords(); idx++) {
-            IFFFundamentalParameterData paramData = new IFFFundamentalParameterData();
+            IFFFundamentalParameterData paramData = idx < iffFundamentalParameterData.size() ? iffFundamentalParameterData.get(idx) : new IFFFundamentalParameterData();
             paramData.unmarshal(buff);
-            iffFundamentalParameterData.add(paramData);
+            if (idx == iffFundamentalParameterData.size()) {
+                iffFundamentalParameterData.add(paramData);
+            }
+        }
+        while (iffFundamentalParameterData.size() > Math.max(secondaryOperationalData.getNumberOfIFFFundamentalParameterRecords(), 0)) {
+            iffFundamentalParameterData.remove(iffFundamentalParameterData.size() - 1);
         }
     } // end of unmarshal method         
 
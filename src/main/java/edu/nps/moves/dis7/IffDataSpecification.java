@@ -84,9 +84,14 @@ public class IffDataSpecification extends Object implements Serializable {
         try {
             numberOfIffDataRecords = (int) dis.readUnsignedShort();
             for (int idx = 0; idx < numberOfIffDataRecords; idx++) {
-                IFFData anX = new IFFData();
+                IFFData anX = idx < iffDataRecords.size() ? iffDataRecords.get(idx) : new IFFData();
                 anX.unmarshal(dis);
-                iffDataRecords.add(anX);
+                if (idx == iffDataRecords.size()) {
+                    iffDataRecords.add(anX);
+                }
+            }
+            while (iffDataRecords.size() > Math.max(numberOfIffDataRecords, 0)) {
+                iffDataRecords.remove(iffDataRecords.size() - 1);
             }
 
         } // end try 
@@ -125,9 +130,14 @@ public class IffDataSpecification extends Object implements Serializable {
     public void unmarshal(java.nio.ByteBuffer buff) {
         numberOfIffDataRecords = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfIffDataRecords; idx++) {
-            IFFData anX = new IFFData();
+            IFFData anX = idx < iffDataRecords.size() ? iffDataRecords.get(idx) : new IFFData();
             anX.unmarshal(buff);
-            iffDataRecords.add(anX);
+            if (idx == iffDataRecords.size()) {
+                iffDataRecords.add(anX);
+            }
+        }
+        while (iffDataRecords.size() > Math.max(numberOfIffDataRecords, 0)) {
+            iffDataRecords.remove(iffDataRecords.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -254,9 +254,14 @@ public class IntercomControlPdu extends RadioCommunicationsFamilyPdu implements
             masterCommunicationsDeviceID = (int) dis.readUnsignedShort();
             intercomParametersLength = dis.readInt();
             for (int idx = 0; idx < intercomParametersLength; idx++) {
-                IntercomCommunicationsParameters anX = new IntercomCommunicationsParameters();
+                IntercomCommunicationsParameters anX = idx < intercomParameters.size() ? intercomParameters.get(idx) : new IntercomCommunicationsParameters();
                 anX.unmarshal(dis);
-                intercomParameters.add(anX);
+                if (idx == intercomParameters.size()) {
+                    intercomParameters.add(anX);
+                }
+            }
+            while (intercomParameters.size() > Math.max(intercomParametersLength, 0)) {
+                intercomParameters.remove(intercomParameters.size() - 1);
             }
 
         } // end try 
@@ -318,9 +323,14 @@ public class IntercomControlPdu extends RadioCommunicationsFamilyPdu implements
         masterCommunicationsDeviceID = (int) (buff.getShort() & 0xFFFF);
         intercomParametersLength = buff.getInt();
         for (int idx = 0; idx < intercomParametersLength; idx++) {
-            IntercomCommunicationsParameters anX = new IntercomCommunicationsParameters();
+            IntercomCommunicationsParameters anX = idx < intercomParameters.size() ? intercomParameters.get(idx) : new IntercomCommunicationsParameters();
             anX.unmarshal(buff);
-            intercomParameters.add(anX);
+            if (idx == intercomParameters.size()) {
+                intercomParameters.add(anX);
+            }
+        }
+        while (intercomParameters.size() > Math.max(intercomParametersLength, 0)) {
+            intercomParameters.remove(intercomParameters.size() - 1);
         }
 
     } // end of unmarshal method 
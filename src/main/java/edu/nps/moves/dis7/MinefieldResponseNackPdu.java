@@ -138,9 +138,14 @@ public class MinefieldResponseNackPdu extends MinefieldFamilyPdu implements Seri
             requestID = (short) dis.readUnsignedByte();
             numberOfMissingPdus = (short) dis.readUnsignedByte();
             for (int idx = 0; idx < numberOfMissingPdus; idx++) {
-                EightByteChunk anX = new EightByteChunk();
+                EightByteChunk anX = idx < missingPduSequenceNumbers.size() ? missingPduSequenceNumbers.get(idx) : new EightByteChunk();
                 anX.unmarshal(dis);
-                missingPduSequenceNumbers.add(anX);
+                if (idx == missingPduSequenceNumbers.size()) {
+                    missingPduSequenceNumbers.add(anX);
+                }
+            }
+            while (missingPduSequenceNumbers.size() > Math.max(numberOfMissingPdus, 0)) {
+                missingPduSequenceNumbers.remove(missingPduSequenceNumbers.size() - 1);
             }
 
         } // end try 
@@ -188,9 +193,14 @@ public class MinefieldResponseNackPdu extends MinefieldFamilyPdu implements Seri
         requestID = (short) (buff.get() & 0xFF);
         numberOfMissingPdus = (short) (buff.get() & 0xFF);
         for (int idx = 0; idx < numberOfMissingPdus; idx++) {
-            EightByteChunk anX = new EightByteChunk();
+            EightByteChunk anX = idx < missingPduSequenceNumbers.size() ? missingPduSequenceNumbers.get(idx) : new EightByteChunk();
             anX.unmarshal(buff);
-            missingPduSequenceNumbers.add(anX);
+            if (idx == missingPduSequenceNumbers.size()) {
+                missingPduSequenceNumbers.add(anX);
+            }
+        }
+        while (missingPduSequenceNumbers.size() > Math.max(numberOfMissingPdus, 0)) {
+            missingPduSequenceNumbers.remove(missingPduSequenceNumbers.size() - 1);
         }
 
     } // end of unmarshal method 
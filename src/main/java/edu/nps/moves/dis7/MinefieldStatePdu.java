@@ -262,15 +262,25 @@ public class MinefieldStatePdu extends MinefieldFamilyPdu implements Serializabl
             appearance = (int) dis.readUnsignedShort();
             protocolMode = (int) dis.readUnsignedShort();
             for (int idx = 0; idx < numberOfPerimeterPoints; idx++) {
-                Vector2Float anX = new Vector2Float();
+                Vector2Float anX = idx < perimeterPoints.size() ? perimeterPoints.get(idx) : new Vector2Float();
                 anX.unmarshal(dis);
-                perimeterPoints.add(anX);
+                if (idx == perimeterPoints.size()) {
+                    perimeterPoints.add(anX);
+                }
+            }
+            while (perimeterPoints.size() > Math.max(numberOfPerimeterPoints, 0)) {
+                perimeterPoints.remove(perimeterPoints.size() - 1);
             }
 
             for (int idx = 0; idx < numberOfMineTypes; idx++) {
-                EntityType anX = new EntityType();
+                EntityType anX = idx < mineType.size() ? mineType.get(idx) : new EntityType();
                 anX.unmarshal(dis);
-                mineType.add(anX);
+                if (idx == mineType.size()) {
+                    mineType.add(anX);
+                }
+            }
+            while (mineType.size() > Math.max(numberOfMineTypes, 0)) {
+                mineType.remove(mineType.size() - 1);
             }
 
         } // end try 
@@ -335,15 +345,25 @@ public class MinefieldStatePdu extends MinefieldFamilyPdu implements Serializabl
         appearance = (int) (buff.getShort() & 0xFFFF);
         protocolMode = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfPerimeterPoints; idx++) {
-            Vector2Float anX = new Vector2Float();
+            Vector2Float anX = idx < perimeterPoints.size() ? perimeterPoints.get(idx) : new Vector2Float();
             anX.unmarshal(buff);
-            perimeterPoints.add(anX);
+            if (idx == perimeterPoints.size()) {
+                perimeterPoints.add(anX);
+            }
+        }
+        while (perimeterPoints.size() > Math.max(numberOfPerimeterPoints, 0)) {
+            perimeterPoints.remove(perimeterPoints.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfMineTypes; idx++) {
-            EntityType anX = new EntityType();
+            EntityType anX = idx < mineType.size() ? mineType.get(idx) : new EntityType();
             anX.unmarshal(buff);
-            mineType.add(anX);
+            if (idx == mineType.size()) {
+                mineType.add(anX);
+            }
+        }
+        while (mineType.size() > Math.max(numberOfMineTypes, 0)) {
+            mineType.remove(mineType.size() - 1);
         }
 
     } // end of unmarshal method 
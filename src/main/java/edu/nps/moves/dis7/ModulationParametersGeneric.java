@@ -80,6 +80,7 @@ public class ModulationParametersGeneric extends ModulationParameters {
     
     public void unmarshal(DataInputStream dis, int byteCount) {
         try {
+            modulationParametersList.clear();
             for (int i = 0; i < byteCount; i++) {
                 byte nextByte = dis.readByte();
                 modulationParametersList.add(nextByte);
@@ -116,6 +117,7 @@ public class ModulationParametersGeneric extends ModulationParameters {
     
     public void unmarshal(java.nio.ByteBuffer buff, int byteCount) {
         try {
+            modulationParametersList.clear();
             for (int i = 0; i < byteCount; i++) {
                 byte nextByte = buff.get();
                 modulationParametersList.add(nextByte);
@@ -2,6 +2,9 @@ package edu.nps.moves.dis7;
 
 import java.util.*;
 import java.io.*;
+import java.nio.ByteBuffer;
+
+import edu.nps.moves.disutil.PduSpliterator;
 
 /**
  * Used for XML compatability. A container that holds PDUs
@@ -24,6 +27,11 @@ public class PduContainer extends Object implements Serializable {
      */
     protected List< Pdu> pdus = new ArrayList< Pdu>();
 
+    /**
+     * Decodes the PDUs in the container
+     */
+    private static final PduFactory factory = new PduFactory();
+
     /**
      * Constructor
      */
@@ -83,10 +91,23 @@ public class PduContainer extends Object implements Serializable {
     public void unmarshal(DataInputStream dis) {
         try {
             numberOfPdus = dis.readInt();
+            pdus.clear();
+            // Each PDU is decoded to its own type, reading as many bytes as its header gives
+            byte[] data = new byte[PduSpliterator.PDU_HEADER_SIZE];
             for (int idx = 0; idx < numberOfPdus; idx++) {
-                Pdu anX = new Pdu();
-                anX.unmarshal(dis);
-                pdus.add(anX);
+                dis.readFully(data, 0, PduSpliterator.PDU_HEADER_SIZE);
+                int length = ((data[8] & 0xFF) << 8) | (data[9] & 0xFF);
+                if (length < PduSpliterator.PDU_HEADER_SIZE) {
+                    throw new IOException("PDU length " + length + " is shorter than its header");
+                }
+                if (length > data.length) {
+                    data = Arrays.copyOf(data, length);
+                }
+                dis.readFully(data, PduSpliterator.PDU_HEADER_SIZE, length - PduSpliterator.PDU_HEADER_SIZE);
+                Pdu aPdu = factory.createPdu(ByteBuffer.wrap(data, 0, length));
+                if (aPdu != null) {
+                    pdus.add(aPdu);
+                }
             }
 
         } // end try 
@@ -124,11 +145,11 @@ public class PduContainer extends Object implements Serializable {
      */
     public void unmarshal(java.nio.ByteBuffer buff) {
         numberOfPdus = buff.getInt();
-        for (int idx = 0; idx < numberOfPdus; idx++) {
-            Pdu anX = new Pdu();
-            anX.unmarshal(buff);
-            pdus.add(anX);
-        }
+        // Each PDU is decoded to its own type, and the next found from the length in its header
+        PduSpliterator<Pdu> entries = new PduSpliterator<Pdu>(buff, numberOfPdus, factory::createPdu);
+        pdus.clear();
+        entries.forEachRemaining(pdus::add);
+        buff.position(entries.getPosition());
 
     } // end of unmarshal method 
 
@@ -56,13 +56,19 @@ import edu.nps.moves.disenum.PduType;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class PduFactory {
 
+    private static final int PDU_HEADER_SIZE = 12;
+    private static final int PDU_TYPE_COUNT = 256;
+    private static final Supplier<? extends Pdu>[] DEFAULT_CONSTRUCTORS = defaultConstructors();
+
+    private final Supplier<? extends Pdu>[] constructors = DEFAULT_CONSTRUCTORS.clone();
+    private final ThreadLocal<Pdu[]> pooledPdus = ThreadLocal.withInitial(() -> new Pdu[PDU_TYPE_COUNT]);
     private Logger logger;
 
     public PduFactory() {
@@ -83,211 +89,197 @@ public class PduFactory {
         if (pos + 2 > buff.limit()) {
             return null;
         } else {
-            buff.position(pos + 2);
-            int pduType = buff.get() & 255;
-            buff.position(pos);
-            PduType pduTypeEnum = PduType.lookup[pduType];
-            Pdu aPdu = null;
-            switch (pduTypeEnum) {
-                case ENTITY_STATE:
-                    aPdu = new EntityStatePdu();
-                    break;
-                case FIRE:
-                    aPdu = new FirePdu();
-                    break;
-                case DETONATION:
-                    aPdu = new DetonationPdu();
-                    break;
-                case COLLISION:
-                    aPdu = new CollisionPdu();
-                    break;
-                case SERVICE_REQUEST:
-                    aPdu = new ServiceRequestPdu();
-                    break;
-                case RESUPPLY_OFFER:
-                    aPdu = new ResupplyOfferPdu();
-                    break;
-                case RESUPPLY_RECEIVED:
-                    aPdu = new ResupplyReceivedPdu();
-                    break;
-                case REPAIR_COMPLETE:
-                    aPdu = new RepairCompletePdu();
-                    break;
-                case REPAIR_RESPONSE:
-                    aPdu = new RepairResponsePdu();
-                    break;
-                case CREATE_ENTITY:
-                    aPdu = new CreateEntityPdu();
-                    break;
-                case REMOVE_ENTITY:
-                    aPdu = new RemoveEntityPdu();
-                    break;
-                case START_RESUME:
-                    aPdu = new StartResumePdu();
-                    break;
-                case STOP_FREEZE:
-                    aPdu = new StopFreezePdu();
-                    break;
-                case ACKNOWLEDGE:
-                    aPdu = new AcknowledgePdu();
-                    break;
-                case ACTION_REQUEST:
-                    aPdu = new ActionRequestPdu();
-                    break;
-                case ACTION_RESPONSE:
-                    aPdu = new ActionResponsePdu();
-                    break;
-                case DATA_QUERY:
-                    aPdu = new DataQueryPdu();
-                    break;
-                case SET_DATA:
-                    aPdu = new SetDataPdu();
-                    break;
-                case DATA:
-                    aPdu = new DataPdu();
-                    break;
-                case EVENT_REPORT:
-                    aPdu = new EventReportPdu();
-                    break;
-                case COMMENT:
-                    aPdu = new CommentPdu();
-                    break;
-                case ELECTROMAGNETIC_EMISSION:
-                    aPdu = new ElectronicEmissionsPdu();
-                    break;
-                case DESIGNATOR:
-                    aPdu = new DesignatorPdu();
-                    break;
-                case TRANSMITTER:
-                    aPdu = new TransmitterPdu();
-                    break;
-                case SIGNAL:
-                    aPdu = new SignalPdu();
-                    break;
-                case RECEIVER:
-                    aPdu = new ReceiverPdu();
-                    break;
-                case UNDERWATER_ACOUSTIC:
-                    aPdu = new UaPdu();
-                    break;
-                case SUPPLEMENTAL_EMISSION_ENTITY_STATE:
-                    aPdu = new SeesPdu();
-                    break;
-                case INTERCOM_SIGNAL:
-                    aPdu = new IntercomSignalPdu();
-                    break;
-                case INTERCOM_CONTROL:
-                    aPdu = new IntercomControlPdu();
-                    break;
-                case ISPARTOF:
-                    aPdu = new IsPartOfPdu();
-                    break;
-                case MINEFIELD_STATE:
-                    aPdu = new MinefieldStatePdu();
-                    break;
-                case MINEFIELD_RESPONSE_NAK:
-                    aPdu = new MinefieldResponseNackPdu();
-                    break;
-                case POINT_OBJECT_STATE:
-                    aPdu = new PointObjectStatePdu();
-                    break;
-                case LINEAR_OBJECT_STATE:
-                    aPdu = new LinearObjectStatePdu();
-                    break;
-                case AREAL_OBJECT_STATE:
-                    aPdu = new ArealObjectStatePdu();
-                    break;
-                case CREATE_ENTITY_R:
-                    aPdu = new CreateEntityReliablePdu();
-                    break;
-                case REMOVE_ENTITY_R:
-                    aPdu = new RemoveEntityReliablePdu();
-                    break;
-                case START_RESUME_R:
-                    aPdu = new StartResumeReliablePdu();
-                    break;
-                case STOP_FREEZE_R:
-                    aPdu = new StopFreezeReliablePdu();
-                    break;
-                case ACKNOWLEDGE_R:
-                    aPdu = new AcknowledgeReliablePdu();
-                    break;
-                case ACTION_REQUEST_R:
-                    aPdu = new ActionRequestReliablePdu();
-                    break;
-                case ACTION_RESPONSE_R:
-                    aPdu = new ActionResponseReliablePdu();
-                    break;
-                case DATA_QUERY_R:
-                    aPdu = new DataQueryReliablePdu();
-                    break;
-                case SET_DATA_R:
-                    aPdu = new SetDataReliablePdu();
-                    break;
-                case DATA_R:
-                    aPdu = new DataReliablePdu();
-                    break;
-                case EVENT_REPORT_R:
-                    aPdu = new EventReportReliablePdu();
-                    break;
-                case COMMENT_R:
-                    aPdu = new CommentReliablePdu();
-                    break;
-                case RECORD_QUERY_R:
-                    aPdu = new RecordQueryReliablePdu();
-                    break;
-                case COLLISION_ELASTIC:
-                    aPdu = new CollisionElasticPdu();
-                    break;
-                case ENTITY_STATE_UPDATE:
-                    aPdu = new EntityStateUpdatePdu();
-                    break;
-                case IFF_ATC_NAVAIDS:
-                    aPdu = new IFFPdu();
-                    break;
-                case AGGREGATE_STATE:
-                    aPdu = new AggregateStatePdu();
-                    break;
-                default:
-                    this.logger.log(Level.INFO, "PDU not implemented. Type = " + pduType + "\n");
-                    if (pduTypeEnum != null) {
-                        this.logger.log(Level.INFO, "  PDU  name is: " + pduTypeEnum.getDescription());
-                    }
+            int pduType = buff.get(pos + 2) & 255;
+            Supplier<? extends Pdu> constructor = this.constructors[pduType];
+            if (constructor == null) {
+                this.logger.log(Level.INFO, "PDU not implemented. Type = " + pduType + "\n");
+                return null;
             }
 
-            if (aPdu != null) {
-                ((Pdu) aPdu).unmarshal(buff);
+            Pdu aPdu = constructor.get();
+            aPdu.unmarshal(buff);
+            return aPdu;
+        }
+    }
+
+    /**
+     * Allocation-free variant of {@link #createPdu(ByteBuffer)}. The PDU is
+     * unmarshalled into an instance kept for the calling thread and reused on
+     * that thread's next call for the same PDU type, so the result is only
+     * valid until then.
+     *
+     * @param buff
+     * @return the calling thread's instance for the PDU type, or null if there
+     * was an error
+     * @see edu.nps.moves.disutil.PduFactory#createPooledPdu(ByteBuffer)
+     */
+    public Pdu createPooledPdu(ByteBuffer buff) {
+        int pos = buff.position();
+        if (pos + 2 > buff.limit()) {
+            return null;
+        } else {
+            int pduType = buff.get(pos + 2) & 255;
+            Pdu[] pool = this.pooledPdus.get();
+            Pdu aPdu = pool[pduType];
+            if (aPdu == null) {
+                Supplier<? extends Pdu> constructor = this.constructors[pduType];
+                if (constructor == null) {
+                    this.logger.log(Level.INFO, "PDU not implemented. Type = " + pduType + "\n");
+                    return null;
+                }
+                aPdu = constructor.get();
+                pool[pduType] = aPdu;
             }
 
-            return (Pdu) aPdu;
+            aPdu.unmarshal(buff);
+            return aPdu;
+        }
+    }
+
+    /**
+     * Registers the constructor used to create PDUs of the given type,
+     * replacing any built-in or previously registered one. Use this to decode
+     * experimental PDU types (129..255) or to substitute application
+     * subclasses for the standard types. Register constructors before the
+     * factory is used for decoding.
+     *
+     * @param pduType the PDU type code, 0..255
+     * @param constructor creates (or supplies) the PDU to unmarshal into
+     * @see edu.nps.moves.disutil.PduFactory#registerPdu(int, Supplier)
+     */
+    public void registerPdu(int pduType, Supplier<? extends Pdu> constructor) {
+        checkPduType(pduType);
+        if (constructor == null) {
+            throw new IllegalArgumentException("constructor must not be null");
         }
+        this.constructors[pduType] = constructor;
+    }
+
+    /**
+     * Restores the built-in constructor for the given PDU type.
+     *
+     * @param pduType the PDU type code, 0..255
+     */
+    public void unregisterPdu(int pduType) {
+        checkPduType(pduType);
+        this.constructors[pduType] = DEFAULT_CONSTRUCTORS[pduType];
+    }
+
+    private static void checkPduType(int pduType) {
+        if (pduType < 0 || pduType >= PDU_TYPE_COUNT) {
+            throw new IllegalArgumentException("PDU type must be in 0.." + (PDU_TYPE_COUNT - 1) + ": " + pduType);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<? extends Pdu>[] defaultConstructors() {
+        Supplier<? extends Pdu>[] constructors = new Supplier[PDU_TYPE_COUNT];
+        constructors[PduType.ENTITY_STATE.value] = EntityStatePdu::new;
+        constructors[PduType.FIRE.value] = FirePdu::new;
+        constructors[PduType.DETONATION.value] = DetonationPdu::new;
+        constructors[PduType.COLLISION.value] = CollisionPdu::new;
+        constructors[PduType.SERVICE_REQUEST.value] = ServiceRequestPdu::new;
+        constructors[PduType.RESUPPLY_OFFER.value] = ResupplyOfferPdu::new;
+        constructors[PduType.RESUPPLY_RECEIVED.value] = ResupplyReceivedPdu::new;
+        constructors[PduType.REPAIR_COMPLETE.value] = RepairCompletePdu::new;
+        constructors[PduType.REPAIR_RESPONSE.value] = RepairResponsePdu::new;
+        constructors[PduType.CREATE_ENTITY.value] = CreateEntityPdu::new;
+        constructors[PduType.REMOVE_ENTITY.value] = RemoveEntityPdu::new;
+        constructors[PduType.START_RESUME.value] = StartResumePdu::new;
+        constructors[PduType.STOP_FREEZE.value] = StopFreezePdu::new;
+        constructors[PduType.ACKNOWLEDGE.value] = AcknowledgePdu::new;
+        constructors[PduType.ACTION_REQUEST.value] = ActionRequestPdu::new;
+        constructors[PduType.ACTION_RESPONSE.value] = ActionResponsePdu::new;
+        constructors[PduType.DATA_QUERY.value] = DataQueryPdu::new;
+        constructors[PduType.SET_DATA.value] = SetDataPdu::new;
+        constructors[PduType.DATA.value] = DataPdu::new;
+        constructors[PduType.EVENT_REPORT.value] = EventReportPdu::new;
+        constructors[PduType.COMMENT.value] = CommentPdu::new;
+        constructors[PduType.ELECTROMAGNETIC_EMISSION.value] = ElectronicEmissionsPdu::new;
+        constructors[PduType.DESIGNATOR.value] = DesignatorPdu::new;
+        constructors[PduType.TRANSMITTER.value] = TransmitterPdu::new;
+        constructors[PduType.SIGNAL.value] = SignalPdu::new;
+        constructors[PduType.RECEIVER.value] = ReceiverPdu::new;
+        constructors[PduType.UNDERWATER_ACOUSTIC.value] = UaPdu::new;
+        constructors[PduType.SUPPLEMENTAL_EMISSION_ENTITY_STATE.value] = SeesPdu::new;
+        constructors[PduType.INTERCOM_SIGNAL.value] = IntercomSignalPdu::new;
+        constructors[PduType.INTERCOM_CONTROL.value] = IntercomControlPdu::new;
+        constructors[PduType.ISPARTOF.value] = IsPartOfPdu::new;
+        constructors[PduType.MINEFIELD_STATE.value] = MinefieldStatePdu::new;
+        constructors[PduType.MINEFIELD_RESPONSE_NAK.value] = MinefieldResponseNackPdu::new;
+        constructors[PduType.POINT_OBJECT_STATE.value] = PointObjectStatePdu::new;
+        constructors[PduType.LINEAR_OBJECT_STATE.value] = LinearObjectStatePdu::new;
+        constructors[PduType.AREAL_OBJECT_STATE.value] = ArealObjectStatePdu::new;
+        constructors[PduType.CREATE_ENTITY_R.value] = CreateEntityReliablePdu::new;
+        constructors[PduType.REMOVE_ENTITY_R.value] = RemoveEntityReliablePdu::new;
+        constructors[PduType.START_RESUME_R.value] = StartResumeReliablePdu::new;
+        constructors[PduType.STOP_FREEZE_R.value] = StopFreezeReliablePdu::new;
+        constructors[PduType.ACKNOWLEDGE_R.value] = AcknowledgeReliablePdu::new;
+        constructors[PduType.ACTION_REQUEST_R.value] = ActionRequestReliablePdu::new;
+        constructors[PduType.ACTION_RESPONSE_R.value] = ActionResponseReliablePdu::new;
+        constructors[PduType.DATA_QUERY_R.value] = DataQueryReliablePdu::new;
+        constructors[PduType.SET_DATA_R.value] = SetDataReliablePdu::new;
+        constructors[PduType.DATA_R.value] = DataReliablePdu::new;
+        constructors[PduType.EVENT_REPORT_R.value] = EventReportReliablePdu::new;
+        constructors[PduType.COMMENT_R.value] = CommentReliablePdu::new;
+        constructors[PduType.RECORD_QUERY_R.value] = RecordQueryReliablePdu::new;
+        constructors[PduType.COLLISION_ELASTIC.value] = CollisionElasticPdu::new;
+        constructors[PduType.ENTITY_STATE_UPDATE.value] = EntityStateUpdatePdu::new;
+        constructors[PduType.IFF_ATC_NAVAIDS.value] = IFFPdu::new;
+        constructors[PduType.AGGREGATE_STATE.value] = AggregateStatePdu::new;
+        return constructors;
     }
 
     public List<Pdu> getPdusFromBundle(byte[] data) {
         ArrayList<Pdu> pdus = new ArrayList();
-        int pduStartPointInData = 0;
+        this.getPdusFromBundle(ByteBuffer.wrap(data), pdus);
+        return pdus;
+    }
 
-        while (true) {
-            byte[] remaining = Arrays.copyOfRange(data, pduStartPointInData, data.length);
+    /**
+     * Decodes the bundled PDUs between the buffer's position and limit without
+     * copying the data, stepping through the buffer by the length field of
+     * each PDU header. On return the buffer's position is left at the first
+     * byte that was not decoded and its limit is restored.
+     *
+     * @param buff the datagram contents, from position to limit
+     * @param pdus list the decoded PDUs are appended to
+     * @return the number of PDUs appended to the list
+     * @see edu.nps.moves.disutil.PduFactory#getPdusFromBundle(ByteBuffer, List)
+     */
+    public int getPdusFromBundle(ByteBuffer buff, List<Pdu> pdus) {
+        int limit = buff.limit();
+        int count = 0;
 
+        while (buff.remaining() >= PDU_HEADER_SIZE) {
+            int pduStart = buff.position();
+            int pduLength = buff.getShort(pduStart + 8) & 65535;
+            if (pduLength < PDU_HEADER_SIZE || pduStart + pduLength > limit) {
+                this.logger.log(Level.INFO, "Stopped decoding bundle at offset " + pduStart
+                        + ": PDU length " + pduLength + " does not fit in " + (limit - pduStart) + " remaining bytes");
+                break;
+            }
+
+            Pdu pdu = null;
             try {
-                Pdu pdu = this.createPdu(remaining);
-                if (pdu == null) {
-                    break;
-                }
+                buff.limit(pduStart + pduLength);
+                pdu = this.createPdu(buff);
+            } catch (RuntimeException e) {
+                this.logger.log(Level.INFO, "Stopped decoding bundle at offset " + pduStart, e);
+            } finally {
+                buff.limit(limit);
+            }
 
-                pdus.add(pdu);
-                int pduLength = pdu.getLength();
-                pduStartPointInData += pduLength;
-                if (pduStartPointInData >= data.length) {
-                    break;
-                }
-            } catch (Exception var7) {
-                System.out.println("Problems decoding multiple PDUs in datagram; decoded as may as possible");
+            if (pdu == null) {
+                buff.position(pduStart);
                 break;
             }
+
+            pdus.add(pdu);
+            ++count;
+            buff.position(pduStart + pduLength);
         }
 
-        return pdus;
+        return count;
     }
 }
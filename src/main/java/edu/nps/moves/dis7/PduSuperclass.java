@@ -14,6 +14,12 @@ import java.io.*;
  */
 public class PduSuperclass extends Object implements Serializable {
 
+    /**
+     * Set while {@link #encode(java.nio.ByteBuffer)} is running on this
+     * thread, so the header's length is left to be back-patched.
+     */
+    private static final ThreadLocal<boolean[]> ENCODING = ThreadLocal.withInitial(() -> new boolean[1]);
+
     /**
      * The version of the protocol. 5=DIS-1995, 6=DIS-1998, 7=DIS-2009.
      */
@@ -157,9 +163,35 @@ public class PduSuperclass extends Object implements Serializable {
         buff.put((byte) pduType);
         buff.put((byte) protocolFamily);
         buff.putInt((int) timestamp);
-        buff.putShort((short) getMarshalledSize());
+        buff.putShort((short) (ENCODING.get()[0] ? 0 : getMarshalledSize()));
     } // end of marshal method
 
+    /**
+     * Packs a Pdu into the ByteBuffer in a single pass. The length field is
+     * written as zero, and once the body is written it is filled in from the
+     * number of bytes actually written, so the size of the PDU is never
+     * computed separately. The buffer may be direct, and is left positioned
+     * just past the PDU.
+     *
+     * @throws java.nio.BufferOverflowException if buff is too small
+     * @throws java.nio.ReadOnlyBufferException if buff is read only
+     * @param buff The ByteBuffer at the position to begin writing
+     * @return the number of bytes written
+     */
+    public int encode(java.nio.ByteBuffer buff) {
+        final int start = buff.position();
+        final boolean[] encoding = ENCODING.get();
+        encoding[0] = true;
+        try {
+            marshal(buff);
+        } finally {
+            encoding[0] = false;
+        }
+        final int written = buff.position() - start;
+        buff.putShort(start + 8, (short) written);
+        return written;
+    }
+
     /**
      * Unpacks a Pdu from the underlying data.
      *
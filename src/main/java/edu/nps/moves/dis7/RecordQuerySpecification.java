@@ -81,9 +81,14 @@ public class RecordQuerySpecification extends Object implements Serializable {
         try {
             numberOfRecords = dis.readInt();
             for (int idx = 0; idx < numberOfRecords; idx++) {
-                FourByteChunk anX = new FourByteChunk();
+                FourByteChunk anX = idx < records.size() ? records.get(idx) : new FourByteChunk();
                 anX.unmarshal(dis);
-                records.add(anX);
+                if (idx == records.size()) {
+                    records.add(anX);
+                }
+            }
+            while (records.size() > Math.max(numberOfRecords, 0)) {
+                records.remove(records.size() - 1);
             }
 
         } // end try 
@@ -122,9 +127,14 @@ public class RecordQuerySpecification extends Object implements Serializable {
     public void unmarshal(java.nio.ByteBuffer buff) {
         numberOfRecords = buff.getInt();
         for (int idx = 0; idx < numberOfRecords; idx++) {
-            FourByteChunk anX = new FourByteChunk();
+            FourByteChunk anX = idx < records.size() ? records.get(idx) : new FourByteChunk();
             anX.unmarshal(buff);
-            records.add(anX);
+            if (idx == records.size()) {
+                records.add(anX);
+            }
+        }
+        while (records.size() > Math.max(numberOfRecords, 0)) {
+            records.remove(records.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -85,9 +85,14 @@ public class RecordSpecification extends Object implements Serializable {
         try {
             numberOfRecordSets = dis.readInt();
             for (int idx = 0; idx < numberOfRecordSets; idx++) {
-                RecordSpecificationElement anX = new RecordSpecificationElement();
+                RecordSpecificationElement anX = idx < recordSets.size() ? recordSets.get(idx) : new RecordSpecificationElement();
                 anX.unmarshal(dis);
-                recordSets.add(anX);
+                if (idx == recordSets.size()) {
+                    recordSets.add(anX);
+                }
+            }
+            while (recordSets.size() > Math.max(numberOfRecordSets, 0)) {
+                recordSets.remove(recordSets.size() - 1);
             }
 
         } // end try 
@@ -126,9 +131,14 @@ public class RecordSpecification extends Object implements Serializable {
     public void unmarshal(java.nio.ByteBuffer buff) {
         numberOfRecordSets = buff.getInt();
         for (int idx = 0; idx < numberOfRecordSets; idx++) {
-            RecordSpecificationElement anX = new RecordSpecificationElement();
+            RecordSpecificationElement anX = idx < recordSets.size() ? recordSets.get(idx) : new RecordSpecificationElement();
             anX.unmarshal(buff);
-            recordSets.add(anX);
+            if (idx == recordSets.size()) {
+                recordSets.add(anX);
+            }
+        }
+        while (recordSets.size() > Math.max(numberOfRecordSets, 0)) {
+            recordSets.remove(recordSets.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -158,9 +158,14 @@ public class ResupplyOfferPdu extends LogisticsFamilyPdu implements Serializable
             padding1 = dis.readByte();
             padding2 = dis.readShort();
             for (int idx = 0; idx < numberOfSupplyTypes; idx++) {
-                SupplyQuantity anX = new SupplyQuantity();
+                SupplyQuantity anX = idx < supplies.size() ? supplies.get(idx) : new SupplyQuantity();
                 anX.unmarshal(dis);
-                supplies.add(anX);
+                if (idx == supplies.size()) {
+                    supplies.add(anX);
+                }
+            }
+            while (supplies.size() > Math.max(numberOfSupplyTypes, 0)) {
+                supplies.remove(supplies.size() - 1);
             }
 
         } // end try 
@@ -210,9 +215,14 @@ public class ResupplyOfferPdu extends LogisticsFamilyPdu implements Serializable
         padding1 = buff.get();
         padding2 = buff.getShort();
         for (int idx = 0; idx < numberOfSupplyTypes; idx++) {
-            SupplyQuantity anX = new SupplyQuantity();
+            SupplyQuantity anX = idx < supplies.size() ? supplies.get(idx) : new SupplyQuantity();
             anX.unmarshal(buff);
-            supplies.add(anX);
+            if (idx == supplies.size()) {
+                supplies.add(anX);
+            }
+        }
+        while (supplies.size() > Math.max(numberOfSupplyTypes, 0)) {
+            supplies.remove(supplies.size() - 1);
         }
 
     } // end of unmarshal method 
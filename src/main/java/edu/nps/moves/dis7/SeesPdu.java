@@ -198,15 +198,25 @@ public class SeesPdu extends DistributedEmissionsFamilyPdu implements Serializab
             numberOfPropulsionSystems = (int) dis.readUnsignedShort();
             numberOfVectoringNozzleSystems = (int) dis.readUnsignedShort();
             for (int idx = 0; idx < numberOfPropulsionSystems; idx++) {
-                PropulsionSystemData anX = new PropulsionSystemData();
+                PropulsionSystemData anX = idx < propulsionSystemData.size() ? propulsionSystemData.get(idx) : new PropulsionSystemData();
                 anX.unmarshal(dis);
-                propulsionSystemData.add(anX);
+                if (idx == propulsionSystemData.size()) {
+                    propulsionSystemData.add(anX);
+                }
+            }
+            while (propulsionSystemData.size() > Math.max(numberOfPropulsionSystems, 0)) {
+                propulsionSystemData.remove(propulsionSystemData.size() - 1);
             }
 
             for (int idx = 0; idx < numberOfVectoringNozzleSystems; idx++) {
-                VectoringNozzleSystem anX = new VectoringNozzleSystem();
+                VectoringNozzleSystem anX = idx < vectoringSystemData.size() ? vectoringSystemData.get(idx) : new VectoringNozzleSystem();
                 anX.unmarshal(dis);
-                vectoringSystemData.add(anX);
+                if (idx == vectoringSystemData.size()) {
+                    vectoringSystemData.add(anX);
+                }
+            }
+            while (vectoringSystemData.size() > Math.max(numberOfVectoringNozzleSystems, 0)) {
+                vectoringSystemData.remove(vectoringSystemData.size() - 1);
             }
 
         } // end try 
@@ -263,15 +273,25 @@ public class SeesPdu extends DistributedEmissionsFamilyPdu implements Serializab
         numberOfPropulsionSystems = (int) (buff.getShort() & 0xFFFF);
         numberOfVectoringNozzleSystems = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfPropulsionSystems; idx++) {
-            PropulsionSystemData anX = new PropulsionSystemData();
+            PropulsionSystemData anX = idx < propulsionSystemData.size() ? propulsionSystemData.get(idx) : new PropulsionSystemData();
             anX.unmarshal(buff);
-            propulsionSystemData.add(anX);
+            if (idx == propulsionSystemData.size()) {
+                propulsionSystemData.add(anX);
+            }
+        }
+        while (propulsionSystemData.size() > Math.max(numberOfPropulsionSystems, 0)) {
+            propulsionSystemData.remove(propulsionSystemData.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfVectoringNozzleSystems; idx++) {
-            VectoringNozzleSystem anX = new VectoringNozzleSystem();
+            VectoringNozzleSystem anX = idx < vectoringSystemData.size() ? vectoringSystemData.get(idx) : new VectoringNozzleSystem();
             anX.unmarshal(buff);
-            vectoringSystemData.add(anX);
+            if (idx == vectoringSystemData.size()) {
+                vectoringSystemData.add(anX);
+            }
+        }
+        while (vectoringSystemData.size() > Math.max(numberOfVectoringNozzleSystems, 0)) {
+            vectoringSystemData.remove(vectoringSystemData.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -156,9 +156,14 @@ public class ServiceRequestPdu extends LogisticsFamilyPdu implements Serializabl
             numberOfSupplyTypes = (short) dis.readUnsignedByte();
             serviceRequestPadding = dis.readShort();
             for (int idx = 0; idx < numberOfSupplyTypes; idx++) {
-                SupplyQuantity anX = new SupplyQuantity();
+                SupplyQuantity anX = idx < supplies.size() ? supplies.get(idx) : new SupplyQuantity();
                 anX.unmarshal(dis);
-                supplies.add(anX);
+                if (idx == supplies.size()) {
+                    supplies.add(anX);
+                }
+            }
+            while (supplies.size() > Math.max(numberOfSupplyTypes, 0)) {
+                supplies.remove(supplies.size() - 1);
             }
 
         } // end try 
@@ -208,9 +213,14 @@ public class ServiceRequestPdu extends LogisticsFamilyPdu implements Serializabl
         numberOfSupplyTypes = (short) (buff.get() & 0xFF);
         serviceRequestPadding = buff.getShort();
         for (int idx = 0; idx < numberOfSupplyTypes; idx++) {
-            SupplyQuantity anX = new SupplyQuantity();
+            SupplyQuantity anX = idx < supplies.size() ? supplies.get(idx) : new SupplyQuantity();
             anX.unmarshal(buff);
-            supplies.add(anX);
+            if (idx == supplies.size()) {
+                supplies.add(anX);
+            }
+        }
+        while (supplies.size() > Math.max(numberOfSupplyTypes, 0)) {
+            supplies.remove(supplies.size() - 1);
         }
 
     } // end of unmarshal method 
@@ -116,9 +116,14 @@ public class SilentEntitySystem extends Object implements Serializable {
             numberOfAppearanceRecords = (int) dis.readUnsignedShort();
             entityType.unmarshal(dis);
             for (int idx = 0; idx < numberOfAppearanceRecords; idx++) {
-                FourByteChunk anX = new FourByteChunk();
+                FourByteChunk anX = idx < appearanceRecordList.size() ? appearanceRecordList.get(idx) : new FourByteChunk();
                 anX.unmarshal(dis);
-                appearanceRecordList.add(anX);
+                if (idx == appearanceRecordList.size()) {
+                    appearanceRecordList.add(anX);
+                }
+            }
+            while (appearanceRecordList.size() > Math.max(numberOfAppearanceRecords, 0)) {
+                appearanceRecordList.remove(appearanceRecordList.size() - 1);
             }
 
         } // end try 
@@ -161,9 +166,14 @@ public class SilentEntitySystem extends Object implements Serializable {
         numberOfAppearanceRecords = (int) (buff.getShort() & 0xFFFF);
         entityType.unmarshal(buff);
         for (int idx = 0; idx < numberOfAppearanceRecords; idx++) {
-            FourByteChunk anX = new FourByteChunk();
+            FourByteChunk anX = idx < appearanceRecordList.size() ? appearanceRecordList.get(idx) : new FourByteChunk();
             anX.unmarshal(buff);
-            appearanceRecordList.add(anX);
+            if (idx == appearanceRecordList.size()) {
+                appearanceRecordList.add(anX);
+            }
+        }
+        while (appearanceRecordList.size() > Math.max(numberOfAppearanceRecords, 0)) {
+            appearanceRecordList.remove(appearanceRecordList.size() - 1);
         }
 
     } // end of unmarshal method 
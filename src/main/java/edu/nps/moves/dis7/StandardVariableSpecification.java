@@ -87,9 +87,14 @@ public class StandardVariableSpecification extends Object implements Serializabl
         try {
             numberOfStandardVariableRecords = (int) dis.readUnsignedShort();
             for (int idx = 0; idx < numberOfStandardVariableRecords; idx++) {
-                SimulationManagementPduHeader anX = new SimulationManagementPduHeader();
+                SimulationManagementPduHeader anX = idx < standardVariables.size() ? standardVariables.get(idx) : new SimulationManagementPduHeader();
                 anX.unmarshal(dis);
-                standardVariables.add(anX);
+                if (idx == standardVariables.size()) {
+                    standardVariables.add(anX);
+                }
+            }
+            while (standardVariables.size() > Math.max(numberOfStandardVariableRecords, 0)) {
+                standardVariables.remove(standardVariables.size() - 1);
             }
 
         } // end try 
@@ -128,9 +133,14 @@ public class StandardVariableSpecification extends Object implements Serializabl
     public void unmarshal(java.nio.ByteBuffer buff) {
         numberOfStandardVariableRecords = (int) (buff.getShort() & 0xFFFF);
         for (int idx = 0; idx < numberOfStandardVariableRecords; idx++) {
-            SimulationManagementPduHeader anX = new SimulationManagementPduHeader();
+            SimulationManagementPduHeader anX = idx < standardVariables.size() ? standardVariables.get(idx) : new SimulationManagementPduHeader();
             anX.unmarshal(buff);
-            standardVariables.add(anX);
+            if (idx == standardVariables.size()) {
+                standardVariables.add(anX);
+            }
+        }
+        while (standardVariables.size() > Math.max(numberOfStandardVariableRecords, 0)) {
+            standardVariables.remove(standardVariables.size() - 1);
         }
 
     } // end of unmarshal method 
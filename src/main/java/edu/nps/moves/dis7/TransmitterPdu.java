@@ -719,9 +719,14 @@ public class TransmitterPdu extends RadioCommunicationsFamilyPdu implements Seri
                     break;
             }
             for (int idx = 0; idx < variableTransmitterParameterCount; idx++) {
-                VariableTransmitterParameters varTransPar = new VariableTransmitterParameters();
+                VariableTransmitterParameters varTransPar = idx < variableTransmitterParametersList.size() ? variableTransmitterParametersList.get(idx) : new VariableTransmitterParameters();
                 varTransPar.unmarshal(dis);
-                variableTransmitterParametersList.add(varTransPar);
+                if (idx == variableTransmitterParametersList.size()) {
+                    variableTransmitterParametersList.add(varTransPar);
+                }
+            }
+            while (variableTransmitterParametersList.size() > Math.max(variableTransmitterParameterCount, 0)) {
+                variableTransmitterParametersList.remove(variableTransmitterParametersList.size() - 1);
             }
         } // end try  // end try  // end try  // end try 
         catch (Exception e) {
@@ -918,9 +923,14 @@ public class TransmitterPdu extends RadioCommunicationsFamilyPdu implements Seri
         }
 
         for (int idx = 0; idx < variableTransmitterParameterCount; idx++) {
-            VariableTransmitterParameters varTransPar = new VariableTransmitterParameters();
+            VariableTransmitterParameters varTransPar = idx < variableTransmitterParametersList.size() ? variableTransmitterParametersList.get(idx) : new VariableTransmitterParameters();
             varTransPar.unmarshal(buff);
-            variableTransmitterParametersList.add(varTransPar);
+            if (idx == variableTransmitterParametersList.size()) {
+                variableTransmitterParametersList.add(varTransPar);
+            }
+        }
+        while (variableTransmitterParametersList.size() > Math.max(variableTransmitterParameterCount, 0)) {
+            variableTransmitterParametersList.remove(variableTransmitterParametersList.size() - 1);
         }
 
     } // end of unmarshal method 
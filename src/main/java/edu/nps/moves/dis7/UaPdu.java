@@ -285,21 +285,36 @@ public class UaPdu extends DistributedEmissionsFamilyPdu implements Serializable
             numberOfAPAs = (short) dis.readUnsignedByte();
             numberOfUAEmitterSystems = (short) dis.readUnsignedByte();
             for (int idx = 0; idx < numberOfShafts; idx++) {
-                ShaftRPMs anX = new ShaftRPMs();
+                ShaftRPMs anX = idx < shaftRPMs.size() ? shaftRPMs.get(idx) : new ShaftRPMs();
                 anX.unmarshal(dis);
-                shaftRPMs.add(anX);
+                if (idx == shaftRPMs.size()) {
+                    shaftRPMs.add(anX);
+                }
+            }
+            while (shaftRPMs.size() > Math.max(numberOfShafts, 0)) {
+                shaftRPMs.remove(shaftRPMs.size() - 1);
             }
 
             for (int idx = 0; idx < numberOfAPAs; idx++) {
-                ApaData anX = new ApaData();
+                ApaData anX = idx < apaData.size() ? apaData.get(idx) : new ApaData();
                 anX.unmarshal(dis);
-                apaData.add(anX);
+                if (idx == apaData.size()) {
+                    apaData.add(anX);
+                }
+            }
+            while (apaData.size() > Math.max(numberOfAPAs, 0)) {
+                apaData.remove(apaData.size() - 1);
             }
 
             for (int idx = 0; idx < numberOfUAEmitterSystems; idx++) {
-                AcousticEmitterSystemData anX = new AcousticEmitterSystemData();
+                AcousticEmitterSystemData anX = idx < emitterSystems.size() ? emitterSystems.get(idx) : new AcousticEmitterSystemData();
                 anX.unmarshal(dis);
-                emitterSystems.add(anX);
+                if (idx == emitterSystems.size()) {
+                    emitterSystems.add(anX);
+                }
+            }
+            while (emitterSystems.size() > Math.max(numberOfUAEmitterSystems, 0)) {
+                emitterSystems.remove(emitterSystems.size() - 1);
             }
 
         } // end try 
@@ -367,21 +382,36 @@ public class UaPdu extends DistributedEmissionsFamilyPdu implements Serializable
         numberOfAPAs = (short) (buff.get() & 0xFF);
         numberOfUAEmitterSystems = (short) (buff.get() & 0xFF);
         for (int idx = 0; idx < numberOfShafts; idx++) {
-            ShaftRPMs anX = new ShaftRPMs();
+            ShaftRPMs anX = idx < shaftRPMs.size() ? shaftRPMs.get(idx) : new ShaftRPMs();
             anX.unmarshal(buff);
-            shaftRPMs.add(anX);
+            if (idx == shaftRPMs.size()) {
+                shaftRPMs.add(anX);
+            }
+        }
+        while (shaftRPMs.size() > Math.max(numberOfShafts, 0)) {
+            shaftRPMs.remove(shaftRPMs.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfAPAs; idx++) {
-            ApaData anX = new ApaData();
+            ApaData anX = idx < apaData.size() ? apaData.get(idx) : new ApaData();
             anX.unmarshal(buff);
-            apaData.add(anX);
+            if (idx == apaData.size()) {
+                apaData.add(anX);
+            }
+        }
+        while (apaData.size() > Math.max(numberOfAPAs, 0)) {
+            apaData.remove(apaData.size() - 1);
         }
 
         for (int idx = 0; idx < numberOfUAEmitterSystems; idx++) {
-            AcousticEmitterSystemData anX = new AcousticEmitterSystemData();
+            AcousticEmitterSystemData anX = idx < emitterSystems.size() ? emitterSystems.get(idx) : new AcousticEmitterSystemData();
             anX.unmarshal(buff);
-            emitterSystems.add(anX);
+            if (idx == emitterSystems.size()) {
+                emitterSystems.add(anX);
+            }
+        }
+        while (emitterSystems.size() > Math.max(numberOfUAEmitterSystems, 0)) {
+            emitterSystems.remove(emitterSystems.size() - 1);
         }
 
     } // end of unmarshal method 
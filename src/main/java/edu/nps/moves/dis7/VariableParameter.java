@@ -74,4 +74,43 @@ public class VariableParameter extends Object implements Serializable {
     public void unmarshal(java.nio.ByteBuffer buff) {
         recordType = (short) (buff.get() & 0xFF);
     }     
+
+    /**
+     * Unpacks one variable parameter record, returning the subclass that
+     * matches its record type. The record passed in is reused when it is
+     * already of that class, so decoding into a reused PDU does not allocate.
+     *
+     * @param buff The ByteBuffer at the position of the record type
+     * @param reuse a previously decoded record to unpack into, may be null
+     * @return the unpacked record, either <code>reuse</code> or a new one
+     */
+    public static VariableParameter unmarshal(java.nio.ByteBuffer buff, VariableParameter reuse) {
+        Class<?> reuseClass = reuse == null ? null : reuse.getClass();
+        VariableParameter anX;
+        switch (buff.get(buff.position()) & 0xFF) {
+            case 0:
+                anX = reuseClass == ArticulatedParts.class ? reuse : new ArticulatedParts();
+                break;
+            case 1:
+                anX = reuseClass == AttachedParts.class ? reuse : new AttachedParts();
+                break;
+            case 2:
+                anX = reuseClass == SeparationVP.class ? reuse : new SeparationVP();
+                break;
+            case 3:
+                anX = reuseClass == EntityTypeVP.class ? reuse : new EntityTypeVP();
+                break;
+            case 4:
+                anX = reuseClass == EntityAssociation.class ? reuse : new EntityAssociation();
+                break;
+            default:
+                anX = reuseClass == VariableParameter.class ? reuse : new VariableParameter();
+                anX.unmarshal(buff);
+                return anX;
+        }
+
+        buff.get(); // the subclass records carry their own record type
+        anX.unmarshal(buff);
+        return anX;
+    }
 } // end of class
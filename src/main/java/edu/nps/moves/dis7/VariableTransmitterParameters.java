@@ -134,6 +134,7 @@ public class VariableTransmitterParameters extends Object implements Serializabl
             recordType = dis.readInt();
             recordLength = dis.readShort();
             final long dataLength = recordLength - RECORD_TYPE_FIELD_SIZE - RECORD_LENGTH_FIELD_SIZE;
+            recordSpecificFieldsList.clear();
             for (int i = 0; i < (dataLength); i++) {
                 byte nextByte = dis.readByte();
                 recordSpecificFieldsList.add(nextByte);
@@ -183,6 +184,7 @@ public class VariableTransmitterParameters extends Object implements Serializabl
         recordType = buff.getInt();
         recordLength = buff.getShort();
         final long dataLength = recordLength - RECORD_TYPE_FIELD_SIZE - RECORD_LENGTH_FIELD_SIZE;
+        recordSpecificFieldsList.clear();
         for (int i = 0; i < dataLength; i++) {
             byte nextByte = buff.get();
             recordSpecificFieldsList.add(nextByte);
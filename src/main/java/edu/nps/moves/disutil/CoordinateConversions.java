@@ -11,15 +11,28 @@ public class CoordinateConversions {
     public static final double RADIANS_TO_DEGREES = 180.0 / Math.PI;
     public static final double DEGREES_TO_RADIANS = Math.PI / 180.0;
 
+    /**
+     * WGS84 semi major axis, meters
+     */
+    public static final double WGS84_A = 6378137.0;
+
+    /**
+     * WGS84 flattening
+     */
+    public static final double WGS84_F = 1.0 / 298.257223563;
+
+    private static final double E2 = WGS84_F * (2.0 - WGS84_F);  // first eccentricity squared
+    private static final double E4 = E2 * E2;
+    private static final double ONE_MINUS_E2 = 1.0 - E2;
+    private static final double A2 = WGS84_A * WGS84_A;
+
     private CoordinateConversions() {
     }
 
     /**
      * Converts DIS xyz world coordinates to latitude and longitude (IN
-     * RADIANS). This algorithm may not be 100% accurate near the poles. Uses
-     * WGS84 , though you can change the ellipsoid constants a and b if you want
-     * to use something else. These formulas were obtained from Military
-     * Handbook 600008
+     * RADIANS) on the WGS84 ellipsoid, using the closed form solution
+     * described in {@link #xyzToLatLonRadians(double[], int, double[], int, int)}.
      *
      * @param xyz A double array with the x, y, and z coordinates, in that
      * order.
@@ -27,65 +40,14 @@ public class CoordinateConversions {
      * coordinates. Elevation is in meters, lat and long are in radians
      */
     public static double[] xyzToLatLonRadians(double[] xyz) {
-        double x = xyz[0];
-        double y = xyz[1];
-        double z = xyz[2];
         double answer[] = new double[3];
-        double a = 6378137.0; //semi major axis
-        double b = 6356752.3142; //semi minor axis
-
-        double eSquared; //first eccentricity squared
-        double rSubN; //radius of the curvature of the prime vertical
-        double ePrimeSquared;//second eccentricity squared
-        double W = Math.sqrt((x * x + y * y));
-
-        eSquared = (a * a - b * b) / (a * a);
-        ePrimeSquared = (a * a - b * b) / (b * b);
-
-        /**
-         * Get the longitude.
-         */
-        if (x >= 0) {
-            answer[1] = Math.atan(y / x);
-        } else if (x < 0 && y >= 0) {
-            answer[1] = Math.atan(y / x) + Math.PI;
-        } else {
-            answer[1] = Math.atan(y / x) - Math.PI;
-        }
-
-        /**
-         * Longitude calculation done. Now calculate latitude. NOTE: The
-         * handbook mentions using the calculated phi (latitude) value to
-         * recalculate B using tan B = (1-f) tan phi and then performing the
-         * entire calculation again to get more accurate values. However, for
-         * terrestrial applications, one iteration is accurate to .1 millimeter
-         * on the surface of the earth (Rapp, 1984, p.124), so one iteration is
-         * enough for our purposes
-         */
-        double tanBZero = (a * z) / (b * W);
-        double BZero = Math.atan((tanBZero));
-        double tanPhi = (z + (ePrimeSquared * b * (Math.pow(Math.sin(BZero), 3)))) / (W - (a * eSquared * (Math.pow(Math.cos(BZero), 3))));
-        double phi = Math.atan(tanPhi);
-        answer[0] = phi;
-        /**
-         * Latitude done, now get the elevation. Note: The handbook states that
-         * near the poles, it is preferable to use h = (Z / sin phi ) - rSubN +
-         * (eSquared * rSubN). Our applications are never near the poles, so
-         * this formula was left unimplemented.
-         */
-        rSubN = (a * a) / Math.sqrt(((a * a) * (Math.cos(phi) * Math.cos(phi)) + ((b * b) * (Math.sin(phi) * Math.sin(phi)))));
-
-        answer[2] = (W / Math.cos(phi)) - rSubN;
-
+        xyzToLatLonRadians(xyz, 0, answer, 0, 1);
         return answer;
     }
 
     /**
      * Converts DIS xyz world coordinates to latitude and longitude (IN
-     * DEGREES). This algorithm may not be 100% accurate near the poles. Uses
-     * WGS84 , though you can change the ellipsoid constants a and b if you want
-     * to use something else. These formulas were obtained from Military
-     * Handbook 600008
+     * DEGREES) on the WGS84 ellipsoid.
      *
      * @param xyz A double array with the x, y, and z coordinates, in that
      * order.
@@ -103,10 +65,8 @@ public class CoordinateConversions {
     }
 
     /**
-     * Converts lat long and geodetic height (elevation) into DIS XYZ This
-     * algorithm also uses the WGS84 ellipsoid, though you can change the values
-     * of a and b for a different ellipsoid. Adapted from Military Handbook
-     * 600008
+     * Converts lat long and geodetic height (elevation) into DIS XYZ on the
+     * WGS84 ellipsoid.
      *
      * @param latitude The latitude, IN RADIANS
      * @param longitude The longitude, in RADIANS
@@ -115,25 +75,14 @@ public class CoordinateConversions {
      * order
      */
     public static double[] getXYZfromLatLonRadians(double latitude, double longitude, double height) {
-        double a = 6378137.0; //semi major axis
-        double b = 6356752.3142; //semi minor axis
-        double cosLat = Math.cos(latitude);
-        double sinLat = Math.sin(latitude);
-
-        double rSubN = (a * a) / Math.sqrt(((a * a) * (cosLat * cosLat) + ((b * b) * (sinLat * sinLat))));
-
-        double X = (rSubN + height) * cosLat * Math.cos(longitude);
-        double Y = (rSubN + height) * cosLat * Math.sin(longitude);
-        double Z = ((((b * b) / (a * a)) * rSubN) + height) * sinLat;
-
-        return new double[]{X, Y, Z};
+        double xyz[] = {latitude, longitude, height};
+        latLonRadiansToXyz(xyz, 0, xyz, 0, 1);
+        return xyz;
     }
 
     /**
      * Converts lat long IN DEGREES and geodetic height (elevation) into DIS XYZ
-     * This algorithm also uses the WGS84 ellipsoid, though you can change the
-     * values of a and b for a different ellipsoid. Adapted from Military
-     * Handbook 600008
+     * on the WGS84 ellipsoid.
      *
      * @param latitude The latitude, IN DEGREES
      * @param longitude The longitude, in DEGREES
@@ -148,4 +97,192 @@ public class CoordinateConversions {
 
         return degrees;
     }
+
+    /**
+     * Converts DIS xyz world coordinates to latitude, longitude (IN RADIANS)
+     * and height above the WGS84 ellipsoid. Uses the closed form solution of
+     * H. Vermeille, "Direct transformation from geocentric coordinates to
+     * geodetic coordinates", Journal of Geodesy 76 (2002), which is exact up
+     * to rounding; results agree with iterative solutions to well under a
+     * millimeter. The solution holds for points more than about 43 km from the
+     * center of the earth, ie everything a simulation normally places.<p>
+     *
+     * Positions are stored as consecutive (x, y, z) and (lat, lon, height)
+     * triples. Nothing is allocated, and <code>xyz</code> and
+     * <code>latLonHeight</code> may be the same array.
+     *
+     * @param xyz source positions
+     * @param xyzOffset index of the first source x
+     * @param latLonHeight receives the geodetic positions
+     * @param latLonHeightOffset index of the first destination latitude
+     * @param count number of positions
+     */
+    public static void xyzToLatLonRadians(double[] xyz, int xyzOffset, double[] latLonHeight, int latLonHeightOffset, int count) {
+        for (int i = 0; i < count; i++) {
+            final int src = xyzOffset + 3 * i;
+            final double x = xyz[src];
+            final double y = xyz[src + 1];
+            final double z = xyz[src + 2];
+
+            final double w2 = x * x + y * y;
+            final double w = Math.sqrt(w2);
+            final double p = w2 / A2;
+            final double q = ONE_MINUS_E2 * z * z / A2;
+            final double r = (p + q - E4) / 6.0;
+            final double s = E4 * p * q / (4.0 * r * r * r);
+            final double t = Math.cbrt(1.0 + s + Math.sqrt(s * (2.0 + s)));
+            final double u = r * (1.0 + t + 1.0 / t);
+            final double v = Math.sqrt(u * u + E4 * q);
+            final double uv = u + v;
+            final double ww = E2 * (uv - q) / (2.0 * v);
+            final double k = Math.sqrt(uv + ww * ww) - ww;
+            final double d = k * w / (k + E2);
+            final double dz = Math.sqrt(d * d + z * z);
+
+            final int dst = latLonHeightOffset + 3 * i;
+            latLonHeight[dst] = 2.0 * Math.atan2(z, d + dz);
+            latLonHeight[dst + 1] = Math.atan2(y, x);
+            latLonHeight[dst + 2] = (k + E2 - 1.0) / k * dz;
+        }
+    }
+
+    /**
+     * Converts latitude, longitude (IN RADIANS) and height above the WGS84
+     * ellipsoid to DIS xyz world coordinates. Positions are stored as
+     * consecutive triples. Nothing is allocated, and the arrays may be the
+     * same.
+     *
+     * @param latLonHeight source positions
+     * @param latLonHeightOffset index of the first source latitude
+     * @param xyz receives the geocentric positions
+     * @param xyzOffset index of the first destination x
+     * @param count number of positions
+     */
+    public static void latLonRadiansToXyz(double[] latLonHeight, int latLonHeightOffset, double[] xyz, int xyzOffset, int count) {
+        for (int i = 0; i < count; i++) {
+            final int src = latLonHeightOffset + 3 * i;
+            final double lat = latLonHeight[src];
+            final double lon = latLonHeight[src + 1];
+            final double height = latLonHeight[src + 2];
+            final double sinLat = Math.sin(lat);
+            final double cosLat = Math.cos(lat);
+            final double rSubN = WGS84_A / Math.sqrt(1.0 - E2 * sinLat * sinLat);
+            final double r = (rSubN + height) * cosLat;
+
+            final int dst = xyzOffset + 3 * i;
+            xyz[dst] = r * Math.cos(lon);
+            xyz[dst + 1] = r * Math.sin(lon);
+            xyz[dst + 2] = (ONE_MINUS_E2 * rSubN + height) * sinLat;
+        }
+    }
+
+    /**
+     * Converts DIS xyz world coordinates to a local east, north, up frame
+     * tangent to the WGS84 ellipsoid at the given origin. Positions are stored
+     * as consecutive triples. Nothing is allocated, and the arrays may be the
+     * same.
+     *
+     * @param originLat latitude of the origin, IN RADIANS
+     * @param originLon longitude of the origin, IN RADIANS
+     * @param originHeight height of the origin above the ellipsoid, meters
+     * @param xyz source positions
+     * @param xyzOffset index of the first source x
+     * @param enu receives the local positions
+     * @param enuOffset index of the first destination east coordinate
+     * @param count number of positions
+     */
+    public static void xyzToEnu(double originLat, double originLon, double originHeight,
+            double[] xyz, int xyzOffset, double[] enu, int enuOffset, int count) {
+        toLocal(originLat, originLon, originHeight, xyz, xyzOffset, enu, enuOffset, count, false);
+    }
+
+    /**
+     * Converts DIS xyz world coordinates to a local north, east, down frame.
+     *
+     * @see #xyzToEnu(double, double, double, double[], int, double[], int, int)
+     */
+    public static void xyzToNed(double originLat, double originLon, double originHeight,
+            double[] xyz, int xyzOffset, double[] ned, int nedOffset, int count) {
+        toLocal(originLat, originLon, originHeight, xyz, xyzOffset, ned, nedOffset, count, true);
+    }
+
+    /**
+     * Converts positions in a local east, north, up frame to DIS xyz world
+     * coordinates.
+     *
+     * @see #xyzToEnu(double, double, double, double[], int, double[], int, int)
+     */
+    public static void enuToXyz(double originLat, double originLon, double originHeight,
+            double[] enu, int enuOffset, double[] xyz, int xyzOffset, int count) {
+        fromLocal(originLat, originLon, originHeight, enu, enuOffset, xyz, xyzOffset, count, false);
+    }
+
+    /**
+     * Converts positions in a local north, east, down frame to DIS xyz world
+     * coordinates.
+     *
+     * @see #xyzToEnu(double, double, double, double[], int, double[], int, int)
+     */
+    public static void nedToXyz(double originLat, double originLon, double originHeight,
+            double[] ned, int nedOffset, double[] xyz, int xyzOffset, int count) {
+        fromLocal(originLat, originLon, originHeight, ned, nedOffset, xyz, xyzOffset, count, true);
+    }
+
+    private static void toLocal(double originLat, double originLon, double originHeight,
+            double[] xyz, int xyzOffset, double[] local, int localOffset, int count, boolean ned) {
+        final double sinLat = Math.sin(originLat), cosLat = Math.cos(originLat);
+        final double sinLon = Math.sin(originLon), cosLon = Math.cos(originLon);
+        final double rSubN = WGS84_A / Math.sqrt(1.0 - E2 * sinLat * sinLat);
+        final double ox = (rSubN + originHeight) * cosLat * cosLon;
+        final double oy = (rSubN + originHeight) * cosLat * sinLon;
+        final double oz = (ONE_MINUS_E2 * rSubN + originHeight) * sinLat;
+        for (int i = 0; i < count; i++) {
+            final int src = xyzOffset + 3 * i;
+            final double dx = xyz[src] - ox;
+            final double dy = xyz[src + 1] - oy;
+            final double dz = xyz[src + 2] - oz;
+            final double east = -sinLon * dx + cosLon * dy;
+            final double north = -sinLat * cosLon * dx - sinLat * sinLon * dy + cosLat * dz;
+            final double up = cosLat * cosLon * dx + cosLat * sinLon * dy + sinLat * dz;
+
+            final int dst = localOffset + 3 * i;
+            if (ned) {
+                local[dst] = north;
+                local[dst + 1] = east;
+                local[dst + 2] = -up;
+            } else {
+                local[dst] = east;
+                local[dst + 1] = north;
+                local[dst + 2] = up;
+            }
+        }
+    }
+
+    private static void fromLocal(double originLat, double originLon, double originHeight,
+            double[] local, int localOffset, double[] xyz, int xyzOffset, int count, boolean ned) {
+        final double sinLat = Math.sin(originLat), cosLat = Math.cos(originLat);
+        final double sinLon = Math.sin(originLon), cosLon = Math.cos(originLon);
+        final double rSubN = WGS84_A / Math.sqrt(1.0 - E2 * sinLat * sinLat);
+        final double ox = (rSubN + originHeight) * cosLat * cosLon;
+        final double oy = (rSubN + originHeight) * cosLat * sinLon;
+        final double oz = (ONE_MINUS_E2 * rSubN + originHeight) * sinLat;
+        for (int i = 0; i < count; i++) {
+            final int src = localOffset + 3 * i;
+            final double east, north, up;
+            if (ned) {
+                north = local[src];
+                east = local[src + 1];
+                up = -local[src + 2];
+            } else {
+                east = local[src];
+                north = local[src + 1];
+                up = local[src + 2];
+            }
+
+            final int dst = xyzOffset + 3 * i;
+            xyz[dst] = ox - sinLon * east - sinLat * cosLon * north + cosLat * cosLon * up;
+            xyz[dst + 1] = oy + cosLon * east - sinLat * sinLon * north + cosLat * sinLon * up;
+            xyz[dst + 2] = oz + cosLat * north + sinLat * up;
+        }
+    }
 }
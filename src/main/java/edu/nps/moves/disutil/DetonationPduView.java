@@ -0,0 +1,172 @@
+package edu.nps.moves.disutil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only flyweight over a Detonation PDU (type 3) in a ByteBuffer. The
+ * layout is the same in protocol versions 6 and 7; the trailing articulation
+ * (version 6) or variable (version 7) parameter records are read one at a
+ * time, only when asked for.
+ *
+ * @see edu.nps.moves.dis.DetonationPdu
+ * @see edu.nps.moves.dis7.DetonationPdu
+ */
+public class DetonationPduView extends PduView {
+
+    private static final int FIRING_ENTITY_ID = 12;
+    private static final int TARGET_ENTITY_ID = 18;
+    private static final int MUNITION_ID = 24;
+    private static final int EVENT_ID = 30;
+    private static final int VELOCITY = 36;
+    private static final int LOCATION = 48;
+    private static final int DESCRIPTOR = 72;
+    private static final int LOCATION_IN_ENTITY_COORDINATES = 88;
+    private static final int DETONATION_RESULT = 100;
+    private static final int NUMBER_OF_PARAMETERS = 101;
+    private static final int PARAMETERS = 104;
+
+    public DetonationPduView() {
+    }
+
+    @Override
+    public DetonationPduView wrap(ByteBuffer buff, int offset) {
+        super.wrap(buff, offset);
+        return this;
+    }
+
+    @Override
+    protected int getFixedSize() {
+        return PARAMETERS;
+    }
+
+    public long getFiringEntityKey() {
+        return entityKeyAt(FIRING_ENTITY_ID);
+    }
+
+    public long getTargetEntityKey() {
+        return entityKeyAt(TARGET_ENTITY_ID);
+    }
+
+    /**
+     * @return the munition ID (version 6) or exploding entity ID (version 7)
+     */
+    public long getMunitionKey() {
+        return entityKeyAt(MUNITION_ID);
+    }
+
+    public long getEventKey() {
+        return entityKeyAt(EVENT_ID);
+    }
+
+    public int getEventNumber() {
+        return unsignedShort(EVENT_ID + 4);
+    }
+
+    public float getVelocityX() {
+        return buff.getFloat(offset + VELOCITY);
+    }
+
+    public float getVelocityY() {
+        return buff.getFloat(offset + VELOCITY + 4);
+    }
+
+    public float getVelocityZ() {
+        return buff.getFloat(offset + VELOCITY + 8);
+    }
+
+    public double getLocationX() {
+        return buff.getDouble(offset + LOCATION);
+    }
+
+    public double getLocationY() {
+        return buff.getDouble(offset + LOCATION + 8);
+    }
+
+    public double getLocationZ() {
+        return buff.getDouble(offset + LOCATION + 16);
+    }
+
+    public short getMunitionKind() {
+        return unsignedByte(DESCRIPTOR);
+    }
+
+    public short getMunitionDomain() {
+        return unsignedByte(DESCRIPTOR + 1);
+    }
+
+    public int getMunitionCountry() {
+        return unsignedShort(DESCRIPTOR + 2);
+    }
+
+    public short getMunitionCategory() {
+        return unsignedByte(DESCRIPTOR + 4);
+    }
+
+    public short getMunitionSubcategory() {
+        return unsignedByte(DESCRIPTOR + 5);
+    }
+
+    public short getMunitionSpecific() {
+        return unsignedByte(DESCRIPTOR + 6);
+    }
+
+    public short getMunitionExtra() {
+        return unsignedByte(DESCRIPTOR + 7);
+    }
+
+    public int getWarhead() {
+        return unsignedShort(DESCRIPTOR + 8);
+    }
+
+    public int getFuse() {
+        return unsignedShort(DESCRIPTOR + 10);
+    }
+
+    public int getQuantity() {
+        return unsignedShort(DESCRIPTOR + 12);
+    }
+
+    public int getRate() {
+        return unsignedShort(DESCRIPTOR + 14);
+    }
+
+    public float getLocationInEntityCoordinatesX() {
+        return buff.getFloat(offset + LOCATION_IN_ENTITY_COORDINATES);
+    }
+
+    public float getLocationInEntityCoordinatesY() {
+        return buff.getFloat(offset + LOCATION_IN_ENTITY_COORDINATES + 4);
+    }
+
+    public float getLocationInEntityCoordinatesZ() {
+        return buff.getFloat(offset + LOCATION_IN_ENTITY_COORDINATES + 8);
+    }
+
+    public short getDetonationResult() {
+        return unsignedByte(DETONATION_RESULT);
+    }
+
+    public short getNumberOfParameters() {
+        return unsignedByte(NUMBER_OF_PARAMETERS);
+    }
+
+    public short getParameterRecordType(int index) {
+        return unsignedByte(parameterRecordAt(PARAMETERS, getNumberOfParameters(), index));
+    }
+
+    public short getParameterChangeIndicator(int index) {
+        return unsignedByte(parameterRecordAt(PARAMETERS, getNumberOfParameters(), index) + 1);
+    }
+
+    public int getParameterAttachedTo(int index) {
+        return unsignedShort(parameterRecordAt(PARAMETERS, getNumberOfParameters(), index) + 2);
+    }
+
+    public int getParameterType(int index) {
+        return buff.getInt(offset + parameterRecordAt(PARAMETERS, getNumberOfParameters(), index) + 4);
+    }
+
+    public float getParameterValue(int index) {
+        return buff.getFloat(offset + parameterRecordAt(PARAMETERS, getNumberOfParameters(), index) + 8);
+    }
+}
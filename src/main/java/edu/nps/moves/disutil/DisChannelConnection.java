@@ -0,0 +1,439 @@
+package edu.nps.moves.disutil;
+
+import edu.nps.moves.dis.Pdu;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Receives DIS traffic with non-blocking DatagramChannels and a Selector. One
+ * connection can listen on several ports and multicast groups; a single
+ * reader thread (the one calling {@link #run()}) drains every datagram that is
+ * ready on each wakeup into one reused direct buffer, decodes only the bytes
+ * received, including bundled PDUs, and queues the whole batch.<p>
+ *
+ * The queue is bounded. When it is full, either the oldest queued PDUs or the
+ * newly received ones are dropped, according to the {@link OverflowPolicy}, and
+ * counted. Consumers take PDUs one at a time with {@link #getNext()} or in
+ * batches with {@link #takeBatch(Collection, int)}.<p>
+ *
+ * Example:
+ * <pre>
+ * DisChannelConnection con = new DisChannelConnection(10000, OverflowPolicy.DROP_OLDEST);
+ * con.joinGroup("239.1.2.3", 3000);
+ * con.addPort(3001);
+ * new Thread(con).start();
+ * List&lt;Pdu&gt; batch = new ArrayList&lt;&gt;();
+ * while (con.takeBatch(batch, 256) &gt; 0) { ... batch.clear(); }
+ * </pre>
+ *
+ * @see DisConnection
+ */
+public class DisChannelConnection implements Runnable {
+
+    /**
+     * What to do with a received PDU when the queue is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * Discard the PDU at the head of the queue to make room
+         */
+        DROP_OLDEST,
+        /**
+         * Discard the PDU that was just received
+         */
+        DROP_NEWEST
+    }
+
+    /**
+     * Largest datagram that will be received intact
+     */
+    public static final int MAX_DATAGRAM_SIZE = 65507;
+
+    /**
+     * Default number of datagrams read from one channel per wakeup
+     */
+    public static final int DEFAULT_MAX_DATAGRAMS_PER_WAKEUP = 64;
+
+    private static final Logger LOGGER = Logger.getLogger(DisChannelConnection.class.getName());
+
+    private final Selector selector;
+    private final List<DatagramChannel> channels = Collections.synchronizedList(new ArrayList<DatagramChannel>());
+    private final Map<Integer, DatagramChannel> channelsByPort = new HashMap<>();
+    private final Queue<DatagramChannel> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<Pdu> msgQ;
+    private final OverflowPolicy overflowPolicy;
+    private final PduFactory pduFactory = new PduFactory();
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+    private final List<Pdu> batch = new ArrayList<>();
+    private int maxDatagramsPerWakeup = DEFAULT_MAX_DATAGRAMS_PER_WAKEUP;
+    private volatile PduDispatcher dispatcher;
+
+    private final AtomicLong receivedDatagrams = new AtomicLong();
+    private final AtomicLong receivedPdus = new AtomicLong();
+    private final AtomicLong droppedPdus = new AtomicLong();
+    private final AtomicLong partiallyDecodedDatagrams = new AtomicLong();
+
+    /**
+     * @param queueCapacity maximum number of decoded PDUs waiting for consumers
+     * @param overflowPolicy which PDUs to drop when the queue is full
+     * @throws IOException if the selector cannot be opened
+     */
+    public DisChannelConnection(int queueCapacity, OverflowPolicy overflowPolicy) throws IOException {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("overflowPolicy must not be null");
+        }
+        this.msgQ = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Gives access to the factory used for decoding, for example to register
+     * constructors for experimental PDU types.
+     */
+    public PduFactory getPduFactory() {
+        return pduFactory;
+    }
+
+    /**
+     * Sets how many datagrams are read from one ready channel before moving on
+     * to the next, which bounds the size of a batch.
+     */
+    public void setMaxDatagramsPerWakeup(int maxDatagramsPerWakeup) {
+        if (maxDatagramsPerWakeup < 1) {
+            throw new IllegalArgumentException("maxDatagramsPerWakeup must be at least 1");
+        }
+        this.maxDatagramsPerWakeup = maxDatagramsPerWakeup;
+    }
+
+    /**
+     * Publishes received PDUs to a dispatcher instead of the queue. When the
+     * dispatcher's ring is full the reader waits for the slowest handler, or
+     * with {@link OverflowPolicy#DROP_NEWEST} drops the PDU and counts it.
+     *
+     * @param dispatcher the dispatcher, or null to go back to the queue
+     */
+    public void setDispatcher(PduDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Listens for unicast and broadcast datagrams on a port. A port that
+     * already has a channel, from an earlier call or a joined group, keeps it.
+     *
+     * @param port the port, or 0 for an ephemeral port
+     * @return the local port actually bound
+     * @throws IOException
+     */
+    public int addPort(int port) throws IOException {
+        DatagramChannel channel = channelFor(port);
+        channel.setOption(StandardSocketOptions.SO_BROADCAST, true);
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Joins a multicast group on a port, using the first multicast capable
+     * network interface that is up.
+     *
+     * @param multicastAddress the group to join
+     * @param port the port the group's traffic is sent to
+     * @throws IOException
+     */
+    public void joinGroup(String multicastAddress, int port) throws IOException {
+        joinGroup(multicastAddress, port, defaultMulticastInterface());
+    }
+
+    /**
+     * Joins a multicast group on a port, on the given network interface.
+     * Several groups may share a port; they are all joined on that port's one
+     * channel, so a datagram is received once however many of the groups it
+     * is delivered for.
+     *
+     * @param multicastAddress the group to join
+     * @param port the port the group's traffic is sent to
+     * @param networkInterface the interface to join the group on
+     * @throws IOException
+     */
+    public void joinGroup(String multicastAddress, int port, NetworkInterface networkInterface) throws IOException {
+        InetAddress group = InetAddress.getByName(multicastAddress);
+        if (!group.isMulticastAddress()) {
+            throw new IllegalArgumentException(multicastAddress + " is not a multicast address");
+        }
+        channelFor(port).join(group, networkInterface);
+    }
+
+    /**
+     * @return the channel bound to the port, opened and registered if there
+     * is none yet
+     */
+    private DatagramChannel channelFor(int port) throws IOException {
+        synchronized (channelsByPort) {
+            DatagramChannel channel = port == 0 ? null : channelsByPort.get(port);
+            if (channel == null) {
+                channel = openChannel(port);
+                channelsByPort.put(((InetSocketAddress) channel.getLocalAddress()).getPort(), channel);
+                register(channel);
+            }
+            return channel;
+        }
+    }
+
+    private static DatagramChannel openChannel(int port) throws IOException {
+        DatagramChannel channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        channel.bind(new InetSocketAddress(port));
+        channel.configureBlocking(false);
+        return channel;
+    }
+
+    private void register(DatagramChannel channel) {
+        channels.add(channel);
+        pendingRegistrations.add(channel);
+        selector.wakeup();
+    }
+
+    private static NetworkInterface defaultMulticastInterface() throws IOException {
+        for (NetworkInterface ni : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+            if (ni.isUp() && ni.supportsMulticast() && !ni.isLoopback()) {
+                return ni;
+            }
+        }
+        return NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Stops the reader thread and closes all channels.
+     */
+    public void terminate() {
+        try {
+            selector.close();
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        }
+        synchronized (channels) {
+            for (DatagramChannel channel : channels) {
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                    LOGGER.log(Level.SEVERE, null, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues or dispatches one received PDU, applying the overflow policy if
+     * there is no room. Called on the reader thread; subclasses may override
+     * to hand PDUs on some other way.
+     */
+    protected void handleMessage(Pdu pdu) {
+        final PduDispatcher target = dispatcher;
+        if (target != null) {
+            if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                if (!target.tryPublish(pdu)) {
+                    droppedPdus.incrementAndGet();
+                }
+            } else {
+                target.publish(pdu);
+            }
+            return;
+        }
+        if (msgQ.offer(pdu)) {
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+            droppedPdus.incrementAndGet();
+            return;
+        }
+        do {
+            if (msgQ.poll() != null) {
+                droppedPdus.incrementAndGet();
+            }
+        } while (!msgQ.offer(pdu));
+    }
+
+    /**
+     * Waits for and removes the next PDU.
+     */
+    public Pdu getNext() throws InterruptedException {
+        return msgQ.take();
+    }
+
+    /**
+     * Removes the next PDU, waiting up to the given time for one to arrive.
+     *
+     * @return the PDU, or null if none arrived in time
+     */
+    public Pdu poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return msgQ.poll(timeout, unit);
+    }
+
+    /**
+     * Waits for at least one PDU, then moves up to <code>maxPdus</code> queued
+     * PDUs into <code>batch</code>.
+     *
+     * @return the number of PDUs added to the batch
+     */
+    public int takeBatch(Collection<? super Pdu> batch, int maxPdus) throws InterruptedException {
+        if (maxPdus < 1) {
+            return 0;
+        }
+        batch.add(msgQ.take());
+        return 1 + msgQ.drainTo(batch, maxPdus - 1);
+    }
+
+    /**
+     * Moves up to <code>maxPdus</code> queued PDUs into <code>batch</code>
+     * without waiting.
+     *
+     * @return the number of PDUs added to the batch
+     */
+    public int drainTo(Collection<? super Pdu> batch, int maxPdus) {
+        return msgQ.drainTo(batch, maxPdus);
+    }
+
+    /**
+     * Sends a PDU in one datagram from this connection's first channel.
+     *
+     * @param pdu the PDU to send
+     * @param target destination group or host and port
+     * @throws IOException
+     * @throws IllegalStateException if no port or group has been added
+     */
+    public void send(Pdu pdu, SocketAddress target) throws IOException {
+        DatagramChannel channel = firstChannel();
+        synchronized (sendBuffer) {
+            sendBuffer.clear();
+            pdu.encode(sendBuffer);
+            sendBuffer.flip();
+            channel.send(sendBuffer, target);
+        }
+    }
+
+    /**
+     * Makes a bundler that packs PDUs into datagrams sent from this
+     * connection's first channel, for senders whose packet rate matters more
+     * than a millisecond of latency.
+     *
+     * @param target destination group or host and port
+     * @throws IllegalStateException if no port or group has been added
+     */
+    public PduBundler bundler(SocketAddress target) {
+        return new PduBundler(firstChannel(), target);
+    }
+
+    private DatagramChannel firstChannel() {
+        synchronized (channels) {
+            if (channels.isEmpty()) {
+                throw new IllegalStateException("No channel to send from");
+            }
+            return channels.get(0);
+        }
+    }
+
+    public long getReceivedDatagramCount() {
+        return receivedDatagrams.get();
+    }
+
+    public long getReceivedPduCount() {
+        return receivedPdus.get();
+    }
+
+    /**
+     * @return number of decoded PDUs discarded because the queue was full
+     */
+    public long getDroppedPduCount() {
+        return droppedPdus.get();
+    }
+
+    /**
+     * @return number of datagrams with trailing bytes that could not be decoded
+     */
+    public long getPartiallyDecodedDatagramCount() {
+        return partiallyDecodedDatagrams.get();
+    }
+
+    /**
+     * @return number of PDUs waiting for consumers
+     */
+    public int getQueueSize() {
+        return msgQ.size();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!Thread.interrupted() && selector.isOpen()) {
+                DatagramChannel pending;
+                while ((pending = pendingRegistrations.poll()) != null) {
+                    pending.register(selector, SelectionKey.OP_READ);
+                }
+
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isReadable()) {
+                        readDatagrams((DatagramChannel) key.channel());
+                    }
+                }
+
+                for (int i = 0; i < batch.size(); i++) {
+                    handleMessage(batch.get(i));
+                }
+                batch.clear();
+            }
+        } catch (ClosedSelectorException e) {
+            // terminate() was called
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, null, e);
+        } finally {
+            terminate();
+        }
+    }
+
+    /**
+     * Reads and decodes the datagrams waiting on one channel into the batch.
+     */
+    private void readDatagrams(DatagramChannel channel) throws IOException {
+        for (int i = 0; i < maxDatagramsPerWakeup; i++) {
+            receiveBuffer.clear();
+            if (channel.receive(receiveBuffer) == null) {
+                return;
+            }
+            receiveBuffer.flip();
+            receivedDatagrams.incrementAndGet();
+            receivedPdus.addAndGet(pduFactory.getPdusFromBundle(receiveBuffer, batch));
+            if (receiveBuffer.hasRemaining()) {
+                partiallyDecodedDatagrams.incrementAndGet();
+            }
+        }
+    }
+}
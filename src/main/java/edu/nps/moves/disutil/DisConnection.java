@@ -6,6 +6,7 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.MulticastSocket;
+import java.nio.ByteBuffer;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.logging.Level;
@@ -15,6 +16,8 @@ public class DisConnection implements Runnable {
 
     private final DatagramSocket socket;
     private DatagramPacket packet;
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(DisChannelConnection.MAX_DATAGRAM_SIZE);
+    private final DatagramPacket sendPacket = new DatagramPacket(new byte[0], 0);
     private InetAddress addr;
     private final PduFactory pduFactory = new PduFactory();
     private final BlockingQueue<Pdu> msgQ = new LinkedBlockingQueue<>();
@@ -50,6 +53,14 @@ public class DisConnection implements Runnable {
         }
     }
 
+    /**
+     * Gives access to the factory used for decoding, for example to set a
+     * {@link PduFilter} or register constructors for experimental PDU types.
+     */
+    public PduFactory getPduFactory() {
+        return pduFactory;
+    }
+
     protected void handleMessage(Pdu pdu) {
         synchronized (msgQ) {
             msgQ.add(pdu);
@@ -60,12 +71,18 @@ public class DisConnection implements Runnable {
         }
     }
 
-    public synchronized Pdu getNext() throws InterruptedException {
+    public Pdu getNext() throws InterruptedException {
         return msgQ.take();
     }
 
     public void send(Pdu pdu) throws IOException {
-        socket.send(new DatagramPacket(pdu.marshal(), pdu.getLength(), addr, socket.getLocalPort()));
+        synchronized (sendBuffer) {
+            sendBuffer.clear();
+            sendPacket.setData(sendBuffer.array(), 0, pdu.encode(sendBuffer));
+            sendPacket.setAddress(addr);
+            sendPacket.setPort(socket.getLocalPort());
+            socket.send(sendPacket);
+        }
     }
 
     @Override
@@ -73,7 +90,7 @@ public class DisConnection implements Runnable {
         while (!Thread.interrupted()) {
             try {
                 socket.receive(packet);
-                Pdu pdu = pduFactory.createPdu(packet.getData());
+                Pdu pdu = pduFactory.createPdu(ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength()));
                 if (pdu != null) {
                     handleMessage(pdu);
                 }
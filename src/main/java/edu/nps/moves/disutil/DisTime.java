@@ -1,6 +1,8 @@
 package edu.nps.moves.disutil;
 
-import java.util.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 
 /**
  * DIS time units are a pain in the ass. DIS time units are arbitrary, and set
@@ -46,10 +48,16 @@ import java.util.*;
  * field.
  * 
  *
- * You need to be careful with the shared instance of this class--I'm not at all
- * convinced it is thread safe. If you are using multiple threads, I suggest you
- * create a new instance of the class for each thread to prevent the values from
- * getting stomped on.
+ * All timestamps are computed arithmetically from a single clock: the wall
+ * clock read once through {@link System#currentTimeMillis()} and advanced with
+ * {@link System#nanoTime()}, so DIS timestamps have sub-microsecond
+ * resolution. The top of the current hour and the start of the current year
+ * (both UTC) are cached and recomputed when the clock passes them. That cache
+ * and the clock offset are the only mutable state, both volatile, so the
+ * shared instance may be used from any number of threads, and stamping a PDU
+ * allocates nothing.
+ * Call {@link #resync()} occasionally if the host's clock is being slewed by
+ * NTP and the process runs for a long time.
  *
  * @author DMcG
  */
@@ -57,25 +65,82 @@ public class DisTime {
 
     public static final int ABSOLUTE_TIMESTAMP_MASK = 0x00000001;
     public static final int RELATIVE_TIMESTAMP_MASK = 0xfffffffe;
-    protected GregorianCalendar cal;
-    public static DisTime disTime = null;
 
     /**
-     * Shared instance. This is not thread-safe. If you are working in multiple
-     * threads, create a new instance for each thread.
+     * DIS time units per hour, 2^31 - 1
+     */
+    public static final long DIS_TIME_UNITS_PER_HOUR = Integer.MAX_VALUE;
+
+    public static final long NANOS_PER_HOUR = 3600L * 1000000000L;
+
+    private static final double UNITS_PER_NANO = (double) DIS_TIME_UNITS_PER_HOUR / NANOS_PER_HOUR;
+    private static final double NANOS_PER_UNIT = (double) NANOS_PER_HOUR / DIS_TIME_UNITS_PER_HOUR;
+
+    public static final DisTime disTime = new DisTime();
+
+    /**
+     * The current hour and year, UTC. Replaced, never modified.
+     */
+    private static final class Boundaries {
+
+        final long hourStartNanos;
+        final long yearStartMillis;
+        final long yearEndMillis;
+
+        Boundaries(long epochNanos) {
+            hourStartNanos = Math.floorDiv(epochNanos, NANOS_PER_HOUR) * NANOS_PER_HOUR;
+            final long millis = Math.floorDiv(epochNanos, 1000000L);
+            final int year = Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC).getYear();
+            yearStartMillis = LocalDate.of(year, 1, 1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+            yearEndMillis = LocalDate.of(year + 1, 1, 1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+    }
+
+    private volatile long epochOffsetNanos;
+    private volatile Boundaries boundaries;
+
+    /**
+     * Shared instance, safe to use from any thread.
      *
      * @return singleton instance of DisTime
      */
     public static DisTime getInstance() {
-        if (disTime == null) {
-            disTime = new DisTime();
-        }
-
         return disTime;
     }
 
     public DisTime() {
-        cal = new GregorianCalendar();
+        resync();
+        boundaries = new Boundaries(getEpochNanos());
+    }
+
+    /**
+     * Re-reads the wall clock, picking up any adjustment made to it since
+     * this instance was created or last resynchronized.
+     */
+    public void resync() {
+        epochOffsetNanos = System.currentTimeMillis() * 1000000L - System.nanoTime();
+    }
+
+    /**
+     * @return the current time in nanoseconds since 1970, UTC
+     */
+    public long getEpochNanos() {
+        return System.nanoTime() + epochOffsetNanos;
+    }
+
+    /**
+     * Returns the cached boundaries, replacing them if the given time is in
+     * another hour.
+     */
+    private Boundaries boundaries(long epochNanos) {
+        Boundaries b = boundaries;
+        final long sinceHourStart = epochNanos - b.hourStartNanos;
+        if (sinceHourStart < 0 || sinceHourStart >= NANOS_PER_HOUR) {
+            // rollover; racing threads compute identical values
+            b = new Boundaries(epochNanos);
+            boundaries = b;
+        }
+        return b;
     }
 
     /**
@@ -84,29 +149,10 @@ public class DisTime {
      *
      * @return integer DIS time units since the start of the hour.
      */
-    private int getDisTimeUnitsSinceTopOfHour() {
-        // set cal object to current time
-        long currentTime = System.currentTimeMillis(); // UTC milliseconds since 1970
-        cal.setTimeInMillis(currentTime);
-
-        // Set cal to top of the hour, then compute what the cal object says was milliseconds since 1970
-        // at the top of the hour
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        long topOfHour = cal.getTimeInMillis();
-
-        // Milliseconds since the top of the hour
-        long diff = currentTime - topOfHour;
-
-        // It turns out that Integer.MAX_VALUE is 2^31-1, which is the time unit value, ie there are
-        // 2^31-1 DIS time units in an hour. 3600 sec/hr X 1000 msec/sec divided into the number of
-        // msec since the start of the hour gives the percentage of DIS time units in the hour, times
-        // the number of DIS time units per hour, equals the time value
-        double val = (((double) diff) / (3600.0 * 1000.0)) * Integer.MAX_VALUE;
-        int ts = (int) val;
-
-        return ts;
+    private int getDisTimeUnitsSinceTopOfHour(long epochNanos) {
+        final long sinceHourStart = epochNanos - boundaries(epochNanos).hourStartNanos;
+        // always below 2^31 - 1, since sinceHourStart is less than an hour
+        return (int) (sinceHourStart * UNITS_PER_NANO);
     }
 
     /**
@@ -116,7 +162,15 @@ public class DisTime {
      * @return DIS time units, get absolute timestamp
      */
     public int getDisAbsoluteTimestamp() {
-        int val = this.getDisTimeUnitsSinceTopOfHour();
+        return getDisAbsoluteTimestamp(getEpochNanos());
+    }
+
+    /**
+     * @param epochNanos nanoseconds since 1970, UTC
+     * @return the absolute timestamp for the given time
+     */
+    public int getDisAbsoluteTimestamp(long epochNanos) {
+        int val = this.getDisTimeUnitsSinceTopOfHour(epochNanos);
         val = (val << 1) | ABSOLUTE_TIMESTAMP_MASK; // always flip the lsb to 1
         return val;
     }
@@ -128,39 +182,94 @@ public class DisTime {
      * @return DIS time units, relative
      */
     public int getDisRelativeTimestamp() {
-        int val = this.getDisTimeUnitsSinceTopOfHour();
+        return getDisRelativeTimestamp(getEpochNanos());
+    }
+
+    /**
+     * @param epochNanos nanoseconds since 1970, UTC
+     * @return the relative timestamp for the given time
+     */
+    public int getDisRelativeTimestamp(long epochNanos) {
+        int val = this.getDisTimeUnitsSinceTopOfHour(epochNanos);
         val = (val << 1) & RELATIVE_TIMESTAMP_MASK; // always flip the lsb to 0
         return val;
     }
 
+    /**
+     * @return true if the DIS timestamp is absolute, false if relative
+     */
+    public static boolean isAbsolute(int timestamp) {
+        return (timestamp & ABSOLUTE_TIMESTAMP_MASK) != 0;
+    }
+
+    /**
+     * Converts a received DIS timestamp, absolute or relative, back to
+     * nanoseconds since 1970. A DIS timestamp only gives the time within an
+     * hour, so the hour is taken to be the one that puts the result nearest
+     * the reference time, normally the time the PDU was received. This is
+     * correct as long as the sender's clock is within half an hour of the
+     * reference, including across the top of the hour.
+     *
+     * @param timestamp DIS timestamp from a PDU header
+     * @param referenceEpochNanos nanoseconds since 1970 near the time the
+     * timestamp was made
+     * @return the time the timestamp stands for, to within one DIS time unit
+     * (about 1.7 microseconds)
+     */
+    public static long toEpochNanos(int timestamp, long referenceEpochNanos) {
+        final long units = (timestamp & 0xFFFFFFFFL) >>> 1;
+        final long sinceHourStart = Math.round(units * NANOS_PER_UNIT);
+        final long hourStart = Math.floorDiv(referenceEpochNanos, NANOS_PER_HOUR) * NANOS_PER_HOUR;
+        long result = hourStart + sinceHourStart;
+        final long offset = result - referenceEpochNanos;
+        if (offset > NANOS_PER_HOUR / 2) {
+            result -= NANOS_PER_HOUR;        // stamped late last hour, received in this one
+        } else if (offset < -NANOS_PER_HOUR / 2) {
+            result += NANOS_PER_HOUR;        // stamped early next hour by a clock running ahead
+        }
+        return result;
+    }
+
+    /**
+     * Converts a received DIS timestamp back to nanoseconds since 1970, using
+     * the current time as the reference.
+     *
+     * @see #toEpochNanos(int, long)
+     */
+    public long toEpochNanos(int timestamp) {
+        return toEpochNanos(timestamp, getEpochNanos());
+    }
+
     /**
      * Returns a useful timestamp, hundredths of a second since the start of the
-     * year. This effectively eliminates the need for receivers to handle
+     * year (UTC). This effectively eliminates the need for receivers to handle
      * timestamp rollover, as long as you're not working on New Year's Eve.
      *
      * @return a timestamp in hundredths of a second since the start of the year
      */
     public long getNpsTimestamp() {
-        // set cal object to current time
-        long currentTime = System.currentTimeMillis(); // UTC milliseconds since 1970
-        cal.setTimeInMillis(currentTime);
-
-        // Set cal to the start of the year
-        cal.set(Calendar.MONTH, 0);
-        cal.set(Calendar.DAY_OF_MONTH, 1);
-        cal.set(Calendar.HOUR, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        long startOfYear = cal.getTimeInMillis();
-
-        // Milliseconds since the top of the hour
-        long diff = currentTime - startOfYear;
+        return getNpsTimestamp(getEpochNanos());
+    }
+
+    /**
+     * @param epochNanos nanoseconds since 1970, UTC
+     * @return hundredths of a second since the start of the year for the given
+     * time
+     */
+    public long getNpsTimestamp(long epochNanos) {
+        final long millis = Math.floorDiv(epochNanos, 1000000L);
+        Boundaries b = boundaries(epochNanos);
+        if (millis < b.yearStartMillis || millis >= b.yearEndMillis) {
+            // a time outside the cached hour's year; don't disturb the cache
+            b = new Boundaries(epochNanos);
+        }
+
+        // Milliseconds since the start of the year
+        long diff = millis - b.yearStartMillis;
         diff /= 10; // milliseconds to hundredths of a second
 
         return diff;
     }
-
     /**
      * Another option for marshalling with the timestamp field set
      * automatically. The UNIX time is conventionally seconds since January 1,
@@ -181,8 +290,14 @@ public class DisTime {
      * @return seconds since 1970
      */
     public long getUnixTimestamp() {
-        long t = System.currentTimeMillis();
-        t = t / 1000l;   // NB: integer division, convert milliseconds to seconds
-        return t;
+        return getUnixTimestamp(getEpochNanos());
+    }
+
+    /**
+     * @param epochNanos nanoseconds since 1970, UTC
+     * @return seconds since 1970
+     */
+    public long getUnixTimestamp(long epochNanos) {
+        return Math.floorDiv(epochNanos, 1000000000L);
     }
 }
@@ -0,0 +1,245 @@
+package edu.nps.moves.disutil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Re-emits DIS traffic translated to the other protocol version, so version 6
+ * and version 7 federates can share an exercise. Each datagram received is
+ * translated PDU by PDU with {@link DisVersionTranslator}, bundles included,
+ * and the translated PDUs are sent on at once as one datagram. Nothing is
+ * queued or batched across datagrams, so the added latency is the time to
+ * copy the datagram, and no objects are created per PDU.<p>
+ *
+ * PDUs already in the target version are not re-sent, so a bridge can listen
+ * to the group it sends to without echoing its own output. Bridging both ways
+ * takes two bridges, one per direction, and the second must be built with the
+ * first as its partner: otherwise each would translate the other's output
+ * back, and every PDU would circle between the groups for ever. Partners
+ * share a table of hashes of the PDUs they recently sent, and drop any PDU
+ * received that matches one. Example, translating version 6 traffic on one
+ * group onto another:
+ * <pre>
+ * DatagramChannel in = DatagramChannel.open(StandardProtocolFamily.INET)
+ *         .setOption(StandardSocketOptions.SO_REUSEADDR, true)
+ *         .bind(new InetSocketAddress(3000));
+ * in.join(InetAddress.getByName("239.1.2.3"), networkInterface);
+ * DisVersionBridge bridge = new DisVersionBridge(in, DatagramChannel.open(),
+ *         new InetSocketAddress("239.1.2.7", 3000), 7);
+ * new Thread(bridge).start();
+ * </pre>
+ * and the reverse direction, receiving on a channel <code>in7</code> joined
+ * to the version 7 group:
+ * <pre>
+ * DisVersionBridge reverse = new DisVersionBridge(in7, DatagramChannel.open(),
+ *         new InetSocketAddress("239.1.2.3", 3000), 6, bridge);
+ * new Thread(reverse).start();
+ * </pre>
+ *
+ * @see DisVersionTranslator
+ */
+public class DisVersionBridge implements Runnable, Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(DisVersionBridge.class.getName());
+
+    private static final int HEADER_SIZE = 12;
+
+    /**
+     * Slots in the table of sent PDU hashes; a power of two
+     */
+    private static final int SENT_TABLE_SIZE = 1024;
+
+    private final DatagramChannel in;
+    private final DatagramChannel out;
+    private final SocketAddress target;
+    private final int version;
+    private final ByteBuffer received = ByteBuffer.allocateDirect(DisChannelConnection.MAX_DATAGRAM_SIZE);
+    private final ByteBuffer translated = ByteBuffer.allocateDirect(DisChannelConnection.MAX_DATAGRAM_SIZE);
+    // hashes of recently sent PDUs, indexed by their low bits; shared with a partner
+    private final AtomicLongArray sent;
+
+    private final AtomicLong receivedDatagrams = new AtomicLong();
+    private final AtomicLong translatedPdus = new AtomicLong();
+    private final AtomicLong skippedPdus = new AtomicLong();
+    private final AtomicLong echoedPdus = new AtomicLong();
+    private final AtomicLong malformedDatagrams = new AtomicLong();
+
+    /**
+     * @param in the channel to receive from, which must be in blocking mode
+     * @param out the channel to send from; may be the same as in
+     * @param target where translated datagrams are sent
+     * @param version the protocol version to translate to, 6 or 7
+     */
+    public DisVersionBridge(DatagramChannel in, DatagramChannel out, SocketAddress target, int version) {
+        this(in, out, target, version, new AtomicLongArray(SENT_TABLE_SIZE));
+    }
+
+    /**
+     * Makes the reverse of an existing bridge. Neither bridge forwards a PDU
+     * the other has just sent.
+     *
+     * @param in the channel to receive from, which must be in blocking mode
+     * @param out the channel to send from; may be the same as in
+     * @param target where translated datagrams are sent
+     * @param version the protocol version to translate to, 6 or 7
+     * @param partner the bridge translating the other way
+     */
+    public DisVersionBridge(DatagramChannel in, DatagramChannel out, SocketAddress target, int version,
+            DisVersionBridge partner) {
+        this(in, out, target, version, partner.sent);
+        if (partner.version == version) {
+            throw new IllegalArgumentException("Partner must translate to the other version");
+        }
+    }
+
+    private DisVersionBridge(DatagramChannel in, DatagramChannel out, SocketAddress target, int version,
+            AtomicLongArray sent) {
+        if (version != 6 && version != 7) {
+            throw new IllegalArgumentException("Version must be 6 or 7");
+        }
+        this.in = in;
+        this.out = out;
+        this.target = target;
+        this.version = version;
+        this.sent = sent;
+    }
+
+    /**
+     * Translates and forwards one datagram.
+     *
+     * @param datagram the datagram, from position to limit
+     * @return the number of PDUs forwarded
+     * @throws IOException if the translated datagram could not be sent
+     */
+    int forward(ByteBuffer datagram) throws IOException {
+        translated.clear();
+        int pdus = 0;
+        while (datagram.hasRemaining()) {
+            final int at = datagram.position();
+            final int length = datagram.remaining() < HEADER_SIZE
+                    ? 0 : datagram.getShort(at + 8) & 0xFFFF;
+            if (length >= HEADER_SIZE && length <= datagram.remaining()
+                    && wasSent(hash(datagram, at, length))) {
+                datagram.position(at + length);
+                echoedPdus.incrementAndGet();
+                continue;
+            }
+            final int written = DisVersionTranslator.translate(datagram, translated, version);
+            if (written == DisVersionTranslator.MALFORMED) {
+                malformedDatagrams.incrementAndGet();
+                break;
+            }
+            if (written == 0) {
+                skippedPdus.incrementAndGet();
+            } else {
+                final long h = hash(translated, translated.position() - written, written);
+                sent.set((int) h & (SENT_TABLE_SIZE - 1), h);
+                pdus++;
+            }
+        }
+        if (pdus > 0) {
+            translated.flip();
+            out.send(translated, target);
+            translatedPdus.addAndGet(pdus);
+        }
+        return pdus;
+    }
+
+    private boolean wasSent(long h) {
+        return sent.get((int) h & (SENT_TABLE_SIZE - 1)) == h;
+    }
+
+    /**
+     * 64 bit FNV-1a hash of a PDU's bytes, never 0 so empty slots don't match
+     */
+    private static long hash(ByteBuffer buff, int at, int length) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = at; i < at + length; i++) {
+            h ^= buff.get(i) & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h | 1;
+    }
+
+    public long getReceivedDatagramCount() {
+        return receivedDatagrams.get();
+    }
+
+    /**
+     * @return number of PDUs translated and sent
+     */
+    public long getTranslatedPduCount() {
+        return translatedPdus.get();
+    }
+
+    /**
+     * @return number of PDUs not sent because they were already in the
+     * target version or of a type that is not translated
+     */
+    public long getSkippedPduCount() {
+        return skippedPdus.get();
+    }
+
+    /**
+     * @return number of PDUs not sent because this bridge or its partner had
+     * just sent them
+     */
+    public long getEchoedPduCount() {
+        return echoedPdus.get();
+    }
+
+    /**
+     * @return number of datagrams with trailing bytes that could not be
+     * translated
+     */
+    public long getMalformedDatagramCount() {
+        return malformedDatagrams.get();
+    }
+
+    /**
+     * Forwards datagrams until the bridge is closed or the thread
+     * interrupted.
+     */
+    @Override
+    public void run() {
+        try {
+            while (!Thread.interrupted()) {
+                received.clear();
+                if (in.receive(received) == null) {
+                    continue;
+                }
+                received.flip();
+                receivedDatagrams.incrementAndGet();
+                try {
+                    forward(received);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Dropped a translated datagram", e);
+                }
+            }
+        } catch (AsynchronousCloseException e) {
+            // closed
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, null, e);
+        }
+    }
+
+    /**
+     * Closes both channels, which stops the thread running {@link #run()}.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            in.close();
+        } finally {
+            out.close();
+        }
+    }
+}
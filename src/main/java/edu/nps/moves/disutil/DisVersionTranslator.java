@@ -0,0 +1,288 @@
+package edu.nps.moves.disutil;
+
+import edu.nps.moves.disenum.PduType;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Translates marshalled PDUs between protocol version 6 (IEEE 1278.1a-1998,
+ * the <code>edu.nps.moves.dis</code> classes) and version 7 (IEEE
+ * 1278.1-2012, <code>edu.nps.moves.dis7</code>), byte for byte and without
+ * building PDU objects. The PDUs translated are those whose layouts the two
+ * versions share:
+ * <ul>
+ * <li>Entity State and Entity State Update</li>
+ * <li>Fire and Detonation</li>
+ * <li>Transmitter, Signal and Receiver</li>
+ * <li>the Simulation Management family, from Create Entity to Comment,
+ * including Data, Set Data and Data Query</li>
+ * </ul>
+ * The differences are the protocol version, the PDU status byte, which is
+ * header padding in version 6 and is zeroed both ways, and the parameter
+ * records of Entity State, Entity State Update and Detonation PDUs, and of
+ * Transmitter PDUs, whose version 7 variable transmitter parameter count
+ * sits in what is padding in version 6. The
+ * status byte of a version 7 Fire or Detonation PDU can also say that its
+ * descriptor is for an expendable or an explosion rather than a munition;
+ * version 6 only has the munition form, so the entity type is kept and the
+ * rest of the descriptor becomes a burst of one with no warhead or fuse.<p>
+ *
+ * Version 6 articulation parameters have the same layout as version 7
+ * articulated and attached part records, and likewise the version 6 Marking
+ * and the version 7 EntityMarking, so those are copied as they are. Version 7
+ * separation, entity type and entity association records have no version 6
+ * form and are dropped, with the record count and PDU length adjusted to
+ * match. So are the variable transmitter parameter records that end a
+ * version 7 Transmitter PDU, and their count is zeroed both ways.
+ *
+ * @see DisVersionBridge
+ */
+public final class DisVersionTranslator {
+
+    /**
+     * The result for a PDU whose header or parameter records don't fit its
+     * length, or its buffer
+     */
+    public static final int MALFORMED = -1;
+
+    private static final int HEADER_SIZE = 12;
+    private static final int STATUS_AT = 10;
+    private static final int PARAMETER_COUNT_AT = 19;
+    private static final int DETONATION_PARAMETER_COUNT_AT = 101;
+    private static final int FIRE_DESCRIPTOR_AT = 64;
+    private static final int DETONATION_DESCRIPTOR_AT = 72;
+    private static final int FIRE_TYPE_INDICATOR = 0x10;
+    private static final int DETONATION_TYPE_INDICATOR = 0x30;
+    private static final int TRANSMITTER_PARAMETER_COUNT_AT = 30;
+    private static final int ANTENNA_PATTERN_LENGTH_AT = 70;
+    private static final int MODULATION_PARAMETER_LENGTH_AT = 100;
+    private static final int MODULATION_PARAMETERS_AT = 104;
+    private static final int TRANSMITTER_RECORD_HEADER_SIZE = 6;
+    private static final int ARTICULATED_PART = 0;
+    private static final int ATTACHED_PART = 1;
+
+    private static final boolean[] TRANSLATED = new boolean[256];
+    // where the parameter records start, for PDU types that have them
+    private static final int[] RECORDS_AT = new int[256];
+
+    static {
+        final PduType[] types = {
+            PduType.ENTITY_STATE, PduType.ENTITY_STATE_UPDATE,
+            PduType.FIRE, PduType.DETONATION,
+            PduType.TRANSMITTER, PduType.SIGNAL, PduType.RECEIVER,
+            PduType.CREATE_ENTITY, PduType.REMOVE_ENTITY, PduType.START_RESUME, PduType.STOP_FREEZE,
+            PduType.ACKNOWLEDGE, PduType.ACTION_REQUEST, PduType.ACTION_RESPONSE, PduType.DATA_QUERY,
+            PduType.SET_DATA, PduType.DATA, PduType.EVENT_REPORT, PduType.COMMENT
+        };
+        for (PduType type : types) {
+            TRANSLATED[type.value] = true;
+        }
+        RECORDS_AT[PduType.ENTITY_STATE.value] = 144;
+        RECORDS_AT[PduType.ENTITY_STATE_UPDATE.value] = 72;
+        RECORDS_AT[PduType.DETONATION.value] = 104;
+    }
+
+    private DisVersionTranslator() {
+    }
+
+    /**
+     * @return whether PDUs of a type are translated
+     */
+    public static boolean isTranslated(int pduType) {
+        return TRANSLATED[pduType & 0xFF];
+    }
+
+    /**
+     * Translates a version 6 (or 5) PDU to version 7.
+     *
+     * @see #translate(ByteBuffer, ByteBuffer, int)
+     */
+    public static int toVersion7(ByteBuffer src, ByteBuffer dst) {
+        return translate(src, dst, 7);
+    }
+
+    /**
+     * Translates a version 7 PDU to version 6.
+     *
+     * @see #translate(ByteBuffer, ByteBuffer, int)
+     */
+    public static int toVersion6(ByteBuffer src, ByteBuffer dst) {
+        return translate(src, dst, 6);
+    }
+
+    /**
+     * Translates the PDU at the source buffer's position, writing it at the
+     * destination buffer's position. The output is never longer than the
+     * input. PDUs already in the target version and PDUs of types that are
+     * not translated are skipped, which keeps a bridge from echoing its own
+     * output.
+     *
+     * @param src holds the PDU at its position; left positioned after the
+     * PDU, unless the PDU is malformed
+     * @param dst receives the translated PDU; left positioned after it
+     * @param version 6 or 7
+     * @return the number of bytes written, 0 if the PDU was skipped, or
+     * {@link #MALFORMED}
+     * @throws BufferOverflowException if the destination has less room than
+     * the PDU's length; neither buffer is changed
+     */
+    public static int translate(ByteBuffer src, ByteBuffer dst, int version) {
+        if (version != 6 && version != 7) {
+            throw new IllegalArgumentException("Version must be 6 or 7");
+        }
+        final int start = src.position();
+        if (src.remaining() < HEADER_SIZE) {
+            return MALFORMED;
+        }
+        final int length = src.getShort(start + 8) & 0xFFFF;
+        if (length < HEADER_SIZE || length > src.remaining()) {
+            return MALFORMED;
+        }
+        final int fromVersion = src.get(start) & 0xFF;
+        final int type = src.get(start + 2) & 0xFF;
+        if (!TRANSLATED[type] || (version == 7 ? fromVersion >= 7 : fromVersion != 7)) {
+            src.position(start + length);
+            return 0;
+        }
+
+        if (dst.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+
+        final int status = src.get(start + STATUS_AT) & 0xFF;
+        final int out = dst.position();
+        final int end = src.limit();
+        src.limit(start + length);
+        dst.put(src);
+        src.limit(end);
+        dst.put(out, (byte) version);
+        dst.put(out + STATUS_AT, (byte) 0);
+        if (version == 6) {
+            if (type == PduType.FIRE.value && (status & FIRE_TYPE_INDICATOR) != 0 && length >= FIRE_DESCRIPTOR_AT + 16) {
+                toMunitionDescriptor(dst, out + FIRE_DESCRIPTOR_AT);
+            } else if (type == PduType.DETONATION.value && (status & DETONATION_TYPE_INDICATOR) != 0
+                    && length >= DETONATION_DESCRIPTOR_AT + 16) {
+                toMunitionDescriptor(dst, out + DETONATION_DESCRIPTOR_AT);
+            }
+        }
+        if (type == PduType.TRANSMITTER.value) {
+            final int written = version == 6 ? dropTransmitterParameters(dst, out, length) : length;
+            if (written < 0) {
+                dst.position(out);
+                src.position(start);
+                return MALFORMED;
+            }
+            if (written >= TRANSMITTER_PARAMETER_COUNT_AT + 2) {
+                dst.putShort(out + TRANSMITTER_PARAMETER_COUNT_AT, (short) 0);
+            }
+            dst.position(out + written);
+            return written;
+        }
+        if (version == 6 && RECORDS_AT[type] != 0) {
+            final int written = dropVersion7Records(dst, out, length, type);
+            if (written < 0) {
+                dst.position(out);
+                src.position(start);
+                return MALFORMED;
+            }
+            dst.position(out + written);
+            return written;
+        }
+        return length;
+    }
+
+    /**
+     * Removes the parameter records with no version 6 form from a PDU copied
+     * to <code>at</code>, closing the gaps.
+     *
+     * @return the new length, or -1 if the records don't fit the PDU
+     */
+    private static int dropVersion7Records(ByteBuffer buff, int at, int length, int type) {
+        final int recordsAt = RECORDS_AT[type];
+        final int countAt = type == PduType.DETONATION.value ? DETONATION_PARAMETER_COUNT_AT : PARAMETER_COUNT_AT;
+        if (length < recordsAt) {
+            return -1;
+        }
+        final int count = buff.get(at + countAt) & 0xFF;
+        final int recordsEnd = recordsAt + count * PduView.PARAMETER_RECORD_SIZE;
+        if (recordsEnd > length) {
+            return -1;
+        }
+        int kept = 0;
+        for (int idx = 0; idx < count; idx++) {
+            final int from = at + recordsAt + idx * PduView.PARAMETER_RECORD_SIZE;
+            final int recordType = buff.get(from) & 0xFF;
+            if (recordType != ARTICULATED_PART && recordType != ATTACHED_PART) {
+                continue;
+            }
+            if (kept != idx) {
+                copyWithin(buff, from, at + recordsAt + kept * PduView.PARAMETER_RECORD_SIZE, PduView.PARAMETER_RECORD_SIZE);
+            }
+            kept++;
+        }
+        if (kept == count) {
+            return length;
+        }
+        final int keptEnd = recordsAt + kept * PduView.PARAMETER_RECORD_SIZE;
+        // anything after the records moves up too
+        copyWithin(buff, at + recordsEnd, at + keptEnd, length - recordsEnd);
+        final int newLength = length - (recordsEnd - keptEnd);
+        buff.put(at + countAt, (byte) kept);
+        buff.putShort(at + 8, (short) newLength);
+        return newLength;
+    }
+
+    /**
+     * Cuts the variable transmitter parameter records, which follow the
+     * modulation parameters and the antenna pattern, off a Transmitter PDU
+     * copied to <code>at</code>.
+     *
+     * @return the new length, or -1 if the records don't end the PDU exactly
+     */
+    private static int dropTransmitterParameters(ByteBuffer buff, int at, int length) {
+        if (length < MODULATION_PARAMETERS_AT) {
+            return -1;
+        }
+        final int count = buff.getShort(at + TRANSMITTER_PARAMETER_COUNT_AT) & 0xFFFF;
+        if (count == 0) {
+            return length;
+        }
+        final int modulationLength = buff.get(at + MODULATION_PARAMETER_LENGTH_AT) & 0xFF;
+        final int recordsAt = MODULATION_PARAMETERS_AT + ((modulationLength + 7) & -8)
+                + (buff.getShort(at + ANTENNA_PATTERN_LENGTH_AT) & 0xFFFF);
+        int end = recordsAt;
+        for (int idx = 0; idx < count; idx++) {
+            if (end + TRANSMITTER_RECORD_HEADER_SIZE > length) {
+                return -1;
+            }
+            final int recordLength = buff.getShort(at + end + 4) & 0xFFFF;
+            if (recordLength < TRANSMITTER_RECORD_HEADER_SIZE) {
+                return -1;
+            }
+            end += recordLength;
+        }
+        if (end != length) {
+            return -1;
+        }
+        buff.putShort(at + 8, (short) recordsAt);
+        return recordsAt;
+    }
+
+    /**
+     * Rewrites the fields after the entity type of an expendable or explosion
+     * descriptor as those of a munition descriptor: no warhead or fuse, a
+     * quantity of one and no rate.
+     */
+    private static void toMunitionDescriptor(ByteBuffer buff, int at) {
+        buff.putShort(at + 8, (short) 0);
+        buff.putShort(at + 10, (short) 0);
+        buff.putShort(at + 12, (short) 1);
+        buff.putShort(at + 14, (short) 0);
+    }
+
+    private static void copyWithin(ByteBuffer buff, int from, int to, int count) {
+        for (int i = 0; i < count; i++) {
+            buff.put(to + i, buff.get(from + i));
+        }
+    }
+}
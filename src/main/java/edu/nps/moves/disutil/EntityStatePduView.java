@@ -0,0 +1,225 @@
+package edu.nps.moves.disutil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only flyweight over an Entity State PDU (type 1) in a ByteBuffer, for
+ * filtering and routing without unmarshalling. Works for both protocol
+ * version 6 and 7; the articulation parameters of version 6 and the variable
+ * parameters of version 7 share the same sixteen byte record layout and are
+ * read one record at a time, only when asked for.
+ *
+ * @see edu.nps.moves.dis.EntityStatePdu
+ * @see edu.nps.moves.dis7.EntityStatePdu
+ */
+public class EntityStatePduView extends PduView {
+
+    private static final int ENTITY_ID = 12;
+    private static final int FORCE_ID = 18;
+    private static final int NUMBER_OF_PARAMETERS = 19;
+    private static final int ENTITY_TYPE = 20;
+    private static final int LINEAR_VELOCITY = 36;
+    private static final int LOCATION = 48;
+    private static final int ORIENTATION = 72;
+    private static final int APPEARANCE = 84;
+    private static final int DEAD_RECKONING_ALGORITHM = 88;
+    private static final int MARKING = 128;
+    private static final int CAPABILITIES = 140;
+    private static final int PARAMETERS = 144;
+
+    /**
+     * Number of characters in the entity marking
+     */
+    public static final int MARKING_LENGTH = 11;
+
+    public EntityStatePduView() {
+    }
+
+    @Override
+    public EntityStatePduView wrap(ByteBuffer buff, int offset) {
+        super.wrap(buff, offset);
+        return this;
+    }
+
+    @Override
+    protected int getFixedSize() {
+        return PARAMETERS;
+    }
+
+    public int getSiteID() {
+        return unsignedShort(ENTITY_ID);
+    }
+
+    public int getApplicationID() {
+        return unsignedShort(ENTITY_ID + 2);
+    }
+
+    public int getEntityNumber() {
+        return unsignedShort(ENTITY_ID + 4);
+    }
+
+    /**
+     * @return the entity ID packed as by {@link PduView#entityKey(int, int, int)}
+     */
+    public long getEntityKey() {
+        return entityKeyAt(ENTITY_ID);
+    }
+
+    public short getForceId() {
+        return unsignedByte(FORCE_ID);
+    }
+
+    public short getEntityKind() {
+        return unsignedByte(ENTITY_TYPE);
+    }
+
+    public short getDomain() {
+        return unsignedByte(ENTITY_TYPE + 1);
+    }
+
+    public int getCountry() {
+        return unsignedShort(ENTITY_TYPE + 2);
+    }
+
+    public short getCategory() {
+        return unsignedByte(ENTITY_TYPE + 4);
+    }
+
+    public short getSubcategory() {
+        return unsignedByte(ENTITY_TYPE + 5);
+    }
+
+    public short getSpecific() {
+        return unsignedByte(ENTITY_TYPE + 6);
+    }
+
+    public short getExtra() {
+        return unsignedByte(ENTITY_TYPE + 7);
+    }
+
+    public float getVelocityX() {
+        return buff.getFloat(offset + LINEAR_VELOCITY);
+    }
+
+    public float getVelocityY() {
+        return buff.getFloat(offset + LINEAR_VELOCITY + 4);
+    }
+
+    public float getVelocityZ() {
+        return buff.getFloat(offset + LINEAR_VELOCITY + 8);
+    }
+
+    /**
+     * @return geocentric X coordinate of the entity location, in meters
+     */
+    public double getLocationX() {
+        return buff.getDouble(offset + LOCATION);
+    }
+
+    public double getLocationY() {
+        return buff.getDouble(offset + LOCATION + 8);
+    }
+
+    public double getLocationZ() {
+        return buff.getDouble(offset + LOCATION + 16);
+    }
+
+    public float getPsi() {
+        return buff.getFloat(offset + ORIENTATION);
+    }
+
+    public float getTheta() {
+        return buff.getFloat(offset + ORIENTATION + 4);
+    }
+
+    public float getPhi() {
+        return buff.getFloat(offset + ORIENTATION + 8);
+    }
+
+    public int getEntityAppearance() {
+        return buff.getInt(offset + APPEARANCE);
+    }
+
+    public short getDeadReckoningAlgorithm() {
+        return unsignedByte(DEAD_RECKONING_ALGORITHM);
+    }
+
+    public float getAccelerationX() {
+        return buff.getFloat(offset + DEAD_RECKONING_ALGORITHM + 16);
+    }
+
+    public float getAccelerationY() {
+        return buff.getFloat(offset + DEAD_RECKONING_ALGORITHM + 20);
+    }
+
+    public float getAccelerationZ() {
+        return buff.getFloat(offset + DEAD_RECKONING_ALGORITHM + 24);
+    }
+
+    public float getAngularVelocityX() {
+        return buff.getFloat(offset + DEAD_RECKONING_ALGORITHM + 28);
+    }
+
+    public float getAngularVelocityY() {
+        return buff.getFloat(offset + DEAD_RECKONING_ALGORITHM + 32);
+    }
+
+    public float getAngularVelocityZ() {
+        return buff.getFloat(offset + DEAD_RECKONING_ALGORITHM + 36);
+    }
+
+    public short getMarkingCharacterSet() {
+        return unsignedByte(MARKING);
+    }
+
+    /**
+     * @param index 0..10
+     * @return one byte of the entity marking
+     */
+    public byte getMarkingCharacter(int index) {
+        if (index < 0 || index >= MARKING_LENGTH) {
+            throw new IndexOutOfBoundsException("Marking character " + index);
+        }
+        return buff.get(offset + MARKING + 1 + index);
+    }
+
+    public int getCapabilities() {
+        return buff.getInt(offset + CAPABILITIES);
+    }
+
+    /**
+     * @return number of articulation (version 6) or variable (version 7)
+     * parameter records following the fixed part of the PDU
+     */
+    public short getNumberOfParameters() {
+        return unsignedByte(NUMBER_OF_PARAMETERS);
+    }
+
+    /**
+     * @return the parameter type designator (version 6) or record type
+     * (version 7) of a parameter record
+     */
+    public short getParameterRecordType(int index) {
+        return unsignedByte(parameterRecordAt(PARAMETERS, getNumberOfParameters(), index));
+    }
+
+    public short getParameterChangeIndicator(int index) {
+        return unsignedByte(parameterRecordAt(PARAMETERS, getNumberOfParameters(), index) + 1);
+    }
+
+    public int getParameterAttachedTo(int index) {
+        return unsignedShort(parameterRecordAt(PARAMETERS, getNumberOfParameters(), index) + 2);
+    }
+
+    public int getParameterType(int index) {
+        return buff.getInt(offset + parameterRecordAt(PARAMETERS, getNumberOfParameters(), index) + 4);
+    }
+
+    /**
+     * @return the first 32 bit value of a parameter record, which is the
+     * articulated part value for articulated part records
+     */
+    public float getParameterValue(int index) {
+        return buff.getFloat(offset + parameterRecordAt(PARAMETERS, getNumberOfParameters(), index) + 8);
+    }
+}
@@ -0,0 +1,218 @@
+package edu.nps.moves.disutil;
+
+import edu.nps.moves.deadreckoning.DeadReckoningThresholdEngine;
+import edu.nps.moves.dis.EntityID;
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.EntityStateUpdatePdu;
+import edu.nps.moves.dis.Pdu;
+import edu.nps.moves.disenum.PduType;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chooses between a full Entity State PDU and the smaller Entity State Update
+ * PDU for each update of a locally owned entity. The last full ESPDU sent for
+ * every entity is kept, and an update is sent in its place when nothing but
+ * the velocity, location and orientation has changed since. A full ESPDU is
+ * sent for an entity's first update, when any other field changes (the
+ * appearance, marking, type, dead reckoning parameters or articulation
+ * parameters, among others), and at least once per heartbeat, so receivers
+ * that join late learn the whole state. Receivers apply updates to the last
+ * full state with {@link EntityTable#update(Pdu, long)}.<p>
+ *
+ * Both protocol versions are handled; their Entity State PDUs share a layout,
+ * so the PDUs are compared in marshalled form, ignoring the timestamp and the
+ * kinematic fields. The generator is meant for one sending thread. Example,
+ * with the threshold engine deciding when an entity is due:
+ * <pre>
+ * EntityStateUpdateGenerator generator = new EntityStateUpdateGenerator();
+ * DeadReckoningThresholdEngine engine = new DeadReckoningThresholdEngine(espdu -&gt; {
+ *     try {
+ *         bundler.send(generator.next(espdu, System.nanoTime()));
+ *     } catch (IOException e) {
+ *         throw new UncheckedIOException(e);
+ *     }
+ * });
+ * </pre>
+ *
+ * @see DeadReckoningThresholdEngine
+ */
+public class EntityStateUpdateGenerator {
+
+    /**
+     * Default longest time between full ESPDUs of an entity, in seconds
+     */
+    public static final double DEFAULT_HEARTBEAT_SECONDS = DeadReckoningThresholdEngine.DEFAULT_HEARTBEAT_SECONDS;
+
+    private static final int MAX_ENTITY_STATE_SIZE = 8192;
+    private static final double NANOS_PER_SECOND = 1.0e9;
+
+    // offsets in a marshalled Entity State PDU
+    private static final int TIMESTAMP_AT = 4;
+    private static final int KINEMATICS_AT = 36;
+    private static final int APPEARANCE_AT = 84;
+    private static final int PARAMETERS_AT = 144;
+
+    // and in a marshalled Entity State Update PDU
+    private static final int UPDATE_KINEMATICS_AT = 20;
+    private static final int UPDATE_PARAMETERS_AT = 72;
+
+    /**
+     * The last full ESPDU sent for one entity
+     */
+    private static final class Entry {
+
+        byte[] full = new byte[0];
+        long fullNanos;
+    }
+
+    private final Map<Long, Entry> entities = new HashMap<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_ENTITY_STATE_SIZE);
+    private final EntityStateUpdatePdu update = new EntityStateUpdatePdu();
+    private final edu.nps.moves.dis7.EntityStateUpdatePdu update7 = new edu.nps.moves.dis7.EntityStateUpdatePdu();
+    private long heartbeatNanos = (long) (DEFAULT_HEARTBEAT_SECONDS * NANOS_PER_SECOND);
+
+    private long fullCount;
+    private long updateCount;
+
+    /**
+     * @param seconds longest time between full ESPDUs of an entity
+     */
+    public void setHeartbeat(double seconds) {
+        heartbeatNanos = (long) (seconds * NANOS_PER_SECOND);
+    }
+
+    /**
+     * Picks the PDU to send for a version 6 entity state.
+     *
+     * @param espdu the entity's current state
+     * @param nowNanos the current time on the {@link System#nanoTime()} clock
+     * @return the ESPDU itself, or an update PDU that belongs to the
+     * generator and is reused by the next call
+     */
+    public Pdu next(EntityStatePdu espdu, long nowNanos) {
+        final EntityID id = espdu.getEntityID();
+        scratch.clear();
+        espdu.encode(scratch);
+        if (choose(PduView.entityKey(id.getSite(), id.getApplication(), id.getEntity()), nowNanos)) {
+            return espdu;
+        }
+        update.unmarshal(scratch);
+        return update;
+    }
+
+    /**
+     * Picks the PDU to send for a version 7 entity state.
+     *
+     * @param espdu the entity's current state
+     * @param nowNanos the current time on the {@link System#nanoTime()} clock
+     * @return the ESPDU itself, or an update PDU that belongs to the
+     * generator and is reused by the next call
+     */
+    public edu.nps.moves.dis7.Pdu next(edu.nps.moves.dis7.EntityStatePdu espdu, long nowNanos) {
+        final edu.nps.moves.dis7.EntityID id = espdu.getEntityID();
+        scratch.clear();
+        espdu.encode(scratch);
+        if (choose(PduView.entityKey(id.getSiteID(), id.getApplicationID(), id.getEntityID()), nowNanos)) {
+            return espdu;
+        }
+        update7.unmarshal(scratch);
+        return update7;
+    }
+
+    /**
+     * Decides whether the ESPDU marshalled in the scratch buffer goes out in
+     * full, remembering it if so. Otherwise rewrites it in the buffer as an
+     * Entity State Update PDU, ready to unmarshal.
+     *
+     * @return true to send the full ESPDU
+     */
+    private boolean choose(long key, long nowNanos) {
+        final int length = scratch.position();
+        Entry entry = entities.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            entities.put(key, entry);
+        }
+        if (nowNanos - entry.fullNanos >= heartbeatNanos || entry.full.length == 0 || !sameExceptKinematics(entry.full, length)) {
+            if (entry.full.length != length) {
+                entry.full = new byte[length];
+            }
+            scratch.flip();
+            scratch.get(entry.full);
+            entry.fullNanos = nowNanos;
+            fullCount++;
+            return true;
+        }
+
+        // header, entity ID and parameter count stay where they are
+        scratch.put(2, (byte) PduType.ENTITY_STATE_UPDATE.value);
+        scratch.put(18, (byte) 0);
+        copyWithin(KINEMATICS_AT, UPDATE_KINEMATICS_AT, APPEARANCE_AT + 4 - KINEMATICS_AT);
+        copyWithin(PARAMETERS_AT, UPDATE_PARAMETERS_AT, length - PARAMETERS_AT);
+        final int updateLength = UPDATE_PARAMETERS_AT + length - PARAMETERS_AT;
+        scratch.putShort(8, (short) updateLength);
+        scratch.position(0).limit(updateLength);
+        updateCount++;
+        return false;
+    }
+
+    private boolean sameExceptKinematics(byte[] full, int length) {
+        if (full.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (i == TIMESTAMP_AT) {
+                i += 3;
+            } else if (i == KINEMATICS_AT) {
+                i = APPEARANCE_AT - 1;
+            } else if (full[i] != scratch.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves bytes towards the start of the scratch buffer.
+     */
+    private void copyWithin(int from, int to, int count) {
+        for (int i = 0; i < count; i++) {
+            scratch.put(to + i, scratch.get(from + i));
+        }
+    }
+
+    /**
+     * Sends the entity's next state as a full ESPDU whatever has changed.
+     */
+    public void forceFull(int site, int application, int entity) {
+        final Entry entry = entities.get(PduView.entityKey(site, application, entity));
+        if (entry != null) {
+            entry.full = new byte[0];
+        }
+    }
+
+    /**
+     * Forgets an entity, for example once it has been removed.
+     *
+     * @return true if the entity was known
+     */
+    public boolean remove(int site, int application, int entity) {
+        return entities.remove(PduView.entityKey(site, application, entity)) != null;
+    }
+
+    /**
+     * @return number of full ESPDUs chosen
+     */
+    public long getFullCount() {
+        return fullCount;
+    }
+
+    /**
+     * @return number of Entity State Update PDUs chosen
+     */
+    public long getUpdateCount() {
+        return updateCount;
+    }
+}
@@ -0,0 +1,456 @@
+package edu.nps.moves.disutil;
+
+import edu.nps.moves.deadreckoning.DeadReckoner;
+import edu.nps.moves.dis.EntityID;
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.EntityStateUpdatePdu;
+import edu.nps.moves.dis.Pdu;
+import edu.nps.moves.dis.RemoveEntityPdu;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The current picture of the world: the last Entity State PDU received from
+ * every entity, keyed by the entity's site, application and entity numbers
+ * packed into a long (see {@link PduView#entityKey(int, int, int)}).<p>
+ *
+ * Version 6 and version 7 Entity State PDUs are both accepted; version 7 PDUs
+ * are stored in version 6 form, keeping articulated and attached part records
+ * and dropping other variable parameters, so that every entity can be dead
+ * reckoned with {@link DeadReckoner}. Remove Entity PDUs delete the entity
+ * they name, and entities that have not been heard from within the timeout
+ * are removed by {@link #expire(long)}. Entity State Update PDUs, such as
+ * those chosen by {@link EntityStateUpdateGenerator}, are applied to the last
+ * full state of an entity already in the table and otherwise ignored.<p>
+ *
+ * The table is safe for concurrent use. Each entity's state is kept in
+ * marshalled form in a buffer owned by its entry, overwritten in place under
+ * the entry's lock, so once an entity is known its updates allocate nothing
+ * and queries never see a half written state. Queries copy the stored bytes
+ * under the lock and decode them into a PDU supplied by the caller after
+ * releasing it, so the lock is only ever held for a copy.<p>
+ *
+ * Times are in milliseconds on the {@link System#currentTimeMillis()} clock,
+ * and are the times PDUs were received rather than their DIS timestamps.
+ *
+ * @see DeadReckoner
+ */
+public class EntityTable implements PduDispatcher.Handler {
+
+    /**
+     * Default heartbeat timeout: 2.4 times the default five second heartbeat
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 12000;
+
+    /**
+     * Entity number addressing every entity of a site and application
+     */
+    public static final int ALL_ENTITIES = 0xFFFF;
+
+    private static final int MAX_ENTITY_STATE_SIZE = 8192;
+    private static final int ENTITY_STATE_PARAMETER_COUNT = 19;
+    private static final int ENTITY_STATE_FIXED_SIZE = 144;
+    private static final int ENTITY_STATE_KINEMATICS = 36;
+    private static final int UPDATE_KINEMATICS = 20;
+    // velocity, location, orientation and appearance
+    private static final int UPDATE_KINEMATICS_SIZE = 52;
+    private static final int UPDATE_FIXED_SIZE = 72;
+    private static final int ARTICULATED_PART = 0;
+    private static final int ATTACHED_PART = 1;
+
+    private final ConcurrentHashMap<Long, Entry> entities = new ConcurrentHashMap<>();
+    private volatile long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private final ThreadLocal<ByteBuffer> scratch = ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAX_ENTITY_STATE_SIZE));
+    private final ThreadLocal<ByteBuffer> updateScratch = ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAX_ENTITY_STATE_SIZE));
+
+    /**
+     * The stored state of one entity, a marshalled version 6 Entity State
+     * PDU. Every field is guarded by the entry's lock.
+     */
+    private static final class Entry {
+
+        byte[] state = new byte[0];
+        int length;
+        long updateMillis = Long.MIN_VALUE;
+        // set once the entry has left the table, so late writers start a new one
+        boolean removed;
+
+        void set(ByteBuffer marshalled, long receiptMillis) {
+            final int size = marshalled.remaining();
+            if (state.length < size) {
+                state = new byte[size];
+            }
+            marshalled.get(state, 0, size);
+            length = size;
+            updateMillis = receiptMillis;
+        }
+
+        /**
+         * Copies the stored state into a cleared buffer, leaving it flipped.
+         *
+         * @return false if no state has been stored yet
+         */
+        boolean copyTo(ByteBuffer buff) {
+            if (length == 0) {
+                return false;
+            }
+            buff.put(state, 0, length);
+            buff.flip();
+            return true;
+        }
+    }
+
+    public EntityTable() {
+    }
+
+    /**
+     * @param timeoutMillis time after which an entity that has not been
+     * updated is expired
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeoutMillis must be positive");
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Updates the table from a PDU received now.
+     *
+     * @see #update(Pdu, long)
+     */
+    @Override
+    public void onPdu(Pdu pdu) {
+        update(pdu, System.currentTimeMillis());
+    }
+
+    /**
+     * Stores an Entity State PDU, or applies an Entity State Update PDU or a
+     * Remove Entity PDU; other PDUs are ignored. The PDU is copied, so the
+     * caller may reuse it.
+     *
+     * @param pdu the PDU
+     * @param receiptMillis when the PDU was received
+     * @return true if the PDU changed the table
+     */
+    public boolean update(Pdu pdu, long receiptMillis) {
+        if (pdu instanceof EntityStatePdu) {
+            EntityStatePdu espdu = (EntityStatePdu) pdu;
+            EntityID id = espdu.getEntityID();
+            ByteBuffer buff = scratch.get();
+            buff.clear();
+            espdu.marshal(buff);
+            buff.flip();
+            store(PduView.entityKey(id.getSite(), id.getApplication(), id.getEntity()), buff, receiptMillis);
+            return true;
+        }
+        if (pdu instanceof EntityStateUpdatePdu) {
+            EntityID id = ((EntityStateUpdatePdu) pdu).getEntityID();
+            ByteBuffer buff = updateScratch.get();
+            buff.clear();
+            pdu.marshal(buff);
+            buff.flip();
+            return applyUpdate(PduView.entityKey(id.getSite(), id.getApplication(), id.getEntity()), buff, false, receiptMillis);
+        }
+        if (pdu instanceof RemoveEntityPdu) {
+            EntityID id = ((RemoveEntityPdu) pdu).getReceivingEntityID();
+            return remove(id.getSite(), id.getApplication(), id.getEntity());
+        }
+        return false;
+    }
+
+    /**
+     * Stores a version 7 Entity State PDU, or applies a version 7 Entity State
+     * Update PDU or Remove Entity PDU; other PDUs are ignored.
+     *
+     * @param pdu the PDU
+     * @param receiptMillis when the PDU was received
+     * @return true if the PDU changed the table
+     */
+    public boolean update(edu.nps.moves.dis7.Pdu pdu, long receiptMillis) {
+        if (pdu instanceof edu.nps.moves.dis7.EntityStatePdu) {
+            edu.nps.moves.dis7.EntityStatePdu espdu = (edu.nps.moves.dis7.EntityStatePdu) pdu;
+            edu.nps.moves.dis7.EntityID id = espdu.getEntityID();
+            ByteBuffer buff = scratch.get();
+            buff.clear();
+            espdu.marshal(buff);
+            buff.flip();
+            toVersion6(buff);
+            store(PduView.entityKey(id.getSiteID(), id.getApplicationID(), id.getEntityID()), buff, receiptMillis);
+            return true;
+        }
+        if (pdu instanceof edu.nps.moves.dis7.EntityStateUpdatePdu) {
+            edu.nps.moves.dis7.EntityID id = ((edu.nps.moves.dis7.EntityStateUpdatePdu) pdu).getEntityID();
+            ByteBuffer buff = updateScratch.get();
+            buff.clear();
+            pdu.marshal(buff);
+            buff.flip();
+            return applyUpdate(PduView.entityKey(id.getSiteID(), id.getApplicationID(), id.getEntityID()), buff, true, receiptMillis);
+        }
+        if (pdu instanceof edu.nps.moves.dis7.RemoveEntityPdu) {
+            edu.nps.moves.dis7.EntityID id = ((edu.nps.moves.dis7.RemoveEntityPdu) pdu).getReceivingEntityID();
+            return remove(id.getSiteID(), id.getApplicationID(), id.getEntityID());
+        }
+        return false;
+    }
+
+    /**
+     * Rewrites a marshalled version 7 Entity State PDU as version 6. The two
+     * layouts are identical apart from the protocol version, the PDU status
+     * byte and the kinds of parameter record allowed.
+     */
+    private static void toVersion6(ByteBuffer buff) {
+        buff.put(0, (byte) 6);
+        buff.put(10, (byte) 0);
+        final int count = buff.get(ENTITY_STATE_PARAMETER_COUNT) & 0xFF;
+        int kept = 0;
+        for (int idx = 0; idx < count; idx++) {
+            final int from = ENTITY_STATE_FIXED_SIZE + idx * PduView.PARAMETER_RECORD_SIZE;
+            final int recordType = buff.get(from) & 0xFF;
+            if (recordType != ARTICULATED_PART && recordType != ATTACHED_PART) {
+                continue;
+            }
+            if (kept != idx) {
+                final int to = ENTITY_STATE_FIXED_SIZE + kept * PduView.PARAMETER_RECORD_SIZE;
+                for (int b = 0; b < PduView.PARAMETER_RECORD_SIZE; b++) {
+                    buff.put(to + b, buff.get(from + b));
+                }
+            }
+            kept++;
+        }
+        final int length = ENTITY_STATE_FIXED_SIZE + kept * PduView.PARAMETER_RECORD_SIZE;
+        buff.put(ENTITY_STATE_PARAMETER_COUNT, (byte) kept);
+        buff.putShort(8, (short) length);
+        buff.limit(length);
+    }
+
+    /**
+     * Rebuilds an entity's state from its last full state and a marshalled
+     * Entity State Update PDU of either version, which brings the timestamp,
+     * velocity, location, orientation, appearance and parameter records. The
+     * merge is done under the entry's lock, so a full state stored meanwhile
+     * is never overwritten with the older one's other fields.
+     *
+     * @param version7 whether the update is a version 7 PDU, whose parameter
+     * records are filtered as for a version 7 Entity State PDU
+     * @return false if the entity is not in the table, or holds a later state
+     */
+    private boolean applyUpdate(long key, ByteBuffer update, boolean version7, long receiptMillis) {
+        final Entry entry = entities.get(key);
+        if (entry == null) {
+            return false;
+        }
+        final int parameters = update.get(ENTITY_STATE_PARAMETER_COUNT) & 0xFF;
+        final int parameterBytes = parameters * PduView.PARAMETER_RECORD_SIZE;
+        ByteBuffer buff = scratch.get();
+        buff.clear();
+        synchronized (entry) {
+            if (entry.removed || receiptMillis < entry.updateMillis || !entry.copyTo(buff)) {
+                return false;
+            }
+            buff.putInt(4, update.getInt(4));
+            buff.put(ENTITY_STATE_PARAMETER_COUNT, (byte) parameters);
+            for (int b = 0; b < UPDATE_KINEMATICS_SIZE; b++) {
+                buff.put(ENTITY_STATE_KINEMATICS + b, update.get(UPDATE_KINEMATICS + b));
+            }
+            buff.limit(ENTITY_STATE_FIXED_SIZE + parameterBytes);
+            for (int b = 0; b < parameterBytes; b++) {
+                buff.put(ENTITY_STATE_FIXED_SIZE + b, update.get(UPDATE_FIXED_SIZE + b));
+            }
+            buff.putShort(8, (short) (ENTITY_STATE_FIXED_SIZE + parameterBytes));
+            if (version7) {
+                toVersion6(buff);
+            }
+            entry.set(buff, receiptMillis);
+        }
+        return true;
+    }
+
+    /**
+     * Copies a marshalled Entity State PDU into the entity's entry, unless
+     * the entry holds a later state.
+     */
+    private void store(long key, ByteBuffer marshalled, long receiptMillis) {
+        while (true) {
+            Entry entry = entities.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                final Entry existing = entities.putIfAbsent(key, entry);
+                if (existing != null) {
+                    entry = existing;
+                }
+            }
+            synchronized (entry) {
+                if (entry.removed) {
+                    continue;
+                }
+                if (receiptMillis >= entry.updateMillis) {
+                    entry.set(marshalled, receiptMillis);
+                }
+                return;
+            }
+        }
+    }
+
+    private static void retire(Entry entry) {
+        synchronized (entry) {
+            entry.removed = true;
+        }
+    }
+
+    /**
+     * Removes an entity, or with an entity number of {@link #ALL_ENTITIES}
+     * every entity of the site and application.
+     *
+     * @return true if anything was removed
+     */
+    public boolean remove(int site, int application, int entity) {
+        if (entity != ALL_ENTITIES) {
+            return remove(PduView.entityKey(site, application, entity));
+        }
+        final long siteApp = PduView.entityKey(site, application, 0);
+        boolean removed = false;
+        for (Map.Entry<Long, Entry> e : entities.entrySet()) {
+            if ((e.getKey() & ~0xFFFFL) == siteApp && entities.remove(e.getKey(), e.getValue())) {
+                retire(e.getValue());
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return true if the entity was in the table
+     */
+    public boolean remove(long key) {
+        final Entry entry = entities.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        retire(entry);
+        return true;
+    }
+
+    /**
+     * Removes every entity not updated within the timeout.
+     *
+     * @param nowMillis the current time
+     * @return the number of entities removed
+     */
+    public int expire(long nowMillis) {
+        final long oldest = nowMillis - timeoutMillis;
+        int removed = 0;
+        for (Map.Entry<Long, Entry> e : entities.entrySet()) {
+            final Entry entry = e.getValue();
+            synchronized (entry) {
+                // an entry still being created has no state and is left alone
+                if (entry.length > 0 && entry.updateMillis < oldest && entities.remove(e.getKey(), entry)) {
+                    entry.removed = true;
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return entities.size();
+    }
+
+    public boolean contains(long key) {
+        return entities.containsKey(key);
+    }
+
+    /**
+     * @return a live, read-only view of the keys of the entities in the table
+     */
+    public Set<Long> keySet() {
+        return Collections.unmodifiableSet(entities.keySet());
+    }
+
+    /**
+     * @return when the entity was last updated, or -1 if it is not in the table
+     */
+    public long getLastUpdateMillis(long key) {
+        Entry entry = entities.get(key);
+        if (entry == null) {
+            return -1;
+        }
+        synchronized (entry) {
+            return entry.length == 0 ? -1 : entry.updateMillis;
+        }
+    }
+
+    /**
+     * Copies the last received state of an entity.
+     *
+     * @param key the entity
+     * @param into PDU to overwrite with the state
+     * @return false if the entity is not in the table
+     */
+    public boolean getState(long key, EntityStatePdu into) {
+        Entry entry = entities.get(key);
+        if (entry == null) {
+            return false;
+        }
+        final ByteBuffer buff = scratch.get();
+        buff.clear();
+        synchronized (entry) {
+            if (!entry.copyTo(buff)) {
+                return false;
+            }
+        }
+        into.unmarshal(buff);
+        return true;
+    }
+
+    /**
+     * Works out where an entity is at a given time by dead reckoning a copy of
+     * its last received state. The stored state is not changed. Times before
+     * the last update give the last received state.
+     *
+     * @param key the entity
+     * @param timeMillis the time of interest
+     * @param into PDU to overwrite with the dead reckoned state
+     * @return false if the entity is not in the table
+     * @throws IllegalArgumentException if the entity's dead reckoning
+     * algorithm is not supported by {@link DeadReckoner}
+     */
+    public boolean deadReckon(long key, long timeMillis, EntityStatePdu into) {
+        Entry entry = entities.get(key);
+        if (entry == null) {
+            return false;
+        }
+        final ByteBuffer buff = scratch.get();
+        buff.clear();
+        final long updateMillis;
+        synchronized (entry) {
+            if (!entry.copyTo(buff)) {
+                return false;
+            }
+            updateMillis = entry.updateMillis;
+        }
+        into.unmarshal(buff);
+        if (timeMillis > updateMillis) {
+            DeadReckoner.perform_DR(into, (timeMillis - updateMillis) / 1000.0);
+        }
+        return true;
+    }
+
+    /**
+     * @return a new PDU holding the dead reckoned state, or null if the entity
+     * is not in the table
+     * @see #deadReckon(long, long, EntityStatePdu)
+     */
+    public EntityStatePdu getDeadReckonedState(long key, long timeMillis) {
+        EntityStatePdu state = new EntityStatePdu();
+        return deadReckon(key, timeMillis, state) ? state : null;
+    }
+}
@@ -0,0 +1,138 @@
+package edu.nps.moves.disutil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only flyweight over a Fire PDU (type 2) in a ByteBuffer. The layout is
+ * the same in protocol versions 6 and 7; the version 6 burst descriptor and
+ * the version 7 munition descriptor occupy the same sixteen bytes.
+ *
+ * @see edu.nps.moves.dis.FirePdu
+ * @see edu.nps.moves.dis7.FirePdu
+ */
+public class FirePduView extends PduView {
+
+    private static final int FIRING_ENTITY_ID = 12;
+    private static final int TARGET_ENTITY_ID = 18;
+    private static final int MUNITION_ID = 24;
+    private static final int EVENT_ID = 30;
+    private static final int FIRE_MISSION_INDEX = 36;
+    private static final int LOCATION = 40;
+    private static final int DESCRIPTOR = 64;
+    private static final int VELOCITY = 80;
+    private static final int RANGE = 92;
+    private static final int SIZE = 96;
+
+    public FirePduView() {
+    }
+
+    @Override
+    public FirePduView wrap(ByteBuffer buff, int offset) {
+        super.wrap(buff, offset);
+        return this;
+    }
+
+    @Override
+    protected int getFixedSize() {
+        return SIZE;
+    }
+
+    public long getFiringEntityKey() {
+        return entityKeyAt(FIRING_ENTITY_ID);
+    }
+
+    public long getTargetEntityKey() {
+        return entityKeyAt(TARGET_ENTITY_ID);
+    }
+
+    public long getMunitionKey() {
+        return entityKeyAt(MUNITION_ID);
+    }
+
+    /**
+     * @return the event ID packed as by {@link PduView#entityKey(int, int, int)}
+     */
+    public long getEventKey() {
+        return entityKeyAt(EVENT_ID);
+    }
+
+    public int getEventNumber() {
+        return unsignedShort(EVENT_ID + 4);
+    }
+
+    public long getFireMissionIndex() {
+        return buff.getInt(offset + FIRE_MISSION_INDEX) & 0xFFFFFFFFL;
+    }
+
+    public double getLocationX() {
+        return buff.getDouble(offset + LOCATION);
+    }
+
+    public double getLocationY() {
+        return buff.getDouble(offset + LOCATION + 8);
+    }
+
+    public double getLocationZ() {
+        return buff.getDouble(offset + LOCATION + 16);
+    }
+
+    public short getMunitionKind() {
+        return unsignedByte(DESCRIPTOR);
+    }
+
+    public short getMunitionDomain() {
+        return unsignedByte(DESCRIPTOR + 1);
+    }
+
+    public int getMunitionCountry() {
+        return unsignedShort(DESCRIPTOR + 2);
+    }
+
+    public short getMunitionCategory() {
+        return unsignedByte(DESCRIPTOR + 4);
+    }
+
+    public short getMunitionSubcategory() {
+        return unsignedByte(DESCRIPTOR + 5);
+    }
+
+    public short getMunitionSpecific() {
+        return unsignedByte(DESCRIPTOR + 6);
+    }
+
+    public short getMunitionExtra() {
+        return unsignedByte(DESCRIPTOR + 7);
+    }
+
+    public int getWarhead() {
+        return unsignedShort(DESCRIPTOR + 8);
+    }
+
+    public int getFuse() {
+        return unsignedShort(DESCRIPTOR + 10);
+    }
+
+    public int getQuantity() {
+        return unsignedShort(DESCRIPTOR + 12);
+    }
+
+    public int getRate() {
+        return unsignedShort(DESCRIPTOR + 14);
+    }
+
+    public float getVelocityX() {
+        return buff.getFloat(offset + VELOCITY);
+    }
+
+    public float getVelocityY() {
+        return buff.getFloat(offset + VELOCITY + 4);
+    }
+
+    public float getVelocityZ() {
+        return buff.getFloat(offset + VELOCITY + 8);
+    }
+
+    public float getRange() {
+        return buff.getFloat(offset + RANGE);
+    }
+}
@@ -0,0 +1,314 @@
+package edu.nps.moves.disutil;
+
+import edu.nps.moves.dis.Pdu;
+import edu.nps.moves.dis7.PduSuperclass;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Packs outbound PDUs back to back into as few datagrams as possible, the
+ * send side counterpart of {@link PduFactory#getPdusFromBundle(ByteBuffer, java.util.List)}.
+ * PDUs are encoded straight into one reused direct buffer, and the bundle is
+ * sent when the next PDU would take it past the size budget, when the oldest
+ * PDU in it has waited the maximum delay, or when {@link #flush()} is
+ * called.<p>
+ *
+ * Each PDU in a bundle starts on a 64 bit boundary, as the standard requires:
+ * a PDU whose length is not a multiple of 8 is padded with zeros, and the
+ * padding is counted in its length field, so receivers step from PDU to PDU
+ * by length alone.<p>
+ *
+ * The delay is only enforced while a thread is running {@link #run()};
+ * without one, bundles are sent when full or when flushed. Example:
+ * <pre>
+ * PduBundler bundler = new PduBundler(channel, new InetSocketAddress("239.1.2.3", 3000));
+ * bundler.setMaxDelay(2, TimeUnit.MILLISECONDS);
+ * new Thread(bundler).start();
+ * for (EntityStatePdu espdu : updates) {
+ *     bundler.send(espdu);
+ * }
+ * bundler.close();
+ * </pre>
+ *
+ * @see DisChannelConnection#bundler(SocketAddress)
+ */
+public class PduBundler implements Runnable, Closeable {
+
+    /**
+     * Default size budget, which keeps a bundle in one Ethernet frame
+     */
+    public static final int DEFAULT_MAX_BUNDLE_SIZE = 1400;
+
+    /**
+     * Default time the first PDU of a bundle may wait before it is sent
+     */
+    public static final long DEFAULT_MAX_DELAY_MICROS = 1000;
+
+    /**
+     * PDUs in a bundle start on multiples of this many bytes
+     */
+    public static final int ALIGNMENT = 8;
+
+    private static final Logger LOGGER = Logger.getLogger(PduBundler.class.getName());
+
+    private final DatagramChannel channel;
+    private final SocketAddress target;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(DisChannelConnection.MAX_DATAGRAM_SIZE);
+    private int maxBundleSize = DEFAULT_MAX_BUNDLE_SIZE;
+    private long maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(DEFAULT_MAX_DELAY_MICROS);
+    // when the first PDU of the current bundle was added
+    private long bundleStarted;
+    private int bundledPdus;
+    private boolean closed;
+
+    private long sentPdus;
+    private long sentDatagrams;
+
+    /**
+     * @param channel the channel to send from; it is not closed by
+     * {@link #close()}
+     * @param target destination group or host and port
+     */
+    public PduBundler(DatagramChannel channel, SocketAddress target) {
+        this.channel = channel;
+        this.target = target;
+    }
+
+    /**
+     * Sets the most bytes sent in one datagram. A PDU larger than this on
+     * its own is still sent, alone.
+     */
+    public synchronized void setMaxBundleSize(int maxBundleSize) {
+        if (maxBundleSize < PduSpliterator.PDU_HEADER_SIZE || maxBundleSize > buffer.capacity()) {
+            throw new IllegalArgumentException("maxBundleSize must be between "
+                    + PduSpliterator.PDU_HEADER_SIZE + " and " + buffer.capacity());
+        }
+        this.maxBundleSize = maxBundleSize;
+    }
+
+    /**
+     * Sets how long the first PDU of a bundle may wait for others to join
+     * it. Zero sends every PDU as soon as it is added, unbundled.
+     */
+    public synchronized void setMaxDelay(long delay, TimeUnit unit) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("delay must not be negative");
+        }
+        this.maxDelayNanos = unit.toNanos(delay);
+        notifyAll();
+    }
+
+    /**
+     * Adds a DIS 6 PDU to the bundle, sending the bundle first if the PDU
+     * would not fit.
+     *
+     * @throws IOException if a bundle could not be sent
+     */
+    public synchronized void send(Pdu pdu) throws IOException {
+        int start = beginPdu();
+        try {
+            pdu.encode(buffer);
+        } catch (BufferOverflowException e) {
+            start = retryAlone(start);
+            try {
+                pdu.encode(buffer);
+            } catch (BufferOverflowException tooLarge) {
+                buffer.clear();
+                throw tooLarge;
+            }
+        }
+        endPdu(start);
+    }
+
+    /**
+     * Adds a DIS 7 PDU to the bundle, sending the bundle first if the PDU
+     * would not fit.
+     *
+     * @throws IOException if a bundle could not be sent
+     */
+    public synchronized void send(PduSuperclass pdu) throws IOException {
+        int start = beginPdu();
+        try {
+            pdu.encode(buffer);
+        } catch (BufferOverflowException e) {
+            start = retryAlone(start);
+            try {
+                pdu.encode(buffer);
+            } catch (BufferOverflowException tooLarge) {
+                buffer.clear();
+                throw tooLarge;
+            }
+        }
+        endPdu(start);
+    }
+
+    /**
+     * Adds an already marshalled PDU, the bytes from the buffer's position
+     * to its limit, to the bundle. The position is left unchanged.
+     *
+     * @throws IOException if a bundle could not be sent
+     */
+    public synchronized void send(ByteBuffer pdu) throws IOException {
+        if (pdu.remaining() < PduSpliterator.PDU_HEADER_SIZE) {
+            throw new IllegalArgumentException("PDU is shorter than its header");
+        }
+        int start = beginPdu();
+        if (buffer.remaining() < pdu.remaining()) {
+            start = retryAlone(start);
+        }
+        buffer.put(pdu.duplicate());
+        endPdu(start);
+    }
+
+    private int beginPdu() {
+        if (closed) {
+            throw new IllegalStateException("Bundler is closed");
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Sends what was bundled before a PDU that overflowed the buffer, so the
+     * PDU can be encoded again at the start.
+     *
+     * @return where the PDU now starts
+     */
+    private int retryAlone(int start) throws IOException {
+        buffer.position(start);
+        sendBundle();
+        return 0;
+    }
+
+    /**
+     * Pads the PDU just encoded at <code>start</code> to the alignment, and
+     * sends the bundle if it is now over the budget or has waited long
+     * enough.
+     */
+    private void endPdu(int start) throws IOException {
+        final int length = buffer.position() - start;
+        final int padded = (length + ALIGNMENT - 1) & -ALIGNMENT;
+        if (padded != length && padded <= 0xFFFF) {
+            for (int i = length; i < padded; i++) {
+                buffer.put((byte) 0);
+            }
+            buffer.putShort(start + 8, (short) padded);
+        }
+
+        if (buffer.position() > maxBundleSize && start > 0) {
+            // send the PDUs before this one, then move it to the front
+            final int end = buffer.position();
+            buffer.position(start);
+            sendBundle();
+            buffer.limit(end).position(start);
+            buffer.compact();
+        }
+        if (bundledPdus == 0) {
+            bundleStarted = System.nanoTime();
+            notifyAll();
+        }
+        bundledPdus++;
+
+        if (buffer.position() >= maxBundleSize || System.nanoTime() - bundleStarted >= maxDelayNanos) {
+            sendBundle();
+        }
+    }
+
+    /**
+     * Sends the PDUs in the buffer up to its position as one datagram.
+     */
+    private void sendBundle() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            channel.send(buffer, target);
+            sentDatagrams++;
+            sentPdus += bundledPdus;
+        } finally {
+            buffer.clear();
+            bundledPdus = 0;
+        }
+    }
+
+    /**
+     * Sends the bundle now, however little is in it.
+     *
+     * @throws IOException if the bundle could not be sent
+     */
+    public synchronized void flush() throws IOException {
+        sendBundle();
+    }
+
+    /**
+     * @return number of PDUs sent, not counting those still bundled
+     */
+    public synchronized long getSentPduCount() {
+        return sentPdus;
+    }
+
+    public synchronized long getSentDatagramCount() {
+        return sentDatagrams;
+    }
+
+    /**
+     * @return number of PDUs waiting to be sent
+     */
+    public synchronized int getBundledPduCount() {
+        return bundledPdus;
+    }
+
+    /**
+     * Sends each bundle once its first PDU has waited the maximum delay,
+     * until the bundler is closed or the thread interrupted.
+     */
+    @Override
+    public synchronized void run() {
+        try {
+            while (!closed && !Thread.interrupted()) {
+                if (bundledPdus == 0) {
+                    wait();
+                    continue;
+                }
+                final long remaining = bundleStarted + maxDelayNanos - System.nanoTime();
+                if (remaining > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    continue;
+                }
+                try {
+                    sendBundle();
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, "Dropped a bundle of PDUs", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends anything still bundled and stops the thread running
+     * {@link #run()}. The channel is left open.
+     *
+     * @throws IOException if the last bundle could not be sent
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            sendBundle();
+        } finally {
+            closed = true;
+            notifyAll();
+        }
+    }
+}
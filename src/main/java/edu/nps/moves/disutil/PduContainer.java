@@ -8,6 +8,10 @@ import java.io.*;
 /**
  * A container that holds PDUs
  *
+ * Unmarshalling reads every PDU into a list; to read a large container one PDU
+ * at a time use {@link PduContainerReader}, and to write one use
+ * {@link PduContainerWriter}.
+ *
  * Copyright (c) 2008-2016, MOVES Institute, Naval Postgraduate School. All rights reserved.
  * This work is licensed under the BSD open source license, available at https://www.movesinstitute.org/licenses/bsd.html
  *
@@ -21,6 +25,9 @@ public class PduContainer extends Object implements Serializable
    /** List of PDUs */
    protected List< Pdu > pdus = new ArrayList< Pdu >(); 
 
+   /** Decodes the PDUs in the container */
+   private static final PduFactory factory = new PduFactory();
+
 /** Constructor */
  public PduContainer()
  {
@@ -91,12 +98,11 @@ public void marshal(java.nio.ByteBuffer buff)
 public void unmarshal(java.nio.ByteBuffer buff)
 {
        numberOfPdus = buff.getInt();
-       for(int idx = 0; idx < numberOfPdus; idx++)
-       {
-            Pdu anX = new Pdu();
-            anX.unmarshal(buff);
-            pdus.add(anX);
-       }
+       // Each PDU is decoded to its own type, and the next found from the length in its header
+       PduSpliterator<Pdu> entries = new PduSpliterator<Pdu>(buff, numberOfPdus, factory::createPdu);
+       pdus.clear();
+       entries.forEachRemaining(pdus::add);
+       buff.position(entries.getPosition());
 
  } // end of unmarshal method 
 
@@ -0,0 +1,272 @@
+package edu.nps.moves.disutil;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads a marshalled {@link PduContainer} or {@link PduStream} from a channel
+ * one PDU at a time, for containers too large to unmarshal into a list. Only
+ * a fixed size read buffer is kept, and each PDU is decoded to its concrete
+ * type, with the decoder given, as it is reached. PDUs are found from the
+ * length field of the one before, as in {@link PduSpliterator}; unknown or
+ * undecodable PDUs are skipped.<p>
+ *
+ * For parallel streams, {@link #spliterator()} hands out batches of at most
+ * {@value #BATCH_SIZE} decoded PDUs, so memory stays bounded by the batch
+ * size times the parallelism. Example:
+ * <pre>
+ * PduStream header = new PduStream();
+ * try (PduContainerReader&lt;Pdu&gt; reader = PduContainerReader.openStream(
+ *         FileChannel.open(path), new PduFactory()::createPdu, header)) {
+ *     Map&lt;Short, Long&gt; byType = reader.stream(true)
+ *             .collect(Collectors.groupingBy(Pdu::getPduType, Collectors.counting()));
+ * }
+ * </pre>
+ * A mapped container of up to 2 GB is better walked with a
+ * {@link PduSpliterator}, which splits without decoding.
+ *
+ * @param <T> the PDU class decoded to
+ */
+public class PduContainerReader<T> implements Iterator<T>, Closeable {
+
+    /**
+     * Most PDUs decoded ahead for a split off batch
+     */
+    public static final int BATCH_SIZE = 1024;
+
+    private static final Logger logger = Logger.getLogger(PduContainerReader.class.getName());
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final int MAX_PDU_SIZE = 65535;
+
+    private static final int DESCRIPTIONS_SIZE = 256 + 512 + 128 + 128;
+
+    private final ReadableByteChannel channel;
+    private final Function<ByteBuffer, ? extends T> decoder;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final long count;
+    private long read;
+    private T next;
+    private boolean finished;
+
+    private PduContainerReader(ReadableByteChannel channel, Function<ByteBuffer, ? extends T> decoder, long count) {
+        this.channel = channel;
+        this.decoder = decoder;
+        this.count = count;
+        buffer.limit(0);
+    }
+
+    /**
+     * Reads the PDU count at the start of a marshalled {@link PduContainer}.
+     *
+     * @param channel positioned at the container
+     * @param decoder makes a PDU from a buffer positioned at its start and
+     * limited to its end, such as a PDU factory's createPdu
+     * @throws IOException if the count can't be read
+     */
+    public static <T> PduContainerReader<T> openContainer(ReadableByteChannel channel,
+            Function<ByteBuffer, ? extends T> decoder) throws IOException {
+        return new PduContainerReader<T>(channel, decoder, readCount(channel));
+    }
+
+    /**
+     * Reads the header of a marshalled {@link PduStream}.
+     *
+     * @param channel positioned at the stream
+     * @param decoder makes a PDU from a buffer positioned at its start and
+     * limited to its end, such as a PDU factory's createPdu
+     * @param header receives the descriptions and start and stop times; may
+     * be null
+     * @throws IOException if the header can't be read
+     */
+    public static <T> PduContainerReader<T> openStream(ReadableByteChannel channel,
+            Function<ByteBuffer, ? extends T> decoder, PduStream header) throws IOException {
+        final ByteBuffer fields = ByteBuffer.allocate(DESCRIPTIONS_SIZE + 16);
+        readFully(channel, fields);
+        fields.flip();
+        if (header != null) {
+            header.setShortDescription(take(fields, 256));
+            header.setLongDescription(take(fields, 512));
+            header.setPersonRecording(take(fields, 128));
+            header.setAuthorEmail(take(fields, 128));
+            header.setStartTime(fields.getLong());
+            header.setStopTime(fields.getLong());
+        }
+        final long count = readCount(channel);
+        if (header != null) {
+            header.setPduCount(count);
+        }
+        return new PduContainerReader<T>(channel, decoder, count);
+    }
+
+    private static byte[] take(ByteBuffer fields, int length) {
+        final byte[] bytes = new byte[length];
+        fields.get(bytes);
+        return bytes;
+    }
+
+    private static long readCount(ReadableByteChannel channel) throws IOException {
+        final ByteBuffer count = ByteBuffer.allocate(4);
+        readFully(channel, count);
+        return count.getInt(0) & 0xFFFFFFFFL;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer into) throws IOException {
+        while (into.hasRemaining()) {
+            if (channel.read(into) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * Makes sure at least some bytes are in the buffer, reading more if
+     * needed.
+     *
+     * @return false if the channel ended first
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    /**
+     * @return the number of PDUs the container's header says it holds
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Reads PDUs until one decodes or the container ends.
+     */
+    private T advance() throws IOException {
+        while (read < count) {
+            if (!fill(PduSpliterator.PDU_HEADER_SIZE)) {
+                break;
+            }
+            final int start = buffer.position();
+            final int length = buffer.getShort(start + 8) & 0xFFFF;
+            if (length < PduSpliterator.PDU_HEADER_SIZE || length > MAX_PDU_SIZE || !fill(length)) {
+                break;
+            }
+            // fill may have moved the data to the start of the buffer
+            final int at = buffer.position();
+            final int limit = buffer.limit();
+            read++;
+            T pdu = null;
+            try {
+                buffer.limit(at + length);
+                pdu = decoder.apply(buffer);
+            } catch (RuntimeException e) {
+                logger.log(Level.INFO, "Skipped PDU " + read + " of " + count, e);
+            } finally {
+                buffer.limit(limit);
+                buffer.position(at + length);
+            }
+            if (pdu != null) {
+                return pdu;
+            }
+        }
+        read = count;
+        return null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    /**
+     * @throws UncheckedIOException if the channel can't be read
+     */
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final T pdu = next;
+        next = null;
+        return pdu;
+    }
+
+    /**
+     * A spliterator over the rest of the PDUs. Splits hand out batches of
+     * already decoded PDUs.
+     */
+    public Spliterator<T> spliterator() {
+        return new Spliterator<T>() {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (!hasNext()) {
+                    return false;
+                }
+                action.accept(next());
+                return true;
+            }
+
+            @Override
+            public Spliterator<T> trySplit() {
+                final Object[] batch = new Object[(int) Math.min(BATCH_SIZE, estimateSize())];
+                int size = 0;
+                while (size < batch.length && hasNext()) {
+                    batch[size++] = next();
+                }
+                return size == 0 ? null : Spliterators.spliterator(batch, 0, size, characteristics());
+            }
+
+            @Override
+            public long estimateSize() {
+                return count - read + (next == null ? 0 : 1);
+            }
+
+            @Override
+            public int characteristics() {
+                return ORDERED | NONNULL;
+            }
+        };
+    }
+
+    /**
+     * @param parallel whether the stream is parallel
+     * @return a stream over the rest of the PDUs
+     */
+    public Stream<T> stream(boolean parallel) {
+        return StreamSupport.stream(spliterator(), parallel);
+    }
+
+    /**
+     * Closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
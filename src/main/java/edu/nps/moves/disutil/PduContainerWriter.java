@@ -0,0 +1,155 @@
+package edu.nps.moves.disutil;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+import edu.nps.moves.dis.Pdu;
+
+/**
+ * Writes a {@link PduContainer} or {@link PduStream} in its marshalled form
+ * one PDU at a time, so a container can be built without holding its PDUs in
+ * a list. The PDU count in the header is written as zero and filled in by
+ * {@link #close()}, which is why the channel must be seekable. The output can
+ * be read back with {@link PduContainerReader}, {@link PduSpliterator}, or
+ * the containers' own unmarshal methods.
+ */
+public class PduContainerWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final SeekableByteChannel channel;
+    private final long countPosition;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long count;
+    private boolean closed;
+
+    private PduContainerWriter(SeekableByteChannel channel, long countPosition) {
+        this.channel = channel;
+        this.countPosition = countPosition;
+    }
+
+    /**
+     * Starts a {@link PduContainer} at the channel's position.
+     *
+     * @throws IOException if the channel's position can't be read
+     */
+    public static PduContainerWriter openContainer(SeekableByteChannel channel) throws IOException {
+        final PduContainerWriter writer = new PduContainerWriter(channel, channel.position());
+        writer.buffer.putInt(0);
+        return writer;
+    }
+
+    /**
+     * Starts a {@link PduStream} at the channel's position. Descriptions
+     * shorter than their fields are padded with zeros, and longer ones cut
+     * short.
+     *
+     * @param header descriptions and start and stop times; its PDUs are
+     * ignored
+     * @throws IOException if the channel's position can't be read
+     */
+    public static PduContainerWriter openStream(SeekableByteChannel channel, PduStream header) throws IOException {
+        final PduContainerWriter writer = new PduContainerWriter(channel, channel.position() + 256 + 512 + 128 + 128 + 16);
+        writer.putPadded(header.getShortDescription(), 256);
+        writer.putPadded(header.getLongDescription(), 512);
+        writer.putPadded(header.getPersonRecording(), 128);
+        writer.putPadded(header.getAuthorEmail(), 128);
+        writer.buffer.putLong(header.getStartTime());
+        writer.buffer.putLong(header.getStopTime());
+        writer.buffer.putInt(0);
+        return writer;
+    }
+
+    private void putPadded(byte[] field, int size) {
+        final int start = buffer.position();
+        if (field != null) {
+            buffer.put(field, 0, Math.min(field.length, size));
+        }
+        buffer.position(start + size);
+    }
+
+    /**
+     * Appends a PDU.
+     *
+     * @throws IOException if the channel can't be written
+     */
+    public void write(Pdu pdu) throws IOException {
+        final int size = pdu.getMarshalledSize();
+        if (buffer.remaining() < size) {
+            flush();
+        }
+        if (buffer.remaining() < size) {
+            final ByteBuffer large = ByteBuffer.allocate(size);
+            pdu.marshal(large);
+            large.flip();
+            writeFully(large);
+        } else {
+            pdu.marshal(buffer);
+        }
+        count++;
+    }
+
+    /**
+     * Appends a marshalled PDU, the bytes from the buffer's position to its
+     * limit. The position is left unchanged.
+     *
+     * @throws IOException if the channel can't be written
+     */
+    public void write(ByteBuffer pdu) throws IOException {
+        if (buffer.remaining() < pdu.remaining()) {
+            flush();
+        }
+        if (buffer.remaining() < pdu.remaining()) {
+            writeFully(pdu.duplicate());
+        } else {
+            final int position = pdu.position();
+            buffer.put(pdu);
+            pdu.position(position);
+        }
+        count++;
+    }
+
+    /**
+     * @return number of PDUs written
+     */
+    public long getCount() {
+        return count;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * Writes the PDU count into the header and closes the channel.
+     *
+     * @throws IOException if the channel can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+            final long end = channel.position();
+            channel.position(countPosition);
+            final ByteBuffer header = ByteBuffer.allocate(4);
+            header.putInt(0, (int) count);
+            writeFully(header);
+            channel.position(end);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package edu.nps.moves.disutil;
+
+import edu.nps.moves.dis.Pdu;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands PDUs from one producer, normally the thread reading the socket, to any
+ * number of handlers through a preallocated ring of slots. Each handler runs on
+ * its own thread and sees every published PDU that matches its subscription,
+ * so slow handlers do not hold up fast ones until the ring is full. No locks
+ * are taken on the publishing path except to wake handlers that are blocked.
+ * <p>
+ *
+ * Handlers are added before {@link #start()}. A handler can subscribe to all
+ * PDUs, to a set of PDU types or to a set of protocol families. PDUs are
+ * passed by reference, so handlers must treat them as read-only.<p>
+ *
+ * The publisher clears the slots every handler has passed each time it
+ * publishes, so a PDU is not kept reachable by the ring for long after the
+ * slowest handler has seen it. Those passed since the last publish are
+ * released by the next one, or by {@link #halt()}.<p>
+ *
+ * Example:
+ * <pre>
+ * PduDispatcher dispatcher = new PduDispatcher(4096, WaitStrategy.YIELD);
+ * dispatcher.addTypeHandler(entityTable, PduType.ENTITY_STATE.value);
+ * dispatcher.addFamilyHandler(radioHandler, 4);
+ * dispatcher.start();
+ * ...
+ * dispatcher.publish(pdu);   // on the reader thread
+ * </pre>
+ *
+ * Only one thread may publish.
+ */
+public class PduDispatcher {
+
+    /**
+     * Receives PDUs on the handler's own thread
+     */
+    public interface Handler {
+
+        void onPdu(Pdu pdu);
+    }
+
+    /**
+     * How a thread waits for the ring: trading CPU for latency
+     */
+    public enum WaitStrategy {
+        /**
+         * Spin in a tight loop; lowest latency, uses a full core per handler
+         */
+        BUSY_SPIN,
+        /**
+         * Spin, yielding the processor between checks
+         */
+        YIELD,
+        /**
+         * Block until signalled; lowest CPU use, highest latency
+         */
+        BLOCKING
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(PduDispatcher.class.getName());
+
+    private static final int PDU_TYPE_COUNT = 256;
+
+    private final Pdu[] slots;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Sequence of the last published slot
+     */
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    /**
+     * Sequence of the last slot cleared; only the publisher touches it
+     */
+    private long cleared = -1;
+
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private volatile boolean running;
+    private volatile boolean started;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final AtomicInteger blockedHandlers = new AtomicInteger();
+
+    /**
+     * @param ringSize number of slots; rounded up to a power of two. Up to
+     * this many PDUs, and everything they refer to, may be held by the ring
+     * @param waitStrategy how handlers wait for PDUs and the publisher for
+     * free slots
+     */
+    public PduDispatcher(int ringSize, WaitStrategy waitStrategy) {
+        if (ringSize < 1 || ringSize > 1 << 30) {
+            throw new IllegalArgumentException("ringSize must be between 1 and 2^30");
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("waitStrategy must not be null");
+        }
+        int size = Integer.highestOneBit(ringSize);
+        if (size < ringSize) {
+            size <<= 1;
+        }
+        this.slots = new Pdu[size];
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Subscribes a handler to every PDU.
+     */
+    public void addHandler(Handler handler) {
+        boolean[] all = new boolean[PDU_TYPE_COUNT];
+        Arrays.fill(all, true);
+        addSubscription(handler, all, true);
+    }
+
+    /**
+     * Subscribes a handler to the given PDU types.
+     */
+    public void addTypeHandler(Handler handler, int... pduTypes) {
+        addSubscription(handler, toMask(pduTypes), true);
+    }
+
+    /**
+     * Subscribes a handler to the given protocol families.
+     */
+    public void addFamilyHandler(Handler handler, int... protocolFamilies) {
+        addSubscription(handler, toMask(protocolFamilies), false);
+    }
+
+    private static boolean[] toMask(int[] values) {
+        boolean[] accepted = new boolean[PDU_TYPE_COUNT];
+        for (int value : values) {
+            if (value < 0 || value >= PDU_TYPE_COUNT) {
+                throw new IllegalArgumentException("Value " + value + " is not between 0 and 255");
+            }
+            accepted[value] = true;
+        }
+        return accepted;
+    }
+
+    private synchronized void addSubscription(Handler handler, boolean[] accepted, boolean byType) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must not be null");
+        }
+        if (started) {
+            throw new IllegalStateException("Handlers must be added before the dispatcher is started");
+        }
+        subscriptions.add(new Subscription(handler, accepted, byType));
+    }
+
+    /**
+     * Starts one daemon thread per handler.
+     */
+    public synchronized void start() {
+        if (started) {
+            throw new IllegalStateException("Dispatcher already started");
+        }
+        started = true;
+        running = true;
+        for (int i = 0; i < subscriptions.size(); i++) {
+            Subscription subscription = subscriptions.get(i);
+            subscription.sequence.set(cursor.get());
+            Thread thread = new Thread(subscription, "PduDispatcher-" + i);
+            thread.setDaemon(true);
+            subscription.thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the handler threads once they have processed the PDUs already
+     * published, and waits for them to finish.
+     */
+    public void halt() throws InterruptedException {
+        running = false;
+        signalHandlers();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.thread != null) {
+                subscription.thread.join();
+            }
+        }
+        Arrays.fill(slots, null);
+    }
+
+    /**
+     * Publishes a PDU, waiting for the slowest handler if the ring is full.
+     */
+    public void publish(Pdu pdu) {
+        final long next = cursor.get() + 1;
+        long minimum;
+        while (next - slots.length > (minimum = minimumSequence())) {
+            idle();
+        }
+        put(next, pdu, minimum);
+    }
+
+    /**
+     * Publishes a PDU unless the ring is full.
+     *
+     * @return false if the PDU was not published because the slowest handler
+     * is a full ring behind
+     */
+    public boolean tryPublish(Pdu pdu) {
+        final long next = cursor.get() + 1;
+        final long minimum = minimumSequence();
+        if (next - slots.length > minimum) {
+            return false;
+        }
+        put(next, pdu, minimum);
+        return true;
+    }
+
+    /**
+     * Fills the next slot, first clearing those every handler has passed.
+     *
+     * @param minimum the slowest handler's sequence
+     */
+    private void put(long sequence, Pdu pdu, long minimum) {
+        for (long passed = cleared + 1; passed <= minimum; passed++) {
+            slots[(int) (passed & mask)] = null;
+        }
+        cleared = Math.max(cleared, minimum);
+        slots[(int) (sequence & mask)] = pdu;
+        cursor.set(sequence);
+        if (waitStrategy == WaitStrategy.BLOCKING && blockedHandlers.get() > 0) {
+            signalHandlers();
+        }
+    }
+
+    private void signalHandlers() {
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long minimumSequence() {
+        long minimum = cursor.get();
+        for (int i = 0; i < subscriptions.size(); i++) {
+            minimum = Math.min(minimum, subscriptions.get(i).sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * Waits once while the publisher has nothing to do.
+     */
+    private void idle() {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            default:
+                LockSupport.parkNanos(1000L);
+        }
+    }
+
+    /**
+     * @return number of PDUs published so far
+     */
+    public long getPublishedCount() {
+        return cursor.get() + 1;
+    }
+
+    /**
+     * @return how far the slowest handler is behind the publisher
+     */
+    public long getBacklog() {
+        return cursor.get() - minimumSequence();
+    }
+
+    /**
+     * Waits until the cursor reaches <code>sequence</code> or the dispatcher
+     * is halted.
+     *
+     * @return the highest published sequence
+     */
+    private long waitFor(long sequence) throws InterruptedException {
+        long available;
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                while ((available = cursor.get()) < sequence && running) {
+                    // spin
+                }
+                return available;
+            case YIELD:
+                while ((available = cursor.get()) < sequence && running) {
+                    Thread.yield();
+                }
+                return available;
+            default:
+                if ((available = cursor.get()) >= sequence) {
+                    return available;
+                }
+                blockedHandlers.incrementAndGet();
+                lock.lock();
+                try {
+                    while ((available = cursor.get()) < sequence && running) {
+                        published.await();
+                    }
+                } finally {
+                    lock.unlock();
+                    blockedHandlers.decrementAndGet();
+                }
+                return available;
+        }
+    }
+
+    private class Subscription implements Runnable {
+
+        private final Handler handler;
+        private final boolean[] accepted;
+        private final boolean byType;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private Thread thread;
+
+        Subscription(Handler handler, boolean[] accepted, boolean byType) {
+            this.handler = handler;
+            this.accepted = accepted;
+            this.byType = byType;
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            try {
+                while (true) {
+                    final long available = waitFor(next);
+                    for (; next <= available; next++) {
+                        Pdu pdu = slots[(int) (next & mask)];
+                        int key = byType ? pdu.getPduType() : pdu.getProtocolFamily();
+                        if (accepted[key & 0xFF]) {
+                            try {
+                                handler.onPdu(pdu);
+                            } catch (RuntimeException e) {
+                                LOGGER.log(Level.WARNING, "Handler failed", e);
+                            }
+                        }
+                    }
+                    sequence.lazySet(available);
+                    if (!running && available >= cursor.get()) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package edu.nps.moves.disutil;
 import java.nio.ByteBuffer;
 import java.util.logging.*;
 import java.util.*;
+import java.util.function.Supplier;
 
 import edu.nps.moves.dis.*;
 import edu.nps.moves.disenum.PduType;
@@ -16,6 +17,38 @@ import edu.nps.moves.disenum.PduType;
  */
 public class PduFactory {
 
+    /**
+     * Size in bytes of the PDU header; the pdu length field is at offset 8
+     */
+    private static final int PDU_HEADER_SIZE = 12;
+
+    /**
+     * Number of possible values of the one byte PDU type field
+     */
+    private static final int PDU_TYPE_COUNT = 256;
+
+    /**
+     * Built-in constructors, indexed by PDU type
+     */
+    private static final Supplier<? extends Pdu>[] DEFAULT_CONSTRUCTORS = defaultConstructors();
+
+    /**
+     * Constructors used by this factory, indexed by PDU type. A null entry
+     * means the type is not supported.
+     */
+    private final Supplier<? extends Pdu>[] constructors = DEFAULT_CONSTRUCTORS.clone();
+
+    /**
+     * One reusable instance per PDU type for each decoding thread, used by
+     * {@link #createPooledPdu(java.nio.ByteBuffer)}
+     */
+    private final ThreadLocal<Pdu[]> pooledPdus = ThreadLocal.withInitial(() -> new Pdu[PDU_TYPE_COUNT]);
+
+    /**
+     * Drops PDUs by their header before they are decoded, or null
+     */
+    private PduFilter filter;
+
     private Logger logger;
 
 
@@ -36,6 +69,22 @@ public class PduFactory {
         logger.setLevel(loggingLevel);
     }
 
+    /**
+     * Sets the filter that PDUs must pass before they are decoded. PDUs it
+     * rejects come back from the create methods as null, and are skipped in
+     * bundles, having been looked at no further than their header. Set it
+     * before the factory is handed to a receiving thread.
+     *
+     * @param filter the filter, or null to decode everything
+     */
+    public void setFilter(PduFilter filter) {
+        this.filter = filter;
+    }
+
+    public PduFilter getFilter() {
+        return filter;
+    }
+
     /**
      * PDU factory. Pass in an array of bytes, get the correct type of pdu back,
      * based on the PDU type field contained in the byte array.
@@ -49,293 +98,205 @@ public class PduFactory {
 
     /**
      * PDU factory. Pass in an array of bytes, get the correct type of pdu back,
-     * based on the PDU type field contained in the byte buffer.
+     * based on the PDU type field contained in the byte buffer. The concrete
+     * class is found by indexing the constructor table with the PDU type byte.
      *
      * @param buff
-     * @return null if there was an error creating the Pdu
+     * @return null if there was an error creating the Pdu, or the filter
+     * rejected it
      */
     public Pdu createPdu(java.nio.ByteBuffer buff) {
+        if (filter != null && !filter.accept(buff)) {
+            return null;
+        }
+        return decodePdu(buff);
+    }
+
+    /**
+     * Decodes a PDU that has passed the filter.
+     */
+    private Pdu decodePdu(java.nio.ByteBuffer buff) {
 
         final int pduType = peekAtPduType(buff);
         if (pduType == -1) {
             return null;
         }
 
-        Pdu aPdu = null;
-
-        if (pduType < 129) {
-            // Normal pdu type code range is 0..128 inclusive.
-            final PduType pduTypeEnum = PduType.lookup[pduType];
-
-            switch (pduTypeEnum) {
-                // NOTE: OTHER is a valid pduTypeEnum, but has no corresponding object
-
-                case ENTITY_STATE:
-                    aPdu = new EntityStatePdu();
-                    break;
-
-                case FIRE:
-                    aPdu = new FirePdu();
-                    break;
-
-                case DETONATION:
-                    aPdu = new DetonationPdu();
-                    break;
-
-                case COLLISION:
-                    aPdu = new CollisionPdu();
-                    break;
-
-                case SERVICE_REQUEST:
-                    aPdu = new ServiceRequestPdu();
-                    break;
-
-                case RESUPPLY_OFFER:
-                    aPdu = new ResupplyOfferPdu();
-                    break;
-
-                case RESUPPLY_RECEIVED:
-                    aPdu = new ResupplyReceivedPdu();
-                    break;
-
-                case RESUPPLY_CANCEL:
-                    aPdu = new ResupplyCancelPdu();
-                    break;
-
-                case REPAIR_COMPLETE:
-                    aPdu = new RepairCompletePdu();
-                    break;
-
-                case REPAIR_RESPONSE:
-                    aPdu = new RepairResponsePdu();
-                    break;
-
-                case CREATE_ENTITY:
-                    aPdu = new CreateEntityPdu();
-                    break;
-
-                case REMOVE_ENTITY:
-                    aPdu = new RemoveEntityPdu();
-                    break;
-
-                case START_RESUME:
-                    aPdu = new StartResumePdu();
-                    break;
-
-                case STOP_FREEZE:
-                    aPdu = new StopFreezePdu();
-                    break;
-
-                case ACKNOWLEDGE:
-                    aPdu = new AcknowledgePdu();
-                    break;
+        final Supplier<? extends Pdu> constructor = constructors[pduType];
+        if (constructor == null) {
+            logger.log(Level.INFO, "PDU not implemented. Type = " + pduType + "\n");
+            return null;
+        }
 
-                case ACTION_REQUEST:
-                    aPdu = new ActionRequestPdu();
-                    break;
+        Pdu aPdu = constructor.get();
+        aPdu.unmarshal(buff);
+        return aPdu;
+    }
 
-                case ACTION_RESPONSE:
-                    aPdu = new ActionResponsePdu();
-                    break;
+    /**
+     * Allocation-free variant of {@link #createPdu(java.nio.ByteBuffer)}. The
+     * PDU is unmarshalled into an instance kept for the calling thread and
+     * reused on that thread's next call for the same PDU type, so the result
+     * is only valid until then. Copy anything that must be kept, or use
+     * {@link #createPdu(java.nio.ByteBuffer)} instead.<p>
+     *
+     * Callers that manage their own instances can get the same effect by
+     * calling {@link Pdu#unmarshal(java.nio.ByteBuffer)} on a PDU of the
+     * right type: variable length lists are resized and their records reused
+     * rather than appended to.
+     *
+     * @param buff
+     * @return the calling thread's instance for the PDU type, or null if there
+     * was an error or the filter rejected the PDU
+     */
+    public Pdu createPooledPdu(java.nio.ByteBuffer buff) {
+        if (filter != null && !filter.accept(buff)) {
+            return null;
+        }
 
-                case DATA_QUERY:
-                    aPdu = new DataQueryPdu();
-                    break;
+        final int pduType = peekAtPduType(buff);
+        if (pduType == -1) {
+            return null;
+        }
 
-                case SET_DATA:
-                    aPdu = new SetDataPdu();
-                    break;
+        final Pdu[] pool = pooledPdus.get();
+        Pdu aPdu = pool[pduType];
+        if (aPdu == null) {
+            final Supplier<? extends Pdu> constructor = constructors[pduType];
+            if (constructor == null) {
+                logger.log(Level.INFO, "PDU not implemented. Type = " + pduType + "\n");
+                return null;
+            }
+            aPdu = constructor.get();
+            pool[pduType] = aPdu;
+        }
 
-                case DATA:
-                    aPdu = new DataPdu();
-                    break;
+        aPdu.unmarshal(buff);
+        return aPdu;
+    }
 
-                case EVENT_REPORT:
-                    aPdu = new EventReportPdu();
-                    break;
+    /**
+     * Registers the constructor used to create PDUs of the given type,
+     * replacing any built-in or previously registered one. This lets
+     * applications decode their own experimental PDU types (129..255), which
+     * are otherwise returned as {@link ExperimentalPdu}, or substitute their
+     * own subclasses for the standard types.<p>
+     *
+     * The supplier may return a new or a reused instance; either way the
+     * factory unmarshals the incoming data into it. Registration is not
+     * synchronized with decoding, so register constructors before the factory
+     * is handed to a receiving thread; instances already pooled by
+     * {@link #createPooledPdu(java.nio.ByteBuffer)} are not replaced.
+     *
+     * @param pduType the PDU type code, 0..255
+     * @param constructor creates (or supplies) the PDU to unmarshal into
+     * @throws IllegalArgumentException if the type is out of range or the
+     * constructor is null
+     */
+    public void registerPdu(int pduType, Supplier<? extends Pdu> constructor) {
+        checkPduType(pduType);
+        if (constructor == null) {
+            throw new IllegalArgumentException("constructor must not be null");
+        }
+        constructors[pduType] = constructor;
+    }
 
-                case COMMENT:
-                    aPdu = new CommentPdu();
-                    break;
+    /**
+     * Restores the built-in constructor for the given PDU type, undoing any
+     * {@link #registerPdu(int, java.util.function.Supplier)} call.
+     *
+     * @param pduType the PDU type code, 0..255
+     * @throws IllegalArgumentException if the type is out of range
+     */
+    public void unregisterPdu(int pduType) {
+        checkPduType(pduType);
+        constructors[pduType] = DEFAULT_CONSTRUCTORS[pduType];
+    }
 
-                case ELECTROMAGNETIC_EMISSION:
-                    aPdu = new ElectronicEmissionsPdu();
-                    break;
-
-                case DESIGNATOR:
-                    aPdu = new DesignatorPdu();
-                    break;
-
-                case TRANSMITTER:
-                    aPdu = new TransmitterPdu();
-                    break;
-
-                case SIGNAL:
-                    aPdu = new SignalPdu();
-                    break;
-
-                case RECEIVER:
-                    aPdu = new ReceiverPdu();
-                    break;
-
-                // FIXME: IFF_ATC_NAVAIDS (28)
-                case UNDERWATER_ACOUSTIC:
-                    aPdu = new UaPdu();
-                    break;
-
-                case SUPPLEMENTAL_EMISSION_ENTITY_STATE:
-                    aPdu = new SeesPdu();
-                    break;
-
-                case INTERCOM_SIGNAL:
-                    aPdu = new IntercomSignalPdu();
-                    break;
-
-                case INTERCOM_CONTROL:
-                    aPdu = new IntercomControlPdu();
-                    break;
-
-                case AGGREGATE_STATE:
-                    aPdu = new AggregateStatePdu();
-                    break;
-
-                case ISGROUPOF:
-                    aPdu = new IsGroupOfPdu();
-                    break;
-
-                case TRANSFER_CONTROL:
-                    aPdu = new TransferControlRequestPdu();
-                    break;
-
-                case ISPARTOF:
-                    aPdu = new IsPartOfPdu();
-                    break;
-
-                case MINEFIELD_STATE:
-                    aPdu = new MinefieldStatePdu();
-                    break;
-
-                case MINEFIELD_QUERY:
-                    aPdu = new MinefieldQueryPdu();
-                    break;
-
-                case MINEFIELD_DATA:
-                    aPdu = new MinefieldDataPdu();
-                    break;
-
-                case MINEFIELD_RESPONSE_NAK:
-                    aPdu = new MinefieldResponseNackPdu();
-                    break;
-
-                case ENVIRONMENTAL_PROCESS:
-                    aPdu = new EnvironmentalProcessPdu();
-                    break;
-
-                case GRIDDED_DATA:
-                    aPdu = new GriddedDataPdu();
-                    break;
-
-                case POINT_OBJECT_STATE:
-                    aPdu = new PointObjectStatePdu();
-                    break;
-
-                case LINEAR_OBJECT_STATE:
-                    aPdu = new LinearObjectStatePdu();
-                    break;
-
-                case AREAL_OBJECT_STATE:
-                    aPdu = new ArealObjectStatePdu();
-                    break;
-
-                // FIXME: case TSPI: (46)
-                // FIXME: case APPEARANCE: (47)
-                // FIXME: case ARTICULATED_PARTS: (48)
-                // FIXME: case LE_FIRE: (49)
-                // FIXME: case LE_DETONATION: (50)
-                case CREATE_ENTITY_R:
-                    aPdu = new CreateEntityReliablePdu();
-                    break;
-
-                case REMOVE_ENTITY_R:
-                    aPdu = new RemoveEntityReliablePdu();
-                    break;
-
-                case START_RESUME_R:
-                    aPdu = new StartResumeReliablePdu();
-                    break;
-
-                case STOP_FREEZE_R:
-                    aPdu = new StopFreezeReliablePdu();
-                    break;
-
-                case ACKNOWLEDGE_R:
-                    aPdu = new AcknowledgeReliablePdu();
-                    break;
-
-                case ACTION_REQUEST_R:
-                    aPdu = new ActionRequestReliablePdu();
-                    break;
-
-                case ACTION_RESPONSE_R:
-                    aPdu = new ActionResponseReliablePdu();
-                    break;
-
-                case DATA_QUERY_R:
-                    aPdu = new DataQueryReliablePdu();
-                    break;
-
-                case SET_DATA_R:
-                    aPdu = new SetDataReliablePdu();
-                    break;
-
-                case DATA_R:
-                    aPdu = new DataReliablePdu();
-                    break;
-
-                case EVENT_REPORT_R:
-                    aPdu = new EventReportReliablePdu();
-                    break;
-
-                case COMMENT_R:
-                    aPdu = new CommentReliablePdu();
-                    break;
-
-                // FIXME: case RECORD_R: (63)
-                case SET_RECORD_R:
-                    aPdu = new SetRecordReliablePdu();
-                    break;
-
-                case RECORD_QUERY_R:
-                    aPdu = new RecordQueryReliablePdu();
-                    break;
-
-                case COLLISION_ELASTIC:
-                    aPdu = new CollisionElasticPdu();
-                    break;
-
-                case ENTITY_STATE_UPDATE:
-                    aPdu = new EntityStateUpdatePdu();
-                    break;
-                case IFF_ATC_NAVAIDS:
-                        aPdu = new IffAtcNavAidsLayer1Pdu();
-                    break;
-                default:
-                    logger.log(Level.INFO, "PDU not implemented. Type = " + pduType + "\n");
-                    if (pduTypeEnum != null) {
-                        logger.log(Level.INFO, "  PDU  name is: " + pduTypeEnum.getDescription());
-                    }
-
-            }   // end switch
-        } else {
-            // Received an experimental pdu type. Type 129..255.
-            logger.log(Level.INFO, "Received experimental PDU Type " + pduType + ". Not supported.");
-            aPdu = new ExperimentalPdu();
+    private static void checkPduType(int pduType) {
+        if (pduType < 0 || pduType >= PDU_TYPE_COUNT) {
+            throw new IllegalArgumentException("PDU type must be in 0.." + (PDU_TYPE_COUNT - 1) + ": " + pduType);
         }
+    }
 
-        if (aPdu != null) {
-            aPdu.unmarshal(buff);
+    /**
+     * Builds the table of built-in constructors. The normal pdu type code
+     * range is 0..128 inclusive; anything above that is experimental.
+     */
+    @SuppressWarnings("unchecked")
+    private static Supplier<? extends Pdu>[] defaultConstructors() {
+        final Supplier<? extends Pdu>[] constructors = new Supplier[PDU_TYPE_COUNT];
+
+        // NOTE: OTHER is a valid pdu type, but has no corresponding object
+        constructors[PduType.ENTITY_STATE.value] = EntityStatePdu::new;
+        constructors[PduType.FIRE.value] = FirePdu::new;
+        constructors[PduType.DETONATION.value] = DetonationPdu::new;
+        constructors[PduType.COLLISION.value] = CollisionPdu::new;
+        constructors[PduType.SERVICE_REQUEST.value] = ServiceRequestPdu::new;
+        constructors[PduType.RESUPPLY_OFFER.value] = ResupplyOfferPdu::new;
+        constructors[PduType.RESUPPLY_RECEIVED.value] = ResupplyReceivedPdu::new;
+        constructors[PduType.RESUPPLY_CANCEL.value] = ResupplyCancelPdu::new;
+        constructors[PduType.REPAIR_COMPLETE.value] = RepairCompletePdu::new;
+        constructors[PduType.REPAIR_RESPONSE.value] = RepairResponsePdu::new;
+        constructors[PduType.CREATE_ENTITY.value] = CreateEntityPdu::new;
+        constructors[PduType.REMOVE_ENTITY.value] = RemoveEntityPdu::new;
+        constructors[PduType.START_RESUME.value] = StartResumePdu::new;
+        constructors[PduType.STOP_FREEZE.value] = StopFreezePdu::new;
+        constructors[PduType.ACKNOWLEDGE.value] = AcknowledgePdu::new;
+        constructors[PduType.ACTION_REQUEST.value] = ActionRequestPdu::new;
+        constructors[PduType.ACTION_RESPONSE.value] = ActionResponsePdu::new;
+        constructors[PduType.DATA_QUERY.value] = DataQueryPdu::new;
+        constructors[PduType.SET_DATA.value] = SetDataPdu::new;
+        constructors[PduType.DATA.value] = DataPdu::new;
+        constructors[PduType.EVENT_REPORT.value] = EventReportPdu::new;
+        constructors[PduType.COMMENT.value] = CommentPdu::new;
+        constructors[PduType.ELECTROMAGNETIC_EMISSION.value] = ElectronicEmissionsPdu::new;
+        constructors[PduType.DESIGNATOR.value] = DesignatorPdu::new;
+        constructors[PduType.TRANSMITTER.value] = TransmitterPdu::new;
+        constructors[PduType.SIGNAL.value] = SignalPdu::new;
+        constructors[PduType.RECEIVER.value] = ReceiverPdu::new;
+        constructors[PduType.UNDERWATER_ACOUSTIC.value] = UaPdu::new;
+        constructors[PduType.SUPPLEMENTAL_EMISSION_ENTITY_STATE.value] = SeesPdu::new;
+        constructors[PduType.INTERCOM_SIGNAL.value] = IntercomSignalPdu::new;
+        constructors[PduType.INTERCOM_CONTROL.value] = IntercomControlPdu::new;
+        constructors[PduType.AGGREGATE_STATE.value] = AggregateStatePdu::new;
+        constructors[PduType.ISGROUPOF.value] = IsGroupOfPdu::new;
+        constructors[PduType.TRANSFER_CONTROL.value] = TransferControlRequestPdu::new;
+        constructors[PduType.ISPARTOF.value] = IsPartOfPdu::new;
+        constructors[PduType.MINEFIELD_STATE.value] = MinefieldStatePdu::new;
+        constructors[PduType.MINEFIELD_QUERY.value] = MinefieldQueryPdu::new;
+        constructors[PduType.MINEFIELD_DATA.value] = MinefieldDataPdu::new;
+        constructors[PduType.MINEFIELD_RESPONSE_NAK.value] = MinefieldResponseNackPdu::new;
+        constructors[PduType.ENVIRONMENTAL_PROCESS.value] = EnvironmentalProcessPdu::new;
+        constructors[PduType.GRIDDED_DATA.value] = GriddedDataPdu::new;
+        constructors[PduType.POINT_OBJECT_STATE.value] = PointObjectStatePdu::new;
+        constructors[PduType.LINEAR_OBJECT_STATE.value] = LinearObjectStatePdu::new;
+        constructors[PduType.AREAL_OBJECT_STATE.value] = ArealObjectStatePdu::new;
+        constructors[PduType.CREATE_ENTITY_R.value] = CreateEntityReliablePdu::new;
+        constructors[PduType.REMOVE_ENTITY_R.value] = RemoveEntityReliablePdu::new;
+        constructors[PduType.START_RESUME_R.value] = StartResumeReliablePdu::new;
+        constructors[PduType.STOP_FREEZE_R.value] = StopFreezeReliablePdu::new;
+        constructors[PduType.ACKNOWLEDGE_R.value] = AcknowledgeReliablePdu::new;
+        constructors[PduType.ACTION_REQUEST_R.value] = ActionRequestReliablePdu::new;
+        constructors[PduType.ACTION_RESPONSE_R.value] = ActionResponseReliablePdu::new;
+        constructors[PduType.DATA_QUERY_R.value] = DataQueryReliablePdu::new;
+        constructors[PduType.SET_DATA_R.value] = SetDataReliablePdu::new;
+        constructors[PduType.DATA_R.value] = DataReliablePdu::new;
+        constructors[PduType.EVENT_REPORT_R.value] = EventReportReliablePdu::new;
+        constructors[PduType.COMMENT_R.value] = CommentReliablePdu::new;
+        constructors[PduType.SET_RECORD_R.value] = SetRecordReliablePdu::new;
+        constructors[PduType.RECORD_QUERY_R.value] = RecordQueryReliablePdu::new;
+        constructors[PduType.COLLISION_ELASTIC.value] = CollisionElasticPdu::new;
+        constructors[PduType.ENTITY_STATE_UPDATE.value] = EntityStateUpdatePdu::new;
+        constructors[PduType.IFF_ATC_NAVAIDS.value] = IffAtcNavAidsLayer1Pdu::new;
+        // FIXME: TSPI (46), APPEARANCE (47), ARTICULATED_PARTS (48),
+        // LE_FIRE (49), LE_DETONATION (50), RECORD_R (63)
+
+        for (int pduType = 129; pduType < PDU_TYPE_COUNT; pduType++) {
+            constructors[pduType] = ExperimentalPdu::new;
         }
-        return aPdu;
+
+        return constructors;
     }
 
     /**
@@ -349,53 +310,80 @@ public class PduFactory {
      *
      * @param data
      * @return List of PDUs decoded
+     * @see #getPdusFromBundle(java.nio.ByteBuffer, java.util.List)
      */
     public List<Pdu> getPdusFromBundle(byte data[]) {
-        // All the PDUs in this bundle we were able to decode
         ArrayList<Pdu> pdus = new ArrayList<Pdu>();
-        // The start point of a PDU in the data. We advance this by the size
-        // of each PDU as we read it.
-        int pduStartPointInData = 0;
+        getPdusFromBundle(ByteBuffer.wrap(data), pdus);
+        return pdus;
+    }
 
-        while (true) {
-            // This is inefficient, but screw it. Give the GC a workout. Create a new
-            // data array from where the last PDU left off to the end of the original
-            // data array. This lets us reuse a bunch of old code.
+    /**
+     * Decodes the bundled PDUs between the buffer's position and limit without
+     * copying the data. Each PDU is decoded in place, with the buffer's limit
+     * temporarily narrowed to the length reported in that PDU's header, and
+     * the position then advanced to the start of the next PDU.<p>
+     *
+     * Decoding stops at the end of the data, or at the first PDU that has a
+     * short or inconsistent length field, an unknown type, or fails to
+     * unmarshal. PDUs the filter rejects are stepped over without being
+     * decoded. On return the buffer's position is left at the first byte
+     * that was not decoded, so <code>buff.hasRemaining()</code> tells the
+     * caller whether the whole datagram was consumed. The buffer's limit is
+     * always restored.
+     *
+     * @param buff the datagram contents, from position to limit
+     * @param pdus list the decoded PDUs are appended to
+     * @return the number of PDUs appended to the list
+     * @see #setFilter(PduFilter)
+     */
+    public int getPdusFromBundle(java.nio.ByteBuffer buff, List<Pdu> pdus) {
+        final int limit = buff.limit();
+        int count = 0;
 
-            byte remaining[] = Arrays.copyOfRange(data, pduStartPointInData, data.length);
+        while (buff.remaining() >= PDU_HEADER_SIZE) {
+            final int pduStart = buff.position();
+            final int pduLength = peekAtPduLength(buff);
 
+            if (pduLength < PDU_HEADER_SIZE || pduStart + pduLength > limit) {
+                logger.log(Level.INFO, "Stopped decoding bundle at offset " + pduStart
+                        + ": PDU length " + pduLength + " does not fit in " + (limit - pduStart) + " remaining bytes");
+                break;
+            }
+
+            if (filter != null && !filter.accept(buff, pduStart, pduLength)) {
+                buff.position(pduStart + pduLength);
+                continue;
+            }
+
+            Pdu pdu = null;
             try {
-                // Decode one PDU
-                Pdu pdu = this.createPdu(remaining);
-
-                // If the read is muffed somehow, give up on decoding the rest of
-                // the data
-                if (pdu == null) {
-                    //System.out.println("Stopped reading bundled PDU due to bad PDU");
-                    break;
-                } else // otherwise add it to the list of PDUs we have decoded from this UDP packet
-                {
-                    pdus.add(pdu);
-                }
-
-                // Advance the index to the start of the next PDU
-                int pduLength = pdu.getPduLength();
-                pduStartPointInData = pduStartPointInData + pduLength;
-
-                //System.out.println("PDUStartPOint:" + pduStartPointInData + " data: " + data.length);
-                // Have we read all the data?
-                if (pduStartPointInData >= data.length) {
-                    //System.out.println("Out of data to read" + pduStartPointInData + " data length:" + data.length);
-                    break;
-                }
-
-            } catch (Exception e) {
-                System.out.println("Problems decoding multiple PDUs in datagram; decoded as may as possible");
+                buff.limit(pduStart + pduLength);
+                pdu = decodePdu(buff);
+            } catch (RuntimeException e) {
+                logger.log(Level.INFO, "Stopped decoding bundle at offset " + pduStart, e);
+            } finally {
+                buff.limit(limit);
+            }
+
+            if (pdu == null) {
+                buff.position(pduStart);
                 break;
             }
-        } // end while
 
-        return pdus;
+            pdus.add(pdu);
+            count++;
+            buff.position(pduStart + pduLength);
+        }
+
+        return count;
+    }
+
+    /**
+     * For checking the pdu length within the buffer before unmarshalling.
+     */
+    private static int peekAtPduLength(java.nio.ByteBuffer buff) {
+        return Pdu.toUnsignedInt(buff.getShort(buff.position() + 8));
     }
 
     /**
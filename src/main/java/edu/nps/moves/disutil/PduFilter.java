@@ -0,0 +1,246 @@
+package edu.nps.moves.disutil;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides from the header bytes alone whether a PDU is wanted, so traffic
+ * from other exercises, or of types the application ignores, is dropped
+ * before anything is allocated or decoded. PDUs can be selected by exercise
+ * ID, protocol version, PDU type and protocol family, each held as a 256 bit
+ * set, and by ranges of the site and application numbers in the simulation
+ * address at offset 12, which is where nearly every PDU carries the entity
+ * or simulation that issued it. Each check is a fixed offset read and a bit
+ * test, whatever the number of values accepted.<p>
+ *
+ * A rule that has not been set accepts everything. The number of PDUs each
+ * rule rejects is counted, checked in the order of {@link Rule}, so only the
+ * first rule a PDU fails is charged with it. Example, keeping the Entity
+ * State and Fire PDUs of exercise 3:
+ * <pre>
+ * PduFilter filter = new PduFilter();
+ * filter.setExercises(3);
+ * filter.setPduTypes(PduType.ENTITY_STATE.value, PduType.FIRE.value);
+ * connection.getPduFactory().setFilter(filter);
+ * </pre>
+ *
+ * Set the rules before the filter is handed to a receiving thread; the
+ * counters may be read from any thread.
+ *
+ * @see PduFactory#setFilter(PduFilter)
+ */
+public class PduFilter {
+
+    /**
+     * The checks a PDU can fail, in the order they are made
+     */
+    public enum Rule {
+        /** Shorter than a header, or than the fields checked */
+        LENGTH,
+        PROTOCOL_VERSION,
+        EXERCISE,
+        PDU_TYPE,
+        PROTOCOL_FAMILY,
+        SITE,
+        APPLICATION
+    }
+
+    private static final int HEADER_SIZE = 12;
+    private static final int SITE_AT = 12;
+    private static final int APPLICATION_AT = 14;
+    private static final int LIVE_ENTITY_FAMILY = 11;
+
+    // 256 bit sets indexed by the header byte, or null to accept any value
+    private long[] versions;
+    private long[] exercises;
+    private long[] pduTypes;
+    private long[] families;
+
+    private int minSite = 0;
+    private int maxSite = 0xFFFF;
+    private int minApplication = 0;
+    private int maxApplication = 0xFFFF;
+    private boolean checkAddress;
+
+    private final AtomicLongArray rejected = new AtomicLongArray(Rule.values().length);
+    private final AtomicLong accepted = new AtomicLong();
+
+    /**
+     * Accepts only the given protocol versions; with none given, any.
+     */
+    public void setProtocolVersions(int... values) {
+        versions = bitSet(values);
+    }
+
+    /**
+     * Accepts only the given exercise IDs; with none given, any.
+     */
+    public void setExercises(int... values) {
+        exercises = bitSet(values);
+    }
+
+    /**
+     * Accepts only the given PDU types; with none given, any.
+     */
+    public void setPduTypes(int... values) {
+        pduTypes = bitSet(values);
+    }
+
+    /**
+     * Accepts only the given protocol families; with none given, any.
+     */
+    public void setProtocolFamilies(int... values) {
+        families = bitSet(values);
+    }
+
+    /**
+     * Accepts only PDUs whose simulation address has a site number in the
+     * range, inclusive. Live Entity family PDUs, whose addresses are laid out
+     * differently, are not checked.
+     */
+    public void setSiteRange(int min, int max) {
+        checkRange(min, max);
+        minSite = min;
+        maxSite = max;
+        updateCheckAddress();
+    }
+
+    /**
+     * Accepts only PDUs whose simulation address has an application number
+     * in the range, inclusive. Live Entity family PDUs are not checked.
+     */
+    public void setApplicationRange(int min, int max) {
+        checkRange(min, max);
+        minApplication = min;
+        maxApplication = max;
+        updateCheckAddress();
+    }
+
+    private static void checkRange(int min, int max) {
+        if (min < 0 || max > 0xFFFF || min > max) {
+            throw new IllegalArgumentException("Range must be within 0..65535, got " + min + ".." + max);
+        }
+    }
+
+    private void updateCheckAddress() {
+        checkAddress = minSite > 0 || maxSite < 0xFFFF || minApplication > 0 || maxApplication < 0xFFFF;
+    }
+
+    private static long[] bitSet(int[] values) {
+        if (values.length == 0) {
+            return null;
+        }
+        final long[] words = new long[4];
+        for (int value : values) {
+            if (value < 0 || value > 0xFF) {
+                throw new IllegalArgumentException("Header field values are 0..255, got " + value);
+            }
+            words[value >>> 6] |= 1L << value;
+        }
+        return words;
+    }
+
+    private static boolean contains(long[] words, int value) {
+        return words == null || (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    /**
+     * Checks the PDU from the buffer's position to its limit.
+     *
+     * @see #accept(ByteBuffer, int, int)
+     */
+    public boolean accept(ByteBuffer buff) {
+        return accept(buff, buff.position(), buff.remaining());
+    }
+
+    /**
+     * Checks the header of a PDU in a buffer. The buffer is not changed.
+     *
+     * @param buff holds the PDU
+     * @param at where the PDU starts
+     * @param length bytes available for the PDU
+     * @return true if the PDU passes every rule
+     */
+    public boolean accept(ByteBuffer buff, int at, int length) {
+        final Rule failed = check(buff, at, length);
+        if (failed != null) {
+            rejected.incrementAndGet(failed.ordinal());
+            return false;
+        }
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return the first rule the PDU fails, or null
+     */
+    private Rule check(ByteBuffer buff, int at, int length) {
+        if (length < HEADER_SIZE) {
+            return Rule.LENGTH;
+        }
+        if (!contains(versions, buff.get(at) & 0xFF)) {
+            return Rule.PROTOCOL_VERSION;
+        }
+        if (!contains(exercises, buff.get(at + 1) & 0xFF)) {
+            return Rule.EXERCISE;
+        }
+        if (!contains(pduTypes, buff.get(at + 2) & 0xFF)) {
+            return Rule.PDU_TYPE;
+        }
+        final int family = buff.get(at + 3) & 0xFF;
+        if (!contains(families, family)) {
+            return Rule.PROTOCOL_FAMILY;
+        }
+        if (!checkAddress || family == LIVE_ENTITY_FAMILY) {
+            return null;
+        }
+        if (length < APPLICATION_AT + 2) {
+            return Rule.LENGTH;
+        }
+        final int site = buff.getShort(at + SITE_AT) & 0xFFFF;
+        if (site < minSite || site > maxSite) {
+            return Rule.SITE;
+        }
+        final int application = buff.getShort(at + APPLICATION_AT) & 0xFFFF;
+        if (application < minApplication || application > maxApplication) {
+            return Rule.APPLICATION;
+        }
+        return null;
+    }
+
+    /**
+     * @return number of PDUs that passed every rule
+     */
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    /**
+     * @return number of PDUs for which the rule was the first one failed
+     */
+    public long getRejectedCount(Rule rule) {
+        return rejected.get(rule.ordinal());
+    }
+
+    /**
+     * @return number of PDUs rejected by any rule
+     */
+    public long getRejectedCount() {
+        long total = 0;
+        for (int i = 0; i < rejected.length(); i++) {
+            total += rejected.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Sets all counters back to zero.
+     */
+    public void resetCounts() {
+        for (int i = 0; i < rejected.length(); i++) {
+            rejected.set(i, 0);
+        }
+        accepted.set(0);
+    }
+}
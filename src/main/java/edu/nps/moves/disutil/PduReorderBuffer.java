@@ -0,0 +1,324 @@
+package edu.nps.moves.disutil;
+
+import edu.nps.moves.dis.*;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Jitter buffer that puts PDUs from several simulators back into timestamp
+ * order. Each PDU is held until the latency window has passed since the time
+ * in its timestamp, then handed on; PDUs that arrive out of order within the
+ * window come out in order.<p>
+ *
+ * Timestamps are turned into epoch time with
+ * {@link DisTime#toEpochNanos(int, long)}, using the arrival time to resolve
+ * the hourly rollover. Absolute timestamps are used as they are. Relative
+ * timestamps come from unsynchronized clocks, so for each source, identified
+ * by the site and application of the sender, the buffer keeps the smallest
+ * difference seen between arrival time and timestamp and adds it to that
+ * source's timestamps. This places each source on the local clock while
+ * keeping its PDUs in the order the sender stamped them.<p>
+ *
+ * A PDU whose time is earlier than a PDU already released is late. The window
+ * was too short for it, so it goes to the late handler, if one is set, and is
+ * otherwise dropped. When the buffer is full the earliest PDU is released
+ * early to make room. Held PDUs are kept in a binary heap over primitive
+ * arrays, so buffering allocates nothing once the buffer has seen all its
+ * sources. Not thread safe; offer and release from the same thread.<p>
+ *
+ * Example:
+ * <pre>
+ * PduReorderBuffer buffer = new PduReorderBuffer(50000000L, 100000, pdu -&gt; log(pdu));
+ * DisTime clock = DisTime.getInstance();
+ * while (running) {
+ *     Pdu pdu = connection.getNext();
+ *     long now = clock.getEpochNanos();
+ *     buffer.offer(pdu, now);
+ *     buffer.release(now);
+ * }
+ * buffer.flush();
+ * </pre>
+ *
+ * @see TimestampComparator
+ */
+public class PduReorderBuffer {
+
+    private static final long NO_SOURCE = -1L;
+
+    private final long latencyNanos;
+    private final Consumer<Pdu> output;
+    private Consumer<Pdu> lateHandler;
+    private ToIntFunction<Pdu> sourceFunction = PduReorderBuffer::sourceOf;
+
+    // heap ordered by time, then by arrival order
+    private final long[] times;
+    private final long[] sequences;
+    private final Pdu[] pdus;
+    private int size;
+    private long nextSequence;
+
+    // open addressing table from source to the smallest arrival - timestamp seen
+    private long[] sourceKeys = new long[64];
+    private long[] sourceLags = new long[64];
+    private int sourceCount;
+
+    private long releasedTime = Long.MIN_VALUE;
+    private long releasedCount;
+    private long lateCount;
+    private long forcedCount;
+
+    /**
+     * @param latencyNanos how long to hold each PDU past its timestamp
+     * @param capacity most PDUs held at once
+     * @param output receives the PDUs in timestamp order
+     */
+    public PduReorderBuffer(long latencyNanos, int capacity, Consumer<Pdu> output) {
+        if (latencyNanos < 0) {
+            throw new IllegalArgumentException("latency must not be negative");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null");
+        }
+        this.latencyNanos = latencyNanos;
+        this.output = output;
+        times = new long[capacity];
+        sequences = new long[capacity];
+        pdus = new Pdu[capacity];
+        Arrays.fill(sourceKeys, NO_SOURCE);
+    }
+
+    /**
+     * @param lateHandler receives PDUs that arrive too late to be put in
+     * order; null to drop them
+     */
+    public void setLateHandler(Consumer<Pdu> lateHandler) {
+        this.lateHandler = lateHandler;
+    }
+
+    /**
+     * @param sourceFunction gives the source of a PDU as site &lt;&lt; 16 |
+     * application; the default is {@link #sourceOf(Pdu)}
+     */
+    public void setSourceFunction(ToIntFunction<Pdu> sourceFunction) {
+        this.sourceFunction = sourceFunction;
+    }
+
+    /**
+     * Finds the site and application of the simulation that sent a PDU, for
+     * the PDU types that say so in a common place. Others are all treated as
+     * one source.
+     *
+     * @return site &lt;&lt; 16 | application, or 0 if unknown
+     */
+    public static int sourceOf(Pdu pdu) {
+        EntityID id = null;
+        if (pdu instanceof EntityStatePdu) {
+            id = ((EntityStatePdu) pdu).getEntityID();
+        } else if (pdu instanceof EntityStateUpdatePdu) {
+            id = ((EntityStateUpdatePdu) pdu).getEntityID();
+        } else if (pdu instanceof WarfareFamilyPdu) {
+            id = ((WarfareFamilyPdu) pdu).getFiringEntityID();
+        } else if (pdu instanceof SimulationManagementFamilyPdu) {
+            id = ((SimulationManagementFamilyPdu) pdu).getOriginatingEntityID();
+        } else if (pdu instanceof SimulationManagementWithReliabilityFamilyPdu) {
+            id = ((SimulationManagementWithReliabilityFamilyPdu) pdu).getOriginatingEntityID();
+        } else if (pdu instanceof CollisionPdu) {
+            id = ((CollisionPdu) pdu).getIssuingEntityID();
+        }
+        return id == null ? 0 : (id.getSite() & 0xFFFF) << 16 | (id.getApplication() & 0xFFFF);
+    }
+
+    /**
+     * Adds a received PDU.
+     *
+     * @param pdu the PDU
+     * @param arrivalNanos when it arrived, nanoseconds since 1970, see
+     * {@link DisTime#getEpochNanos()}
+     * @return false if the PDU was late
+     */
+    public boolean offer(Pdu pdu, long arrivalNanos) {
+        final int timestamp = (int) pdu.getTimestamp();
+        long time = DisTime.toEpochNanos(timestamp, arrivalNanos);
+        if (!DisTime.isAbsolute(timestamp)) {
+            time += sourceLag(sourceFunction.applyAsInt(pdu), arrivalNanos - time);
+        }
+        if (time < releasedTime) {
+            lateCount++;
+            if (lateHandler != null) {
+                lateHandler.accept(pdu);
+            }
+            return false;
+        }
+        if (size == pdus.length) {
+            forcedCount++;
+            releaseFirst();
+        }
+        push(time, pdu);
+        return true;
+    }
+
+    /**
+     * Hands on, in order, every PDU whose time plus the latency window has
+     * passed.
+     *
+     * @param nowNanos the current time, nanoseconds since 1970
+     * @return number of PDUs released
+     */
+    public int release(long nowNanos) {
+        final long limit = nowNanos - latencyNanos;
+        int released = 0;
+        while (size > 0 && times[0] <= limit) {
+            releaseFirst();
+            released++;
+        }
+        return released;
+    }
+
+    /**
+     * Hands on every PDU held, in order.
+     *
+     * @return number of PDUs released
+     */
+    public int flush() {
+        final int released = size;
+        while (size > 0) {
+            releaseFirst();
+        }
+        return released;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of PDUs handed on
+     */
+    public long getReleasedCount() {
+        return releasedCount;
+    }
+
+    /**
+     * @return number of PDUs that arrived too late to be put in order
+     */
+    public long getLateCount() {
+        return lateCount;
+    }
+
+    /**
+     * @return number of PDUs released before their time to make room
+     */
+    public long getForcedCount() {
+        return forcedCount;
+    }
+
+    /**
+     * Updates and returns the smallest arrival - timestamp difference seen for
+     * a source.
+     */
+    private long sourceLag(int source, long lag) {
+        final long key = source & 0xFFFFFFFFL;
+        final int mask = sourceKeys.length - 1;
+        int slot = mix(source) & mask;
+        while (sourceKeys[slot] != NO_SOURCE) {
+            if (sourceKeys[slot] == key) {
+                if (lag < sourceLags[slot]) {
+                    sourceLags[slot] = lag;
+                }
+                return sourceLags[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        sourceKeys[slot] = key;
+        sourceLags[slot] = lag;
+        if (++sourceCount * 2 > sourceKeys.length) {
+            growSources();
+        }
+        return lag;
+    }
+
+    private void growSources() {
+        final long[] oldKeys = sourceKeys;
+        final long[] oldLags = sourceLags;
+        sourceKeys = new long[oldKeys.length * 2];
+        sourceLags = new long[oldKeys.length * 2];
+        Arrays.fill(sourceKeys, NO_SOURCE);
+        final int mask = sourceKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != NO_SOURCE) {
+                int slot = mix((int) oldKeys[i]) & mask;
+                while (sourceKeys[slot] != NO_SOURCE) {
+                    slot = (slot + 1) & mask;
+                }
+                sourceKeys[slot] = oldKeys[i];
+                sourceLags[slot] = oldLags[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private boolean before(int a, int b) {
+        return times[a] < times[b] || (times[a] == times[b] && sequences[a] < sequences[b]);
+    }
+
+    private void swap(int a, int b) {
+        final long time = times[a];
+        times[a] = times[b];
+        times[b] = time;
+        final long sequence = sequences[a];
+        sequences[a] = sequences[b];
+        sequences[b] = sequence;
+        final Pdu pdu = pdus[a];
+        pdus[a] = pdus[b];
+        pdus[b] = pdu;
+    }
+
+    private void push(long time, Pdu pdu) {
+        int i = size++;
+        times[i] = time;
+        sequences[i] = nextSequence++;
+        pdus[i] = pdu;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (!before(i, parent)) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void releaseFirst() {
+        final Pdu pdu = pdus[0];
+        releasedTime = times[0];
+        size--;
+        if (size > 0) {
+            swap(0, size);
+            int i = 0;
+            while (true) {
+                final int left = 2 * i + 1;
+                if (left >= size) {
+                    break;
+                }
+                final int right = left + 1;
+                final int child = right < size && before(right, left) ? right : left;
+                if (!before(child, i)) {
+                    break;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+        pdus[size] = null;
+        releasedCount++;
+        output.accept(pdu);
+    }
+}
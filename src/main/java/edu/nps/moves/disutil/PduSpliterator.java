@@ -0,0 +1,183 @@
+package edu.nps.moves.disutil;
+
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walks PDUs laid end to end in a buffer, as in the body of a
+ * {@link PduContainer} or {@link PduStream}, decoding each to its concrete
+ * type only as it is reached. Each PDU is found from the length field in the
+ * header of the one before, and decoded with the buffer's limit narrowed to
+ * that length, so a PDU that reads less or more than its length can't
+ * misalign the rest.<p>
+ *
+ * The decoder is normally a PDU factory's createPdu method, for either
+ * protocol version:
+ * <pre>
+ * PduFactory factory = new PduFactory();
+ * long detonations = PduSpliterator.stream(buff, -1, factory::createPdu, true)
+ *         .filter(pdu -&gt; pdu instanceof DetonationPdu)
+ *         .count();
+ * </pre>
+ *
+ * Nothing is copied, and a PDU is garbage once the consumer is done with it,
+ * so a mapped file of any size up to 2 GB can be walked in bounded memory.
+ * Splitting walks the length fields to the PDU nearest the middle of the
+ * remaining bytes, without decoding anything, so parallel streams divide the
+ * work evenly even when PDU sizes vary. PDUs the decoder returns null for,
+ * such as unknown types, and PDUs it fails on are skipped. Iteration stops
+ * at a PDU whose length field is shorter than a header or runs past the end
+ * of the data.
+ *
+ * @param <T> the PDU class decoded to
+ * @see PduContainerReader
+ */
+public class PduSpliterator<T> implements Spliterator<T> {
+
+    /**
+     * Size of the PDU header, which holds the length field
+     */
+    public static final int PDU_HEADER_SIZE = 12;
+
+    private static final Logger logger = Logger.getLogger(PduSpliterator.class.getName());
+
+    /** Below this many bytes a spliterator isn't split further */
+    private static final int MIN_SPLIT_BYTES = 64 * 1024;
+
+    private final ByteBuffer buff;
+    private final Function<ByteBuffer, ? extends T> decoder;
+    private int position;
+    private final int limit;
+    // PDUs left to read, or -1 to read to the limit
+    private long remaining;
+
+    /**
+     * @param buff the PDUs, from position to limit; the buffer itself is not
+     * changed
+     * @param count number of PDUs to read, or -1 to read to the limit
+     * @param decoder makes a PDU from a buffer positioned at its start and
+     * limited to its end
+     */
+    public PduSpliterator(ByteBuffer buff, long count, Function<ByteBuffer, ? extends T> decoder) {
+        this(buff.duplicate(), buff.position(), buff.limit(), count, decoder);
+    }
+
+    private PduSpliterator(ByteBuffer buff, int position, int limit, long count, Function<ByteBuffer, ? extends T> decoder) {
+        this.buff = buff;
+        this.position = position;
+        this.limit = limit;
+        this.remaining = count;
+        this.decoder = decoder;
+    }
+
+    /**
+     * @param parallel whether the stream is parallel
+     * @return a stream over the PDUs, see {@link #PduSpliterator(ByteBuffer, long, Function)}
+     */
+    public static <T> Stream<T> stream(ByteBuffer buff, long count, Function<ByteBuffer, ? extends T> decoder, boolean parallel) {
+        return StreamSupport.stream(new PduSpliterator<T>(buff, count, decoder), parallel);
+    }
+
+    /**
+     * @return the length of the PDU at a position, or -1 if there is no
+     * whole PDU there
+     */
+    private int lengthAt(int at) {
+        if (limit - at < PDU_HEADER_SIZE) {
+            return -1;
+        }
+        final int length = buff.getShort(at + 8) & 0xFFFF;
+        if (length < PDU_HEADER_SIZE || at + length > limit) {
+            logger.log(Level.INFO, "Stopped reading PDUs at offset " + at
+                    + ": PDU length " + length + " does not fit in " + (limit - at) + " remaining bytes");
+            return -1;
+        }
+        return length;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (remaining != 0) {
+            final int length = lengthAt(position);
+            if (length < 0) {
+                remaining = 0;
+                break;
+            }
+            final int start = position;
+            position += length;
+            if (remaining > 0) {
+                remaining--;
+            }
+            buff.limit(start + length).position(start);
+            T pdu = null;
+            try {
+                pdu = decoder.apply(buff);
+            } catch (RuntimeException e) {
+                logger.log(Level.INFO, "Skipped PDU at offset " + start, e);
+            } finally {
+                buff.limit(limit);
+            }
+            if (pdu != null) {
+                action.accept(pdu);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (limit - position < MIN_SPLIT_BYTES || remaining == 0 || remaining == 1) {
+            return null;
+        }
+        final int middle = position + (limit - position) / 2;
+        int at = position;
+        long count = 0;
+        while (at < middle) {
+            final int length = lengthAt(at);
+            if (length < 0) {
+                return null;
+            }
+            at += length;
+            count++;
+            if (remaining > 0 && count == remaining) {
+                return null;
+            }
+        }
+        final PduSpliterator<T> prefix = new PduSpliterator<T>(buff.duplicate(), position, at,
+                remaining < 0 ? -1 : count, decoder);
+        position = at;
+        if (remaining > 0) {
+            remaining -= count;
+        }
+        return prefix;
+    }
+
+    /**
+     * @return offset in the buffer of the next PDU; once iteration has
+     * stopped, of the first byte not read
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the number of PDUs left if known, otherwise a guess from the
+     * bytes left
+     */
+    @Override
+    public long estimateSize() {
+        return remaining >= 0 ? remaining : (limit - position) / PDU_HEADER_SIZE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
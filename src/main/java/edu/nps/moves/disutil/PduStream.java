@@ -8,6 +8,10 @@ import java.io.*;
 /**
  * Non-DIS class, used to describe streams of PDUs when logging to SQL databases
  *
+ * Unmarshalling reads every PDU into a list; to read a large stream one PDU at
+ * a time use {@link PduContainerReader}, and to write one use
+ * {@link PduContainerWriter}.
+ *
  * Copyright (c) 2008-2016, MOVES Institute, Naval Postgraduate School. All rights reserved.
  * This work is licensed under the BSD open source license, available at https://www.movesinstitute.org/licenses/bsd.html
  *
@@ -39,6 +43,9 @@ public class PduStream extends Object implements Serializable
    /** variable length list of PDUs */
    protected List< Pdu > pdusInStream = new ArrayList< Pdu >(); 
 
+   /** Decodes the PDUs in the stream */
+   private static final PduFactory factory = new PduFactory();
+
 /** Constructor */
  public PduStream()
  {
@@ -203,12 +210,11 @@ public void unmarshal(java.nio.ByteBuffer buff)
        startTime = buff.getLong();
        stopTime = buff.getLong();
        pduCount = buff.getInt();
-       for(int idx = 0; idx < pduCount; idx++)
-       {
-            Pdu anX = new Pdu();
-            anX.unmarshal(buff);
-            pdusInStream.add(anX);
-       }
+       // Each PDU is decoded to its own type, and the next found from the length in its header
+       PduSpliterator<Pdu> pdus = new PduSpliterator<Pdu>(buff, pduCount, factory::createPdu);
+       pdusInStream.clear();
+       pdus.forEachRemaining(pdusInStream::add);
+       buff.position(pdus.getPosition());
 
  } // end of unmarshal method 
 
@@ -0,0 +1,146 @@
+package edu.nps.moves.disutil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only flyweight over the header of a PDU held in a ByteBuffer. Fields
+ * are read on demand at fixed offsets, so inspecting a PDU this way creates no
+ * objects. A view is repositioned with {@link #wrap(ByteBuffer, int)} and can
+ * be reused for any number of PDUs.<p>
+ *
+ * The header layout is the same for protocol versions 6 and 7, so one view
+ * serves both; in version 7 the byte at offset 10 is the PDU status, in
+ * version 6 it is padding. The buffer is read with absolute gets, which leave
+ * its position alone and assume network (big endian) byte order. Nothing is
+ * validated beyond the buffer holding the fixed part of the PDU; use the
+ * object model in edu.nps.moves.dis or edu.nps.moves.dis7 when the whole PDU
+ * is needed.
+ */
+public class PduView {
+
+    /**
+     * Size in bytes of the PDU header
+     */
+    public static final int HEADER_SIZE = 12;
+
+    /**
+     * Size in bytes of an articulation or variable parameter record
+     */
+    public static final int PARAMETER_RECORD_SIZE = 16;
+
+    protected ByteBuffer buff;
+
+    protected int offset;
+
+    public PduView() {
+    }
+
+    /**
+     * Points this view at the PDU starting at <code>offset</code>.
+     *
+     * @param buff buffer holding the PDU
+     * @param offset absolute index of the first byte of the PDU header
+     * @return this view
+     * @throws IllegalArgumentException if the buffer is too short to hold the
+     * fixed part of the PDU
+     */
+    public PduView wrap(ByteBuffer buff, int offset) {
+        if (offset < 0 || offset + getFixedSize() > buff.limit()) {
+            throw new IllegalArgumentException("Buffer too short for " + getClass().getSimpleName() + " at offset " + offset);
+        }
+        this.buff = buff;
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Number of bytes that must be present for the fixed fields of the view
+     */
+    protected int getFixedSize() {
+        return HEADER_SIZE;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buff;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public short getProtocolVersion() {
+        return unsignedByte(0);
+    }
+
+    public short getExerciseID() {
+        return unsignedByte(1);
+    }
+
+    public short getPduType() {
+        return unsignedByte(2);
+    }
+
+    public short getProtocolFamily() {
+        return unsignedByte(3);
+    }
+
+    public long getTimestamp() {
+        return buff.getInt(offset + 4) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return the length in bytes reported in the PDU header
+     */
+    public int getPduLength() {
+        return unsignedShort(8);
+    }
+
+    /**
+     * @return the PDU status of a version 7 PDU; padding in version 6
+     */
+    public short getPduStatus() {
+        return unsignedByte(10);
+    }
+
+    /**
+     * Packs a site, application and entity number into the low 48 bits of a
+     * long, giving a compact key for an entity or other simulation object.
+     */
+    public static long entityKey(int site, int application, int entity) {
+        return ((long) (site & 0xFFFF) << 32) | ((long) (application & 0xFFFF) << 16) | (entity & 0xFFFF);
+    }
+
+    protected short unsignedByte(int at) {
+        return (short) (buff.get(offset + at) & 0xFF);
+    }
+
+    protected int unsignedShort(int at) {
+        return buff.getShort(offset + at) & 0xFFFF;
+    }
+
+    /**
+     * Reads a six byte site/application/entity triplet as a packed key.
+     */
+    protected long entityKeyAt(int at) {
+        return entityKey(unsignedShort(at), unsignedShort(at + 2), unsignedShort(at + 4));
+    }
+
+    /**
+     * Offset within the PDU of a sixteen byte articulation (version
+     * 6) or variable (version 7) parameter record.
+     *
+     * @param firstRecord offset of the first record within the PDU
+     * @param count number of records reported in the PDU
+     * @param index record index
+     */
+    protected int parameterRecordAt(int firstRecord, int count, int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Parameter record " + index + " of " + count);
+        }
+        final int at = firstRecord + index * PARAMETER_RECORD_SIZE;
+        if (offset + at + PARAMETER_RECORD_SIZE > buff.limit()) {
+            throw new IndexOutOfBoundsException("Parameter record " + index + " extends past the end of the buffer");
+        }
+        return at;
+    }
+}
@@ -0,0 +1,93 @@
+package edu.nps.moves.disutil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only flyweight over a Signal PDU (type 26) in a ByteBuffer. The layout
+ * is the same in protocol versions 6 and 7. The signal data is left in the
+ * buffer; {@link #getDataOffset()} gives its position for callers that want to
+ * read it in place.
+ *
+ * @see edu.nps.moves.dis.SignalPdu
+ * @see edu.nps.moves.dis7.SignalPdu
+ */
+public class SignalPduView extends PduView {
+
+    private static final int ENTITY_ID = 12;
+    private static final int RADIO_ID = 18;
+    private static final int ENCODING_SCHEME = 20;
+    private static final int TDL_TYPE = 22;
+    private static final int SAMPLE_RATE = 24;
+    private static final int DATA_LENGTH = 28;
+    private static final int SAMPLES = 30;
+    private static final int DATA = 32;
+
+    public SignalPduView() {
+    }
+
+    @Override
+    public SignalPduView wrap(ByteBuffer buff, int offset) {
+        super.wrap(buff, offset);
+        return this;
+    }
+
+    @Override
+    protected int getFixedSize() {
+        return DATA;
+    }
+
+    public long getEntityKey() {
+        return entityKeyAt(ENTITY_ID);
+    }
+
+    public int getRadioId() {
+        return unsignedShort(RADIO_ID);
+    }
+
+    public int getEncodingScheme() {
+        return unsignedShort(ENCODING_SCHEME);
+    }
+
+    public int getTdlType() {
+        return unsignedShort(TDL_TYPE);
+    }
+
+    public int getSampleRate() {
+        return buff.getInt(offset + SAMPLE_RATE);
+    }
+
+    /**
+     * @return length of the signal data in bits
+     */
+    public int getDataLength() {
+        return unsignedShort(DATA_LENGTH);
+    }
+
+    public int getSamples() {
+        return unsignedShort(SAMPLES);
+    }
+
+    /**
+     * @return absolute index in the buffer of the first byte of signal data
+     */
+    public int getDataOffset() {
+        return offset + DATA;
+    }
+
+    /**
+     * Copies the signal data into <code>dst</code>.
+     *
+     * @param dst destination, at least getDataLength() / 8 bytes long
+     * @return number of bytes copied
+     */
+    public int getData(byte[] dst) {
+        final int length = getDataLength() / Byte.SIZE;
+        if (length > dst.length || getDataOffset() + length > buff.limit()) {
+            throw new IndexOutOfBoundsException("Signal data of " + length + " bytes");
+        }
+        for (int i = 0; i < length; i++) {
+            dst[i] = buff.get(getDataOffset() + i);
+        }
+        return length;
+    }
+}
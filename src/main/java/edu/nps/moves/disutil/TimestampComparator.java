@@ -3,6 +3,7 @@ package edu.nps.moves.disutil;
 
 
 import edu.nps.moves.dis.*;
+import java.util.Comparator;
 
 /**
  * Uses the comparator interface to allow sorting PDUs in a collection by timestamp.
@@ -10,29 +11,59 @@ import edu.nps.moves.dis.*;
  *
  * Colletions.sort(pduList, new TimestampComparator());
  *
+ * Timestamps are compared as DIS time: the absolute/relative bit is ignored,
+ * and since the time rolls over at the top of every hour, a timestamp just
+ * after the top of the hour is later than one just before it. Timestamps half
+ * an hour or more apart can't be ordered this way, so the ordering is only
+ * consistent for PDUs stamped within the same half hour.
+ *
  * @author DMcG
+ * @see PduReorderBuffer
  */
-public class TimestampComparator 
+public class TimestampComparator implements Comparator<Pdu>
 {
+    private static final long UNITS_PER_HOUR = DisTime.DIS_TIME_UNITS_PER_HOUR;
+
     /**
      * Returns a number less than, equal to, or greater than zero,
-     * depending on whether the object's timestamp less than, equal to,
-     * or greater than the other object. The objects passed in must
-     * inherit from PDU.
+     * depending on whether the first PDU's timestamp is earlier than, equal
+     * to, or later than the second's.
+     */
+    @Override
+    public int compare(Pdu pdu1, Pdu pdu2)
+    {
+        return compareTimestamps(pdu1.getTimestamp(), pdu2.getTimestamp());
+    }
+
+    /**
+     * Compares two DIS timestamps, allowing for the hourly rollover.
+     *
+     * @return a number less than, equal to, or greater than zero, depending on
+     * whether the first timestamp is earlier than, equal to, or later than the
+     * second
      */
-    public int compare(Object object1, Object object2)
+    public static int compareTimestamps(long timestamp1, long timestamp2)
     {
-        // Should exception throw here...
-        if( (!(object1 instanceof Pdu)) || (!(object2 instanceof Pdu)) )
+        return Long.signum(unitsBetween(timestamp2, timestamp1));
+    }
+
+    /**
+     * Number of DIS time units from one timestamp to another, in the range
+     * -(2^31 - 1)/2 to (2^31 - 1)/2, ie taking whichever way round the hour is
+     * shorter.
+     */
+    public static long unitsBetween(long from, long to)
+    {
+        long units = (((to & 0xFFFFFFFFL) >>> 1) - ((from & 0xFFFFFFFFL) >>> 1)) % UNITS_PER_HOUR;
+        if (units > UNITS_PER_HOUR / 2)
         {
-            throw new RuntimeException("TimestampComparator: attempting to sort objects that are not Pdus.");
+            units -= UNITS_PER_HOUR;
         }
-            
-        
-        Pdu pdu1 = (Pdu)object1;
-        Pdu pdu2 = (Pdu)object2;
-
-        return (int)(pdu1.getTimestamp() - pdu2.getTimestamp());
+        else if (units < -(UNITS_PER_HOUR / 2))
+        {
+            units += UNITS_PER_HOUR;
+        }
+        return units;
     }
 
     /**
@@ -43,8 +74,13 @@ public class TimestampComparator
  @Override
  public boolean equals(Object obj)
  {
-     return obj.getClass().equals(this.getClass());
+     return obj != null && obj.getClass().equals(this.getClass());
  }
 
+ @Override
+ public int hashCode()
+ {
+     return getClass().hashCode();
+ }
 
 }
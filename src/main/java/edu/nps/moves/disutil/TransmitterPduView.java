@@ -0,0 +1,163 @@
+package edu.nps.moves.disutil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only flyweight over the fixed part of a Transmitter PDU (type 25) in a
+ * ByteBuffer. The layout is the same in protocol versions 6 and 7; modulation
+ * and antenna pattern parameters that follow the fixed part are not
+ * interpreted.
+ *
+ * @see edu.nps.moves.dis.TransmitterPdu
+ * @see edu.nps.moves.dis7.TransmitterPdu
+ */
+public class TransmitterPduView extends PduView {
+
+    private static final int ENTITY_ID = 12;
+    private static final int RADIO_ID = 18;
+    private static final int RADIO_ENTITY_TYPE = 20;
+    private static final int TRANSMIT_STATE = 28;
+    private static final int INPUT_SOURCE = 29;
+    private static final int VARIABLE_TRANSMITTER_PARAMETER_COUNT = 30;
+    private static final int ANTENNA_LOCATION = 32;
+    private static final int RELATIVE_ANTENNA_LOCATION = 56;
+    private static final int ANTENNA_PATTERN_TYPE = 68;
+    private static final int ANTENNA_PATTERN_COUNT = 70;
+    private static final int FREQUENCY = 72;
+    private static final int TRANSMIT_FREQUENCY_BANDWIDTH = 80;
+    private static final int POWER = 84;
+    private static final int MODULATION_TYPE = 88;
+    private static final int CRYPTO_SYSTEM = 96;
+    private static final int CRYPTO_KEY_ID = 98;
+    private static final int MODULATION_PARAMETER_COUNT = 100;
+    private static final int SIZE = 104;
+
+    public TransmitterPduView() {
+    }
+
+    @Override
+    public TransmitterPduView wrap(ByteBuffer buff, int offset) {
+        super.wrap(buff, offset);
+        return this;
+    }
+
+    @Override
+    protected int getFixedSize() {
+        return SIZE;
+    }
+
+    public long getEntityKey() {
+        return entityKeyAt(ENTITY_ID);
+    }
+
+    public int getRadioId() {
+        return unsignedShort(RADIO_ID);
+    }
+
+    public short getRadioKind() {
+        return unsignedByte(RADIO_ENTITY_TYPE);
+    }
+
+    public short getRadioDomain() {
+        return unsignedByte(RADIO_ENTITY_TYPE + 1);
+    }
+
+    public int getRadioCountry() {
+        return unsignedShort(RADIO_ENTITY_TYPE + 2);
+    }
+
+    public short getRadioCategory() {
+        return unsignedByte(RADIO_ENTITY_TYPE + 4);
+    }
+
+    public short getTransmitState() {
+        return unsignedByte(TRANSMIT_STATE);
+    }
+
+    public short getInputSource() {
+        return unsignedByte(INPUT_SOURCE);
+    }
+
+    /**
+     * @return the variable transmitter parameter count (version 7); padding in
+     * version 6
+     */
+    public int getVariableTransmitterParameterCount() {
+        return unsignedShort(VARIABLE_TRANSMITTER_PARAMETER_COUNT);
+    }
+
+    public double getAntennaLocationX() {
+        return buff.getDouble(offset + ANTENNA_LOCATION);
+    }
+
+    public double getAntennaLocationY() {
+        return buff.getDouble(offset + ANTENNA_LOCATION + 8);
+    }
+
+    public double getAntennaLocationZ() {
+        return buff.getDouble(offset + ANTENNA_LOCATION + 16);
+    }
+
+    public float getRelativeAntennaLocationX() {
+        return buff.getFloat(offset + RELATIVE_ANTENNA_LOCATION);
+    }
+
+    public float getRelativeAntennaLocationY() {
+        return buff.getFloat(offset + RELATIVE_ANTENNA_LOCATION + 4);
+    }
+
+    public float getRelativeAntennaLocationZ() {
+        return buff.getFloat(offset + RELATIVE_ANTENNA_LOCATION + 8);
+    }
+
+    public int getAntennaPatternType() {
+        return unsignedShort(ANTENNA_PATTERN_TYPE);
+    }
+
+    public int getAntennaPatternCount() {
+        return unsignedShort(ANTENNA_PATTERN_COUNT);
+    }
+
+    /**
+     * @return center frequency in Hz
+     */
+    public long getFrequency() {
+        return buff.getLong(offset + FREQUENCY);
+    }
+
+    public float getTransmitFrequencyBandwidth() {
+        return buff.getFloat(offset + TRANSMIT_FREQUENCY_BANDWIDTH);
+    }
+
+    public float getPower() {
+        return buff.getFloat(offset + POWER);
+    }
+
+    public int getSpreadSpectrum() {
+        return unsignedShort(MODULATION_TYPE);
+    }
+
+    public int getMajorModulation() {
+        return unsignedShort(MODULATION_TYPE + 2);
+    }
+
+    public int getDetailedModulation() {
+        return unsignedShort(MODULATION_TYPE + 4);
+    }
+
+    public int getRadioSystem() {
+        return unsignedShort(MODULATION_TYPE + 6);
+    }
+
+    public int getCryptoSystem() {
+        return unsignedShort(CRYPTO_SYSTEM);
+    }
+
+    public int getCryptoKeyId() {
+        return unsignedShort(CRYPTO_KEY_ID);
+    }
+
+    public short getModulationParameterCount() {
+        return unsignedByte(MODULATION_PARAMETER_COUNT);
+    }
+}
@@ -2,41 +2,43 @@ package edu.nps.moves.logger;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 
-import edu.nps.moves.dis.*;
 import edu.nps.moves.disutil.*;
 
 
 /**
- * Logs DIS packets to XML format. You can easily receive DIS packets off the wire faster than
- * they can be logged to XML, so you need to be careful about that. With a 2 GHz
- * core duo and OSX, on a macbook pro laptop drive, you can log roughly 1,000 
- * packets per second.<p>
- * 
- * Since we cannot hold all the PDUs in memory at once, we set up a rotating 
- * system in which packets are read into a list, then, when the list is full,
- * the list is handed off to a separate thread for marshalling to XML. This 
- * gives us at least a chance of not dropping packets while writing to file.<p>
+ * Logs DIS packets to binary recording files. Each datagram received is split
+ * into its PDUs, and the bytes of each PDU are handed to a {@link LogWriter}
+ * along with the time they arrived; nothing is decoded or re-marshalled, so
+ * the recording is exactly what was on the wire. The log writer batches the
+ * PDUs into large writes in a separate thread, which gives us a fighting
+ * chance of not dropping packets while writing to file.<p>
  * 
  * The classes here and in LogReplay are intended to be used from the command
  * line, but it should be easy to wrap a GUI around them.<p>
  * 
  * the classes are configured via a properties file. this defines the multicast
- * group to listen on, the directory to which files should be written, etc.
+ * group to listen on, the directory to which files should be written, and
+ * optionally the size (maxFileMegabytes) and age (maxFileSeconds) at which a
+ * new log file is started. Optional comma separated lists of exerciseIds,
+ * pduTypes and pduFamilies limit what is logged; PDUs outside them are
+ * dropped by a {@link PduFilter} that looks only at their headers.
  * 
  * @author DMcG
  * @version $Id:$
  */
 public class DisLogger implements Runnable {
 
-    /** Maximum PDU size. Theoretically this can be 8K or more, but all our stuff is smaller */
-    public static final int MAX_PDU_SIZE = 2048;
-    public static final int MAX_PDU_LOGFILE_SIZE = 100;
+    /** Maximum datagram size. A datagram may hold several PDUs */
+    public static final int MAX_PDU_SIZE = 65507;
     /** How long to wait for a packet to arrive, in ms, before throwing an exception */
     public static final int READ_TIMEOUT = 5000;
-    /** How many PDUs to save per file */
-    private int pdusPerFile;
+    /** Size at which a new log file is started, or -1 for the LogWriter default */
+    private long maxFileBytes = -1;
+    /** Age at which a new log file is started, or -1 for the LogWriter default */
+    private long maxFileMillis = -1;
     /** Multicast group to listen on */
     private InetAddress multicastGroup;
     /** port to listen on */
@@ -46,8 +48,10 @@ public class DisLogger implements Runnable {
     /** socket to listen for PDUs */
     private MulticastSocket socket;
     /** should we continue reading?*/
-    private boolean done = false;
+    private volatile boolean done = false;
     private LogWriter logWriter;
+    /** Drops unwanted PDUs before they are logged, or null to log all */
+    private PduFilter filter;
 
     /** Breaks us out of network read log loop (perhaps after READ_TIMEOUT has passed */
     public void setDone() {
@@ -56,13 +60,18 @@ public class DisLogger implements Runnable {
 
     /**
      * Create a new DIS logger with the given properties object. This includes the
-     * multicast group, port, an exercise name, and the number of pdus per file 
+     * multicast group, port, an exercise name, and optionally the maximum size
+     * and age of each log file
      */
     public DisLogger(Properties loggerProperties) {
         String stringMulticastGroup = loggerProperties.getProperty("multicastGroup");
         String stringPort = loggerProperties.getProperty("port");
         exerciseName = loggerProperties.getProperty("exerciseName");
-        String stringPdusPerFile = loggerProperties.getProperty("pdusPerFile");
+        String stringMaxFileMegabytes = loggerProperties.getProperty("maxFileMegabytes");
+        String stringMaxFileSeconds = loggerProperties.getProperty("maxFileSeconds");
+        String stringExerciseIds = loggerProperties.getProperty("exerciseIds");
+        String stringPduTypes = loggerProperties.getProperty("pduTypes");
+        String stringPduFamilies = loggerProperties.getProperty("pduFamilies");
 
 
         System.out.println("Multicast group: " + stringMulticastGroup + " port:" + stringPort +
@@ -70,7 +79,18 @@ public class DisLogger implements Runnable {
 
         try {
             port = Integer.parseInt(stringPort);
-            pdusPerFile = Integer.parseInt(stringPdusPerFile);
+            if (stringMaxFileMegabytes != null) {
+                maxFileBytes = Long.parseLong(stringMaxFileMegabytes) * 1024 * 1024;
+            }
+            if (stringMaxFileSeconds != null) {
+                maxFileMillis = Long.parseLong(stringMaxFileSeconds) * 1000;
+            }
+            if (stringExerciseIds != null || stringPduTypes != null || stringPduFamilies != null) {
+                filter = new PduFilter();
+                filter.setExercises(parseList(stringExerciseIds));
+                filter.setPduTypes(parseList(stringPduTypes));
+                filter.setProtocolFamilies(parseList(stringPduFamilies));
+            }
             multicastGroup = InetAddress.getByName(stringMulticastGroup);
             if (multicastGroup.isMulticastAddress() == false) {
                 System.out.println("The address " + stringMulticastGroup + " is not a multicast address");
@@ -89,78 +109,117 @@ public class DisLogger implements Runnable {
     }
 
     /**
-     * Run the logger. Create a new factory to decode IEEE format PDUs, and start reading
-     * into the buffer. When the buffer fills we do a quick-change and write the buffer to
-     * a file in another thread, so we don't drop (too many) packets.
+     * Parses a comma separated list of numbers; null gives an empty list.
+     */
+    private static int[] parseList(String list) {
+        if (list == null || list.trim().isEmpty()) {
+            return new int[0];
+        }
+        String[] items = list.split(",");
+        int[] values = new int[items.length];
+        for (int idx = 0; idx < items.length; idx++) {
+            values[idx] = Integer.parseInt(items[idx].trim());
+        }
+        return values;
+    }
+
+    /**
+     * Sets the filter PDUs must pass to be logged, replacing any set from the
+     * properties. Set it before the logger is started.
+     *
+     * @param filter the filter, or null to log everything
+     */
+    public void setFilter(PduFilter filter) {
+        this.filter = filter;
+    }
+
+    public PduFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Run the logger. Start the log writer thread and hand it the bytes of
+     * every PDU received until told to stop, then wait for the writer to get
+     * everything onto disk.
      */
     public void run() {
-        PduFactory pduFactory = new PduFactory();
-        Pdu pdu;
-        List<Pdu> currentPduList = new ArrayList<Pdu>(100);
-        boolean timedout = false;
-        int count = 0;
+        DisTime clock = DisTime.getInstance();
+        byte buffer[] = new byte[MAX_PDU_SIZE];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        ByteBuffer datagram = ByteBuffer.wrap(buffer);
+        long count = 0;
 
         if (logWriter == null) {
             logWriter = new LogWriter(exerciseName);
+            if (maxFileBytes > 0) {
+                logWriter.setMaxFileBytes(maxFileBytes);
+            }
+            if (maxFileMillis > 0) {
+                logWriter.setMaxFileMillis(maxFileMillis);
+            }
             Thread writerThread = new Thread(logWriter);
             writerThread.setDaemon(false);
             writerThread.start();
-            Thread.yield();
         }
 
         System.out.println("Starting to listen for PDUs");
         while (done == false) {
-            byte buffer[] = new byte[MAX_PDU_SIZE];
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-
             try {
-                try {
-                    socket.receive(packet);
-                    logWriter.setUnqueuedPdus(true);
-                    count++;
-                } catch (SocketTimeoutException ste) {
-                    timedout = true; // should only happen if we exceed read timeout limit
-                }
-
-                if (timedout == false) {
-                    // Convert the byte array to an object
-                    byte pduBytes[] = packet.getData();
-                    pdu = pduFactory.createPdu(pduBytes);
-
-                    // If we got back a valid packet, add it to our list
-                    if (pdu != null) {
-                        currentPduList.add(pdu);
-                    }
-
-                } // end of timed out
-
-                // Once we pass a threshold of the number of PDUs we want per
-                // file, we write those out to a log file. We do this in a 
-                // separate thread so that we have a fighting chance of keeping
-                // up with new incoming PDUs. we also write to file if the user
-                // has specified he's done reading. We 
-                if ((currentPduList.size() > pdusPerFile) || (done == true)) {
-                    List<Pdu> pdusToLog = currentPduList;
-                    currentPduList = new ArrayList<Pdu>();
-
-                    // Tell the log writer thread to log this batch of PDUs. It
-                    // may already be involved in writing a list, so we add it to
-                    // a queue and the writer task will get to it as it can.
-                    logWriter.addListToWriteQueue(pdusToLog);
-                    logWriter.setUnqueuedPdus(false);
-                    Thread.yield(); // give writer task an opportunity to be scheduled
-                }
-
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+            } catch (SocketTimeoutException ste) {
+                continue; // should only happen if we exceed read timeout limit
             } catch (Exception e) {
                 System.out.println(e);
+                continue;
             }
 
-            timedout = false;
-
+            long captureTime = clock.getEpochNanos();
+            try {
+                count += logDatagram(datagram, packet.getLength(), captureTime);
+            } catch (Exception e) {
+                System.out.println(e);
+            }
         } // end loop
 
+        try {
+            logWriter.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         System.out.println("PDUs captured: " + count);
+        if (filter != null) {
+            System.out.println("PDUs filtered out: " + filter.getRejectedCount());
+        }
+
+    }
 
+    /**
+     * Hands each PDU in a datagram to the log writer. The PDU length field is
+     * used to find the PDUs in a bundle; if it doesn't fit, the rest of the
+     * datagram is logged as one record. PDUs the filter rejects are skipped.
+     *
+     * @return number of PDUs logged
+     */
+    private int logDatagram(ByteBuffer datagram, int length, long captureTime) throws InterruptedException {
+        int pdus = 0;
+        int position = 0;
+        while (length - position >= PduView.HEADER_SIZE) {
+            int pduLength = datagram.getShort(position + 8) & 0xFFFF;
+            if (pduLength < PduView.HEADER_SIZE || pduLength > length - position) {
+                pduLength = length - position;
+            }
+            if (filter != null && !filter.accept(datagram, position, pduLength)) {
+                position += pduLength;
+                continue;
+            }
+            datagram.limit(position + pduLength).position(position);
+            logWriter.write(datagram, captureTime);
+            datagram.clear();
+            position += pduLength;
+            pdus++;
+        }
+        return pdus;
     }
 
     /**
@@ -0,0 +1,420 @@
+package edu.nps.moves.logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import edu.nps.moves.dis.Pdu;
+import edu.nps.moves.disutil.PduFactory;
+import edu.nps.moves.disutil.PduStream;
+import edu.nps.moves.disutil.PduView;
+
+import static edu.nps.moves.logger.IndexedRecordingWriter.*;
+
+/**
+ * Random access to a recording written by {@link IndexedRecordingWriter}. The
+ * file is mapped into memory rather than read, so opening even a very large
+ * recording only reads the header and the time index, and a PDU's bytes are
+ * only touched when it is looked at.<p>
+ *
+ * Frames are identified by their position in the file. Start from
+ * {@link #getFirstFrame()} or from {@link #seek(long)}, which finds the first
+ * frame captured at or after a time with a binary search of the time index
+ * and a short scan, and step with {@link #nextFrame(long)} until
+ * {@link #getFramesEnd()}. {@link #getPdu(long)} gives a frame's bytes as a
+ * view of the mapped file, and {@link #decode(long, PduFactory)} unmarshals
+ * them only when asked. {@link #getEntityFrames(int, int, int)} lists the
+ * frames about one entity from the entity index.<p>
+ *
+ * Example, replaying from two hours fifteen minutes in:
+ * <pre>
+ * IndexedRecording recording = new IndexedRecording(file);
+ * PduFactory factory = new PduFactory();
+ * long end = recording.getFramesEnd();
+ * for (long frame = recording.seekElapsed(TimeUnit.MINUTES.toNanos(135)); frame &lt; end;
+ *         frame = recording.nextFrame(frame)) {
+ *     Pdu pdu = recording.decode(frame, factory);
+ * }
+ * </pre>
+ *
+ * A recording whose writer was never closed has no indexes; they are rebuilt
+ * in memory by scanning the frames, stopping at the first incomplete one.
+ * Files larger than 2 GB are mapped in several overlapping regions, so every
+ * frame lies within one region. Reading is thread safe.
+ */
+public class IndexedRecording implements Closeable {
+
+    static final int DEFAULT_REGION_SHIFT = 30;
+
+    private static final int OVERLAP = FRAME_HEADER_SIZE + LogWriter.MAX_PDU_SIZE;
+
+    private final int regionShift;
+    private final long regionMask;
+    private volatile MappedByteBuffer[] regions;
+    private final long size;
+
+    private final long startTime;
+    private final long stopTime;
+    private final long pduCount;
+    private final long framesEnd;
+    private final boolean recovered;
+
+    private final long[] indexTimes;
+    private final long[] indexPositions;
+
+    private final long[] entityKeys;
+    // for a closed recording, where each entity's postings start in the file
+    private final long[] postingsAt;
+    private final int[] postingsCount;
+    // for a recovered recording, the postings themselves
+    private final long[][] postings;
+
+    /**
+     * Opens and maps a recording.
+     *
+     * @param file the recording
+     * @throws IOException if the file can't be read or isn't an indexed recording
+     */
+    public IndexedRecording(File file) throws IOException {
+        this(file, DEFAULT_REGION_SHIFT);
+    }
+
+    /**
+     * @param regionShift log2 of the spacing of the mapped regions
+     */
+    IndexedRecording(File file, int regionShift) throws IOException {
+        this.regionShift = regionShift;
+        regionMask = (1L << regionShift) - 1;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException(file + " is too short to be a recording");
+            }
+            final int count = (int) ((size - 1) >>> regionShift) + 1;
+            regions = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                final long start = (long) i << regionShift;
+                final long length = Math.min(size - start, (1L << regionShift) + OVERLAP);
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+        }
+        if (longAt(0) != MAGIC) {
+            throw new IOException(file + " is not an indexed recording");
+        }
+
+        final long timeIndexAt = longAt(TIME_INDEX_AT);
+        if (timeIndexAt != 0) {
+            recovered = false;
+            startTime = longAt(START_TIME_AT);
+            stopTime = longAt(STOP_TIME_AT);
+            pduCount = longAt(PDU_COUNT_AT);
+            framesEnd = timeIndexAt;
+
+            final int indexCount = (int) longAt(TIME_INDEX_COUNT_AT);
+            indexTimes = new long[indexCount];
+            indexPositions = new long[indexCount];
+            for (int i = 0; i < indexCount; i++) {
+                indexTimes[i] = longAt(timeIndexAt + 16L * i);
+                indexPositions[i] = longAt(timeIndexAt + 16L * i + 8);
+            }
+
+            final long entityIndexAt = longAt(ENTITY_INDEX_AT);
+            final int entityCount = (int) longAt(ENTITY_COUNT_AT);
+            entityKeys = new long[entityCount];
+            postingsAt = new long[entityCount];
+            postingsCount = new int[entityCount];
+            for (int i = 0; i < entityCount; i++) {
+                final long entry = entityIndexAt + (long) ENTITY_ENTRY_SIZE * i;
+                entityKeys[i] = longAt(entry);
+                postingsAt[i] = longAt(entry + 8);
+                postingsCount[i] = (int) longAt(entry + 16);
+            }
+            postings = null;
+        } else {
+            recovered = true;
+            long[] times = new long[1024];
+            long[] positions = new long[1024];
+            int indexCount = 0;
+            final Map<Long, IndexedRecordingWriter.Postings> entities = new HashMap<Long, IndexedRecordingWriter.Postings>();
+            long count = 0;
+            long first = 0;
+            long last = 0;
+            long frame = HEADER_SIZE;
+            while (frame + FRAME_HEADER_SIZE <= size) {
+                final int length = intAt(frame + 8);
+                if (length < 0 || length > LogWriter.MAX_PDU_SIZE || frame + FRAME_HEADER_SIZE + length > size) {
+                    break;
+                }
+                final long time = longAt(frame);
+                if (count == 0) {
+                    first = time;
+                }
+                last = time;
+                if (count % DEFAULT_INDEX_INTERVAL == 0) {
+                    if (indexCount == times.length) {
+                        times = Arrays.copyOf(times, indexCount * 2);
+                        positions = Arrays.copyOf(positions, indexCount * 2);
+                    }
+                    times[indexCount] = time;
+                    positions[indexCount] = frame;
+                    indexCount++;
+                }
+                final long key = entityKeyOf(region(frame), offset(frame) + FRAME_HEADER_SIZE, length);
+                if (key != NO_ENTITY) {
+                    IndexedRecordingWriter.Postings list = entities.get(key);
+                    if (list == null) {
+                        list = new IndexedRecordingWriter.Postings();
+                        entities.put(key, list);
+                    }
+                    list.add(frame);
+                }
+                count++;
+                frame += FRAME_HEADER_SIZE + length;
+            }
+            startTime = first;
+            stopTime = last;
+            pduCount = count;
+            framesEnd = frame;
+            indexTimes = Arrays.copyOf(times, indexCount);
+            indexPositions = Arrays.copyOf(positions, indexCount);
+
+            entityKeys = new long[entities.size()];
+            int k = 0;
+            for (Long key : entities.keySet()) {
+                entityKeys[k++] = key;
+            }
+            Arrays.sort(entityKeys);
+            postings = new long[entityKeys.length][];
+            for (int i = 0; i < entityKeys.length; i++) {
+                final IndexedRecordingWriter.Postings list = entities.get(entityKeys[i]);
+                postings[i] = Arrays.copyOf(list.positions, list.size);
+            }
+            postingsAt = null;
+            postingsCount = null;
+        }
+    }
+
+    private ByteBuffer region(long position) {
+        if (regions == null) {
+            throw new IllegalStateException("Recording is closed");
+        }
+        return regions[(int) (position >>> regionShift)];
+    }
+
+    private int offset(long position) {
+        return (int) (position & regionMask);
+    }
+
+    private long longAt(long position) {
+        return region(position).getLong(offset(position));
+    }
+
+    private int intAt(long position) {
+        return region(position).getInt(offset(position));
+    }
+
+    /**
+     * The recording's descriptions, start and stop times and PDU count, with
+     * no PDUs. The times are in Unix time, seconds since 1970; note that
+     * {@link PduStream#getPduCount()} counts the stream's PDU list, so use
+     * {@link #getPduCount()} instead.
+     */
+    public PduStream getStream() {
+        final PduStream stream = new PduStream();
+        stream.setShortDescription(bytesAt(8, SHORT_DESCRIPTION_SIZE));
+        stream.setLongDescription(bytesAt(8 + SHORT_DESCRIPTION_SIZE, LONG_DESCRIPTION_SIZE));
+        stream.setPersonRecording(bytesAt(8 + SHORT_DESCRIPTION_SIZE + LONG_DESCRIPTION_SIZE, PERSON_SIZE));
+        stream.setAuthorEmail(bytesAt(START_TIME_AT - EMAIL_SIZE, EMAIL_SIZE));
+        stream.setStartTime(Math.floorDiv(startTime, 1000000000L));
+        stream.setStopTime(Math.floorDiv(stopTime, 1000000000L));
+        stream.setPduCount(pduCount);
+        return stream;
+    }
+
+    private byte[] bytesAt(int position, int length) {
+        final byte[] bytes = new byte[length];
+        final ByteBuffer header = region(0).duplicate();
+        header.position(position);
+        header.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return capture time of the first PDU, nanoseconds since 1970
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return capture time of the last PDU, nanoseconds since 1970
+     */
+    public long getStopTime() {
+        return stopTime;
+    }
+
+    public long getPduCount() {
+        return pduCount;
+    }
+
+    /**
+     * @return true if the writer was not closed and the indexes were rebuilt
+     * by scanning the file
+     */
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    /**
+     * @return position of the first frame, or {@link #getFramesEnd()} if
+     * there are none
+     */
+    public long getFirstFrame() {
+        return pduCount == 0 ? framesEnd : HEADER_SIZE;
+    }
+
+    /**
+     * @return position just past the last frame
+     */
+    public long getFramesEnd() {
+        return framesEnd;
+    }
+
+    /**
+     * Finds the first frame captured at or after a time.
+     *
+     * @param captureNanos nanoseconds since 1970
+     * @return the frame position, or {@link #getFramesEnd()} if every frame
+     * was captured earlier
+     */
+    public long seek(long captureNanos) {
+        // last index entry before the time; the frame wanted is at most one
+        // index interval after it
+        int low = 0;
+        int high = indexTimes.length - 1;
+        int entry = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (indexTimes[mid] < captureNanos) {
+                entry = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        long frame = entry < 0 ? getFirstFrame() : indexPositions[entry];
+        while (frame < framesEnd && longAt(frame) < captureNanos) {
+            frame = nextFrame(frame);
+        }
+        return frame;
+    }
+
+    /**
+     * Finds the first frame captured at or after a time from the start of
+     * the recording, so <code>seekElapsed(TimeUnit.MINUTES.toNanos(135))</code>
+     * finds T+02:15:00.
+     *
+     * @param elapsedNanos nanoseconds after {@link #getStartTime()}
+     * @return the frame position, or {@link #getFramesEnd()}
+     */
+    public long seekElapsed(long elapsedNanos) {
+        return seek(startTime + elapsedNanos);
+    }
+
+    /**
+     * @return position of the frame after this one
+     */
+    public long nextFrame(long frame) {
+        return frame + FRAME_HEADER_SIZE + getLength(frame);
+    }
+
+    /**
+     * @return capture time of a frame, nanoseconds since 1970
+     */
+    public long getCaptureTime(long frame) {
+        return longAt(frame);
+    }
+
+    /**
+     * @return length of a frame's PDU
+     */
+    public int getLength(long frame) {
+        return intAt(frame + 8);
+    }
+
+    /**
+     * @return the DIS timestamp in a frame's PDU header
+     */
+    public int getTimestamp(long frame) {
+        return intAt(frame + FRAME_HEADER_SIZE + 4);
+    }
+
+    /**
+     * A frame's PDU, as a read only view of the mapped file from position 0
+     * to the PDU's length. Nothing is copied.
+     */
+    public ByteBuffer getPdu(long frame) {
+        final ByteBuffer pdu = region(frame).duplicate();
+        final int start = offset(frame) + FRAME_HEADER_SIZE;
+        pdu.limit(start + getLength(frame)).position(start);
+        return pdu.slice();
+    }
+
+    /**
+     * Unmarshals a frame's PDU.
+     *
+     * @return the PDU, or null if the factory can't make it
+     */
+    public Pdu decode(long frame, PduFactory factory) {
+        return factory.createPdu(getPdu(frame));
+    }
+
+    /**
+     * @return keys of the entities in the entity index, in increasing order,
+     * see {@link PduView#entityKey(int, int, int)}
+     */
+    public long[] getEntityKeys() {
+        return entityKeys.clone();
+    }
+
+    /**
+     * Lists the frames of the entity information family PDUs (entity state,
+     * collision, entity state update) about an entity.
+     *
+     * @return frame positions in capture order; empty if there are none
+     */
+    public long[] getEntityFrames(int site, int application, int entity) {
+        return getEntityFrames(PduView.entityKey(site, application, entity));
+    }
+
+    /**
+     * @param entityKey see {@link PduView#entityKey(int, int, int)}
+     * @return frame positions in capture order; empty if there are none
+     */
+    public long[] getEntityFrames(long entityKey) {
+        final int i = Arrays.binarySearch(entityKeys, entityKey);
+        if (i < 0) {
+            return new long[0];
+        }
+        if (postings != null) {
+            return postings[i].clone();
+        }
+        final long[] frames = new long[postingsCount[i]];
+        for (int j = 0; j < frames.length; j++) {
+            frames[j] = longAt(postingsAt[i] + 8L * j);
+        }
+        return frames;
+    }
+
+    /**
+     * Drops the mappings. They are unmapped when garbage collected; views
+     * from {@link #getPdu(long)} remain usable until then.
+     */
+    @Override
+    public void close() {
+        regions = null;
+    }
+}
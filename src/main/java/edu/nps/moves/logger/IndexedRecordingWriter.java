@@ -0,0 +1,366 @@
+package edu.nps.moves.logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import edu.nps.moves.disutil.PduStream;
+import edu.nps.moves.disutil.PduView;
+
+/**
+ * Writes a single file recording with a time index and a per-entity index, to
+ * be read with {@link IndexedRecording}.<p>
+ *
+ * The file starts with a {@value #HEADER_SIZE} byte header laid out like the
+ * header of a {@link PduStream}: the long {@link #MAGIC}, the short and long
+ * descriptions, the person recording and their email, the start and stop
+ * times, and the PDU count, followed by the positions and sizes of the two
+ * indexes. Start and stop times are capture times in nanoseconds since 1970.
+ * Then come the frames, in the same form as {@link LogWriter} records: the
+ * long capture time, the int length, and the PDU bytes as received. After the
+ * frames come the time index, the (time, position) of every
+ * {@link #setIndexInterval(int) n}th frame, and the entity index, a table of
+ * (entity key, postings position, count) sorted by key, followed by the
+ * positions of every entity information family PDU (entity state, collision,
+ * entity state update) sent about each entity. All values are big endian.<p>
+ *
+ * The header is written with zero index positions and filled in by
+ * {@link #close()}, so a recording cut short by a crash can still be read;
+ * {@link IndexedRecording} then rebuilds the indexes by scanning the frames.
+ * Capture times must not go backwards: a frame captured before the previous
+ * one is recorded with the previous frame's time, which keeps the time index
+ * searchable.<p>
+ *
+ * Existing {@link LogWriter} segments can be turned into an indexed recording
+ * with {@link #index(List, File, PduStream)}. Not thread safe.
+ */
+public class IndexedRecordingWriter implements Closeable {
+
+    /**
+     * "DISIDX" followed by the format version, 1
+     */
+    public static final long MAGIC = 0x4449534944580001L;
+
+    public static final String FILE_SUFFIX = ".disrec";
+
+    static final int SHORT_DESCRIPTION_SIZE = 256;
+    static final int LONG_DESCRIPTION_SIZE = 512;
+    static final int PERSON_SIZE = 128;
+    static final int EMAIL_SIZE = 128;
+
+    static final int START_TIME_AT = 8 + SHORT_DESCRIPTION_SIZE + LONG_DESCRIPTION_SIZE + PERSON_SIZE + EMAIL_SIZE;
+    static final int STOP_TIME_AT = START_TIME_AT + 8;
+    static final int PDU_COUNT_AT = STOP_TIME_AT + 8;
+    static final int TIME_INDEX_AT = PDU_COUNT_AT + 8;
+    static final int TIME_INDEX_COUNT_AT = TIME_INDEX_AT + 8;
+    static final int ENTITY_INDEX_AT = TIME_INDEX_COUNT_AT + 8;
+    static final int ENTITY_COUNT_AT = ENTITY_INDEX_AT + 8;
+
+    public static final int HEADER_SIZE = ENTITY_COUNT_AT + 8;
+
+    /**
+     * Size of the capture time and length before each PDU
+     */
+    public static final int FRAME_HEADER_SIZE = LogWriter.RECORD_HEADER_SIZE;
+
+    /**
+     * Size of an entity index table entry
+     */
+    static final int ENTITY_ENTRY_SIZE = 24;
+
+    /**
+     * Offset within a PDU of the entity ID that entity information family
+     * PDUs are about
+     */
+    static final int ENTITY_ID_AT = PduView.HEADER_SIZE;
+
+    static final int ENTITY_INFORMATION_FAMILY = 1;
+
+    static final long NO_ENTITY = -1L;
+
+    public static final int DEFAULT_INDEX_INTERVAL = 1024;
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private long position = HEADER_SIZE;
+    private boolean closed;
+
+    private int indexInterval = DEFAULT_INDEX_INTERVAL;
+    private long pduCount;
+    private long startTime;
+    private long lastTime = Long.MIN_VALUE;
+
+    private long[] indexTimes = new long[1024];
+    private long[] indexPositions = new long[1024];
+    private int indexCount;
+
+    private final Map<Long, Postings> entities = new HashMap<Long, Postings>();
+
+    /** Frame positions of the PDUs about one entity */
+    static class Postings {
+        long[] positions = new long[16];
+        int size;
+
+        void add(long position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+    }
+
+    /**
+     * Creates the file, replacing any file of the same name.
+     *
+     * @param file the recording
+     * @param description descriptions and recording person to put in the
+     * header; may be null. Its start and stop times and PDUs are ignored.
+     * @throws IOException if the file can't be created
+     */
+    public IndexedRecordingWriter(File file, PduStream description) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        header.putLong(MAGIC);
+        if (description != null) {
+            putPadded(description.getShortDescription(), SHORT_DESCRIPTION_SIZE);
+            putPadded(description.getLongDescription(), LONG_DESCRIPTION_SIZE);
+            putPadded(description.getPersonRecording(), PERSON_SIZE);
+            putPadded(description.getAuthorEmail(), EMAIL_SIZE);
+        }
+        writeHeader();
+        channel.position(HEADER_SIZE);
+    }
+
+    private void putPadded(byte[] field, int size) {
+        final int start = header.position();
+        if (field != null) {
+            header.put(field, 0, Math.min(field.length, size));
+        }
+        header.position(start + size);
+    }
+
+    /**
+     * @param frames number of frames between time index entries; smaller
+     * makes seeks scan less and the index larger
+     */
+    public void setIndexInterval(int frames) {
+        if (frames < 1) {
+            throw new IllegalArgumentException("Index interval must be positive");
+        }
+        if (pduCount > 0) {
+            throw new IllegalStateException("Already started");
+        }
+        indexInterval = frames;
+    }
+
+    /**
+     * Records one PDU. The bytes from the buffer's position to its limit are
+     * copied, and the position is left unchanged.
+     *
+     * @param pdu the PDU bytes
+     * @param captureNanos when the PDU was received, nanoseconds since 1970
+     * @throws IOException if the file can't be written
+     * @throws IllegalArgumentException if the PDU is larger than {@link LogWriter#MAX_PDU_SIZE}
+     */
+    public void write(ByteBuffer pdu, long captureNanos) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Recording is closed");
+        }
+        final int length = pdu.remaining();
+        if (length > LogWriter.MAX_PDU_SIZE) {
+            throw new IllegalArgumentException("PDU of " + length + " bytes is too large to record");
+        }
+        final long time = Math.max(captureNanos, lastTime);
+        if (pduCount == 0) {
+            startTime = time;
+        }
+        if (pduCount % indexInterval == 0) {
+            addTimeIndex(time, position);
+        }
+        final int at = pdu.position();
+        final long key = entityKeyOf(pdu, at, length);
+        if (key != NO_ENTITY) {
+            Postings postings = entities.get(key);
+            if (postings == null) {
+                postings = new Postings();
+                entities.put(key, postings);
+            }
+            postings.add(position);
+        }
+
+        if (buffer.remaining() < FRAME_HEADER_SIZE + length) {
+            flush();
+        }
+        buffer.putLong(time);
+        buffer.putInt(length);
+        buffer.put(pdu);
+        pdu.position(at);
+        position += FRAME_HEADER_SIZE + length;
+        lastTime = time;
+        pduCount++;
+    }
+
+    /**
+     * Finds the entity an entity information family PDU is about.
+     *
+     * @param pdu buffer holding the PDU
+     * @param at offset of the PDU in the buffer
+     * @param length length of the PDU
+     * @return the entity key, see {@link PduView#entityKey(int, int, int)},
+     * or {@link #NO_ENTITY} for other PDUs
+     */
+    static long entityKeyOf(ByteBuffer pdu, int at, int length) {
+        if (length < ENTITY_ID_AT + 6 || (pdu.get(at + 3) & 0xFF) != ENTITY_INFORMATION_FAMILY) {
+            return NO_ENTITY;
+        }
+        return PduView.entityKey(pdu.getShort(at + ENTITY_ID_AT), pdu.getShort(at + ENTITY_ID_AT + 2),
+                pdu.getShort(at + ENTITY_ID_AT + 4));
+    }
+
+    private void addTimeIndex(long time, long framePosition) {
+        if (indexCount == indexTimes.length) {
+            indexTimes = Arrays.copyOf(indexTimes, indexCount * 2);
+            indexPositions = Arrays.copyOf(indexPositions, indexCount * 2);
+        }
+        indexTimes[indexCount] = time;
+        indexPositions[indexCount] = framePosition;
+        indexCount++;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void putLong(long value) throws IOException {
+        if (buffer.remaining() < 8) {
+            flush();
+        }
+        buffer.putLong(value);
+    }
+
+    private void writeHeader() throws IOException {
+        header.clear();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * @return number of PDUs recorded
+     */
+    public long getPduCount() {
+        return pduCount;
+    }
+
+    /**
+     * Writes the indexes and the header and closes the file.
+     *
+     * @throws IOException if the file can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            final long timeIndexAt = position;
+            for (int i = 0; i < indexCount; i++) {
+                putLong(indexTimes[i]);
+                putLong(indexPositions[i]);
+            }
+
+            final long[] keys = new long[entities.size()];
+            int k = 0;
+            for (Long key : entities.keySet()) {
+                keys[k++] = key;
+            }
+            Arrays.sort(keys);
+            final long entityIndexAt = timeIndexAt + 16L * indexCount;
+            long postingsAt = entityIndexAt + (long) ENTITY_ENTRY_SIZE * keys.length;
+            for (long key : keys) {
+                final Postings postings = entities.get(key);
+                putLong(key);
+                putLong(postingsAt);
+                putLong(postings.size);
+                postingsAt += 8L * postings.size;
+            }
+            for (long key : keys) {
+                final Postings postings = entities.get(key);
+                for (int i = 0; i < postings.size; i++) {
+                    putLong(postings.positions[i]);
+                }
+            }
+            flush();
+
+            header.putLong(START_TIME_AT, startTime);
+            header.putLong(STOP_TIME_AT, pduCount == 0 ? startTime : lastTime);
+            header.putLong(PDU_COUNT_AT, pduCount);
+            header.putLong(TIME_INDEX_AT, timeIndexAt);
+            header.putLong(TIME_INDEX_COUNT_AT, indexCount);
+            header.putLong(ENTITY_INDEX_AT, entityIndexAt);
+            header.putLong(ENTITY_COUNT_AT, keys.length);
+            writeHeader();
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Copies the records of {@link LogWriter} segment files, in the order
+     * given, into a new indexed recording.
+     *
+     * @param segments segment files, oldest first, see {@link LogWriter#getFiles()}
+     * @param file the recording to create
+     * @param description header descriptions; may be null
+     * @return number of PDUs recorded
+     * @throws IOException if a segment can't be read or isn't a LogWriter
+     * segment, or the recording can't be written
+     */
+    public static long index(List<File> segments, File file, PduStream description) throws IOException {
+        final byte[] pdu = new byte[LogWriter.MAX_PDU_SIZE];
+        final ByteBuffer wrapped = ByteBuffer.wrap(pdu);
+        try (IndexedRecordingWriter writer = new IndexedRecordingWriter(file, description)) {
+            for (File segment : segments) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment), 1 << 16))) {
+                    if (in.readLong() != LogWriter.MAGIC) {
+                        throw new IOException(segment + " is not a recording segment");
+                    }
+                    in.readLong();
+                    while (true) {
+                        final long time;
+                        try {
+                            time = in.readLong();
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        final int length;
+                        try {
+                            length = in.readInt();
+                            if (length < 0 || length > LogWriter.MAX_PDU_SIZE) {
+                                throw new IOException(segment + " has a bad record length " + length);
+                            }
+                            in.readFully(pdu, 0, length);
+                        } catch (EOFException e) {
+                            // last record cut short
+                            break;
+                        }
+                        wrapped.limit(length).position(0);
+                        writer.write(wrapped, time);
+                    }
+                }
+            }
+            return writer.getPduCount();
+        }
+    }
+}
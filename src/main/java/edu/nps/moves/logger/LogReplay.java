@@ -3,16 +3,25 @@ package edu.nps.moves.logger;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 import java.util.*;
 
 /**
- * Reads from the log files, replaying the data on a multicast group.
+ * Reads from the log files, replaying the data on a multicast group. The
+ * PDUs are sent as recorded by a {@link ReplayScheduler}, at the speed given
+ * by the replaySpeed property: a multiple of real time, or "max" to send as
+ * fast as possible. If replayBundleBytes is set, PDUs with the same timestamp
+ * are bundled into datagrams of up to that size.
  * 
  * @author mcgredo
  */
 public class LogReplay 
 {
-    /** time, in milliseconds, that it is not worth sleeping for */
+    /** time, in milliseconds, that it is not worth sleeping for
+     * @deprecated no longer used; PDUs are scheduled to well under a millisecond
+     */
+    @Deprecated
     public static final int MIN_SLEEP_TIME = 2;
     
     /** Port for sending socket */
@@ -21,8 +30,14 @@ public class LogReplay
     /** Multicast group to replay log file on */
     private InetAddress multicastGroup;
     
-    /** Multicast socket for sending */
-    private MulticastSocket socket;
+    /** Channel for sending */
+    private DatagramChannel channel;
+    
+    /** Multiple of real time to replay at */
+    private double speed = 1.0;
+    
+    /** Largest datagram to bundle PDUs into, or 0 */
+    private int bundleSize = 0;
     
     /** Exercise name */
     private String exerciseName;
@@ -30,9 +45,7 @@ public class LogReplay
     /** Properties config file */
     private Properties configuration;
     
-    private long timeLastSent = 0;
-    
-    private int count = 0;
+    private long count = 0;
 
     public LogReplay(Properties properties)
     {
@@ -51,8 +64,18 @@ public class LogReplay
                 System.exit(0);
             }
             
-            socket = new MulticastSocket(port);
-            socket.joinGroup(multicastGroup);
+            String stringSpeed = properties.getProperty("replaySpeed");
+            if(stringSpeed != null)
+            {
+                speed = stringSpeed.equalsIgnoreCase("max") ? ReplayScheduler.AS_FAST_AS_POSSIBLE : Double.parseDouble(stringSpeed);
+            }
+            String stringBundleSize = properties.getProperty("replayBundleBytes");
+            if(stringBundleSize != null)
+            {
+                bundleSize = Integer.parseInt(stringBundleSize);
+            }
+            
+            channel = DatagramChannel.open();
         }
         catch(Exception e)
         {
@@ -64,7 +87,9 @@ public class LogReplay
     }
     
     /** 
-     *  Replay the PDUs that have been logged 
+     *  Replay the PDUs that have been logged. The exercise directory may
+     *  hold an indexed recording, exerciseName.disrec, or the segment files
+     *  written by the logger, which are first indexed into one.
      */
     public void replayExercise()
     {
@@ -77,76 +102,48 @@ public class LogReplay
                 System.exit(0);
             }
             
-            String logFiles[] = exerciseDirectory.list();
-            for(int idx = 0; idx < logFiles.length; idx++)
+            File recordingFile = new File(exerciseDirectory, exerciseDirectory.getName() + IndexedRecordingWriter.FILE_SUFFIX);
+            if(!recordingFile.exists())
             {
-                System.out.println("Log file being replayed: " + logFiles[idx]);
-                
                 //  Check to make sure the file fits the pattern of 
-                // "exerciseName_nnnn"
-                String fileName = logFiles[idx];
-                if(!fileName.startsWith(exerciseName + "_"))
+                // "exerciseName_nnnn_nnnn.dislog"
+                List<File> segments = new ArrayList<File>();
+                String logFiles[] = exerciseDirectory.list();
+                Arrays.sort(logFiles);
+                for(int idx = 0; idx < logFiles.length; idx++)
+                {
+                    String fileName = logFiles[idx];
+                    if(fileName.startsWith(exerciseDirectory.getName() + "_") && fileName.endsWith(LogWriter.FILE_SUFFIX))
+                    {
+                        segments.add(new File(exerciseDirectory, fileName));
+                    }
+                }
+                System.out.println("Indexing " + segments.size() + " log files into " + recordingFile);
+                IndexedRecordingWriter.index(segments, recordingFile, null);
+            }
+            
+            System.out.println("Log file being replayed: " + recordingFile);
+            IndexedRecording recording = new IndexedRecording(recordingFile);
+            final InetSocketAddress destination = new InetSocketAddress(multicastGroup, port);
+            ReplayScheduler scheduler = new ReplayScheduler(recording, new ReplayScheduler.Sink()
+            {
+                public void send(ByteBuffer datagram) throws IOException
                 {
-                    continue;
+                    channel.send(datagram, destination);
                 }
-                fileName = exerciseName + "/" + fileName;
- 
-                // TODO read PDU from file and then call replayList
-                 
-           } // end of loop through lists of XML pdu files
+            });
+            scheduler.setSpeed(speed);
+            scheduler.setBundleSize(bundleSize);
+            scheduler.run();
+            count = scheduler.getPduCount();
+            recording.close();
             
             System.out.println("Pdus sent: " + count);
             
         }
         catch(Exception e)
         {
-            
-        }
-    }
-    
-    private void replayList(List pduList)
-    {
-
-        for(int idx = 0; idx < pduList.size(); idx++)
-        {
-            edu.nps.moves.dis.Pdu aPdu = (edu.nps.moves.dis.Pdu)pduList.get(idx);
-            long timestamp = aPdu.getTimestamp();
-
-            try
-            {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                DataOutputStream dos = new DataOutputStream(baos);
-                aPdu.marshal(dos);
-                byte ieeeData[] = baos.toByteArray();
-                DatagramPacket packet = new DatagramPacket(ieeeData, ieeeData.length, multicastGroup, port);
-                socket.send(packet);
-                count++;
-            }
-            catch(Exception e)
-            {
-                System.out.println(e);
-            }
-            
-            if(idx + 1 < pduList.size())
-            {
-                edu.nps.moves.dis.Pdu nextPdu = (edu.nps.moves.dis.Pdu)pduList.get(idx + 1);
-                long nextTime = nextPdu.getTimestamp();
-                long difference = nextTime - timestamp;
-                
-                //System.out.println("Difference: " + difference);
-                if(difference > MIN_SLEEP_TIME)
-                {
-                    try
-                    {
-                        Thread.sleep(difference);
-                    }
-                    catch(Exception e)
-                    {
-                        System.out.println(e);
-                    }
-                }
-
-            }
+            System.out.println(e);
         }
     }
     
@@ -1,28 +1,108 @@
 package edu.nps.moves.logger;
 
-import edu.nps.moves.disutil.PduContainer;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 import edu.nps.moves.dis.*;
+import edu.nps.moves.disutil.DisTime;
 
 /**
- * Writes the contents of the PDU buffer to the file in a separate thread.
- * 
- * This accepts Lists of PDUs from the reader thread and writes them out in
- * XML format. Since the reader thread may be faster at times than the writer,
- * we can queue up PDU lists and write them out as we get the chance.
+ * Records PDUs to disk in a separate thread.<p>
+ *
+ * The reader thread hands over the raw bytes of each PDU with
+ * {@link #write(ByteBuffer, long)}, along with the time it was captured. The
+ * bytes are copied into one of a small, fixed set of large direct buffers.
+ * A buffer goes to the writer thread (the one calling {@link #run()}) when it
+ * is full or when the commit interval has passed. The writer writes the whole
+ * buffer with one FileChannel write, so many PDUs share each system call and
+ * each optional fsync (group commit). Memory use is bounded by the buffer
+ * count times the buffer size; if the disk falls behind, writers block until a
+ * buffer is free, and the stall is counted. If writing to disk fails, the
+ * writer thread stops and every later {@link #write(ByteBuffer, long)} throws,
+ * rather than waiting for buffers that will never be freed.<p>
+ *
+ * Recordings are split into segment files in the exercise directory, named
+ * <code>exerciseName_startMillis_sequence.dislog</code>. A new segment is
+ * started when the current one reaches the maximum size or age. Each segment
+ * starts with a {@value #FILE_HEADER_SIZE} byte header, the long
+ * {@link #MAGIC} followed by the long creation time in nanoseconds since 1970.
+ * Then come records, each the long capture time in nanoseconds since 1970,
+ * the int length of the PDU, and the PDU bytes exactly as received. All values
+ * are big endian. A record never spans two segments. Because the bytes are
+ * not re-marshalled, recordings keep fields the library does not model.
  *
  * @author mcgredo
  * @version $Id:$
  */
 public class LogWriter implements Runnable {
 
+    /**
+     * "DISLOG" followed by the format version, 1
+     */
+    public static final long MAGIC = 0x4449534C4F470001L;
+
+    public static final int FILE_HEADER_SIZE = 16;
+
+    /**
+     * Size of the capture time and length before each PDU
+     */
+    public static final int RECORD_HEADER_SIZE = 12;
+
+    public static final String FILE_SUFFIX = ".dislog";
+
+    public static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+    public static final int DEFAULT_BUFFER_COUNT = 4;
+    public static final long DEFAULT_MAX_FILE_BYTES = 256L * 1024 * 1024;
+    public static final long DEFAULT_MAX_FILE_MILLIS = 10 * 60 * 1000;
+    public static final long DEFAULT_COMMIT_MILLIS = 100;
+
+    /**
+     * Largest PDU that can be recorded
+     */
+    public static final int MAX_PDU_SIZE = 65535;
+
+    /**
+     * How often, in ms, a writer waiting for a buffer checks whether the
+     * writer thread has failed
+     */
+    private static final long WAIT_CHECK_MILLIS = 100;
+
     String exerciseName;
-    boolean writing = false;
-    boolean unqueuedPdus = false;
-    BlockingQueue<List<Pdu>> listQueue = new LinkedBlockingQueue<List<Pdu>>();
+    volatile boolean writing = false;
+    volatile boolean unqueuedPdus = false;
+
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int bufferCount = DEFAULT_BUFFER_COUNT;
+    private long maxFileBytes = DEFAULT_MAX_FILE_BYTES;
+    private long maxFileMillis = DEFAULT_MAX_FILE_MILLIS;
+    private long commitMillis = DEFAULT_COMMIT_MILLIS;
+    private boolean force = false;
+
+    private BlockingQueue<ByteBuffer> freeBuffers;
+    private BlockingQueue<ByteBuffer> fullBuffers;
+    private ByteBuffer active;
+    /** Held while appending to the active buffer, including while waiting for a free one */
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private volatile boolean closing = false;
+    /** What stopped the writer thread, or null */
+    private volatile Exception failure;
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private volatile Thread writerThread;
+
+    private FileChannel channel;
+    private long fileBytes;
+    private long fileStartMillis;
+    private int fileSequence;
+    private final List<File> files = new CopyOnWriteArrayList<File>();
+
+    private volatile long recordCount;
+    private volatile long stallCount;
+    private volatile long bytesWritten;
 
     /** Creates a new instance of LogWriter. Exercise name is used to
      * create a directory we write log files to
@@ -32,7 +112,73 @@ public class LogWriter implements Runnable {
         exerciseName = pExerciseName;
     }
 
-    /** 
+    /**
+     * @param bytes size of each write buffer; at least 128 KB
+     */
+    public void setBufferSize(int bytes) {
+        checkNotStarted();
+        if (bytes < 2 * (MAX_PDU_SIZE + RECORD_HEADER_SIZE)) {
+            throw new IllegalArgumentException("Buffer size must be at least " + 2 * (MAX_PDU_SIZE + RECORD_HEADER_SIZE));
+        }
+        bufferSize = bytes;
+    }
+
+    /**
+     * @param count number of write buffers; at least 2
+     */
+    public void setBufferCount(int count) {
+        checkNotStarted();
+        if (count < 2) {
+            throw new IllegalArgumentException("Need at least two buffers");
+        }
+        bufferCount = count;
+    }
+
+    /**
+     * @param bytes size at which a new segment file is started
+     */
+    public void setMaxFileBytes(long bytes) {
+        maxFileBytes = bytes;
+    }
+
+    /**
+     * @param millis age at which a new segment file is started
+     */
+    public void setMaxFileMillis(long millis) {
+        maxFileMillis = millis;
+    }
+
+    /**
+     * @param millis longest time a PDU waits in memory before it is written
+     */
+    public void setCommitMillis(long millis) {
+        commitMillis = millis;
+    }
+
+    /**
+     * @param force whether each group commit is forced to the storage device
+     */
+    public void setForce(boolean force) {
+        this.force = force;
+    }
+
+    private synchronized void checkNotStarted() {
+        if (freeBuffers != null) {
+            throw new IllegalStateException("Already started");
+        }
+    }
+
+    private synchronized void allocateBuffers() {
+        if (freeBuffers == null) {
+            freeBuffers = new ArrayBlockingQueue<ByteBuffer>(bufferCount);
+            fullBuffers = new ArrayBlockingQueue<ByteBuffer>(bufferCount);
+            for (int i = 0; i < bufferCount; i++) {
+                freeBuffers.add(ByteBuffer.allocateDirect(bufferSize));
+            }
+        }
+    }
+
+    /**
      * Irritating interaction with the reder thread. They may have read a
      * few PDUs, but don't have enough for a "full" list to send to us.
      * this keeps the writer thread alive until it sends the data to us.
@@ -43,18 +189,96 @@ public class LogWriter implements Runnable {
     }
 
     /**
-     *  Add a list of PDUs to our write queue
+     * Records a list of PDUs, marshalling each one, with the current time as
+     * the capture time. Prefer {@link #write(ByteBuffer, long)} with the
+     * bytes as received.
      * @param pduList
      */
     public void addListToWriteQueue(List<Pdu> pduList) {
+        long now = DisTime.getInstance().getEpochNanos();
         try {
-            listQueue.put(pduList);
-        //System.out.println("enqued pdu list of size " + pduList.size());
+            for (Pdu pdu : pduList) {
+                write(ByteBuffer.wrap(pdu.marshal()), now);
+            }
         } catch (Exception e) {
             System.out.println("unable to add list to write queue" + e);
         }
     }
 
+    /**
+     * Records one PDU. The bytes from the buffer's position to its limit are
+     * copied, and the position is left unchanged. Blocks if every write
+     * buffer is waiting for the disk.
+     *
+     * @param pdu the PDU bytes
+     * @param captureNanos when the PDU was received, nanoseconds since 1970
+     * @throws InterruptedException if interrupted while waiting for a buffer
+     * @throws IllegalArgumentException if the PDU is larger than {@link #MAX_PDU_SIZE}
+     * @throws IllegalStateException if the writer has been closed, or has
+     * failed to write to disk
+     */
+    public void write(ByteBuffer pdu, long captureNanos) throws InterruptedException {
+        final int length = pdu.remaining();
+        if (length > MAX_PDU_SIZE) {
+            throw new IllegalArgumentException("PDU of " + length + " bytes is too large to record");
+        }
+        allocateBuffers();
+        appendLock.lockInterruptibly();
+        try {
+            checkNotFailed();
+            if (closing) {
+                throw new IllegalStateException("LogWriter is closed");
+            }
+            if (active != null && active.remaining() < RECORD_HEADER_SIZE + length) {
+                while (!fullBuffers.offer(active, WAIT_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    checkNotFailed();
+                }
+                active = null;
+            }
+            if (active == null) {
+                active = freeBuffers.poll();
+                if (active == null) {
+                    stallCount++;
+                    while ((active = freeBuffers.poll(WAIT_CHECK_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                        checkNotFailed();
+                    }
+                }
+            }
+            active.putLong(captureNanos);
+            active.putInt(length);
+            final int position = pdu.position();
+            active.put(pdu);
+            pdu.position(position);
+            recordCount++;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void checkNotFailed() {
+        final Exception e = failure;
+        if (e != null) {
+            throw new IllegalStateException("LogWriter failed", e);
+        }
+    }
+
+    /**
+     * Hands the partly filled buffer to the writer thread, unless a PDU is
+     * being appended to it right now.
+     */
+    private void commitActive() throws InterruptedException {
+        if (appendLock.tryLock()) {
+            try {
+                if (active != null && active.position() > 0) {
+                    fullBuffers.put(active);
+                    active = null;
+                }
+            } finally {
+                appendLock.unlock();
+            }
+        }
+    }
+
     /**
      * Create a directory to hold the log files
      */
@@ -75,50 +299,150 @@ public class LogWriter implements Runnable {
     }
 
     /**
-     * Start writing PDUs. This blocks if it has no PDU lists to write.
+     * Start writing PDUs. Returns once {@link #close()} has been called and
+     * everything recorded is on disk, or once writing has failed.
      */
     public void run() {
+        allocateBuffers();
+        writerThread = Thread.currentThread();
         this.createLogDirectory();
 
-        long startTime = System.currentTimeMillis();
-        int count = 0;
-
-        while (true) {
-            try {
-                // Blocks until there's something in the queue to take
-                List<Pdu> pdusToLog = listQueue.take();
-
-                // Flip on a boolean so we don't quit out of the thread while
-                // still writing PDUs to disk
-                writing = true;
-
-                // Create a log file name, or the format "exerciseName_nnnnn"
-                long time = System.currentTimeMillis();
-                String fileName = exerciseName + "/" + exerciseName + "_" + time + ".xml";
-
-                PduContainer container = new PduContainer();
-                container.setPdus(pdusToLog);
-
-                // Marshall the list out to a file. The long list of class names is
-                // essentially all the classes in the dis package; this is the safest
-                // option for jaxb. You can copy & paste the list from PduContainer.java
-                // in the dis package.
+        try {
+            while (true) {
+                // Blocks until a buffer fills or the commit interval passes
+                ByteBuffer buffer = fullBuffers.poll(commitMillis, TimeUnit.MILLISECONDS);
+                if (buffer == null) {
+                    commitActive();
+                    buffer = fullBuffers.poll();
+                }
+                if (buffer != null) {
+                    writing = true;
+                    writeBuffer(buffer);
+                    writing = false;
+                } else if (closing) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            failure = e;
+            System.out.println(e);
+        } finally {
+            closing = true;
+            writing = false;
+            closeFile();
+            closed.countDown();
+        }
+    }
 
-                // TODO write PDU to file.
+    private void writeBuffer(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        long now = System.currentTimeMillis();
+        if (channel != null && (fileBytes + buffer.remaining() > maxFileBytes || now - fileStartMillis >= maxFileMillis)) {
+            closeFile();
+        }
+        if (channel == null) {
+            openFile(now);
+        }
+        while (buffer.hasRemaining()) {
+            fileBytes += channel.write(buffer);
+        }
+        if (force) {
+            channel.force(false);
+        }
+        bytesWritten += buffer.limit();
+        buffer.clear();
+        freeBuffers.add(buffer);
+    }
 
-                writing = false;
+    private void openFile(long now) throws IOException {
+        // Create a log file name, of the format "exerciseName_nnnnn_nnnnn"
+        File directory = new File(exerciseName);
+        File file = new File(directory, String.format("%s_%013d_%05d%s", directory.getName(), now, fileSequence++, FILE_SUFFIX));
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.putLong(MAGIC);
+        header.putLong(DisTime.getInstance().getEpochNanos());
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        fileBytes = FILE_HEADER_SIZE;
+        fileStartMillis = now;
+        files.add(file);
+    }
 
-            } // End try
-            catch (Exception e) {
+    private void closeFile() {
+        if (channel != null) {
+            try {
+                channel.force(true);
+                channel.close();
+            } catch (IOException e) {
                 System.out.println(e);
             }
+            channel = null;
+        }
+    }
+
+    /**
+     * Writes out everything recorded so far and stops the writer thread,
+     * waiting for it to finish if it is running.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void close() throws InterruptedException {
+        appendLock.lockInterruptibly();
+        try {
+            closing = true;
+        } finally {
+            appendLock.unlock();
+        }
+        if (writerThread != null && writerThread != Thread.currentThread()) {
+            closed.await();
         }
     }
 
+    /**
+     * @return what stopped the writer thread, or null if it has not failed
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
     /**
      *  Test to see whether we're done writing and it's OK to quit the thread
      */
     public boolean finishedWriting() {
-        return ((listQueue.isEmpty()) && (!writing) && (!unqueuedPdus));
+        if (closing) {
+            return closed.getCount() == 0;
+        }
+        return (fullBuffers == null || fullBuffers.isEmpty()) && (!writing) && (!unqueuedPdus);
+    }
+
+    /**
+     * @return the segment files written so far, oldest first
+     */
+    public List<File> getFiles() {
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * @return number of PDUs recorded
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return number of times a PDU had to wait for a free buffer
+     */
+    public long getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * @return number of record bytes written to disk, excluding file headers
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
     }
 }
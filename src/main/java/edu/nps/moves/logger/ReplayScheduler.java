@@ -0,0 +1,379 @@
+package edu.nps.moves.logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the PDUs of an {@link IndexedRecording} with the same spacing in time
+ * as they were captured, optionally sped up or slowed down.<p>
+ *
+ * Each PDU's send time is worked out from the start of the replay on one
+ * monotonic timeline: start time + (capture time - first capture time) /
+ * speed. Errors in one wait therefore don't add up over a long replay. The
+ * replay thread parks until shortly before a PDU is due and spins for the
+ * rest, which gets well under a millisecond of error without spinning for
+ * whole seconds. PDUs are sent as the bytes stored in the recording, without
+ * unmarshalling or marshalling them.<p>
+ *
+ * With a bundle size set, consecutive PDUs with the same DIS timestamp are
+ * copied into one datagram of up to that many bytes, as a simulation that
+ * sends them together would. Otherwise each PDU is its own datagram, sent
+ * straight from the mapped file.<p>
+ *
+ * {@link #run()} replays until the end of the recording or {@link #stop()}.
+ * {@link #pause()}, {@link #resume()}, {@link #seek(long)} and
+ * {@link #setSpeed(double)} may be called from any thread while it runs.
+ */
+public class ReplayScheduler implements Runnable {
+
+    /**
+     * Receives each datagram; the buffer's position to limit is the datagram,
+     * and is only valid during the call.
+     */
+    public interface Sink {
+        void send(ByteBuffer datagram) throws IOException;
+    }
+
+    /**
+     * Speed at which PDUs are sent as fast as possible, ignoring capture times
+     */
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    /**
+     * Default time before a PDU is due at which the replay thread stops
+     * parking and spins
+     */
+    public static final long DEFAULT_SPIN_NANOS = 200000;
+
+    private static final long NOT_ANCHORED = Long.MIN_VALUE;
+
+    private final IndexedRecording recording;
+    private final Sink sink;
+    private final long end;
+
+    private final Object lock = new Object();
+    // guarded by lock
+    private long nextFrame;
+    private double speed = 1.0;
+    private boolean paused;
+    private boolean stopped;
+    private long anchorWall = NOT_ANCHORED;
+    private long anchorMedia;
+    private long pausedMedia;
+    private int seeks;
+    // changed, under the lock, by anything that moves the timeline
+    private volatile int generation;
+
+    private volatile Thread replayThread;
+    private long spinNanos = DEFAULT_SPIN_NANOS;
+    private int bundleSize;
+    private ByteBuffer bundle;
+
+    private volatile long pduCount;
+    private volatile long datagramCount;
+    private volatile long maxLatenessNanos;
+
+    /**
+     * @param recording the recording, replayed from its first PDU
+     * @param sink receives the datagrams
+     */
+    public ReplayScheduler(IndexedRecording recording, Sink sink) {
+        this.recording = recording;
+        this.sink = sink;
+        end = recording.getFramesEnd();
+        nextFrame = recording.getFirstFrame();
+    }
+
+    /**
+     * @param bytes largest datagram to bundle PDUs with the same timestamp
+     * into; 0, the default, sends each PDU on its own
+     */
+    public void setBundleSize(int bytes) {
+        if (bytes < 0 || bytes > LogWriter.MAX_PDU_SIZE) {
+            throw new IllegalArgumentException("Bundle size must be 0 to " + LogWriter.MAX_PDU_SIZE);
+        }
+        if (replayThread != null) {
+            throw new IllegalStateException("Already started");
+        }
+        bundleSize = bytes;
+        bundle = bytes == 0 ? null : ByteBuffer.allocateDirect(bytes);
+    }
+
+    /**
+     * @param nanos time before a PDU is due to start spinning; 0 only parks
+     */
+    public void setSpinNanos(long nanos) {
+        spinNanos = nanos;
+    }
+
+    /**
+     * Changes the replay speed, carrying on from the current position.
+     *
+     * @param speed multiple of real time, such as 0.5 or 10, or
+     * {@link #AS_FAST_AS_POSSIBLE}
+     */
+    public void setSpeed(double speed) {
+        if (!(speed > 0.0)) {
+            throw new IllegalArgumentException("Speed must be positive");
+        }
+        synchronized (lock) {
+            final boolean anchored = anchorWall != NOT_ANCHORED && !paused;
+            final long media = anchored ? mediaTime(System.nanoTime()) : 0;
+            this.speed = speed;
+            if (anchored) {
+                anchor(media);
+            }
+            moved();
+        }
+    }
+
+    public double getSpeed() {
+        synchronized (lock) {
+            return speed;
+        }
+    }
+
+    /**
+     * Stops sending until {@link #resume()}.
+     */
+    public void pause() {
+        synchronized (lock) {
+            if (!paused) {
+                paused = true;
+                pausedMedia = anchorWall == NOT_ANCHORED ? NOT_ANCHORED : mediaTime(System.nanoTime());
+                moved();
+            }
+        }
+    }
+
+    /**
+     * Carries on sending from where {@link #pause()} stopped.
+     */
+    public void resume() {
+        synchronized (lock) {
+            if (paused) {
+                paused = false;
+                if (pausedMedia == NOT_ANCHORED) {
+                    anchorWall = NOT_ANCHORED;
+                } else {
+                    anchor(pausedMedia);
+                }
+                moved();
+                lock.notifyAll();
+            }
+        }
+    }
+
+    public boolean isPaused() {
+        synchronized (lock) {
+            return paused;
+        }
+    }
+
+    /**
+     * Moves the replay to the first PDU captured at or after a time. That PDU
+     * is sent straight away, or on {@link #resume()} if paused.
+     *
+     * @param captureNanos nanoseconds since 1970
+     */
+    public void seek(long captureNanos) {
+        synchronized (lock) {
+            nextFrame = recording.seek(captureNanos);
+            seeks++;
+            final long media = nextFrame < end ? recording.getCaptureTime(nextFrame) : captureNanos;
+            if (paused) {
+                pausedMedia = media;
+            } else {
+                anchor(media);
+            }
+            moved();
+        }
+    }
+
+    /**
+     * @param elapsedNanos nanoseconds after the start of the recording
+     * @see #seek(long)
+     */
+    public void seekElapsed(long elapsedNanos) {
+        seek(recording.getStartTime() + elapsedNanos);
+    }
+
+    /**
+     * Ends the replay; {@link #run()} returns without sending anything more.
+     */
+    public void stop() {
+        synchronized (lock) {
+            stopped = true;
+            moved();
+            lock.notifyAll();
+        }
+    }
+
+    /** Called with the lock held after anything that changes when the next PDU is due */
+    private void moved() {
+        generation++;
+        final Thread thread = replayThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Puts a point on the recording's timeline at the current time, with the
+     * lock held. Nothing is anchored when going as fast as possible.
+     */
+    private void anchor(long media) {
+        anchorWall = speed == AS_FAST_AS_POSSIBLE ? NOT_ANCHORED : System.nanoTime();
+        anchorMedia = media;
+    }
+
+    /** Position on the recording's timeline at a wall time, with the lock held */
+    private long mediaTime(long wallNanos) {
+        return anchorMedia + (long) ((wallNanos - anchorWall) * speed);
+    }
+
+    /**
+     * Replays until the end of the recording or {@link #stop()}.
+     */
+    @Override
+    public void run() {
+        replayThread = Thread.currentThread();
+        try {
+            while (true) {
+                final long frame;
+                final int expected;
+                final int expectedSeeks;
+                final long due;
+                synchronized (lock) {
+                    while (paused && !stopped) {
+                        lock.wait();
+                    }
+                    if (stopped || nextFrame >= end) {
+                        break;
+                    }
+                    frame = nextFrame;
+                    expected = generation;
+                    expectedSeeks = seeks;
+                    final long captured = recording.getCaptureTime(frame);
+                    if (speed == AS_FAST_AS_POSSIBLE) {
+                        due = NOT_ANCHORED;
+                    } else {
+                        if (anchorWall == NOT_ANCHORED) {
+                            anchorWall = System.nanoTime();
+                            anchorMedia = captured;
+                        }
+                        due = anchorWall + (long) ((captured - anchorMedia) / speed);
+                    }
+                }
+                if (due != NOT_ANCHORED && !waitUntil(due, expected)) {
+                    continue;
+                }
+
+                final long after = send(frame);
+                if (due != NOT_ANCHORED) {
+                    final long lateness = System.nanoTime() - due;
+                    if (lateness > maxLatenessNanos) {
+                        maxLatenessNanos = lateness;
+                    }
+                }
+                synchronized (lock) {
+                    if (seeks == expectedSeeks) {
+                        nextFrame = after;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("Replay stopped: " + e);
+        } finally {
+            replayThread = null;
+        }
+    }
+
+    /**
+     * Waits until a time on the System.nanoTime clock.
+     *
+     * @return false if the timeline moved while waiting
+     */
+    private boolean waitUntil(long due, int expected) throws InterruptedException {
+        while (true) {
+            if (generation != expected) {
+                return false;
+            }
+            final long remaining = due - System.nanoTime();
+            if (remaining <= 0) {
+                return true;
+            }
+            if (remaining > spinNanos) {
+                LockSupport.parkNanos(this, remaining - spinNanos);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a frame, bundled with the frames after it that share its
+     * timestamp if bundling is on.
+     *
+     * @return the first frame not sent
+     */
+    private long send(long frame) throws IOException {
+        final ByteBuffer first = recording.getPdu(frame);
+        final int timestamp = recording.getTimestamp(frame);
+        long next = recording.nextFrame(frame);
+        if (bundle == null || !bundles(timestamp, first.remaining(), next)) {
+            sink.send(first);
+            pduCount++;
+            datagramCount++;
+            return next;
+        }
+
+        bundle.clear();
+        bundle.put(first);
+        int count = 1;
+        while (bundles(timestamp, bundle.position(), next)) {
+            bundle.put(recording.getPdu(next));
+            count++;
+            next = recording.nextFrame(next);
+        }
+        bundle.flip();
+        sink.send(bundle);
+        pduCount += count;
+        datagramCount++;
+        return next;
+    }
+
+    /**
+     * Whether a frame has a timestamp and fits in the bundle after the bytes
+     * already used
+     */
+    private boolean bundles(int timestamp, int used, long frame) {
+        return frame < end && used + recording.getLength(frame) <= bundleSize
+                && recording.getTimestamp(frame) == timestamp;
+    }
+
+    /**
+     * @return number of PDUs sent
+     */
+    public long getPduCount() {
+        return pduCount;
+    }
+
+    /**
+     * @return number of datagrams sent
+     */
+    public long getDatagramCount() {
+        return datagramCount;
+    }
+
+    /**
+     * @return the most any datagram was sent after it was due
+     */
+    public long getMaxLatenessNanos() {
+        return maxLatenessNanos;
+    }
+}
@@ -0,0 +1,457 @@
+package edu.nps.moves.spatial;
+
+import edu.nps.moves.dis.EntityID;
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.Vector3Double;
+import edu.nps.moves.disutil.EntityTable;
+import edu.nps.moves.disutil.PduView;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of entity positions in geocentric (DIS world) coordinates for fast
+ * radius, box and nearest neighbour queries. Space is divided into a uniform
+ * grid of cubic cells, and only the cells overlapping a query are examined.
+ * Entities are identified by the packed key of
+ * {@link PduView#entityKey(int, int, int)}.<p>
+ *
+ * One thread updates the index; any number of threads may query it at the
+ * same time. A cell's contents are replaced rather than changed in place, so
+ * readers never wait and always see a consistent cell, although a query that
+ * runs during an update may see an entity at its old or its new position.<p>
+ *
+ * The cell size should be about the radius of typical queries. Positions can
+ * be fed from received Entity State PDUs with {@link #update(EntityStatePdu)},
+ * or from dead reckoned states with {@link #update(EntityTable, long)}.
+ *
+ * @see EntityTable
+ */
+public class EntitySpatialIndex {
+
+    /**
+     * Called for each entity found by a query
+     */
+    public interface Visitor {
+
+        void visit(long key, double x, double y, double z);
+    }
+
+    private static final int CELL_INDEX_BITS = 21;
+    private static final int CELL_INDEX_MAX = (1 << (CELL_INDEX_BITS - 1)) - 1;
+    private static final long CELL_INDEX_MASK = (1L << CELL_INDEX_BITS) - 1;
+
+    /**
+     * Immutable contents of one grid cell
+     */
+    private static final class Cell {
+
+        static final Cell EMPTY = new Cell(new long[0], new double[0]);
+
+        final long[] keys;
+        final double[] xyz;
+
+        Cell(long[] keys, double[] xyz) {
+            this.keys = keys;
+            this.xyz = xyz;
+        }
+
+        int indexOf(long key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Cell with(long key, double x, double y, double z) {
+            int at = indexOf(key);
+            long[] newKeys = keys;
+            if (at < 0) {
+                at = keys.length;
+                newKeys = Arrays.copyOf(keys, at + 1);
+                newKeys[at] = key;
+            }
+            double[] newXyz = Arrays.copyOf(xyz, newKeys.length * 3);
+            newXyz[at * 3] = x;
+            newXyz[at * 3 + 1] = y;
+            newXyz[at * 3 + 2] = z;
+            return new Cell(newKeys, newXyz);
+        }
+
+        Cell without(long key) {
+            final int at = indexOf(key);
+            if (at < 0) {
+                return this;
+            }
+            final int last = keys.length - 1;
+            if (last == 0) {
+                return EMPTY;
+            }
+            long[] newKeys = Arrays.copyOf(keys, last);
+            double[] newXyz = Arrays.copyOf(xyz, last * 3);
+            if (at != last) {
+                newKeys[at] = keys[last];
+                System.arraycopy(xyz, last * 3, newXyz, at * 3, 3);
+            }
+            return new Cell(newKeys, newXyz);
+        }
+    }
+
+    private final double cellSize;
+    private final ConcurrentHashMap<Long, Cell> cells = new ConcurrentHashMap<>();
+
+    /**
+     * Cell of each entity; used only by the updating thread
+     */
+    private final Map<Long, Long> entityCells = new HashMap<>();
+    private volatile int size;
+
+    private final EntityStatePdu scratch = new EntityStatePdu();
+
+    /**
+     * @param cellSize edge of a grid cell in metres
+     */
+    public EntitySpatialIndex(double cellSize) {
+        if (!(cellSize >= 10.0)) {
+            throw new IllegalArgumentException("cellSize must be at least 10 metres");
+        }
+        this.cellSize = cellSize;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * @return number of entities in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    private int cellIndex(double coordinate) {
+        final double index = Math.floor(coordinate / cellSize);
+        if (index > CELL_INDEX_MAX) {
+            return CELL_INDEX_MAX;
+        }
+        if (index < -CELL_INDEX_MAX) {
+            return -CELL_INDEX_MAX;
+        }
+        return (int) index;
+    }
+
+    private static long cellKey(int ix, int iy, int iz) {
+        return ((ix & CELL_INDEX_MASK) << (2 * CELL_INDEX_BITS)) | ((iy & CELL_INDEX_MASK) << CELL_INDEX_BITS) | (iz & CELL_INDEX_MASK);
+    }
+
+    /**
+     * Adds an entity or moves it to a new position. Must only be called by the
+     * updating thread.
+     */
+    public void update(long key, double x, double y, double z) {
+        final Long cell = cellKey(cellIndex(x), cellIndex(y), cellIndex(z));
+        final Long previous = entityCells.put(key, cell);
+        if (previous == null) {
+            size++;
+        } else if (!previous.equals(cell)) {
+            removeFromCell(previous, key);
+        }
+        Cell contents = cells.get(cell);
+        cells.put(cell, (contents == null ? Cell.EMPTY : contents).with(key, x, y, z));
+    }
+
+    /**
+     * Indexes an entity at the location reported in its Entity State PDU.
+     */
+    public void update(EntityStatePdu espdu) {
+        final EntityID id = espdu.getEntityID();
+        final Vector3Double location = espdu.getEntityLocation();
+        update(PduView.entityKey(id.getSite(), id.getApplication(), id.getEntity()),
+                location.getX(), location.getY(), location.getZ());
+    }
+
+    /**
+     * Brings the index in line with an entity table: every entity is indexed
+     * at its dead reckoned position at the given time, or at its last reported
+     * position if its dead reckoning algorithm is not supported, and entities
+     * no longer in the table are removed.
+     *
+     * @param table the entity table
+     * @param timeMillis time to dead reckon to
+     */
+    public void update(EntityTable table, long timeMillis) {
+        for (Long key : table.keySet()) {
+            boolean found;
+            try {
+                found = table.deadReckon(key, timeMillis, scratch);
+            } catch (IllegalArgumentException e) {
+                found = table.getState(key, scratch);
+            }
+            if (found) {
+                final Vector3Double location = scratch.getEntityLocation();
+                update(key, location.getX(), location.getY(), location.getZ());
+            }
+        }
+        for (Iterator<Long> it = entityCells.keySet().iterator(); it.hasNext();) {
+            final Long key = it.next();
+            if (!table.contains(key)) {
+                removeFromCell(entityCells.get(key), key);
+                it.remove();
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Removes an entity. Must only be called by the updating thread.
+     *
+     * @return true if the entity was in the index
+     */
+    public boolean remove(long key) {
+        final Long cell = entityCells.remove(key);
+        if (cell == null) {
+            return false;
+        }
+        removeFromCell(cell, key);
+        size--;
+        return true;
+    }
+
+    private void removeFromCell(Long cell, long key) {
+        final Cell contents = cells.get(cell);
+        if (contents == null) {
+            return;
+        }
+        final Cell remaining = contents.without(key);
+        if (remaining == Cell.EMPTY) {
+            cells.remove(cell);
+        } else {
+            cells.put(cell, remaining);
+        }
+    }
+
+    /**
+     * Visits every entity within <code>radius</code> metres of a point.
+     *
+     * @return the number of entities visited
+     */
+    public int withinRadius(double x, double y, double z, double radius, Visitor visitor) {
+        final double r2 = radius * radius;
+        return visitCells(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius,
+                (cell, count) -> {
+                    final double[] xyz = cell.xyz;
+                    for (int i = 0; i < cell.keys.length; i++) {
+                        final double dx = xyz[i * 3] - x;
+                        final double dy = xyz[i * 3 + 1] - y;
+                        final double dz = xyz[i * 3 + 2] - z;
+                        if (dx * dx + dy * dy + dz * dz <= r2) {
+                            visitor.visit(cell.keys[i], xyz[i * 3], xyz[i * 3 + 1], xyz[i * 3 + 2]);
+                            count++;
+                        }
+                    }
+                    return count;
+                });
+    }
+
+    /**
+     * @return keys of the entities within <code>radius</code> metres of a point
+     */
+    public long[] withinRadius(double x, double y, double z, double radius) {
+        final KeyCollector keys = new KeyCollector();
+        withinRadius(x, y, z, radius, keys);
+        return keys.toArray();
+    }
+
+    /**
+     * Visits every entity inside an axis aligned box in geocentric coordinates.
+     *
+     * @return the number of entities visited
+     */
+    public int withinBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, Visitor visitor) {
+        return visitCells(minX, minY, minZ, maxX, maxY, maxZ,
+                (cell, count) -> {
+                    final double[] xyz = cell.xyz;
+                    for (int i = 0; i < cell.keys.length; i++) {
+                        final double px = xyz[i * 3];
+                        final double py = xyz[i * 3 + 1];
+                        final double pz = xyz[i * 3 + 2];
+                        if (px >= minX && px <= maxX && py >= minY && py <= maxY && pz >= minZ && pz <= maxZ) {
+                            visitor.visit(cell.keys[i], px, py, pz);
+                            count++;
+                        }
+                    }
+                    return count;
+                });
+    }
+
+    /**
+     * @return keys of the entities inside an axis aligned box
+     */
+    public long[] withinBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        final KeyCollector keys = new KeyCollector();
+        withinBox(minX, minY, minZ, maxX, maxY, maxZ, keys);
+        return keys.toArray();
+    }
+
+    private interface CellScan {
+
+        int scan(Cell cell, int count);
+    }
+
+    /**
+     * Scans the cells overlapping a box, walking the grid when the box covers
+     * fewer cells than are occupied and the occupied cells otherwise.
+     */
+    private int visitCells(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, CellScan scan) {
+        final int x0 = cellIndex(minX), y0 = cellIndex(minY), z0 = cellIndex(minZ);
+        final int x1 = cellIndex(maxX), y1 = cellIndex(maxY), z1 = cellIndex(maxZ);
+        final double boxCells = (double) (x1 - x0 + 1) * (y1 - y0 + 1) * (z1 - z0 + 1);
+        int count = 0;
+        if (boxCells <= cells.size()) {
+            for (int ix = x0; ix <= x1; ix++) {
+                for (int iy = y0; iy <= y1; iy++) {
+                    for (int iz = z0; iz <= z1; iz++) {
+                        final Cell cell = cells.get(cellKey(ix, iy, iz));
+                        if (cell != null) {
+                            count = scan.scan(cell, count);
+                        }
+                    }
+                }
+            }
+        } else {
+            for (Cell cell : cells.values()) {
+                count = scan.scan(cell, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the <code>k</code> entities nearest a point, searching outward one
+     * shell of cells at a time, or scanning every occupied cell once the
+     * shells would cover more cells than are occupied.
+     *
+     * @param maxRange entities further than this are ignored
+     * @return keys of up to <code>k</code> entities, nearest first
+     */
+    public long[] nearest(double x, double y, double z, int k, double maxRange) {
+        if (k < 1) {
+            return new long[0];
+        }
+        final Nearest best = new Nearest(x, y, z, k, maxRange);
+        final int cx = cellIndex(x), cy = cellIndex(y), cz = cellIndex(z);
+        final double maxShell = Math.min(CELL_INDEX_MAX, Math.ceil(maxRange / cellSize) + 1);
+        final int occupied = cells.size();
+        int cellsSeen = 0;
+
+        for (int shell = 0; shell <= maxShell && cellsSeen < occupied; shell++) {
+            final double side = 2.0 * shell + 1;
+            if (side * side * side > 4.0 * occupied) {
+                best.clear();
+                for (Cell cell : cells.values()) {
+                    best.offer(cell);
+                }
+                break;
+            }
+            // every entity outside the previous shells is at least (shell - 1) cells away
+            final double reach = Math.max(0, shell - 1) * cellSize;
+            if (best.isFull() && reach * reach > best.worst()) {
+                break;
+            }
+            for (int ix = cx - shell; ix <= cx + shell; ix++) {
+                for (int iy = cy - shell; iy <= cy + shell; iy++) {
+                    final boolean onFace = Math.abs(ix - cx) == shell || Math.abs(iy - cy) == shell;
+                    final int step = onFace ? 1 : 2 * shell;
+                    for (int iz = cz - shell; iz <= cz + shell; iz += step) {
+                        final Cell cell = cells.get(cellKey(ix, iy, iz));
+                        if (cell != null) {
+                            cellsSeen++;
+                            best.offer(cell);
+                        }
+                    }
+                }
+            }
+        }
+        return best.toArray();
+    }
+
+    /**
+     * The nearest entities found so far, sorted by distance
+     */
+    private static final class Nearest {
+
+        final double x, y, z;
+        final double maxRange2;
+        final long[] keys;
+        final double[] dist2;
+        int found;
+
+        Nearest(double x, double y, double z, int k, double maxRange) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.maxRange2 = maxRange * maxRange;
+            this.keys = new long[k];
+            this.dist2 = new double[k];
+        }
+
+        boolean isFull() {
+            return found == keys.length;
+        }
+
+        double worst() {
+            return dist2[found - 1];
+        }
+
+        void clear() {
+            found = 0;
+        }
+
+        void offer(Cell cell) {
+            final double[] xyz = cell.xyz;
+            for (int i = 0; i < cell.keys.length; i++) {
+                final double dx = xyz[i * 3] - x;
+                final double dy = xyz[i * 3 + 1] - y;
+                final double dz = xyz[i * 3 + 2] - z;
+                final double d2 = dx * dx + dy * dy + dz * dz;
+                if (d2 > maxRange2 || (isFull() && d2 >= worst())) {
+                    continue;
+                }
+                int at = isFull() ? found - 1 : found++;
+                while (at > 0 && dist2[at - 1] > d2) {
+                    dist2[at] = dist2[at - 1];
+                    keys[at] = keys[at - 1];
+                    at--;
+                }
+                dist2[at] = d2;
+                keys[at] = cell.keys[i];
+            }
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(keys, found);
+        }
+    }
+
+    private static final class KeyCollector implements Visitor {
+
+        long[] keys = new long[16];
+        int count;
+
+        @Override
+        public void visit(long key, double x, double y, double z) {
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+            }
+            keys[count++] = key;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(keys, count);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package edu.nps.moves.spatial;
 
 import SRM.*;  // Sedris spatial reference model version 4.4
 import edu.nps.moves.dis.*;
+import edu.nps.moves.disutil.CoordinateConversions;
 
 /**
  * Represents a local, flat range area with Euclidian coordinates, which is
@@ -49,6 +50,16 @@ import edu.nps.moves.dis.*;
  * in the SRM.
  * <p>
  *
+ * Since the local frame is fixed at construction, the rotation between DIS and
+ * local coordinates and the DIS position of the local origin are worked out
+ * once. Methods taking an output object ({@link #localToDis(double, double, double, Vector3Double)},
+ * {@link #disToLocal(double, double, double, Vector3Double)},
+ * {@link #localRollPitchHeadingToDisEuler(edu.nps.moves.dis.Orientation, edu.nps.moves.dis.Orientation)}
+ * and so on) use these precomputed values, allocate nothing, and may be called
+ * from any number of threads at once. The methods returning new objects go
+ * through the SRM and serve as the reference implementation.
+ * <p>
+ *
  * See User’s Manual for SRM Orientation, Velocity, and Acceleration
  * Transformations Version 2.0, 18 Nov 2009, available with the sedris Java SDK
  * download.
@@ -103,6 +114,19 @@ public class RangeCoordinates {
      */
     double altitudeOrigin;
 
+    /**
+     * DIS position of the local origin
+     */
+    private final double originX, originY, originZ;
+
+    /**
+     * Rows of the rotation from DIS to local coordinates: the local east,
+     * north and up unit vectors in DIS coordinates
+     */
+    private final double eastX, eastY, eastZ;
+    private final double northX, northY, northZ;
+    private final double upX, upY, upZ;
+
     /**
      * Constructor for a local flat coordinate system. Takes the latitude and
      * longitude (in degrees) for WGS_84 and the height above the ellipsoid and
@@ -118,6 +142,26 @@ public class RangeCoordinates {
         latitudeOrigin = originLat;
         longitudeOrigin = originLon;
         altitudeOrigin = heightOffset;
+
+        double latInRadians = Math.toRadians(originLat);
+        double lonInRadians = Math.toRadians(originLon);
+        double[] origin = {latInRadians, lonInRadians, heightOffset};
+        CoordinateConversions.latLonRadiansToXyz(origin, 0, origin, 0, 1);
+        originX = origin[0];
+        originY = origin[1];
+        originZ = origin[2];
+        double sinLat = Math.sin(latInRadians), cosLat = Math.cos(latInRadians);
+        double sinLon = Math.sin(lonInRadians), cosLon = Math.cos(lonInRadians);
+        eastX = -sinLon;
+        eastY = cosLon;
+        eastZ = 0.0;
+        northX = -sinLat * cosLon;
+        northY = -sinLat * sinLon;
+        northZ = cosLat;
+        upX = cosLat * cosLon;
+        upY = cosLat * sinLon;
+        upZ = sinLat;
+
         try {
             // Create a Celestiodetic SRF with WGS 1984, ie a curved coordinate
             // system (lat/lon/alt)
@@ -129,9 +173,6 @@ public class RangeCoordinates {
             disCoordinateReferenceFrame = new SRF_Celestiocentric(SRM_ORM_Code.ORMCOD_WGS_1984,
                     SRM_RT_Code.RTCOD_WGS_1984_IDENTITY);
 
-            double latInRadians = Math.toRadians(originLat);
-            double lonInRadians = Math.toRadians(originLon);
-
             // Reference system for a local tangent euclidian space plane, tangent to the lat/lon
             // at a give altitude.
             localTangentSurfaceReferenceFrame
@@ -162,17 +203,43 @@ public class RangeCoordinates {
      * return
      */
     public void changeVectorToDisCoordFromLocalFlat(Vector3Double localCoordinates) {
-        Vector3Double vec = this.DISCoordFromLocalFlat(localCoordinates.getX(),
-                localCoordinates.getY(),
-                localCoordinates.getZ());
-        localCoordinates.setX(vec.getX());
-        localCoordinates.setY(vec.getY());
-        localCoordinates.setZ(vec.getZ());
+        localToDis(localCoordinates.getX(), localCoordinates.getY(), localCoordinates.getZ(), localCoordinates);
+    }
+
+    /**
+     * Transform from local, flat coordinate system to the DIS coordinate
+     * system using the precomputed frame. All units in meters, positive x
+     * east, y north, z altitude.
+     *
+     * @param x x coordinate in local, flat coordinate system
+     * @param y y coordinate in local, flat coordinate system
+     * @param z z coordinate, altitude, in local flat coordinate system
+     * @param disCoordinates receives the DIS coordinates
+     */
+    public void localToDis(double x, double y, double z, Vector3Double disCoordinates) {
+        disCoordinates.setX(originX + eastX * x + northX * y + upX * z);
+        disCoordinates.setY(originY + eastY * x + northY * y + upY * z);
+        disCoordinates.setZ(originZ + eastZ * x + northZ * y + upZ * z);
+    }
+
+    /**
+     * Rotates a vector such as a velocity or acceleration from local, flat
+     * coordinates to DIS coordinates. Overwrites the values passed in.
+     *
+     * @param vector vector in local coordinates; DIS coordinates on return
+     */
+    public void changeVectorToDisFromLocalFlat(Vector3Float vector) {
+        final double x = vector.getX(), y = vector.getY(), z = vector.getZ();
+        vector.setX((float) (eastX * x + northX * y + upX * z));
+        vector.setY((float) (eastY * x + northY * y + upY * z));
+        vector.setZ((float) (eastZ * x + northZ * y + upZ * z));
     }
 
     /**
      * Transform from local, flat coordinate system to the DIS coordinate
-     * system. All units in meters, positive x east, y north, z altitude.<p>
+     * system through the SRM. All units in meters, positive x east, y north, z
+     * altitude. {@link #localToDis(double, double, double, Vector3Double)} is
+     * much faster.<p>
      *
      * @param x x coordinate in local, flat coordinate system
      * @param y y coordinate in meters in local, flat coordinate system
@@ -214,16 +281,42 @@ public class RangeCoordinates {
      * @param worldCoordinates
      */
     public void changeVectorToLocalCoordFromDIS(Vector3Double worldCoordinates) {
-        Vector3Double vec = this.localCoordFromDis(worldCoordinates.getX(),
-                worldCoordinates.getY(),
-                worldCoordinates.getZ());
-        worldCoordinates.setX(vec.getX());
-        worldCoordinates.setY(vec.getY());
-        worldCoordinates.setZ(vec.getZ());
+        disToLocal(worldCoordinates.getX(), worldCoordinates.getY(), worldCoordinates.getZ(), worldCoordinates);
     }
 
     /**
-     * Given DIS coordinates, convert to the local euclidian plane coordinates.
+     * Given DIS coordinates, convert to the local euclidian plane coordinates
+     * using the precomputed frame.
+     *
+     * @param x DIS x
+     * @param y DIS y
+     * @param z DIS z
+     * @param local receives the local coordinates
+     */
+    public void disToLocal(double x, double y, double z, Vector3Double local) {
+        final double dx = x - originX, dy = y - originY, dz = z - originZ;
+        local.setX(eastX * dx + eastY * dy + eastZ * dz);
+        local.setY(northX * dx + northY * dy + northZ * dz);
+        local.setZ(upX * dx + upY * dy + upZ * dz);
+    }
+
+    /**
+     * Rotates a vector such as a velocity or acceleration from DIS
+     * coordinates to local, flat coordinates. Overwrites the values passed in.
+     *
+     * @param vector vector in DIS coordinates; local coordinates on return
+     */
+    public void changeVectorToLocalFlatFromDis(Vector3Float vector) {
+        final double x = vector.getX(), y = vector.getY(), z = vector.getZ();
+        vector.setX((float) (eastX * x + eastY * y + eastZ * z));
+        vector.setY((float) (northX * x + northY * y + northZ * z));
+        vector.setZ((float) (upX * x + upY * y + upZ * z));
+    }
+
+    /**
+     * Given DIS coordinates, convert to the local euclidian plane coordinates
+     * through the SRM. {@link #disToLocal(double, double, double, Vector3Double)}
+     * is much faster.
      *
      * @param x
      * @param y
@@ -335,6 +428,76 @@ public class RangeCoordinates {
 
     }
 
+    /**
+     * Converts a roll (phi), pitch (theta) and heading/yaw (psi) relative to
+     * the axes of the local flat coordinate system to DIS euler angles, using
+     * the precomputed frame. Since the local frame is flat its axes are the
+     * same everywhere, so the position of the object is not needed. All units
+     * are in radians.
+     *
+     * @param rollPitchHeading orientation in the local coordinate system
+     * @param disOrientation receives the DIS euler angles; may be the same
+     * object
+     */
+    public void localRollPitchHeadingToDisEuler(edu.nps.moves.dis.Orientation rollPitchHeading,
+            edu.nps.moves.dis.Orientation disOrientation) {
+        // rotation from local to body coordinates, Rx(phi) Ry(theta) Rz(psi)
+        final double cPsi = Math.cos(rollPitchHeading.getPsi()), sPsi = Math.sin(rollPitchHeading.getPsi());
+        final double cTheta = Math.cos(rollPitchHeading.getTheta()), sTheta = Math.sin(rollPitchHeading.getTheta());
+        final double cPhi = Math.cos(rollPitchHeading.getPhi()), sPhi = Math.sin(rollPitchHeading.getPhi());
+        final double l00 = cTheta * cPsi, l01 = cTheta * sPsi, l02 = -sTheta;
+        final double l12 = sPhi * cTheta;
+        final double l22 = cPhi * cTheta;
+        final double l10 = sPhi * sTheta * cPsi - cPhi * sPsi, l11 = sPhi * sTheta * sPsi + cPhi * cPsi;
+        final double l20 = cPhi * sTheta * cPsi + sPhi * sPsi, l21 = cPhi * sTheta * sPsi - sPhi * cPsi;
+
+        // rotation from DIS to body coordinates, the local one after DIS to local
+        final double m00 = l00 * eastX + l01 * northX + l02 * upX;
+        final double m01 = l00 * eastY + l01 * northY + l02 * upY;
+        final double m02 = l00 * eastZ + l01 * northZ + l02 * upZ;
+        final double m12 = l10 * eastZ + l11 * northZ + l12 * upZ;
+        final double m22 = l20 * eastZ + l21 * northZ + l22 * upZ;
+        setEuler(m00, m01, m02, m12, m22, disOrientation);
+    }
+
+    /**
+     * Converts DIS euler angles to a roll (phi), pitch (theta) and
+     * heading/yaw (psi) relative to the axes of the local flat coordinate
+     * system, using the precomputed frame. All units are in radians.
+     *
+     * @param disOrientation DIS euler angles
+     * @param rollPitchHeading receives the orientation in the local
+     * coordinate system; may be the same object
+     */
+    public void disEulerToLocalRollPitchHeading(edu.nps.moves.dis.Orientation disOrientation,
+            edu.nps.moves.dis.Orientation rollPitchHeading) {
+        final double cPsi = Math.cos(disOrientation.getPsi()), sPsi = Math.sin(disOrientation.getPsi());
+        final double cTheta = Math.cos(disOrientation.getTheta()), sTheta = Math.sin(disOrientation.getTheta());
+        final double cPhi = Math.cos(disOrientation.getPhi()), sPhi = Math.sin(disOrientation.getPhi());
+        final double d00 = cTheta * cPsi, d01 = cTheta * sPsi, d02 = -sTheta;
+        final double d10 = sPhi * sTheta * cPsi - cPhi * sPsi, d11 = sPhi * sTheta * sPsi + cPhi * cPsi, d12 = sPhi * cTheta;
+        final double d20 = cPhi * sTheta * cPsi + sPhi * sPsi, d21 = cPhi * sTheta * sPsi - sPhi * cPsi, d22 = cPhi * cTheta;
+
+        // rotation from local to body coordinates, DIS to body after local to DIS
+        final double m00 = d00 * eastX + d01 * eastY + d02 * eastZ;
+        final double m01 = d00 * northX + d01 * northY + d02 * northZ;
+        final double m02 = d00 * upX + d01 * upY + d02 * upZ;
+        final double m12 = d10 * upX + d11 * upY + d12 * upZ;
+        final double m22 = d20 * upX + d21 * upY + d22 * upZ;
+        setEuler(m00, m01, m02, m12, m22, rollPitchHeading);
+    }
+
+    /**
+     * Extracts x-y-z euler angles from the elements of a rotation matrix
+     * Rx(phi) Ry(theta) Rz(psi) that they depend on.
+     */
+    private static void setEuler(double m00, double m01, double m02, double m12, double m22,
+            edu.nps.moves.dis.Orientation orientation) {
+        orientation.setPsi((float) Math.atan2(m01, m00));
+        orientation.setTheta((float) -Math.asin(Math.max(-1.0, Math.min(1.0, m02))));
+        orientation.setPhi((float) Math.atan2(m12, m22));
+    }
+
     public void c(double lat, double lon, double alt,
             double bank, double pitch, double head) {
         try {
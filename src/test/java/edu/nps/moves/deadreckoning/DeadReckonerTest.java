@@ -3,6 +3,8 @@ package edu.nps.moves.deadreckoning;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -705,4 +707,50 @@ public class DeadReckonerTest {
         answers9(espdu8);  // NOTE: With zero angular velocity, DR8 should get same results as DR9
     }
 
+
+    /*
+     * The primitive deadReckon path must agree with perform_DR for every
+     * algorithm, in world and body coordinates, rotating or not.
+     */
+    @Test
+    public void testDeadReckonMatchesPerform_DR() {
+        EntityStatePdu[] starts = {espdu4, espdu8};
+        DeadReckoningState state = new DeadReckoningState();
+        DeadReckoningState result = new DeadReckoningState();
+        for (EntityStatePdu start : starts) {
+            for (int algorithm = 1; algorithm <= 9; algorithm++) {
+                for (double deltaTime : new double[]{0.0, DELTA_TIME / 2.0, DELTA_TIME, 3.0}) {
+                    start.getDeadReckoningParameters().setDeadReckoningAlgorithm((short) algorithm);
+                    EntityStatePdu expected = new EntityStatePdu();
+                    expected.unmarshal(ByteBuffer.wrap(start.marshal()));
+                    DeadReckoner.perform_DR(expected, deltaTime);
+
+                    state.set(start);
+                    DeadReckoner.deadReckon(algorithm, state, deltaTime, result);
+                    String which = "DR" + algorithm + " dt=" + deltaTime;
+                    assertEquals(which, expected.getEntityLocation().getX(), result.x, 1e-6);
+                    assertEquals(which, expected.getEntityLocation().getY(), result.y, 1e-6);
+                    assertEquals(which, expected.getEntityLocation().getZ(), result.z, 1e-6);
+                    assertEquals(which, expected.getEntityLinearVelocity().getX(), result.velocityX, 1e-4);
+                    assertEquals(which, expected.getEntityLinearVelocity().getY(), result.velocityY, 1e-4);
+                    assertEquals(which, expected.getEntityLinearVelocity().getZ(), result.velocityZ, 1e-4);
+                    assertEquals(which, expected.getEntityOrientation().getPsi(), result.psi, 1e-6);
+                    assertEquals(which, expected.getEntityOrientation().getTheta(), result.theta, 1e-6);
+                    assertEquals(which, expected.getEntityOrientation().getPhi(), result.phi, 1e-6);
+
+                    // in place
+                    state.set(start);
+                    DeadReckoner.deadReckon(algorithm, state, deltaTime, state);
+                    assertEquals(which, result.x, state.x, 0.0);
+                    assertEquals(which, result.psi, state.psi, 0.0);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeadReckonOther() {
+        DeadReckoner.deadReckon(DeadReckoningAlgorithm.OTHER.getValue(), new DeadReckoningState(), DELTA_TIME, new DeadReckoningState());
+    }
+
 }
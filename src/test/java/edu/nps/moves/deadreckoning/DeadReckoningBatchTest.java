@@ -0,0 +1,146 @@
+package edu.nps.moves.deadreckoning;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+public class DeadReckoningBatchTest {
+
+    private static final double DELTA_TIME = 1.0 / 60.0;
+
+    private static EntityStatePdu randomEntity(Random random, int algorithm) {
+        EntityStatePdu espdu = new EntityStatePdu();
+        espdu.getEntityLocation().setX(6378137.0 + random.nextDouble() * 1000);
+        espdu.getEntityLocation().setY(random.nextDouble() * 1000);
+        espdu.getEntityLocation().setZ(random.nextDouble() * 1000);
+        espdu.getEntityLinearVelocity().setX(random.nextFloat() * 200 - 100);
+        espdu.getEntityLinearVelocity().setY(random.nextFloat() * 200 - 100);
+        espdu.getEntityLinearVelocity().setZ(random.nextFloat() * 20 - 10);
+        // some below the significance threshold
+        float scale = random.nextBoolean() ? 20 : 0.1f;
+        espdu.getDeadReckoningParameters().getEntityLinearAcceleration().setX(random.nextFloat() * scale - scale / 2);
+        espdu.getDeadReckoningParameters().getEntityLinearAcceleration().setY(random.nextFloat() * scale - scale / 2);
+        espdu.getDeadReckoningParameters().getEntityLinearAcceleration().setZ(random.nextFloat() * scale - scale / 2);
+        espdu.getEntityOrientation().setPsi(random.nextFloat() * 6 - 3);
+        espdu.getEntityOrientation().setTheta(random.nextFloat() * 2 - 1);
+        espdu.getEntityOrientation().setPhi(random.nextFloat() * 6 - 3);
+        espdu.getDeadReckoningParameters().getEntityAngularVelocity().setX(random.nextFloat() - 0.5f);
+        espdu.getDeadReckoningParameters().getEntityAngularVelocity().setY(random.nextFloat() - 0.5f);
+        espdu.getDeadReckoningParameters().getEntityAngularVelocity().setZ(random.nextFloat() - 0.5f);
+        espdu.getDeadReckoningParameters().setDeadReckoningAlgorithm((short) algorithm);
+        return espdu;
+    }
+
+    private static void assertMatches(EntityStatePdu expected, DeadReckoningState actual) {
+        assertEquals(expected.getEntityLocation().getX(), actual.x, 1e-5);
+        assertEquals(expected.getEntityLocation().getY(), actual.y, 1e-5);
+        assertEquals(expected.getEntityLocation().getZ(), actual.z, 1e-5);
+        assertEquals(expected.getEntityLinearVelocity().getX(), actual.velocityX, 1e-4);
+        assertEquals(expected.getEntityLinearVelocity().getY(), actual.velocityY, 1e-4);
+        assertEquals(expected.getEntityLinearVelocity().getZ(), actual.velocityZ, 1e-4);
+        assertEquals(expected.getEntityOrientation().getPsi(), actual.psi, 1e-5);
+        assertEquals(expected.getEntityOrientation().getTheta(), actual.theta, 1e-5);
+        assertEquals(expected.getEntityOrientation().getPhi(), actual.phi, 1e-5);
+    }
+
+    private void checkAgainstPerform_DR(int count, int parallelThreshold) {
+        Random random = new Random(count);
+        EntityStatePdu[] expected = new EntityStatePdu[count];
+        DeadReckoningBatch batch = new DeadReckoningBatch(16);
+        batch.setParallelThreshold(parallelThreshold);
+        DeadReckoningState state = new DeadReckoningState();
+        for (int i = 0; i < count; i++) {
+            int algorithm = 1 + random.nextInt(9);
+            expected[i] = randomEntity(random, algorithm);
+            assertEquals(i, batch.add(algorithm, state.set(expected[i])));
+        }
+
+        batch.advance(DELTA_TIME);
+        for (int i = 0; i < count; i++) {
+            DeadReckoner.perform_DR(expected[i], DELTA_TIME);
+            batch.get(i, state);
+            assertMatches(expected[i], state);
+        }
+    }
+
+    @Test
+    public void testSerial() {
+        checkAgainstPerform_DR(2000, DeadReckoningBatch.DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    @Test
+    public void testParallel() {
+        checkAgainstPerform_DR(5000, 100);
+    }
+
+    @Test
+    public void testArrays() {
+        final int count = 500;
+        Random random = new Random(7);
+        EntityStatePdu[] expected = new EntityStatePdu[count];
+        int[] algorithm = new int[count];
+        double[][] f = new double[15][count];
+        DeadReckoningState state = new DeadReckoningState();
+        for (int i = 0; i < count; i++) {
+            algorithm[i] = 1 + random.nextInt(9);
+            expected[i] = randomEntity(random, algorithm[i]);
+            state.set(expected[i]);
+            double[] values = {state.x, state.y, state.z, state.velocityX, state.velocityY, state.velocityZ,
+                state.accelerationX, state.accelerationY, state.accelerationZ, state.psi, state.theta, state.phi,
+                state.angularVelocityX, state.angularVelocityY, state.angularVelocityZ};
+            for (int v = 0; v < values.length; v++) {
+                f[v][i] = values[v];
+            }
+        }
+
+        new DeadReckoningBatch(16).advance(DELTA_TIME, count, algorithm, f[0], f[1], f[2], f[3], f[4], f[5],
+                f[6], f[7], f[8], f[9], f[10], f[11], f[12], f[13], f[14]);
+        for (int i = 0; i < count; i++) {
+            DeadReckoner.perform_DR(expected[i], DELTA_TIME);
+            state.x = f[0][i];
+            state.y = f[1][i];
+            state.z = f[2][i];
+            state.velocityX = f[3][i];
+            state.velocityY = f[4][i];
+            state.velocityZ = f[5][i];
+            state.psi = f[9][i];
+            state.theta = f[10][i];
+            state.phi = f[11][i];
+            assertMatches(expected[i], state);
+        }
+    }
+
+    @Test
+    public void testChangeAlgorithmKeepsIndex() {
+        Random random = new Random(99);
+        DeadReckoningBatch batch = new DeadReckoningBatch(4);
+        DeadReckoningState state = new DeadReckoningState();
+        EntityStatePdu a = randomEntity(random, 9);
+        EntityStatePdu b = randomEntity(random, 2);
+        batch.add(9, state.set(a));
+        batch.add(2, state.set(b));
+        batch.advance(DELTA_TIME);
+
+        a.getDeadReckoningParameters().setDeadReckoningAlgorithm((short) 1);
+        batch.set(0, 1, state.set(a));
+        batch.advance(DELTA_TIME);
+
+        DeadReckoner.perform_DR(a, DELTA_TIME);
+        DeadReckoner.perform_DR(b, DELTA_TIME);
+        DeadReckoner.perform_DR(b, DELTA_TIME);
+        assertEquals(1, batch.getAlgorithm(0));
+        batch.get(0, state);
+        assertMatches(a, state);
+        batch.get(1, state);
+        assertMatches(b, state);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedAlgorithm() {
+        new DeadReckoningBatch(1).add(0, new DeadReckoningState());
+    }
+}
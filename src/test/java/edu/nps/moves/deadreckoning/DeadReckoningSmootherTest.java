@@ -0,0 +1,122 @@
+package edu.nps.moves.deadreckoning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.nps.moves.disenum.DeadReckoningAlgorithm;
+
+public class DeadReckoningSmootherTest {
+
+    private static final double WINDOW = 1.0;
+
+    /**
+     * Entity moving along x at 10 m/s, then corrected 5 m along y moving at
+     * 10 m/s along y.
+     */
+    private static DeadReckoningSmoother correctedEntity(DeadReckoningSmoother.Method method) {
+        DeadReckoningSmoother smoother = new DeadReckoningSmoother(method, WINDOW, 1);
+        int index = smoother.add();
+        DeadReckoningState state = new DeadReckoningState();
+        state.velocityX = 10.0;
+        smoother.update(index, DeadReckoningAlgorithm.DRMF_P_W.value, state, 0.0);
+
+        state = new DeadReckoningState();
+        state.x = 20.0;
+        state.y = 5.0;
+        state.velocityY = 10.0;
+        state.psi = Math.PI / 2;
+        smoother.update(index, DeadReckoningAlgorithm.DRMF_P_W.value, state, 2.0);
+        return smoother;
+    }
+
+    @Test
+    public void testNoSnapAndConvergence() {
+        DeadReckoningState out = new DeadReckoningState();
+        for (DeadReckoningSmoother.Method method : DeadReckoningSmoother.Method.values()) {
+            DeadReckoningSmoother smoother = correctedEntity(method);
+
+            // where the old trajectory had it when the update arrived
+            smoother.getState(0, 2.0, out);
+            assertEquals(method.name(), 20.0, out.x, 1e-9);
+            assertEquals(method.name(), 0.0, out.y, 1e-9);
+            assertEquals(method.name(), 0.0, out.psi, 1e-9);
+            assertEquals(method.name(), 10.0, out.velocityX, 1e-9);
+            assertTrue(smoother.isConverging(0, 2.5));
+
+            // part way, somewhere between the two trajectories
+            smoother.getState(0, 2.5, out);
+            assertTrue(method.name(), out.y > 0.0 && out.y < 10.0);
+            assertTrue(method.name(), out.psi > 0.0 && out.psi < Math.PI / 2);
+
+            // on the new trajectory once the window has passed
+            assertFalse(smoother.isConverging(0, 3.0));
+            smoother.getState(0, 3.5, out);
+            assertEquals(method.name(), 20.0, out.x, 1e-9);
+            assertEquals(method.name(), 20.0, out.y, 1e-9);
+            assertEquals(method.name(), 10.0, out.velocityY, 1e-9);
+            assertEquals(method.name(), Math.PI / 2, out.psi, 1e-9);
+        }
+    }
+
+    @Test
+    public void testQueriesDoNotChangeState() {
+        DeadReckoningSmoother smoother = correctedEntity(DeadReckoningSmoother.Method.LINEAR);
+        DeadReckoningState first = new DeadReckoningState();
+        DeadReckoningState again = new DeadReckoningState();
+        smoother.getState(0, 2.5, first);
+        // a query past the window must not end the convergence for earlier ones
+        smoother.getState(0, 3.5, again);
+        assertTrue(smoother.isConverging(0, 2.5));
+        smoother.getState(0, 2.5, again);
+        assertEquals(first.x, again.x, 0.0);
+        assertEquals(first.y, again.y, 0.0);
+        assertEquals(first.psi, again.psi, 0.0);
+    }
+
+    @Test
+    public void testContinuousAtEndOfWindow() {
+        DeadReckoningState before = new DeadReckoningState();
+        DeadReckoningState after = new DeadReckoningState();
+        for (DeadReckoningSmoother.Method method : DeadReckoningSmoother.Method.values()) {
+            DeadReckoningSmoother smoother = correctedEntity(method);
+            smoother.getState(0, 3.0 - 1e-9, before);
+            smoother.getState(0, 3.0, after);
+            assertEquals(method.name(), after.x, before.x, 1e-6);
+            assertEquals(method.name(), after.y, before.y, 1e-6);
+        }
+    }
+
+    @Test
+    public void testLinearHalfway() {
+        DeadReckoningSmoother smoother = correctedEntity(DeadReckoningSmoother.Method.LINEAR);
+        DeadReckoningState out = new DeadReckoningState();
+        smoother.getState(0, 2.5, out);
+        // old trajectory at (25, 0), new at (20, 10)
+        assertEquals(22.5, out.x, 1e-9);
+        assertEquals(5.0, out.y, 1e-9);
+        assertEquals(Math.PI / 4, out.psi, 1e-9);
+    }
+
+    @Test
+    public void testBodyVelocityInWorldCoordinates() {
+        DeadReckoningSmoother smoother = new DeadReckoningSmoother(DeadReckoningSmoother.Method.LINEAR, WINDOW, 1);
+        int index = smoother.add();
+        DeadReckoningState state = new DeadReckoningState();
+        state.velocityX = 10.0;
+        state.psi = Math.PI / 2;
+        smoother.update(index, DeadReckoningAlgorithm.DRMF_P_B.value, state, 0.0);
+        DeadReckoningState out = new DeadReckoningState();
+        smoother.getState(index, 1.0, out);
+        assertEquals(0.0, out.velocityX, 1e-9);
+        assertEquals(10.0, out.velocityY, 1e-9);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotUpdated() {
+        DeadReckoningSmoother smoother = new DeadReckoningSmoother(DeadReckoningSmoother.Method.LINEAR, WINDOW, 1);
+        smoother.getState(smoother.add(), 0.0, new DeadReckoningState());
+    }
+}
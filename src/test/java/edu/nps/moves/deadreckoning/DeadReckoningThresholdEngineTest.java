@@ -0,0 +1,96 @@
+package edu.nps.moves.deadreckoning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.disenum.DeadReckoningAlgorithm;
+
+public class DeadReckoningThresholdEngineTest {
+
+    private static final long FRAME_NANOS = 1000000000L / 60;
+
+    private final List<Double> sentX = new ArrayList<>();
+
+    private final DeadReckoningThresholdEngine engine =
+            new DeadReckoningThresholdEngine(espdu -> sentX.add(espdu.getEntityLocation().getX()));
+
+    private int addEntity() {
+        EntityStatePdu espdu = new EntityStatePdu();
+        espdu.getDeadReckoningParameters().setDeadReckoningAlgorithm((short) DeadReckoningAlgorithm.DRMF_P_W.value);
+        return engine.addEntity(espdu);
+    }
+
+    @Test
+    public void testConstantVelocityOnlyHeartbeats() {
+        int handle = addEntity();
+        DeadReckoningState truth = new DeadReckoningState();
+        truth.x = 6378137.0;
+        truth.velocityY = 20.0;
+
+        // twelve seconds at 60 Hz
+        for (int frame = 0; frame <= 720; frame++) {
+            truth.y = 20.0 * frame / 60.0;
+            engine.report(handle, truth);
+            engine.tick(frame * FRAME_NANOS);
+        }
+        // first update, then heartbeats at 5 and 10 seconds
+        assertEquals(3, engine.getSentCount());
+        assertEquals(718, engine.getSuppressedCount());
+    }
+
+    @Test
+    public void testPositionThreshold() {
+        int handle = addEntity();
+        DeadReckoningState truth = new DeadReckoningState();
+        truth.velocityX = 10.0;
+
+        // entity reports velocity 10 m/s but is really moving at 11 m/s
+        int firstThresholdFrame = -1;
+        for (int frame = 0; frame <= 120; frame++) {
+            truth.x = 11.0 * frame / 60.0;
+            engine.report(handle, truth);
+            if (engine.tick(frame * FRAME_NANOS) > 0 && frame > 0 && firstThresholdFrame < 0) {
+                firstThresholdFrame = frame;
+            }
+        }
+        // 1 m/s error reaches 1 m at one second (frame times are truncated to whole nanoseconds)
+        assertEquals(60, firstThresholdFrame);
+        assertEquals(11.0, sentX.get(1), 1e-9);
+    }
+
+    @Test
+    public void testOrientationThreshold() {
+        int handle = addEntity();
+        DeadReckoningState truth = new DeadReckoningState();
+        engine.report(handle, truth);
+        engine.tick(0);
+
+        truth.psi = 2.0 * Math.PI / 180.0;
+        engine.report(handle, truth);
+        assertEquals(0, engine.tick(FRAME_NANOS));
+
+        truth.psi = 4.0 * Math.PI / 180.0;
+        engine.report(handle, truth);
+        assertEquals(1, engine.tick(2 * FRAME_NANOS));
+    }
+
+    @Test
+    public void testSendNow() {
+        int handle = addEntity();
+        DeadReckoningState truth = new DeadReckoningState();
+        assertEquals(0, engine.tick(0));  // nothing reported yet
+        engine.report(handle, truth);
+        assertEquals(1, engine.tick(0));
+        assertEquals(0, engine.tick(FRAME_NANOS));
+        engine.getPdu(handle).setEntityAppearance(1);
+        engine.sendNow(handle);
+        assertEquals(1, engine.tick(2 * FRAME_NANOS));
+        assertTrue(sentX.size() == 2);
+    }
+}
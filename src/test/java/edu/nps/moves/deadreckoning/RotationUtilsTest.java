@@ -1,6 +1,7 @@
 package edu.nps.moves.deadreckoning;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -8,6 +9,7 @@ import java.util.Random;
 
 import org.apache.commons.math3.geometry.euclidean.threed.Rotation;
 import org.apache.commons.math3.geometry.euclidean.threed.RotationConvention;
+import org.apache.commons.math3.geometry.euclidean.threed.RotationOrder;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 import org.apache.commons.math3.linear.MatrixUtils;
 import org.apache.commons.math3.linear.RealMatrix;
@@ -352,6 +354,32 @@ public class RotationUtilsTest {
         }
     }
     
+    @Test
+    public void testQuaternionThresholdEulerAngles() {
+        Rotation[] RD = new Rotation[4];
+        Rotation[][] RA = new Rotation[4][4];
+        double[] failOrPass = {POS_DRA_ORIENT_FAIL, POS_DRA_ORIENT_PASS, NEG_DRA_ORIENT_PASS, NEG_DRA_ORIENT_FAIL};
+
+        for (int i = 0; i < 4; i++) {
+            RD[i] = new Rotation(vec[i].normalize(), euler[i][1], RotationConvention.VECTOR_OPERATOR);
+            for (int k = 0; k < 4; k++) {
+                RA[i][k] = RD[i].applyTo(new Rotation(vec[i + 4].normalize(), failOrPass[k], RotationConvention.VECTOR_OPERATOR));
+            }
+        }
+
+        double epsilon = RotationUtils.epsilonQuaternionThreshold(DRA_ORIENT_THRESH);
+
+        for (int i = 0; i < 4; i++) {
+            // psi, theta, phi
+            double[] d = RD[i].getAngles(RotationOrder.ZYX, RotationConvention.FRAME_TRANSFORM);
+            for (int k = 0; k < 4; k++) {
+                double[] a = RA[i][k].getAngles(RotationOrder.ZYX, RotationConvention.FRAME_TRANSFORM);
+                assertEquals(RotationUtils.quaternionThresholdExceeded(RA[i][k], RD[i], epsilon),
+                        RotationUtils.quaternionThresholdExceeded(a[2], a[1], a[0], d[2], d[1], d[0], epsilon));
+            }
+        }
+    }
+
     // NOTE: quaternionThreshold is fastest, rotationThreshold is slowest.
 
 }
@@ -0,0 +1,56 @@
+package edu.nps.moves.dis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class PduEncodeTest {
+
+    private static void checkEncode(Pdu pdu) {
+        byte[] expected = pdu.marshal();
+        ByteBuffer buff = ByteBuffer.allocateDirect(expected.length + 20);
+        buff.position(7);
+        int written = pdu.encode(buff);
+        assertEquals(expected.length, written);
+        assertEquals(7 + written, buff.position());
+
+        byte[] actual = new byte[written];
+        buff.position(7);
+        buff.get(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testEncodeMatchesMarshal() {
+        EntityStatePdu espdu = new EntityStatePdu();
+        espdu.getArticulationParameters().add(new ArticulationParameter());
+        espdu.getArticulationParameters().add(new ArticulationParameter());
+        checkEncode(espdu);
+
+        AggregateStatePdu aspdu = new AggregateStatePdu();
+        aspdu.getEntityIDList().add(new EntityID());
+        checkEncode(aspdu);
+
+        ElectronicEmissionsPdu eepdu = new ElectronicEmissionsPdu();
+        ElectronicEmissionSystemData system = new ElectronicEmissionSystemData();
+        system.getBeamDataRecords().add(new ElectronicEmissionBeamData());
+        eepdu.getSystems().add(system);
+        checkEncode(eepdu);
+
+        checkEncode(new TransmitterPdu());
+        checkEncode(new FirePdu());
+    }
+
+    @Test
+    public void testPlainMarshalStillWritesLength() {
+        FirePdu pdu = new FirePdu();
+        ByteBuffer buff = ByteBuffer.allocate(200);
+        pdu.encode(buff);
+        buff.clear();
+        pdu.marshal(buff);
+        assertEquals(pdu.getMarshalledSize(), buff.getShort(8));
+    }
+}
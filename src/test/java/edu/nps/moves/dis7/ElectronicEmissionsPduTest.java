@@ -58,7 +58,7 @@ public class ElectronicEmissionsPduTest
         assertEquals(51, pdu.getExerciseID());
         assertEquals(23, pdu.getPduType());
         assertEquals(6, pdu.getProtocolFamily());
-        assertEquals(104, pdu.getMarshalledSize());
+        assertEquals(100, pdu.getMarshalledSize());
         assertEquals(0, pdu.getPadding());
 
         ElectronicEmissionsPdu espdu = (ElectronicEmissionsPdu) pdu;
@@ -10,6 +10,7 @@ import org.junit.Test;
 import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 
 /**
@@ -375,4 +376,23 @@ public class EntityStatePduTest
        
 
     }
+
+    @Test
+    public void unmarshalReusesVariableParameters()
+            throws IOException {
+        byte[] articulated = PduFileLoader.load("EntityStatePdu-articulated_parts.raw");
+        EntityStatePdu espdu = new EntityStatePdu();
+
+        espdu.unmarshal(java.nio.ByteBuffer.wrap(articulated));
+        int count = espdu.getVariableParameters().size();
+        VariableParameter first = espdu.getVariableParameters().get(0);
+
+        // Unmarshalling again replaces the records rather than appending to them
+        espdu.unmarshal(java.nio.ByteBuffer.wrap(articulated));
+        assertEquals(count, espdu.getVariableParameters().size());
+        assertSame(first, espdu.getVariableParameters().get(0));
+
+        espdu.unmarshal(java.nio.ByteBuffer.wrap(new EntityStatePdu().marshal()));
+        assertEquals(0, espdu.getVariableParameters().size());
+    }
 }
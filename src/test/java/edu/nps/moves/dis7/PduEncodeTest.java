@@ -0,0 +1,63 @@
+package edu.nps.moves.dis7;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class PduEncodeTest {
+
+    private static void checkEncode(Pdu pdu) {
+        byte[] expected = pdu.marshal();
+        ByteBuffer buff = ByteBuffer.allocateDirect(expected.length + 20);
+        buff.position(7);
+        int written = pdu.encode(buff);
+        assertEquals(expected.length, written);
+        assertEquals(7 + written, buff.position());
+
+        byte[] actual = new byte[written];
+        buff.position(7);
+        buff.get(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testEncodeMatchesMarshal() {
+        EntityStatePdu espdu = new EntityStatePdu();
+        espdu.getVariableParameters().add(new ArticulatedParts());
+        espdu.getVariableParameters().add(new ArticulatedParts());
+        checkEncode(espdu);
+
+        AggregateStatePdu aspdu = new AggregateStatePdu();
+        aspdu.getEntityIDList().add(new EntityID());
+        checkEncode(aspdu);
+
+        checkEncode(new DetonationPdu());
+        checkEncode(new FirePdu());
+    }
+
+    @Test
+    public void testEncodeWritesActualLength() {
+        ElectronicEmissionsPdu pdu = new ElectronicEmissionsPdu();
+        ElectronicEmissionSystemData system = new ElectronicEmissionSystemData();
+        system.getBeamDataRecords().add(new ElectronicEmissisionBeamData());
+        pdu.getSystems().add(system);
+        ByteBuffer buff = ByteBuffer.allocate(200);
+        int written = pdu.encode(buff);
+        assertEquals(written, buff.position());
+        assertEquals(written, buff.getShort(8));
+        checkEncode(pdu);
+    }
+
+    @Test
+    public void testPlainMarshalStillWritesLength() {
+        FirePdu pdu = new FirePdu();
+        ByteBuffer buff = ByteBuffer.allocate(200);
+        pdu.encode(buff);
+        buff.clear();
+        pdu.marshal(buff);
+        assertEquals(pdu.getMarshalledSize(), buff.getShort(8));
+    }
+}
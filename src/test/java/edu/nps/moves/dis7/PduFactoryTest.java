@@ -0,0 +1,88 @@
+package edu.nps.moves.dis7;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class PduFactoryTest {
+
+    /** Stand-in for an application defined decoder of an experimental PDU */
+    public static class OrgStatePdu extends Pdu {
+
+        private byte[] body = new byte[0];
+
+        @Override
+        public void unmarshal(ByteBuffer buff) {
+            super.unmarshal(buff);
+            body = new byte[buff.remaining()];
+            buff.get(body);
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * @return a marshalled PDU of the given type in the experimental family
+     */
+    private static byte[] pduOfType(int pduType) {
+        byte[] data = new CommentPdu().marshal();
+        data[2] = (byte) pduType;
+        data[3] = (byte) 130; // experimental family
+        return data;
+    }
+
+    @Test
+    public void testRegisterExperimentalPdu() {
+        PduFactory factory = new PduFactory();
+        byte[] data = pduOfType(137);
+        assertNull(factory.createPdu(data));
+
+        factory.registerPdu(137, OrgStatePdu::new);
+        Pdu p = factory.createPdu(data);
+        assertTrue(p instanceof OrgStatePdu);
+        assertEquals(137, p.getPduType());
+        assertEquals(data.length - 12, ((OrgStatePdu) p).getBody().length);
+        assertTrue(factory.createPooledPdu(ByteBuffer.wrap(data)) instanceof OrgStatePdu);
+
+        factory.unregisterPdu(137);
+        assertNull(factory.createPdu(data));
+
+        // Registration is per factory
+        factory.registerPdu(137, OrgStatePdu::new);
+        assertNull(new PduFactory().createPdu(data));
+    }
+
+    @Test
+    public void testReplaceBuiltInPdu() {
+        PduFactory factory = new PduFactory();
+        final EntityStatePdu reused = new EntityStatePdu();
+        factory.registerPdu(1, () -> reused);
+        assertSame(reused, factory.createPdu(new EntityStatePdu().marshal()));
+
+        factory.unregisterPdu(1);
+        Pdu p = factory.createPdu(new EntityStatePdu().marshal());
+        assertTrue(p instanceof EntityStatePdu);
+        assertNotSame(reused, p);
+    }
+
+    @Test
+    public void testUnknownPduType() {
+        PduFactory factory = new PduFactory();
+        assertNull(factory.createPdu(pduOfType(100))); // unassigned standard type
+        assertNull(factory.createPooledPdu(ByteBuffer.wrap(pduOfType(100))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegisterPduOutOfRange() {
+        new PduFactory().registerPdu(256, OrgStatePdu::new);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegisterNullConstructor() {
+        new PduFactory().registerPdu(137, null);
+    }
+}
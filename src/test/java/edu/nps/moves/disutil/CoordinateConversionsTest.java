@@ -1,8 +1,17 @@
 package edu.nps.moves.disutil;
 
+import java.util.Random;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import SRM.Coord3D;
+import SRM.SRF_Celestiocentric;
+import SRM.SRF_Celestiodetic;
+import SRM.SRF_LocalTangentSpaceEuclidean;
+import SRM.SRM_ORM_Code;
+import SRM.SRM_RT_Code;
+
 public class CoordinateConversionsTest {
 
     final double DELTA = 0.1; // acceptable amount of error
@@ -36,4 +45,92 @@ public class CoordinateConversionsTest {
     public void getXYZfromLatLonRadiansTest() {
         Assert.assertArrayEquals(xyz, CoordinateConversions.getXYZfromLatLonRadians(latlonheightRadians[0], latlonheightRadians[1], latlonheightRadians[2]), DELTA);
     }
+
+    /**
+     * Random positions from below sea level to low earth orbit, including the
+     * poles, checked against the SEDRIS SRM to a millimeter
+     */
+    @Test
+    public void batchMatchesSrm() throws Exception {
+        final int count = 1000;
+        final double MILLIMETER = 0.001;
+        SRF_Celestiodetic geodetic = new SRF_Celestiodetic(SRM_ORM_Code.ORMCOD_WGS_1984, SRM_RT_Code.RTCOD_WGS_1984_IDENTITY);
+        SRF_Celestiocentric geocentric = new SRF_Celestiocentric(SRM_ORM_Code.ORMCOD_WGS_1984, SRM_RT_Code.RTCOD_WGS_1984_IDENTITY);
+
+        Random random = new Random(42);
+        double[] latLonHeight = new double[3 * count];
+        for (int i = 0; i < count; i++) {
+            latLonHeight[3 * i] = (random.nextDouble() - 0.5) * Math.PI;
+            latLonHeight[3 * i + 1] = (random.nextDouble() - 0.5) * 2 * Math.PI;
+            latLonHeight[3 * i + 2] = random.nextDouble() * 400000 - 1000;
+        }
+        latLonHeight[0] = Math.PI / 2;
+        latLonHeight[3] = -Math.PI / 2;
+
+        double[] xyz = new double[3 * count];
+        CoordinateConversions.latLonRadiansToXyz(latLonHeight, 0, xyz, 0, count);
+        double[] roundTrip = new double[3 * count];
+        CoordinateConversions.xyzToLatLonRadians(xyz, 0, roundTrip, 0, count);
+
+        // SRM rejects latitudes of exactly +-90 degrees
+        Assert.assertEquals(CoordinateConversions.WGS84_A * (1 - CoordinateConversions.WGS84_F) + latLonHeight[2], xyz[2], MILLIMETER);
+        Assert.assertEquals(Math.PI / 2, roundTrip[0], 1e-12);
+        Assert.assertEquals(-Math.PI / 2, roundTrip[3], 1e-12);
+        Assert.assertEquals(latLonHeight[5], roundTrip[5], MILLIMETER);
+
+        for (int i = 2; i < count; i++) {
+            Coord3D gd = geodetic.createCoordinate3D(latLonHeight[3 * i + 1], latLonHeight[3 * i], latLonHeight[3 * i + 2]);
+            Coord3D gc = geocentric.createCoordinate3D(0.0, 0.0, 0.0);
+            geocentric.changeCoordinate3DSRF(gd, gc);
+            double[] expected = gc.getValues();
+            Assert.assertEquals(expected[0], xyz[3 * i], MILLIMETER);
+            Assert.assertEquals(expected[1], xyz[3 * i + 1], MILLIMETER);
+            Assert.assertEquals(expected[2], xyz[3 * i + 2], MILLIMETER);
+
+            gd = geodetic.createCoordinate3D(0.0, 0.0, 0.0);
+            geodetic.changeCoordinate3DSRF(geocentric.createCoordinate3D(xyz[3 * i], xyz[3 * i + 1], xyz[3 * i + 2]), gd);
+            expected = gd.getValues();
+            double radius = CoordinateConversions.WGS84_A;
+            Assert.assertEquals(expected[1], roundTrip[3 * i], MILLIMETER / radius);
+            Assert.assertEquals(expected[0], roundTrip[3 * i + 1], MILLIMETER / radius);
+            Assert.assertEquals(expected[2], roundTrip[3 * i + 2], MILLIMETER);
+            Assert.assertEquals(latLonHeight[3 * i + 2], roundTrip[3 * i + 2], MILLIMETER);
+        }
+    }
+
+    @Test
+    public void localTangentPlaneMatchesSrm() throws Exception {
+        final double lat = 36.6 * CoordinateConversions.DEGREES_TO_RADIANS;
+        final double lon = -121.9 * CoordinateConversions.DEGREES_TO_RADIANS;
+        final double height = 50.0;
+        SRF_Celestiocentric geocentric = new SRF_Celestiocentric(SRM_ORM_Code.ORMCOD_WGS_1984, SRM_RT_Code.RTCOD_WGS_1984_IDENTITY);
+        SRF_LocalTangentSpaceEuclidean ltse = new SRF_LocalTangentSpaceEuclidean(SRM_ORM_Code.ORMCOD_WGS_1984,
+                SRM_RT_Code.RTCOD_WGS_1984_IDENTITY, lon, lat, 0.0, 0.0, 0.0, height);
+
+        Random random = new Random(7);
+        final int count = 200;
+        double[] enu = new double[3 * count];
+        for (int i = 0; i < enu.length; i++) {
+            enu[i] = (random.nextDouble() - 0.5) * 100000;
+        }
+        double[] xyz = new double[3 * count];
+        CoordinateConversions.enuToXyz(lat, lon, height, enu, 0, xyz, 0, count);
+        double[] ned = new double[3 * count];
+        CoordinateConversions.xyzToNed(lat, lon, height, xyz, 0, ned, 0, count);
+        double[] back = xyz.clone();
+        CoordinateConversions.xyzToEnu(lat, lon, height, back, 0, back, 0, count);
+
+        for (int i = 0; i < count; i++) {
+            Coord3D gc = geocentric.createCoordinate3D(0.0, 0.0, 0.0);
+            geocentric.changeCoordinate3DSRF(ltse.createCoordinate3D(enu[3 * i], enu[3 * i + 1], enu[3 * i + 2]), gc);
+            double[] expected = gc.getValues();
+            for (int j = 0; j < 3; j++) {
+                Assert.assertEquals(expected[j], xyz[3 * i + j], 0.001);
+                Assert.assertEquals(enu[3 * i + j], back[3 * i + j], 0.001);
+            }
+            Assert.assertEquals(enu[3 * i + 1], ned[3 * i], 0.001);
+            Assert.assertEquals(enu[3 * i], ned[3 * i + 1], 0.001);
+            Assert.assertEquals(-enu[3 * i + 2], ned[3 * i + 2], 0.001);
+        }
+    }
 }
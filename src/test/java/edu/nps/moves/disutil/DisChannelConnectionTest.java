@@ -0,0 +1,106 @@
+package edu.nps.moves.disutil;
+
+import static org.junit.Assert.*;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.FirePdu;
+import edu.nps.moves.dis.Pdu;
+import edu.nps.moves.disutil.DisChannelConnection.OverflowPolicy;
+
+public class DisChannelConnectionTest {
+
+    @Test
+    public void testReceiveBundle() throws Exception {
+        DisChannelConnection con = new DisChannelConnection(100, OverflowPolicy.DROP_OLDEST);
+        int port = con.addPort(0);
+        Thread reader = new Thread(con);
+        reader.start();
+        try {
+            EntityStatePdu espdu = new EntityStatePdu();
+            espdu.getEntityID().setEntity(7);
+            FirePdu fire = new FirePdu();
+            ByteBuffer bundle = ByteBuffer.allocate(espdu.getLength() + fire.getLength());
+            espdu.marshal(bundle);
+            fire.marshal(bundle);
+
+            try (DatagramSocket socket = new DatagramSocket()) {
+                socket.send(new DatagramPacket(bundle.array(), bundle.position(), InetAddress.getLoopbackAddress(), port));
+            }
+
+            Pdu first = con.poll(5, TimeUnit.SECONDS);
+            assertTrue(first instanceof EntityStatePdu);
+            assertEquals(7, ((EntityStatePdu) first).getEntityID().getEntity());
+            assertTrue(con.poll(5, TimeUnit.SECONDS) instanceof FirePdu);
+            assertEquals(1, con.getReceivedDatagramCount());
+            assertEquals(2, con.getReceivedPduCount());
+            assertEquals(0, con.getPartiallyDecodedDatagramCount());
+        } finally {
+            con.terminate();
+            reader.join(5000);
+        }
+        assertFalse(reader.isAlive());
+    }
+
+    @Test
+    public void testPortSharesOneChannel() throws Exception {
+        DisChannelConnection con = new DisChannelConnection(100, OverflowPolicy.DROP_OLDEST);
+        int port = con.addPort(0);
+        assertEquals(port, con.addPort(port));
+        Thread reader = new Thread(con);
+        reader.start();
+        try {
+            byte[] data = new EntityStatePdu().marshal();
+            try (DatagramSocket socket = new DatagramSocket()) {
+                socket.send(new DatagramPacket(data, data.length, InetAddress.getLoopbackAddress(), port));
+            }
+            assertNotNull(con.poll(5, TimeUnit.SECONDS));
+            assertNull(con.poll(200, TimeUnit.MILLISECONDS));
+            assertEquals(1, con.getReceivedDatagramCount());
+        } finally {
+            con.terminate();
+            reader.join(5000);
+        }
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        DisChannelConnection con = new DisChannelConnection(2, OverflowPolicy.DROP_OLDEST);
+        Pdu a = new EntityStatePdu(), b = new EntityStatePdu(), c = new EntityStatePdu();
+        con.handleMessage(a);
+        con.handleMessage(b);
+        con.handleMessage(c);
+
+        List<Pdu> batch = new ArrayList<>();
+        assertEquals(2, con.takeBatch(batch, 10));
+        assertSame(b, batch.get(0));
+        assertSame(c, batch.get(1));
+        assertEquals(1, con.getDroppedPduCount());
+        con.terminate();
+    }
+
+    @Test
+    public void testDropNewest() throws Exception {
+        DisChannelConnection con = new DisChannelConnection(2, OverflowPolicy.DROP_NEWEST);
+        Pdu a = new EntityStatePdu(), b = new EntityStatePdu(), c = new EntityStatePdu();
+        con.handleMessage(a);
+        con.handleMessage(b);
+        con.handleMessage(c);
+
+        List<Pdu> batch = new ArrayList<>();
+        assertEquals(2, con.drainTo(batch, 10));
+        assertSame(a, batch.get(0));
+        assertSame(b, batch.get(1));
+        assertEquals(1, con.getDroppedPduCount());
+        con.terminate();
+    }
+}
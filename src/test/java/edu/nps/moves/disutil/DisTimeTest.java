@@ -0,0 +1,68 @@
+package edu.nps.moves.disutil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+public class DisTimeTest {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /**
+     * 2024-03-05 14:00:00 UTC
+     */
+    private static final long TOP_OF_HOUR = LocalDateTime.of(2024, 3, 5, 14, 0).toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND;
+
+    private final DisTime disTime = new DisTime();
+
+    @Test
+    public void testTimestamps() {
+        assertEquals(1, disTime.getDisAbsoluteTimestamp(TOP_OF_HOUR));
+        assertEquals(0, disTime.getDisRelativeTimestamp(TOP_OF_HOUR));
+
+        // half past: half the DIS time units, shifted left one bit
+        int halfPast = disTime.getDisAbsoluteTimestamp(TOP_OF_HOUR + DisTime.NANOS_PER_HOUR / 2);
+        assertEquals(DisTime.DIS_TIME_UNITS_PER_HOUR / 2, halfPast >>> 1);
+        assertTrue(DisTime.isAbsolute(halfPast));
+
+        // just before the top of the hour, then rolled over
+        int last = disTime.getDisRelativeTimestamp(TOP_OF_HOUR + DisTime.NANOS_PER_HOUR - 1);
+        assertFalse(DisTime.isAbsolute(last));
+        assertEquals(DisTime.DIS_TIME_UNITS_PER_HOUR - 1, last >>> 1);
+        assertEquals(0, disTime.getDisRelativeTimestamp(TOP_OF_HOUR + DisTime.NANOS_PER_HOUR));
+    }
+
+    @Test
+    public void testToEpochNanos() {
+        for (long t = TOP_OF_HOUR - 10 * NANOS_PER_SECOND; t < TOP_OF_HOUR + DisTime.NANOS_PER_HOUR; t += 7 * NANOS_PER_SECOND + 12345) {
+            int timestamp = disTime.getDisAbsoluteTimestamp(t);
+            // received a little later, possibly in the next hour
+            assertEquals(t, DisTime.toEpochNanos(timestamp, t + 2 * NANOS_PER_SECOND), 2000);
+            // sender's clock a little ahead of ours
+            assertEquals(t, DisTime.toEpochNanos(timestamp, t - 2 * NANOS_PER_SECOND), 2000);
+        }
+    }
+
+    @Test
+    public void testNpsAndUnixTimestamps() {
+        long yearStart = LocalDateTime.of(2024, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND;
+        assertEquals(0, disTime.getNpsTimestamp(yearStart));
+        assertEquals(150, disTime.getNpsTimestamp(yearStart + 1500000000L));
+        // 2023-12-31 23:59:59 UTC is the end of the previous year
+        assertEquals(365L * 24 * 3600 * 100 - 100, disTime.getNpsTimestamp(yearStart - NANOS_PER_SECOND));
+        assertEquals(TOP_OF_HOUR / NANOS_PER_SECOND, disTime.getUnixTimestamp(TOP_OF_HOUR + 999999999L));
+    }
+
+    @Test
+    public void testCurrentTime() {
+        long before = System.currentTimeMillis();
+        long now = disTime.getEpochNanos() / 1000000L;
+        assertTrue(Math.abs(now - before) < 1000);
+        assertEquals(disTime.getEpochNanos(), disTime.toEpochNanos(disTime.getDisAbsoluteTimestamp()), 1000000000L);
+    }
+}
@@ -0,0 +1,305 @@
+package edu.nps.moves.disutil;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.nps.moves.dis.ArticulationParameter;
+import edu.nps.moves.dis.CommentPdu;
+import edu.nps.moves.dis.DataPdu;
+import edu.nps.moves.dis.DetonationPdu;
+import edu.nps.moves.dis.ElectronicEmissionsPdu;
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.FirePdu;
+import edu.nps.moves.dis.Pdu;
+import edu.nps.moves.dis.ReceiverPdu;
+import edu.nps.moves.dis.SignalPdu;
+import edu.nps.moves.dis.StartResumePdu;
+import edu.nps.moves.dis.StopFreezePdu;
+import edu.nps.moves.dis.TransmitterPdu;
+import edu.nps.moves.dis7.ArticulatedParts;
+import edu.nps.moves.dis7.EntityAssociation;
+import edu.nps.moves.dis7.ExplosionDescriptor;
+
+public class DisVersionTranslatorTest {
+
+    private static ByteBuffer encode(Pdu pdu) {
+        ByteBuffer buff = ByteBuffer.allocate(DisChannelConnection.MAX_DATAGRAM_SIZE);
+        pdu.encode(buff);
+        buff.flip();
+        return buff;
+    }
+
+    private static ByteBuffer encode(edu.nps.moves.dis7.Pdu pdu) {
+        ByteBuffer buff = ByteBuffer.allocate(DisChannelConnection.MAX_DATAGRAM_SIZE);
+        pdu.encode(buff);
+        buff.flip();
+        return buff;
+    }
+
+    private static ByteBuffer translate(ByteBuffer src, int version) {
+        ByteBuffer dst = ByteBuffer.allocate(src.remaining());
+        int written = DisVersionTranslator.translate(src, dst, version);
+        assertTrue(written > 0);
+        assertEquals(written, dst.position());
+        assertFalse(src.hasRemaining());
+        dst.flip();
+        return dst;
+    }
+
+    @Test
+    public void testEntityStateToVersion7() {
+        EntityStatePdu espdu = new EntityStatePdu();
+        espdu.getEntityID().setEntity(42);
+        espdu.getEntityLocation().setZ(-3.5);
+        espdu.getMarking().setCharactersString("EAGLE1");
+        ArticulationParameter turret = new ArticulationParameter();
+        turret.setParameterType(4096 + 11);
+        turret.setParameterValue(0.25);
+        espdu.getArticulationParameters().add(turret);
+        espdu.setPadding((short) 0x5A00);
+
+        ByteBuffer v7 = translate(encode(espdu), 7);
+        assertEquals(7, v7.get(0));
+        assertEquals(0, v7.get(10));
+        edu.nps.moves.dis7.EntityStatePdu result = (edu.nps.moves.dis7.EntityStatePdu) new edu.nps.moves.dis7.PduFactory().createPdu(v7);
+        assertEquals(42, result.getEntityID().getEntityID());
+        assertEquals(-3.5, result.getEntityLocation().getZ(), 0);
+        assertEquals("EAGLE1", result.getMarking().getCharactersString().trim());
+        ArticulatedParts part = (ArticulatedParts) result.getVariableParameters().get(0);
+        assertEquals(4096 + 11, part.getParameterType());
+        assertEquals(0.25f, part.getParameterValue(), 0);
+    }
+
+    @Test
+    public void testEntityStateToVersion6DropsRecords() {
+        edu.nps.moves.dis7.EntityStatePdu espdu = new edu.nps.moves.dis7.EntityStatePdu();
+        espdu.getEntityID().setEntityID(9);
+        espdu.getMarking().setCharactersString("V7");
+        espdu.setPduStatus((short) 0x0C);
+        espdu.getVariableParameters().add(new EntityAssociation());
+        ArticulatedParts part = new ArticulatedParts();
+        part.setParameterValue(1.5f);
+        espdu.getVariableParameters().add(part);
+        espdu.getVariableParameters().add(new EntityAssociation());
+        ByteBuffer v7 = encode(espdu);
+        int v7Length = v7.remaining();
+
+        ByteBuffer v6 = translate(v7, 6);
+        assertEquals(v7Length - 32, v6.remaining());
+        assertEquals(v6.remaining(), v6.getShort(8));
+        assertEquals(0, v6.get(10));
+        EntityStatePdu result = (EntityStatePdu) new PduFactory().createPdu(v6);
+        assertEquals(6, result.getProtocolVersion());
+        assertEquals(9, result.getEntityID().getEntity());
+        assertEquals("V7", result.getMarking().getCharactersString().trim());
+        assertEquals(1, result.getArticulationParameters().size());
+        assertEquals(1.5, result.getArticulationParameters().get(0).getParameterValue(), 0);
+    }
+
+    @Test
+    public void testRoundTripKeepsBytes() {
+        DataPdu data = new DataPdu();
+        data.setRequestID(77);
+        StopFreezePdu stop = new StopFreezePdu();
+        stop.setReason((short) 2);
+        DetonationPdu detonation = new DetonationPdu();
+        detonation.getArticulationParameters().add(new ArticulationParameter());
+        Pdu[] pdus = {
+            new EntityStatePdu(), new FirePdu(), detonation, new TransmitterPdu(), new SignalPdu(),
+            new ReceiverPdu(), data, new CommentPdu(), new StartResumePdu(), stop
+        };
+        edu.nps.moves.dis7.PduFactory factory7 = new edu.nps.moves.dis7.PduFactory();
+        for (Pdu pdu : pdus) {
+            byte[] original = pdu.marshal();
+            ByteBuffer v7 = translate(ByteBuffer.wrap(original), 7);
+            edu.nps.moves.dis7.Pdu decoded = factory7.createPdu(v7.duplicate());
+            assertNotNull(pdu.getClass().getSimpleName(), decoded);
+            assertEquals(pdu.getClass().getSimpleName(), decoded.getClass().getSimpleName());
+
+            ByteBuffer v6 = translate(v7, 6);
+            byte[] back = new byte[v6.remaining()];
+            v6.get(back);
+            assertArrayEquals(pdu.getClass().getSimpleName(), original, back);
+        }
+    }
+
+    @Test
+    public void testTransmitterToVersion6DropsParameters() throws Exception {
+        // 152 bytes of transmitter, modulation parameters and beam pattern, then three records
+        byte[] original = edu.nps.moves.dis7.PduFileLoader.load("TransmitterPdu_VariableTransmitterParameters.raw");
+        ByteBuffer v6 = translate(ByteBuffer.wrap(original), 6);
+        assertEquals(152, v6.remaining());
+        assertEquals(152, v6.getShort(8));
+        assertEquals(0, v6.getShort(30));
+        for (int i = 12; i < 152; i++) {
+            if (i != 30 && i != 31) {
+                assertEquals("byte " + i, original[i], v6.get(i));
+            }
+        }
+        TransmitterPdu result = (TransmitterPdu) new PduFactory().createPdu(v6.duplicate());
+        assertEquals(6, result.getProtocolVersion());
+        assertEquals(55555555, result.getFrequency());
+        assertEquals(0, result.getPadding1());
+        assertEquals(1, result.getModulationType().getSystem());
+
+        // and back, with no parameter records left to count
+        ByteBuffer v7 = translate(v6, 7);
+        edu.nps.moves.dis7.TransmitterPdu back = (edu.nps.moves.dis7.TransmitterPdu) new edu.nps.moves.dis7.PduFactory().createPdu(v7);
+        assertEquals(152, back.getLength());
+        assertEquals(0, back.getVariableTransmitterParameterCount());
+        assertEquals(55555555, back.getFrequency());
+
+        // a record length that runs past the end of the PDU
+        ByteBuffer bad = ByteBuffer.wrap(original.clone());
+        bad.putShort(152 + 4, (short) 24);
+        assertEquals(DisVersionTranslator.MALFORMED, DisVersionTranslator.toVersion6(bad, ByteBuffer.allocate(256)));
+    }
+
+    @Test
+    public void testExplosionBecomesMunitionBurst() {
+        edu.nps.moves.dis7.DetonationPdu detonation = new edu.nps.moves.dis7.DetonationPdu();
+        detonation.setPduStatus((short) 0x20);
+        ExplosionDescriptor explosion = new ExplosionDescriptor();
+        explosion.getExplodingObject().setEntityKind((short) 2);
+        explosion.setExplosiveMaterial(5);
+        explosion.setExplosiveForce(100f);
+        detonation.setDescriptor(explosion);
+
+        DetonationPdu result = (DetonationPdu) new PduFactory().createPdu(translate(encode(detonation), 6));
+        assertEquals(2, result.getBurstDescriptor().getMunition().getEntityKind());
+        assertEquals(0, result.getBurstDescriptor().getWarhead());
+        assertEquals(0, result.getBurstDescriptor().getFuse());
+        assertEquals(1, result.getBurstDescriptor().getQuantity());
+        assertEquals(0, result.getBurstDescriptor().getRate());
+    }
+
+    @Test
+    public void testSkipsAndMalformed() {
+        ByteBuffer dst = ByteBuffer.allocate(1500);
+        ByteBuffer emissions = encode(new ElectronicEmissionsPdu());
+        assertEquals(0, DisVersionTranslator.toVersion7(emissions, dst));
+        assertFalse(emissions.hasRemaining());
+
+        ByteBuffer fire7 = encode(new edu.nps.moves.dis7.FirePdu());
+        assertEquals(0, DisVersionTranslator.toVersion7(fire7, dst));
+        fire7.rewind();
+        assertTrue(DisVersionTranslator.toVersion6(fire7, dst) > 0);
+
+        ByteBuffer shortPdu = encode(new FirePdu());
+        shortPdu.limit(shortPdu.limit() - 1);
+        assertEquals(DisVersionTranslator.MALFORMED, DisVersionTranslator.toVersion7(shortPdu, dst));
+        assertEquals(0, shortPdu.position());
+
+        // a record count running past the end of the PDU
+        ByteBuffer espdu7 = encode(new edu.nps.moves.dis7.EntityStatePdu());
+        espdu7.put(19, (byte) 3);
+        dst.clear();
+        assertEquals(DisVersionTranslator.MALFORMED, DisVersionTranslator.toVersion6(espdu7, dst));
+        assertEquals(0, dst.position());
+
+        // no room: both buffers are left as they were
+        ByteBuffer fire = encode(new FirePdu());
+        ByteBuffer small = ByteBuffer.allocate(fire.remaining() - 1);
+        try {
+            DisVersionTranslator.toVersion7(fire, small);
+            fail("Expected BufferOverflowException");
+        } catch (BufferOverflowException e) {
+            assertEquals(0, fire.position());
+            assertEquals(new FirePdu().getLength(), fire.limit());
+            assertEquals(0, small.position());
+        }
+        assertFalse(DisVersionTranslator.isTranslated(new ElectronicEmissionsPdu().getPduType()));
+    }
+
+    @Test
+    public void testBridge() throws Exception {
+        DatagramChannel receiver = DatagramChannel.open();
+        receiver.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        DatagramChannel in = DatagramChannel.open();
+        in.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        DisVersionBridge bridge = new DisVersionBridge(in, in, receiver.getLocalAddress(), 7);
+        Thread thread = new Thread(bridge);
+        thread.start();
+        try (DatagramChannel sender = DatagramChannel.open()) {
+            // a bundle of a version 6 ESPDU and a version 7 fire, which is not re-sent
+            EntityStatePdu espdu = new EntityStatePdu();
+            espdu.getEntityID().setEntity(5);
+            ByteBuffer bundle = ByteBuffer.allocate(1500);
+            espdu.encode(bundle);
+            new edu.nps.moves.dis7.FirePdu().encode(bundle);
+            new FirePdu().encode(bundle);
+            bundle.flip();
+            sender.send(bundle, in.getLocalAddress());
+
+            ByteBuffer datagram = ByteBuffer.allocate(1500);
+            receiver.receive(datagram);
+            datagram.flip();
+            List<edu.nps.moves.dis7.Pdu> pdus = new ArrayList<>();
+            new edu.nps.moves.dis7.PduFactory().getPdusFromBundle(datagram, pdus);
+            assertEquals(2, pdus.size());
+            assertEquals(5, ((edu.nps.moves.dis7.EntityStatePdu) pdus.get(0)).getEntityID().getEntityID());
+            assertTrue(pdus.get(1) instanceof edu.nps.moves.dis7.FirePdu);
+            assertEquals(7, pdus.get(1).getProtocolVersion());
+        } finally {
+            bridge.close();
+            receiver.close();
+            thread.join(5000);
+        }
+        assertFalse(thread.isAlive());
+        assertEquals(1, bridge.getReceivedDatagramCount());
+        assertEquals(1, bridge.getSkippedPduCount());
+        assertEquals(2, bridge.getTranslatedPduCount());
+    }
+
+    @Test
+    public void testTwoWayBridgeForwardsEachPduOnce() throws Exception {
+        DatagramChannel in6 = DatagramChannel.open();
+        in6.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        DatagramChannel in7 = DatagramChannel.open();
+        in7.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        DisVersionBridge to7 = new DisVersionBridge(in6, in6, in7.getLocalAddress(), 7);
+        DisVersionBridge to6 = new DisVersionBridge(in7, in7, in6.getLocalAddress(), 6, to7);
+        Thread thread7 = new Thread(to7);
+        Thread thread6 = new Thread(to6);
+        thread7.start();
+        thread6.start();
+        try (DatagramChannel sender = DatagramChannel.open()) {
+            sender.send(encode(new EntityStatePdu()), in6.getLocalAddress());
+            sender.send(encode(new edu.nps.moves.dis7.FirePdu()), in7.getLocalAddress());
+
+            // each bridge drops the other's output instead of sending it back
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((to7.getEchoedPduCount() < 1 || to6.getEchoedPduCount() < 1)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+        } finally {
+            to7.close();
+            to6.close();
+            thread7.join(5000);
+            thread6.join(5000);
+        }
+        assertEquals(1, to7.getTranslatedPduCount());
+        assertEquals(1, to6.getTranslatedPduCount());
+        assertEquals(1, to7.getEchoedPduCount());
+        assertEquals(1, to6.getEchoedPduCount());
+        assertEquals(2, to7.getReceivedDatagramCount());
+        assertEquals(2, to6.getReceivedDatagramCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPartnerMustTranslateTheOtherWay() throws Exception {
+        DisVersionBridge to7 = new DisVersionBridge(DatagramChannel.open(), DatagramChannel.open(), null, 7);
+        new DisVersionBridge(DatagramChannel.open(), DatagramChannel.open(), null, 7, to7);
+    }
+}
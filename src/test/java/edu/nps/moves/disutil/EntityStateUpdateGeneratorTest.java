@@ -0,0 +1,133 @@
+package edu.nps.moves.disutil;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import edu.nps.moves.dis.ArticulationParameter;
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.EntityStateUpdatePdu;
+import edu.nps.moves.dis.Pdu;
+import edu.nps.moves.dis7.ArticulatedParts;
+
+public class EntityStateUpdateGeneratorTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static EntityStatePdu entity() {
+        EntityStatePdu espdu = new EntityStatePdu();
+        espdu.getEntityID().setSite(1);
+        espdu.getEntityID().setApplication(2);
+        espdu.getEntityID().setEntity(3);
+        espdu.getMarking().setCharactersString("TANK");
+        espdu.getEntityLocation().setX(1000);
+        espdu.getArticulationParameters().add(new ArticulationParameter());
+        return espdu;
+    }
+
+    @Test
+    public void testChoosesUpdateForKinematicChanges() {
+        EntityStateUpdateGenerator generator = new EntityStateUpdateGenerator();
+        EntityTable table = new EntityTable();
+        EntityStatePdu espdu = entity();
+
+        Pdu first = generator.next(espdu, 1000);
+        assertSame(espdu, first);
+        table.update(first, 1);
+
+        espdu.getEntityLocation().setX(1100);
+        espdu.getEntityLinearVelocity().setY(4);
+        espdu.getEntityOrientation().setPsi(0.5f);
+        espdu.setTimestamp(77);
+        Pdu second = generator.next(espdu, 1000 + SECOND);
+        assertTrue(second instanceof EntityStateUpdatePdu);
+        EntityStateUpdatePdu update = (EntityStateUpdatePdu) second;
+        assertEquals(1100, update.getEntityLocation().getX(), 1e-9);
+        assertEquals(1, update.getArticulationParameters().size());
+        assertEquals(update.getMarshalledSize(), update.marshal().length);
+        assertTrue(update.getMarshalledSize() < espdu.getMarshalledSize() * 2 / 3);
+
+        // the receiver rebuilds the full state
+        assertTrue(table.update(second, 2));
+        EntityStatePdu state = new EntityStatePdu();
+        assertTrue(table.getState(PduView.entityKey(1, 2, 3), state));
+        assertEquals(1100, state.getEntityLocation().getX(), 1e-9);
+        assertEquals(4, state.getEntityLinearVelocity().getY(), 1e-6);
+        assertEquals(0.5, state.getEntityOrientation().getPsi(), 1e-6);
+        assertEquals(77, state.getTimestamp());
+        assertEquals("TANK", state.getMarking().getCharactersString().trim());
+        assertEquals(1, state.getArticulationParameters().size());
+        assertEquals(2, table.getLastUpdateMillis(PduView.entityKey(1, 2, 3)));
+
+        assertEquals(1, generator.getFullCount());
+        assertEquals(1, generator.getUpdateCount());
+    }
+
+    @Test
+    public void testFullStateWhenOtherFieldsChange() {
+        EntityStateUpdateGenerator generator = new EntityStateUpdateGenerator();
+        EntityStatePdu espdu = entity();
+        assertSame(espdu, generator.next(espdu, 0));
+
+        espdu.setEntityAppearance(1);
+        assertSame(espdu, generator.next(espdu, 1));
+        assertNotSame(espdu, generator.next(espdu, 2));
+
+        espdu.getMarking().setCharactersString("TRUCK");
+        assertSame(espdu, generator.next(espdu, 3));
+
+        espdu.getArticulationParameters().add(new ArticulationParameter());
+        assertSame(espdu, generator.next(espdu, 4));
+
+        espdu.getDeadReckoningParameters().getEntityLinearAcceleration().setX(1);
+        assertSame(espdu, generator.next(espdu, 5));
+        assertNotSame(espdu, generator.next(espdu, 6));
+
+        generator.forceFull(1, 2, 3);
+        assertSame(espdu, generator.next(espdu, 7));
+    }
+
+    @Test
+    public void testHeartbeat() {
+        EntityStateUpdateGenerator generator = new EntityStateUpdateGenerator();
+        generator.setHeartbeat(2.0);
+        EntityStatePdu espdu = entity();
+        assertSame(espdu, generator.next(espdu, 0));
+        assertNotSame(espdu, generator.next(espdu, SECOND));
+        assertSame(espdu, generator.next(espdu, 2 * SECOND));
+        assertNotSame(espdu, generator.next(espdu, 3 * SECOND));
+    }
+
+    @Test
+    public void testVersion7() {
+        EntityStateUpdateGenerator generator = new EntityStateUpdateGenerator();
+        EntityTable table = new EntityTable();
+        edu.nps.moves.dis7.EntityStatePdu espdu = new edu.nps.moves.dis7.EntityStatePdu();
+        espdu.getEntityID().setSiteID(4);
+        espdu.getEntityID().setApplicationID(5);
+        espdu.getEntityID().setEntityID(6);
+        espdu.getVariableParameters().add(new ArticulatedParts());
+        assertSame(espdu, generator.next(espdu, 0));
+        table.update(espdu, 1);
+
+        espdu.getEntityLocation().setY(-20);
+        edu.nps.moves.dis7.Pdu update = generator.next(espdu, 1);
+        assertTrue(update instanceof edu.nps.moves.dis7.EntityStateUpdatePdu);
+        assertEquals(1, ((edu.nps.moves.dis7.EntityStateUpdatePdu) update).getVariableParameters().size());
+
+        assertTrue(table.update(update, 2));
+        EntityStatePdu state = new EntityStatePdu();
+        assertTrue(table.getState(PduView.entityKey(4, 5, 6), state));
+        assertEquals(-20, state.getEntityLocation().getY(), 1e-9);
+        assertEquals(6, state.getProtocolVersion());
+        assertEquals(1, state.getArticulationParameters().size());
+
+        // an update for an entity never seen in full is ignored
+        espdu.getEntityID().setEntityID(7);
+        generator.next(espdu, 2);
+        assertNotSame(espdu, generator.next(espdu, 3));
+        assertFalse(table.update(generator.next(espdu, 4), 5));
+    }
+}
@@ -0,0 +1,165 @@
+package edu.nps.moves.disutil;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import edu.nps.moves.deadreckoning.DeadReckoner;
+import edu.nps.moves.dis.ArticulationParameter;
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.RemoveEntityPdu;
+import edu.nps.moves.dis7.ArticulatedParts;
+import edu.nps.moves.dis7.EntityAssociation;
+import edu.nps.moves.disenum.DeadReckoningAlgorithm;
+
+public class EntityTableTest {
+
+    private static EntityStatePdu movingEntity(int site, int application, int entity) {
+        EntityStatePdu espdu = new EntityStatePdu();
+        espdu.getEntityID().setSite(site);
+        espdu.getEntityID().setApplication(application);
+        espdu.getEntityID().setEntity(entity);
+        espdu.getEntityLocation().setX(1000);
+        espdu.getEntityLinearVelocity().setX(10);
+        espdu.getEntityLinearVelocity().setY(-2);
+        espdu.getDeadReckoningParameters().setDeadReckoningAlgorithm((short) DeadReckoningAlgorithm.DRMF_P_W.value);
+        return espdu;
+    }
+
+    @Test
+    public void testDeadReckonDoesNotChangeStoredState() {
+        EntityTable table = new EntityTable();
+        EntityStatePdu espdu = movingEntity(1, 2, 3);
+        assertTrue(table.update(espdu, 10000));
+        long key = PduView.entityKey(1, 2, 3);
+
+        EntityStatePdu expected = movingEntity(1, 2, 3);
+        DeadReckoner.perform_DR(expected, 2.5);
+
+        EntityStatePdu result = new EntityStatePdu();
+        assertTrue(table.deadReckon(key, 12500, result));
+        assertEquals(expected.getEntityLocation().getX(), result.getEntityLocation().getX(), 1e-9);
+        assertEquals(expected.getEntityLocation().getY(), result.getEntityLocation().getY(), 1e-9);
+
+        // a second query from the same state gives the same answer
+        assertTrue(table.deadReckon(key, 12500, result));
+        assertEquals(1025, result.getEntityLocation().getX(), 1e-9);
+
+        EntityStatePdu stored = new EntityStatePdu();
+        assertTrue(table.getState(key, stored));
+        assertEquals(1000, stored.getEntityLocation().getX(), 1e-9);
+        assertEquals(10000, table.getLastUpdateMillis(key));
+
+        // the table keeps its own copy
+        espdu.getEntityLocation().setX(0);
+        assertTrue(table.getState(key, stored));
+        assertEquals(1000, stored.getEntityLocation().getX(), 1e-9);
+
+        assertNull(table.getDeadReckonedState(PduView.entityKey(1, 2, 4), 12500));
+    }
+
+    @Test
+    public void testOlderUpdateIgnored() {
+        EntityTable table = new EntityTable();
+        EntityStatePdu espdu = movingEntity(1, 2, 3);
+        table.update(espdu, 2000);
+        espdu.getEntityLocation().setX(5);
+        table.update(espdu, 1000);
+
+        EntityStatePdu stored = new EntityStatePdu();
+        assertTrue(table.getState(PduView.entityKey(1, 2, 3), stored));
+        assertEquals(1000, stored.getEntityLocation().getX(), 1e-9);
+        assertEquals(2000, table.getLastUpdateMillis(PduView.entityKey(1, 2, 3)));
+    }
+
+    @Test
+    public void testStateReusedAcrossSizes() {
+        EntityTable table = new EntityTable();
+        long key = PduView.entityKey(1, 2, 3);
+        EntityStatePdu espdu = movingEntity(1, 2, 3);
+        EntityStatePdu stored = new EntityStatePdu();
+        int[] counts = {2, 0, 3, 1};
+        for (int i = 0; i < counts.length; i++) {
+            espdu.getArticulationParameters().clear();
+            for (int p = 0; p < counts[i]; p++) {
+                ArticulationParameter parameter = new ArticulationParameter();
+                parameter.setParameterValue(i * 10 + p);
+                espdu.getArticulationParameters().add(parameter);
+            }
+            espdu.getEntityLocation().setX(i);
+            assertTrue(table.update(espdu, 1000 + i));
+            assertTrue(table.getState(key, stored));
+            assertEquals(i, stored.getEntityLocation().getX(), 0);
+            assertEquals(counts[i], stored.getArticulationParameters().size());
+            assertEquals(espdu.getMarshalledSize(), stored.getMarshalledSize());
+            if (counts[i] > 0) {
+                assertEquals(i * 10 + counts[i] - 1,
+                        stored.getArticulationParameters().get(counts[i] - 1).getParameterValue(), 0);
+            }
+        }
+
+        // a removed entity comes back with a fresh state
+        assertTrue(table.remove(key));
+        assertFalse(table.getState(key, stored));
+        assertTrue(table.update(movingEntity(1, 2, 3), 500));
+        assertEquals(500, table.getLastUpdateMillis(key));
+    }
+
+    @Test
+    public void testVersion7EntityState() {
+        EntityTable table = new EntityTable();
+        edu.nps.moves.dis7.EntityStatePdu espdu = new edu.nps.moves.dis7.EntityStatePdu();
+        espdu.getEntityID().setSiteID(4);
+        espdu.getEntityID().setApplicationID(5);
+        espdu.getEntityID().setEntityID(6);
+        espdu.getEntityLocation().setZ(-300);
+        espdu.getVariableParameters().add(new EntityAssociation());
+        ArticulatedParts turret = new ArticulatedParts();
+        turret.setParameterType(4096 + 11);
+        turret.setParameterValue(0.5f);
+        espdu.getVariableParameters().add(turret);
+        assertTrue(table.update(espdu, 0));
+
+        EntityStatePdu stored = new EntityStatePdu();
+        assertTrue(table.getState(PduView.entityKey(4, 5, 6), stored));
+        assertEquals(6, stored.getProtocolVersion());
+        assertEquals(-300, stored.getEntityLocation().getZ(), 1e-9);
+        assertEquals(1, stored.getArticulationParameters().size());
+        assertEquals(4096 + 11, stored.getArticulationParameters().get(0).getParameterType());
+        assertEquals(0.5, stored.getArticulationParameters().get(0).getParameterValue(), 1e-9);
+    }
+
+    @Test
+    public void testRemoveEntity() {
+        EntityTable table = new EntityTable();
+        table.update(movingEntity(1, 2, 3), 0);
+        table.update(movingEntity(1, 2, 4), 0);
+        table.update(movingEntity(1, 7, 3), 0);
+
+        RemoveEntityPdu remove = new RemoveEntityPdu();
+        remove.getReceivingEntityID().setSite(1);
+        remove.getReceivingEntityID().setApplication(2);
+        remove.getReceivingEntityID().setEntity(3);
+        assertTrue(table.update(remove, 0));
+        assertFalse(table.contains(PduView.entityKey(1, 2, 3)));
+        assertEquals(2, table.size());
+
+        remove.getReceivingEntityID().setEntity(EntityTable.ALL_ENTITIES);
+        remove.getReceivingEntityID().setApplication(7);
+        assertTrue(table.update(remove, 0));
+        assertEquals(1, table.size());
+        assertTrue(table.contains(PduView.entityKey(1, 2, 4)));
+    }
+
+    @Test
+    public void testExpire() {
+        EntityTable table = new EntityTable();
+        table.setTimeoutMillis(5000);
+        table.update(movingEntity(1, 2, 3), 1000);
+        table.update(movingEntity(1, 2, 4), 4000);
+
+        assertEquals(0, table.expire(6000));
+        assertEquals(1, table.expire(8000));
+        assertTrue(table.contains(PduView.entityKey(1, 2, 4)));
+    }
+}
@@ -0,0 +1,122 @@
+package edu.nps.moves.disutil;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.FirePdu;
+import edu.nps.moves.dis.Pdu;
+
+public class PduBundlerTest {
+
+    private DatagramChannel receiver;
+    private DatagramChannel sender;
+    private PduBundler bundler;
+
+    @Before
+    public void setUp() throws Exception {
+        receiver = DatagramChannel.open();
+        receiver.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        sender = DatagramChannel.open();
+        bundler = new PduBundler(sender, receiver.getLocalAddress());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        bundler.close();
+        sender.close();
+        receiver.close();
+    }
+
+    private ByteBuffer receive() throws Exception {
+        ByteBuffer datagram = ByteBuffer.allocate(DisChannelConnection.MAX_DATAGRAM_SIZE);
+        receiver.receive(datagram);
+        datagram.flip();
+        return datagram;
+    }
+
+    @Test
+    public void testBundlesBySize() throws Exception {
+        bundler.setMaxDelay(1, TimeUnit.HOURS);
+        int espduSize = new EntityStatePdu().getMarshalledSize();
+        int perDatagram = PduBundler.DEFAULT_MAX_BUNDLE_SIZE / espduSize;
+        for (int i = 0; i < 20; i++) {
+            EntityStatePdu espdu = new EntityStatePdu();
+            espdu.getEntityID().setEntity(i);
+            bundler.send(espdu);
+        }
+        assertEquals(20 / perDatagram, bundler.getSentDatagramCount());
+        assertEquals(20 % perDatagram, bundler.getBundledPduCount());
+        bundler.flush();
+        assertEquals(20, bundler.getSentPduCount());
+
+        PduFactory factory = new PduFactory();
+        List<Pdu> pdus = new ArrayList<>();
+        for (long i = 0; i < bundler.getSentDatagramCount(); i++) {
+            ByteBuffer datagram = receive();
+            assertTrue(datagram.remaining() <= PduBundler.DEFAULT_MAX_BUNDLE_SIZE);
+            factory.getPdusFromBundle(datagram, pdus);
+            assertFalse(datagram.hasRemaining());
+        }
+        assertEquals(20, pdus.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, ((EntityStatePdu) pdus.get(i)).getEntityID().getEntity());
+        }
+    }
+
+    @Test
+    public void testPadsToAlignment() throws Exception {
+        bundler.setMaxDelay(1, TimeUnit.HOURS);
+        // a fire PDU with 3 bytes of trailing data
+        FirePdu fire = new FirePdu();
+        ByteBuffer odd = ByteBuffer.allocate(fire.getMarshalledSize() + 3);
+        fire.marshal(odd);
+        odd.putShort(8, (short) odd.capacity());
+        odd.rewind();
+        bundler.send(odd);
+        assertEquals(0, odd.position());
+        bundler.send(new EntityStatePdu());
+        bundler.flush();
+
+        ByteBuffer datagram = receive();
+        int padded = (odd.remaining() + 7) / 8 * 8;
+        assertTrue(padded > odd.remaining());
+        assertEquals(padded, datagram.getShort(8));
+        assertEquals(padded + new EntityStatePdu().getMarshalledSize(), datagram.remaining());
+        List<Pdu> pdus = new ArrayList<>();
+        new PduFactory().getPdusFromBundle(datagram, pdus);
+        assertTrue(pdus.get(0) instanceof FirePdu);
+        assertTrue(pdus.get(1) instanceof EntityStatePdu);
+    }
+
+    @Test
+    public void testFlushesAtDeadline() throws Exception {
+        bundler.setMaxDelay(20, TimeUnit.MILLISECONDS);
+        Thread thread = new Thread(bundler);
+        thread.start();
+        long start = System.nanoTime();
+        bundler.send(new EntityStatePdu());
+        bundler.send(new FirePdu());
+        ByteBuffer datagram = receive();
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        List<Pdu> pdus = new ArrayList<>();
+        new PduFactory().getPdusFromBundle(datagram, pdus);
+        assertEquals(2, pdus.size());
+        assertEquals(1, bundler.getSentDatagramCount());
+
+        bundler.close();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+    }
+}
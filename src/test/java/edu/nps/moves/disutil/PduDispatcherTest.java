@@ -0,0 +1,95 @@
+package edu.nps.moves.disutil;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.FirePdu;
+import edu.nps.moves.dis.Pdu;
+import edu.nps.moves.dis.SignalPdu;
+import edu.nps.moves.disenum.PduType;
+import edu.nps.moves.disutil.PduDispatcher.WaitStrategy;
+
+public class PduDispatcherTest {
+
+    private static final int PDU_COUNT = 100000;
+
+    private static class CountingHandler implements PduDispatcher.Handler {
+
+        final AtomicInteger count = new AtomicInteger();
+        volatile Pdu last;
+
+        @Override
+        public void onPdu(Pdu pdu) {
+            last = pdu;
+            count.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testBusySpin() throws InterruptedException {
+        dispatchAll(WaitStrategy.BUSY_SPIN);
+    }
+
+    @Test
+    public void testYield() throws InterruptedException {
+        dispatchAll(WaitStrategy.YIELD);
+    }
+
+    @Test
+    public void testBlocking() throws InterruptedException {
+        dispatchAll(WaitStrategy.BLOCKING);
+    }
+
+    private void dispatchAll(WaitStrategy waitStrategy) throws InterruptedException {
+        PduDispatcher dispatcher = new PduDispatcher(1000, waitStrategy);
+        CountingHandler all = new CountingHandler();
+        CountingHandler entityState = new CountingHandler();
+        CountingHandler radio = new CountingHandler();
+        dispatcher.addHandler(all);
+        dispatcher.addTypeHandler(entityState, PduType.ENTITY_STATE.value);
+        dispatcher.addFamilyHandler(radio, 4);
+        dispatcher.start();
+
+        Pdu[] pdus = {new EntityStatePdu(), new FirePdu(), new SignalPdu()};
+        for (int i = 0; i < PDU_COUNT; i++) {
+            dispatcher.publish(pdus[i % pdus.length]);
+        }
+        dispatcher.halt();
+
+        assertEquals(PDU_COUNT, dispatcher.getPublishedCount());
+        assertEquals(0, dispatcher.getBacklog());
+        assertEquals(PDU_COUNT, all.count.get());
+        assertEquals((PDU_COUNT + 2) / 3, entityState.count.get());
+        assertEquals(PDU_COUNT / 3, radio.count.get());
+        assertSame(pdus[0], all.last);
+        assertSame(pdus[2], radio.last);
+    }
+
+    @Test
+    public void testTryPublishWhenFull() throws InterruptedException {
+        PduDispatcher dispatcher = new PduDispatcher(3, WaitStrategy.BLOCKING);
+        dispatcher.addHandler(new CountingHandler());
+
+        // no handler threads running, so the ring fills up
+        for (int i = 0; i < 4; i++) {
+            assertTrue(dispatcher.tryPublish(new FirePdu()));
+        }
+        assertFalse(dispatcher.tryPublish(new FirePdu()));
+        assertEquals(4, dispatcher.getBacklog());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddHandlerAfterStart() throws InterruptedException {
+        PduDispatcher dispatcher = new PduDispatcher(16, WaitStrategy.YIELD);
+        dispatcher.start();
+        try {
+            dispatcher.addHandler(new CountingHandler());
+        } finally {
+            dispatcher.halt();
+        }
+    }
+}
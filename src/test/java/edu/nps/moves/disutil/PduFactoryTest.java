@@ -68,6 +68,8 @@ import edu.nps.moves.dis.StopFreezeReliablePdu;
 import edu.nps.moves.dis.TransferControlRequestPdu;
 import edu.nps.moves.dis.TransmitterPdu;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class PduFactoryTest {
 
@@ -168,4 +170,107 @@ public class PduFactoryTest {
         ExperimentalPdu e = (ExperimentalPdu)p;
         assertEquals(e.getBody().length, 268);
     }
+
+    @Test
+    public void testGetPdusFromBundle() {
+        PduFactory factory = new PduFactory();
+        byte[] espdu = new EntityStatePdu().marshal();
+        byte[] fire = new FirePdu().marshal();
+        byte[] signal = new SignalPdu().marshal();
+
+        ByteBuffer bundle = ByteBuffer.allocate(espdu.length + fire.length + signal.length + 5);
+        bundle.put(espdu).put(fire).put(signal);
+        bundle.put(new byte[]{1, 2, 3, 4, 5}); // trailing bytes too short to be a pdu
+        bundle.flip();
+
+        List<Pdu> pdus = new ArrayList<Pdu>();
+        assertEquals(3, factory.getPdusFromBundle(bundle, pdus));
+        assertTrue(pdus.get(0) instanceof EntityStatePdu);
+        assertTrue(pdus.get(1) instanceof FirePdu);
+        assertTrue(pdus.get(2) instanceof SignalPdu);
+        assertEquals(espdu.length + fire.length + signal.length, bundle.position());
+        assertEquals(bundle.capacity(), bundle.limit());
+
+        assertEquals(3, factory.getPdusFromBundle(bundle.array()).size());
+    }
+
+    @Test
+    public void testGetPdusFromBundleStopsAtBadLength() {
+        PduFactory factory = new PduFactory();
+        byte[] espdu = new EntityStatePdu().marshal();
+        byte[] fire = new FirePdu().marshal();
+
+        ByteBuffer bundle = ByteBuffer.allocate(espdu.length + fire.length);
+        bundle.put(espdu).put(fire);
+        bundle.putShort(espdu.length + 8, (short) (fire.length + 1)); // claims more bytes than are left
+        bundle.flip();
+
+        List<Pdu> pdus = new ArrayList<Pdu>();
+        assertEquals(1, factory.getPdusFromBundle(bundle, pdus));
+        assertEquals(espdu.length, bundle.position());
+    }
+
+    /** Stand-in for an application defined decoder of the JCATS Org State V2 pdu */
+    public static class OrgStateV2Pdu extends ExperimentalPdu {
+    }
+
+    @Test
+    public void testRegisterPdu() throws IOException {
+        PduFactory factory = new PduFactory();
+        byte[] data = PduFileLoader.load("OrgStateV2Pdu-Type137-JCATS.bin");
+
+        factory.registerPdu(137, OrgStateV2Pdu::new);
+        Pdu p = factory.createPdu(data);
+        assertTrue(p instanceof OrgStateV2Pdu);
+        assertEquals(268, ((OrgStateV2Pdu) p).getBody().length);
+
+        factory.unregisterPdu(137);
+        assertEquals(ExperimentalPdu.class, factory.createPdu(data).getClass());
+
+        // Registration is per factory
+        assertEquals(ExperimentalPdu.class, new PduFactory().createPdu(data).getClass());
+    }
+
+    @Test
+    public void testReplaceBuiltInPdu() {
+        PduFactory factory = new PduFactory();
+        final EntityStatePdu reused = new EntityStatePdu();
+        factory.registerPdu(1, () -> reused);
+        assertSame(reused, factory.createPdu(new EntityStatePdu().marshal()));
+    }
+
+    @Test
+    public void testUnknownPduType() {
+        PduFactory factory = new PduFactory();
+        byte[] data = new CommentPdu().marshal();
+        data[2] = 100; // unassigned standard type
+        assertNull(factory.createPdu(data));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegisterPduOutOfRange() {
+        new PduFactory().registerPdu(256, ExperimentalPdu::new);
+    }
+
+    @Test
+    public void testCreatePooledPdu() throws IOException {
+        PduFactory factory = new PduFactory();
+        ByteBuffer articulated = ByteBuffer.wrap(PduFileLoader.load("EntityStatePdu-vbs-articulated-parameters.raw"));
+        ByteBuffer plain = ByteBuffer.wrap(new EntityStatePdu().marshal());
+
+        EntityStatePdu first = (EntityStatePdu) factory.createPooledPdu(articulated);
+        assertEquals(16, first.getArticulationParameters().size());
+
+        EntityStatePdu second = (EntityStatePdu) factory.createPooledPdu(plain);
+        assertSame(first, second);
+        assertEquals(0, second.getArticulationParameters().size());
+
+        articulated.rewind();
+        assertEquals(16, ((EntityStatePdu) factory.createPooledPdu(articulated)).getArticulationParameters().size());
+
+        // Other types and other factories get their own instances
+        assertTrue(factory.createPooledPdu(ByteBuffer.wrap(new FirePdu().marshal())) instanceof FirePdu);
+        plain.rewind();
+        assertNotSame(first, new PduFactory().createPooledPdu(plain));
+    }
 }
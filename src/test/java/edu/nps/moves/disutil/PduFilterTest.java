@@ -0,0 +1,112 @@
+package edu.nps.moves.disutil;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.FirePdu;
+import edu.nps.moves.dis.Pdu;
+import edu.nps.moves.disenum.PduType;
+
+public class PduFilterTest {
+
+    private static EntityStatePdu entity(int exercise, int site, int application) {
+        EntityStatePdu espdu = new EntityStatePdu();
+        espdu.setExerciseID((short) exercise);
+        espdu.getEntityID().setSite(site);
+        espdu.getEntityID().setApplication(application);
+        espdu.getEntityID().setEntity(1);
+        return espdu;
+    }
+
+    private static FirePdu fire(int exercise) {
+        FirePdu fire = new FirePdu();
+        fire.setExerciseID((short) exercise);
+        return fire;
+    }
+
+    @Test
+    public void testRulesAndCounters() {
+        PduFilter filter = new PduFilter();
+        filter.setExercises(3, 200);
+        filter.setPduTypes(PduType.ENTITY_STATE.value);
+        filter.setSiteRange(10, 20);
+
+        assertTrue(filter.accept(ByteBuffer.wrap(entity(3, 10, 1).marshal())));
+        assertTrue(filter.accept(ByteBuffer.wrap(entity(200, 20, 1).marshal())));
+        assertFalse(filter.accept(ByteBuffer.wrap(entity(4, 10, 1).marshal())));
+        assertFalse(filter.accept(ByteBuffer.wrap(fire(3).marshal())));
+        assertFalse(filter.accept(ByteBuffer.wrap(entity(3, 21, 1).marshal())));
+        assertFalse(filter.accept(ByteBuffer.wrap(new byte[11])));
+
+        assertEquals(2, filter.getAcceptedCount());
+        assertEquals(1, filter.getRejectedCount(PduFilter.Rule.EXERCISE));
+        assertEquals(1, filter.getRejectedCount(PduFilter.Rule.PDU_TYPE));
+        assertEquals(1, filter.getRejectedCount(PduFilter.Rule.SITE));
+        assertEquals(1, filter.getRejectedCount(PduFilter.Rule.LENGTH));
+        assertEquals(0, filter.getRejectedCount(PduFilter.Rule.PROTOCOL_VERSION));
+        assertEquals(4, filter.getRejectedCount());
+
+        filter.setExercises();
+        assertTrue(filter.accept(ByteBuffer.wrap(entity(4, 15, 1).marshal())));
+        filter.resetCounts();
+        assertEquals(0, filter.getAcceptedCount());
+        assertEquals(0, filter.getRejectedCount());
+    }
+
+    @Test
+    public void testFamilyVersionAndApplication() {
+        PduFilter filter = new PduFilter();
+        filter.setProtocolVersions(7);
+        assertFalse(filter.accept(ByteBuffer.wrap(entity(1, 1, 1).marshal())));
+        assertEquals(1, filter.getRejectedCount(PduFilter.Rule.PROTOCOL_VERSION));
+
+        filter.setProtocolVersions();
+        filter.setProtocolFamilies(2);
+        filter.setApplicationRange(5, 5);
+        assertFalse(filter.accept(ByteBuffer.wrap(entity(1, 1, 5).marshal())));
+        assertEquals(1, filter.getRejectedCount(PduFilter.Rule.PROTOCOL_FAMILY));
+
+        filter.setProtocolFamilies();
+        assertTrue(filter.accept(ByteBuffer.wrap(entity(1, 1, 5).marshal())));
+        assertFalse(filter.accept(ByteBuffer.wrap(entity(1, 1, 6).marshal())));
+        assertEquals(1, filter.getRejectedCount(PduFilter.Rule.APPLICATION));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsOutOfRangeValues() {
+        new PduFilter().setPduTypes(256);
+    }
+
+    @Test
+    public void testFactorySkipsRejectedPdus() {
+        PduFactory factory = new PduFactory();
+        PduFilter filter = new PduFilter();
+        filter.setExercises(3);
+        factory.setFilter(filter);
+
+        assertNull(factory.createPdu(entity(4, 1, 1).marshal()));
+        assertNull(factory.createPooledPdu(ByteBuffer.wrap(entity(4, 1, 1).marshal())));
+        assertNotNull(factory.createPdu(entity(3, 1, 1).marshal()));
+
+        // rejected members in the middle of a bundle are stepped over
+        Pdu[] bundled = {entity(3, 1, 1), fire(4), entity(4, 2, 2), fire(3)};
+        ByteBuffer bundle = ByteBuffer.allocate(2048);
+        for (Pdu pdu : bundled) {
+            pdu.encode(bundle);
+        }
+        bundle.flip();
+        List<Pdu> pdus = new ArrayList<>();
+        assertEquals(2, factory.getPdusFromBundle(bundle, pdus));
+        assertFalse(bundle.hasRemaining());
+        assertTrue(pdus.get(0) instanceof EntityStatePdu);
+        assertTrue(pdus.get(1) instanceof FirePdu);
+        assertEquals(3, filter.getAcceptedCount());
+        assertEquals(4, filter.getRejectedCount(PduFilter.Rule.EXERCISE));
+    }
+}
@@ -0,0 +1,105 @@
+package edu.nps.moves.disutil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.Pdu;
+
+public class PduReorderBufferTest {
+
+    private static final long MILLIS = 1000000L;
+
+    /**
+     * 2024-03-05 13:59:00 UTC, a minute before rollover
+     */
+    private static final long START = LocalDateTime.of(2024, 3, 5, 13, 59).toEpochSecond(ZoneOffset.UTC) * 1000 * MILLIS;
+
+    private final DisTime disTime = new DisTime();
+    private final List<Pdu> released = new ArrayList<>();
+
+    private Pdu pdu(int site, int application, long stampNanos, boolean absolute) {
+        EntityStatePdu espdu = new EntityStatePdu();
+        espdu.getEntityID().setSite(site);
+        espdu.getEntityID().setApplication(application);
+        int timestamp = absolute ? disTime.getDisAbsoluteTimestamp(stampNanos) : disTime.getDisRelativeTimestamp(stampNanos);
+        espdu.setTimestamp(timestamp & 0xFFFFFFFFL);
+        return espdu;
+    }
+
+    @Test
+    public void testJitterAcrossRollover() {
+        PduReorderBuffer buffer = new PduReorderBuffer(50 * MILLIS, 1000, released::add);
+        Random random = new Random(1);
+        List<Pdu> sent = new ArrayList<>();
+        // two minutes of PDUs every 10 ms, arriving with 0 to 40 ms jitter
+        List<long[]> arrivals = new ArrayList<>();
+        for (int i = 0; i < 12000; i++) {
+            long stamp = START + i * 10 * MILLIS;
+            sent.add(pdu(1, 2, stamp, true));
+            arrivals.add(new long[]{stamp + random.nextInt(40) * MILLIS, i});
+        }
+        arrivals.sort((a, b) -> Long.compare(a[0], b[0]));
+        for (long[] arrival : arrivals) {
+            buffer.release(arrival[0]);
+            assertTrue(buffer.offer(sent.get((int) arrival[1]), arrival[0]));
+        }
+        buffer.flush();
+
+        assertEquals(sent, released);
+        assertEquals(0, buffer.getLateCount());
+        assertEquals(0, buffer.getForcedCount());
+    }
+
+    @Test
+    public void testRelativeSourcesMerged() {
+        PduReorderBuffer buffer = new PduReorderBuffer(20 * MILLIS, 100, released::add);
+        // source 1's clock is 10 minutes behind ours, source 2's 5 seconds ahead
+        long skew1 = -10 * 60000 * MILLIS;
+        long skew2 = 5000 * MILLIS;
+        Pdu a = pdu(1, 1, START + skew1, false);
+        Pdu b = pdu(2, 1, START + 5 * MILLIS + skew2, false);
+        Pdu c = pdu(1, 1, START + 10 * MILLIS + skew1, false);
+        Pdu d = pdu(2, 1, START + 15 * MILLIS + skew2, false);
+
+        buffer.offer(a, START + 1 * MILLIS);
+        buffer.offer(b, START + 6 * MILLIS);
+        buffer.offer(d, START + 16 * MILLIS);
+        buffer.offer(c, START + 18 * MILLIS);  // delayed 7 ms
+        assertEquals(0, buffer.release(START + 18 * MILLIS));
+        assertEquals(4, buffer.release(START + 40 * MILLIS));
+        assertEquals(a, released.get(0));
+        assertEquals(b, released.get(1));
+        assertEquals(c, released.get(2));
+        assertEquals(d, released.get(3));
+    }
+
+    @Test
+    public void testLateAndFull() {
+        List<Pdu> late = new ArrayList<>();
+        PduReorderBuffer buffer = new PduReorderBuffer(10 * MILLIS, 2, released::add);
+        buffer.setLateHandler(late::add);
+        buffer.offer(pdu(1, 1, START + 20 * MILLIS, true), START + 21 * MILLIS);
+        buffer.offer(pdu(1, 1, START + 30 * MILLIS, true), START + 31 * MILLIS);
+        // full: the earliest goes early
+        buffer.offer(pdu(1, 1, START + 40 * MILLIS, true), START + 41 * MILLIS);
+        assertEquals(1, buffer.getForcedCount());
+        assertEquals(1, released.size());
+
+        Pdu tooLate = pdu(1, 1, START + 15 * MILLIS, true);
+        assertFalse(buffer.offer(tooLate, START + 42 * MILLIS));
+        assertEquals(1, buffer.getLateCount());
+        assertEquals(tooLate, late.get(0));
+        assertEquals(2, buffer.flush());
+        assertEquals(3, buffer.getReleasedCount());
+    }
+}
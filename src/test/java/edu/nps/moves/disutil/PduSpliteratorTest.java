@@ -0,0 +1,230 @@
+package edu.nps.moves.disutil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.nps.moves.dis.ArticulationParameter;
+import edu.nps.moves.dis.DetonationPdu;
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.FirePdu;
+import edu.nps.moves.dis.Pdu;
+
+public class PduSpliteratorTest {
+
+    private static final int COUNT = 3000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PduFactory factory = new PduFactory();
+
+    /**
+     * Entity states with varying numbers of articulation parameters, fires
+     * and detonations, each with its index as its timestamp.
+     */
+    private static List<Pdu> pdus() {
+        List<Pdu> pdus = new ArrayList<Pdu>();
+        for (int i = 0; i < COUNT; i++) {
+            Pdu pdu;
+            switch (i % 3) {
+                case 0:
+                    EntityStatePdu espdu = new EntityStatePdu();
+                    for (int j = 0; j < i % 4; j++) {
+                        espdu.getArticulationParameters().add(new ArticulationParameter());
+                    }
+                    pdu = espdu;
+                    break;
+                case 1:
+                    pdu = new FirePdu();
+                    break;
+                default:
+                    pdu = new DetonationPdu();
+            }
+            pdu.setTimestamp(i);
+            pdus.add(pdu);
+        }
+        return pdus;
+    }
+
+    private static void checkPdus(List<? extends Pdu> expected, List<? extends Pdu> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+        }
+        EntityStatePdu espdu = (EntityStatePdu) actual.get(3);
+        assertEquals(3, espdu.getArticulationParameters().size());
+    }
+
+    private static ByteBuffer marshal(List<Pdu> pdus) {
+        PduContainer container = new PduContainer();
+        container.setPdus(pdus);
+        ByteBuffer buff = ByteBuffer.allocate(container.getMarshalledSize());
+        container.marshal(buff);
+        buff.flip();
+        return buff;
+    }
+
+    @Test
+    public void testContainerUnmarshalDecodesConcreteTypes() {
+        List<Pdu> pdus = pdus();
+        ByteBuffer buff = marshal(pdus);
+        PduContainer container = new PduContainer();
+        container.unmarshal(buff);
+        checkPdus(pdus, container.getPdus());
+        assertEquals(0, buff.remaining());
+    }
+
+    @Test
+    public void testStreamUnmarshalDecodesConcreteTypes() {
+        List<Pdu> pdus = pdus();
+        PduStream stream = new PduStream();
+        stream.setPdusInStream(pdus);
+        stream.setStartTime(12345L);
+        ByteBuffer buff = ByteBuffer.allocate(stream.getMarshalledSize() + 4);
+        stream.marshal(buff);
+        buff.putInt(0xCAFEBABE);
+        buff.flip();
+
+        PduStream copy = new PduStream();
+        copy.unmarshal(buff);
+        assertEquals(12345L, copy.getStartTime());
+        checkPdus(pdus, copy.getPdusInStream());
+        // left just past the stream
+        assertEquals(0xCAFEBABE, buff.getInt());
+    }
+
+    @Test
+    public void testSplitting() {
+        ByteBuffer buff = marshal(pdus());
+        buff.position(4);
+        PduSpliterator<Pdu> whole = new PduSpliterator<Pdu>(buff, COUNT, factory::createPdu);
+        Spliterator<Pdu> prefix = whole.trySplit();
+        assertNotNull(prefix);
+        long prefixSize = prefix.estimateSize();
+        assertTrue(prefixSize > COUNT / 3 && prefixSize < 2 * COUNT / 3);
+        assertEquals(COUNT, prefixSize + whole.estimateSize());
+
+        List<Pdu> pdus = new ArrayList<Pdu>();
+        prefix.forEachRemaining(pdus::add);
+        assertEquals(prefixSize, pdus.size());
+        whole.forEachRemaining(pdus::add);
+        checkPdus(pdus(), pdus);
+        assertEquals(4, buff.position());
+    }
+
+    @Test
+    public void testParallelStream() {
+        ByteBuffer buff = marshal(pdus());
+        buff.position(4);
+        long sum = PduSpliterator.stream(buff, -1, factory::createPdu, true)
+                .filter(pdu -> pdu instanceof FirePdu)
+                .mapToLong(Pdu::getTimestamp)
+                .sum();
+        long expected = 0;
+        for (int i = 1; i < COUNT; i += 3) {
+            expected += i;
+        }
+        assertEquals(expected, sum);
+    }
+
+    @Test
+    public void testStopsAtBadLength() {
+        ByteBuffer buff = marshal(pdus());
+        buff.position(4);
+        int second = 4 + new EntityStatePdu().getMarshalledSize();
+        buff.putShort(second + 8 + new FirePdu().getMarshalledSize(), (short) 5);
+        PduSpliterator<Pdu> pdus = new PduSpliterator<Pdu>(buff, COUNT, factory::createPdu);
+        List<Pdu> read = new ArrayList<Pdu>();
+        pdus.forEachRemaining(read::add);
+        assertEquals(2, read.size());
+        assertEquals(second + new FirePdu().getMarshalledSize(), pdus.getPosition());
+    }
+
+    @Test
+    public void testWriterAndReader() throws Exception {
+        File file = folder.newFile("stream.bin");
+        PduStream header = new PduStream();
+        header.setShortDescription("exercise".getBytes("US-ASCII"));
+        header.setStartTime(1000L);
+        header.setStopTime(2000L);
+        List<Pdu> pdus = pdus();
+        try (PduContainerWriter writer = PduContainerWriter.openStream(
+                FileChannel.open(file.toPath(), StandardOpenOption.WRITE), header)) {
+            for (int i = 0; i < pdus.size(); i++) {
+                if (i % 2 == 0) {
+                    writer.write(pdus.get(i));
+                } else {
+                    writer.write(ByteBuffer.wrap(pdus.get(i).marshal()));
+                }
+            }
+        }
+
+        PduStream readHeader = new PduStream();
+        List<Pdu> read = new ArrayList<Pdu>();
+        try (PduContainerReader<Pdu> reader = PduContainerReader.openStream(
+                FileChannel.open(file.toPath()), factory::createPdu, readHeader)) {
+            assertEquals(COUNT, reader.getCount());
+            Iterator<Pdu> iterator = reader;
+            while (iterator.hasNext()) {
+                read.add(iterator.next());
+            }
+        }
+        assertEquals("exercise", new String(readHeader.getShortDescription(), "US-ASCII").trim());
+        assertEquals(1000L, readHeader.getStartTime());
+        assertEquals(2000L, readHeader.getStopTime());
+        checkPdus(pdus, read);
+
+        // the unmarshalled form is the same
+        PduStream stream = new PduStream();
+        stream.unmarshal(ByteBuffer.wrap(java.nio.file.Files.readAllBytes(file.toPath())));
+        checkPdus(pdus, stream.getPdusInStream());
+
+        try (PduContainerReader<Pdu> reader = PduContainerReader.openStream(
+                FileChannel.open(file.toPath()), factory::createPdu, null)) {
+            assertEquals(COUNT / 3, reader.stream(true).filter(pdu -> pdu instanceof DetonationPdu).count());
+        }
+    }
+
+    @Test
+    public void testDis7Container() {
+        List<edu.nps.moves.dis7.Pdu> pdus = new ArrayList<edu.nps.moves.dis7.Pdu>();
+        for (int i = 0; i < 10; i++) {
+            edu.nps.moves.dis7.Pdu pdu = i % 2 == 0 ? new edu.nps.moves.dis7.EntityStatePdu() : new edu.nps.moves.dis7.FirePdu();
+            pdu.setTimestamp(i);
+            pdus.add(pdu);
+        }
+        edu.nps.moves.dis7.PduContainer container = new edu.nps.moves.dis7.PduContainer();
+        container.setPdus(pdus);
+        ByteBuffer buff = ByteBuffer.allocate(container.getMarshalledSize());
+        container.marshal(buff);
+        buff.flip();
+
+        edu.nps.moves.dis7.PduContainer copy = new edu.nps.moves.dis7.PduContainer();
+        copy.unmarshal(buff);
+        assertEquals(10, copy.getPdus().size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(pdus.get(i).getClass(), copy.getPdus().get(i).getClass());
+            assertEquals(i, copy.getPdus().get(i).getTimestamp());
+        }
+
+        copy = new edu.nps.moves.dis7.PduContainer();
+        copy.unmarshal(new java.io.DataInputStream(new java.io.ByteArrayInputStream(buff.array())));
+        assertEquals(10, copy.getPdus().size());
+        assertEquals(edu.nps.moves.dis7.FirePdu.class, copy.getPdus().get(9).getClass());
+    }
+}
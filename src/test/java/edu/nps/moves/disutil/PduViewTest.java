@@ -0,0 +1,130 @@
+package edu.nps.moves.disutil;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import edu.nps.moves.dis.PduFileLoader;
+
+public class PduViewTest {
+
+    @Test
+    public void testEntityStatePduView() throws IOException {
+        byte[] data = PduFileLoader.load("EntityStatePdu-vbs-articulated-parameters.raw");
+        edu.nps.moves.dis.EntityStatePdu espdu = (edu.nps.moves.dis.EntityStatePdu) new PduFactory().createPdu(data);
+
+        // Put the pdu at a non-zero offset, as it would be in a bundle
+        ByteBuffer buff = ByteBuffer.allocate(data.length + 20);
+        buff.position(20);
+        buff.put(data);
+        buff.position(0);
+        EntityStatePduView view = new EntityStatePduView().wrap(buff, 20);
+
+        assertEquals(espdu.getProtocolVersion(), view.getProtocolVersion());
+        assertEquals(espdu.getExerciseID(), view.getExerciseID());
+        assertEquals(1, view.getPduType());
+        assertEquals(data.length, view.getPduLength());
+        assertEquals(espdu.getEntityID().getSite(), view.getSiteID());
+        assertEquals(espdu.getEntityID().getApplication(), view.getApplicationID());
+        assertEquals(espdu.getEntityID().getEntity(), view.getEntityNumber());
+        assertEquals(PduView.entityKey(view.getSiteID(), view.getApplicationID(), view.getEntityNumber()), view.getEntityKey());
+        assertEquals(espdu.getForceId(), view.getForceId());
+        assertEquals(espdu.getEntityType().getCountry(), view.getCountry());
+        assertEquals(espdu.getEntityLocation().getX(), view.getLocationX(), 0.0);
+        assertEquals(espdu.getEntityLocation().getY(), view.getLocationY(), 0.0);
+        assertEquals(espdu.getEntityLocation().getZ(), view.getLocationZ(), 0.0);
+        assertEquals(espdu.getEntityOrientation().getPsi(), view.getPsi(), 0.0f);
+        assertEquals(espdu.getEntityAppearance(), view.getEntityAppearance());
+        assertEquals(espdu.getMarking().getCharacters()[0], view.getMarkingCharacter(0));
+
+        assertEquals(16, view.getNumberOfParameters());
+        assertEquals(espdu.getArticulationParameters().get(7).getParameterType(), view.getParameterType(7));
+        assertEquals(espdu.getArticulationParameters().get(7).getPartAttachedTo(), view.getParameterAttachedTo(7));
+        assertEquals(espdu.getArticulationParameters().get(7).getParameterValueFirstSubfield(), view.getParameterValue(7), 0.0f);
+        assertEquals(0, buff.position()); // reading does not move the buffer
+    }
+
+    @Test
+    public void testEntityStatePduViewDis7() throws IOException {
+        byte[] data = edu.nps.moves.dis7.PduFileLoader.load("EntityStatePdu-articulated_parts.raw");
+        edu.nps.moves.dis7.EntityStatePdu espdu = (edu.nps.moves.dis7.EntityStatePdu) new edu.nps.moves.dis7.PduFactory().createPdu(data);
+        EntityStatePduView view = new EntityStatePduView().wrap(ByteBuffer.wrap(data), 0);
+
+        assertEquals(7, view.getProtocolVersion());
+        assertEquals(espdu.getPduStatus(), view.getPduStatus());
+        assertEquals(espdu.getEntityID().getSiteID(), view.getSiteID());
+        assertEquals(espdu.getEntityID().getEntityID(), view.getEntityNumber());
+        assertEquals(espdu.getEntityLinearVelocity().getX(), view.getVelocityX(), 0.0f);
+        assertEquals(espdu.getDeadReckoningParameters().getDeadReckoningAlgorithm(), view.getDeadReckoningAlgorithm());
+        assertEquals(espdu.getVariableParameters().size(), view.getNumberOfParameters());
+        edu.nps.moves.dis7.ArticulatedParts part = (edu.nps.moves.dis7.ArticulatedParts) espdu.getVariableParameters().get(1);
+        assertEquals(0, view.getParameterRecordType(1));
+        assertEquals(part.getParameterType(), view.getParameterType(1));
+        assertEquals(part.getParameterValue(), view.getParameterValue(1), 0.0f);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testParameterIndexOutOfRange() {
+        EntityStatePduView view = new EntityStatePduView().wrap(ByteBuffer.wrap(new edu.nps.moves.dis.EntityStatePdu().marshal()), 0);
+        view.getParameterType(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBufferTooShort() {
+        new EntityStatePduView().wrap(ByteBuffer.wrap(new edu.nps.moves.dis.FirePdu().marshal()), 0);
+    }
+
+    @Test
+    public void testFireAndDetonationPduViews() throws IOException {
+        byte[] fireData = edu.nps.moves.dis7.PduFileLoader.load("FirePdu_MunitionDescriptor.raw");
+        edu.nps.moves.dis7.FirePdu fire = (edu.nps.moves.dis7.FirePdu) new edu.nps.moves.dis7.PduFactory().createPdu(fireData);
+        FirePduView fireView = new FirePduView().wrap(ByteBuffer.wrap(fireData), 0);
+
+        assertEquals(PduView.entityKey(fire.getFiringEntityID().getSiteID(), fire.getFiringEntityID().getApplicationID(),
+                fire.getFiringEntityID().getEntityID()), fireView.getFiringEntityKey());
+        assertEquals(fire.getEventID().getEventNumber(), fireView.getEventNumber());
+        assertEquals(fire.getLocationInWorldCoordinates().getX(), fireView.getLocationX(), 0.0);
+        assertEquals(fire.getRange(), fireView.getRange(), 0.0f);
+        assertEquals(fire.getVelocity().getZ(), fireView.getVelocityZ(), 0.0f);
+
+        byte[] detData = edu.nps.moves.dis7.PduFileLoader.load("DetonationPdu_Descriptors_VariableParameters.raw");
+        edu.nps.moves.dis7.DetonationPdu det = (edu.nps.moves.dis7.DetonationPdu) new edu.nps.moves.dis7.PduFactory().createPdu(detData);
+        DetonationPduView detView = new DetonationPduView().wrap(ByteBuffer.wrap(detData), 0);
+
+        assertEquals(det.getDetonationResult(), detView.getDetonationResult());
+        assertEquals(det.getLocationInWorldCoordinates().getZ(), detView.getLocationZ(), 0.0);
+        assertEquals(det.getLocationOfEntityCoordinates().getX(), detView.getLocationInEntityCoordinatesX(), 0.0f);
+        assertEquals(det.getVariableParameters().size(), detView.getNumberOfParameters());
+        for (int i = 0; i < detView.getNumberOfParameters(); i++) {
+            assertEquals(det.getVariableParameters().get(i).getRecordType(), detView.getParameterRecordType(i));
+        }
+    }
+
+    @Test
+    public void testTransmitterAndSignalPduViews() throws IOException {
+        byte[] txData = PduFileLoader.load("TransmitterPdu.raw");
+        edu.nps.moves.dis.TransmitterPdu tx = (edu.nps.moves.dis.TransmitterPdu) new PduFactory().createPdu(txData);
+        TransmitterPduView txView = new TransmitterPduView().wrap(ByteBuffer.wrap(txData), 0);
+
+        assertEquals(tx.getRadioId(), txView.getRadioId());
+        assertEquals(tx.getFrequency(), txView.getFrequency());
+        assertEquals(tx.getPower(), txView.getPower(), 0.0f);
+        assertEquals(tx.getTransmitState(), txView.getTransmitState());
+        assertEquals(tx.getModulationType().getSystem(), txView.getRadioSystem());
+        assertEquals(tx.getAntennaLocation().getY(), txView.getAntennaLocationY(), 0.0);
+
+        byte[] sigData = PduFileLoader.load("SignalPdu.raw");
+        edu.nps.moves.dis.SignalPdu sig = (edu.nps.moves.dis.SignalPdu) new PduFactory().createPdu(sigData);
+        SignalPduView sigView = new SignalPduView().wrap(ByteBuffer.wrap(sigData), 0);
+
+        assertEquals(sig.getRadioId(), sigView.getRadioId());
+        assertEquals(sig.getSampleRate(), sigView.getSampleRate());
+        assertEquals(sig.getDataLength(), sigView.getDataLength());
+        byte[] samples = new byte[sigView.getDataLength() / 8];
+        assertEquals(samples.length, sigView.getData(samples));
+        assertArrayEquals(sig.getData(), samples);
+    }
+}
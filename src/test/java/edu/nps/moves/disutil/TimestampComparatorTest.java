@@ -0,0 +1,53 @@
+package edu.nps.moves.disutil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.Pdu;
+
+public class TimestampComparatorTest {
+
+    private static Pdu stamped(long timestamp) {
+        Pdu pdu = new EntityStatePdu();
+        pdu.setTimestamp(timestamp);
+        return pdu;
+    }
+
+    @Test
+    public void testOrdering() {
+        TimestampComparator comparator = new TimestampComparator();
+        // unsigned values above 2^31 overflowed the old int subtraction
+        assertTrue(comparator.compare(stamped(0xA0000001L), stamped(0x90000001L)) > 0);
+        assertTrue(comparator.compare(stamped(0x90000001L), stamped(0xA0000001L)) < 0);
+        // late in one hour is before early in the next
+        assertTrue(comparator.compare(stamped(0xFFFFFF00L), stamped(3)) < 0);
+        // absolute and relative bit ignored
+        assertEquals(0, comparator.compare(stamped(100), stamped(101)));
+    }
+
+    @Test
+    public void testRollover() {
+        long lastUnit = (DisTime.DIS_TIME_UNITS_PER_HOUR - 1) << 1 | 1;
+        assertTrue(TimestampComparator.compareTimestamps(lastUnit, 1) < 0);
+        assertEquals(1, TimestampComparator.unitsBetween(lastUnit, 1));
+        assertEquals(-1, TimestampComparator.unitsBetween(1, lastUnit));
+
+        List<Pdu> pdus = new ArrayList<>();
+        pdus.add(stamped(21));
+        pdus.add(stamped(lastUnit));
+        pdus.add(stamped(1));
+        pdus.add(stamped(lastUnit - 20));
+        Collections.sort(pdus, new TimestampComparator());
+        assertEquals(lastUnit - 20, pdus.get(0).getTimestamp());
+        assertEquals(lastUnit, pdus.get(1).getTimestamp());
+        assertEquals(1, pdus.get(2).getTimestamp());
+        assertEquals(21, pdus.get(3).getTimestamp());
+    }
+}
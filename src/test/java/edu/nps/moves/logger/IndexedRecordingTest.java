@@ -0,0 +1,185 @@
+package edu.nps.moves.logger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.nps.moves.dis.EntityID;
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.FirePdu;
+import edu.nps.moves.dis.Pdu;
+import edu.nps.moves.disutil.PduFactory;
+import edu.nps.moves.disutil.PduStream;
+
+public class IndexedRecordingTest {
+
+    private static final long START = 1500000000000000000L;
+    private static final long STEP = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int COUNT = 5000;
+    private static final int ENTITIES = 7;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Every fifth PDU is a fire PDU, the rest entity states cycling through
+     * the entities, each with the frame number in its timestamp.
+     */
+    private static byte[] pdu(int i) {
+        Pdu pdu;
+        if (i % 5 == 4) {
+            pdu = new FirePdu();
+        } else {
+            EntityStatePdu espdu = new EntityStatePdu();
+            EntityID id = new EntityID();
+            id.setSite(1);
+            id.setApplication(2);
+            id.setEntity(i % ENTITIES);
+            espdu.setEntityID(id);
+            pdu = espdu;
+        }
+        pdu.setTimestamp(i);
+        return pdu.marshal();
+    }
+
+    private File record(boolean close) throws Exception {
+        File file = folder.newFile("exercise" + IndexedRecordingWriter.FILE_SUFFIX);
+        PduStream description = new PduStream();
+        description.setShortDescription("test exercise".getBytes("US-ASCII"));
+        IndexedRecordingWriter writer = new IndexedRecordingWriter(file, description);
+        writer.setIndexInterval(16);
+        for (int i = 0; i < COUNT; i++) {
+            writer.write(ByteBuffer.wrap(pdu(i)), START + STEP * i);
+        }
+        writer.close();
+        if (!close) {
+            // as if the writer had died before writing the indexes, part way
+            // through a frame
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(IndexedRecordingWriter.TIME_INDEX_AT);
+                long framesEnd = raf.readLong();
+                raf.seek(IndexedRecordingWriter.TIME_INDEX_AT);
+                raf.writeLong(0);
+                raf.setLength(framesEnd - 3);
+            }
+        }
+        return file;
+    }
+
+    private static void checkFrame(IndexedRecording recording, long frame, int i) {
+        assertEquals(START + STEP * i, recording.getCaptureTime(frame));
+        assertArrayEquals(pdu(i), toArray(recording.getPdu(frame)));
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testSequentialAndSeek() throws Exception {
+        File file = record(true);
+        // small regions, so frames are read from several mappings
+        try (IndexedRecording recording = new IndexedRecording(file, 16)) {
+            assertFalse(recording.isRecovered());
+            assertEquals(COUNT, recording.getPduCount());
+            assertEquals(START, recording.getStartTime());
+            assertEquals(START + STEP * (COUNT - 1), recording.getStopTime());
+
+            PduStream stream = recording.getStream();
+            assertEquals("test exercise", new String(stream.getShortDescription(), "US-ASCII").trim());
+            assertEquals(START / 1000000000L, stream.getStartTime());
+
+            int i = 0;
+            for (long frame = recording.getFirstFrame(); frame < recording.getFramesEnd(); frame = recording.nextFrame(frame)) {
+                checkFrame(recording, frame, i++);
+            }
+            assertEquals(COUNT, i);
+
+            for (int target : new int[]{0, 1, 15, 16, 17, 2500, COUNT - 1}) {
+                checkFrame(recording, recording.seek(START + STEP * target), target);
+                // between two frames finds the later one
+                checkFrame(recording, recording.seek(START + STEP * target - 1), target);
+            }
+            checkFrame(recording, recording.seek(Long.MIN_VALUE), 0);
+            assertEquals(recording.getFramesEnd(), recording.seek(START + STEP * COUNT));
+            checkFrame(recording, recording.seekElapsed(TimeUnit.SECONDS.toNanos(30)), 3000);
+        }
+    }
+
+    @Test
+    public void testDecodeAndEntityIndex() throws Exception {
+        File file = record(true);
+        try (IndexedRecording recording = new IndexedRecording(file)) {
+            checkEntities(recording, COUNT);
+        }
+    }
+
+    private static void checkEntities(IndexedRecording recording, int count) {
+        PduFactory factory = new PduFactory();
+        assertEquals(ENTITIES, recording.getEntityKeys().length);
+        long[] frames = recording.getEntityFrames(1, 2, 3);
+        int expected = 0;
+        for (int i = 0; i < count; i++) {
+            if (i % ENTITIES == 3 && i % 5 != 4) {
+                EntityStatePdu espdu = (EntityStatePdu) recording.decode(frames[expected], factory);
+                assertEquals(3, espdu.getEntityID().getEntity());
+                assertEquals(i, espdu.getTimestamp());
+                expected++;
+            }
+        }
+        assertEquals(expected, frames.length);
+        assertEquals(0, recording.getEntityFrames(1, 2, 99).length);
+    }
+
+    @Test
+    public void testRecoverUnclosed() throws Exception {
+        File file = record(false);
+        try (IndexedRecording recording = new IndexedRecording(file, 16)) {
+            assertTrue(recording.isRecovered());
+            // the last frame was cut short
+            assertEquals(COUNT - 1, recording.getPduCount());
+            assertEquals(START + STEP * (COUNT - 2), recording.getStopTime());
+            checkFrame(recording, recording.seek(START + STEP * 1234), 1234);
+            checkEntities(recording, COUNT - 1);
+        }
+    }
+
+    @Test
+    public void testIndexLogWriterSegments() throws Exception {
+        File directory = new File(folder.getRoot(), "exercise");
+        LogWriter writer = new LogWriter(directory.getPath());
+        writer.setBufferSize(160 * 1024);
+        writer.setMaxFileBytes(256 * 1024);
+        Thread thread = new Thread(writer);
+        thread.start();
+        for (int i = 0; i < COUNT; i++) {
+            writer.write(ByteBuffer.wrap(pdu(i)), START + STEP * i);
+        }
+        writer.close();
+        List<File> segments = new ArrayList<File>(writer.getFiles());
+        assertTrue(segments.size() > 1);
+
+        File file = new File(folder.getRoot(), "indexed" + IndexedRecordingWriter.FILE_SUFFIX);
+        assertEquals(COUNT, IndexedRecordingWriter.index(segments, file, null));
+        try (IndexedRecording recording = new IndexedRecording(file)) {
+            assertEquals(COUNT, recording.getPduCount());
+            checkFrame(recording, recording.seek(START + STEP * 4321), 4321);
+            assertTrue(Arrays.equals(new byte[256], recording.getStream().getShortDescription()));
+        }
+    }
+}
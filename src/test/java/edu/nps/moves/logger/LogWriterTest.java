@@ -0,0 +1,136 @@
+package edu.nps.moves.logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.BufferedInputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static int lengthOf(int i) {
+        return 12 + (i * 37) % 1400;
+    }
+
+    @Test
+    public void testRecordAndRotate() throws Exception {
+        File directory = new File(folder.getRoot(), "exercise");
+        LogWriter writer = new LogWriter(directory.getPath());
+        writer.setBufferSize(256 * 1024);
+        writer.setBufferCount(3);
+        writer.setMaxFileBytes(2 * 1024 * 1024);
+        Thread thread = new Thread(writer);
+        thread.start();
+
+        final int count = 100000;
+        ByteBuffer pdu = ByteBuffer.allocate(2048);
+        for (int i = 0; i < count; i++) {
+            pdu.clear();
+            pdu.putInt(i);
+            pdu.limit(lengthOf(i));
+            pdu.position(0);
+            writer.write(pdu, 1000L * i);
+            assertEquals(0, pdu.position());
+        }
+        writer.close();
+        assertTrue(writer.finishedWriting());
+        assertEquals(count, writer.getRecordCount());
+
+        List<File> files = writer.getFiles();
+        assertTrue(files.size() > 10);
+        int next = 0;
+        long total = 0;
+        for (File file : files) {
+            assertTrue(file.getName().startsWith("exercise_"));
+            assertTrue(file.length() <= 2 * 1024 * 1024);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                assertEquals(LogWriter.MAGIC, in.readLong());
+                in.readLong();
+                while (true) {
+                    long time;
+                    try {
+                        time = in.readLong();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    int length = in.readInt();
+                    assertEquals(1000L * next, time);
+                    assertEquals(lengthOf(next), length);
+                    assertEquals(next, in.readInt());
+                    in.skipBytes(length - 4);
+                    total += LogWriter.RECORD_HEADER_SIZE + length;
+                    next++;
+                }
+            }
+        }
+        assertEquals(count, next);
+        assertEquals(total, writer.getBytesWritten());
+    }
+
+    @Test
+    public void testCommitInterval() throws Exception {
+        File directory = new File(folder.getRoot(), "slow");
+        LogWriter writer = new LogWriter(directory.getPath());
+        writer.setCommitMillis(20);
+        Thread thread = new Thread(writer);
+        thread.start();
+        writer.write(ByteBuffer.wrap(new byte[]{6, 1, 1, 1, 0, 0, 0, 0, 0, 12, 0, 0}), 42L);
+
+        // written without filling the buffer or closing
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writer.getBytesWritten() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(LogWriter.RECORD_HEADER_SIZE + 12, writer.getBytesWritten());
+        assertEquals(LogWriter.FILE_HEADER_SIZE + LogWriter.RECORD_HEADER_SIZE + 12, writer.getFiles().get(0).length());
+        writer.close();
+        thread.join(5000);
+        assertTrue(!thread.isAlive());
+    }
+
+    @Test(timeout = 20000)
+    public void testWriteFailureDoesNotBlock() throws Exception {
+        // a plain file where the log directory should be, so no segment can be opened
+        File notDirectory = folder.newFile("blocked");
+        LogWriter writer = new LogWriter(notDirectory.getPath());
+        writer.setBufferSize(2 * (LogWriter.MAX_PDU_SIZE + LogWriter.RECORD_HEADER_SIZE));
+        writer.setBufferCount(2);
+        writer.setCommitMillis(10);
+        Thread thread = new Thread(writer);
+        thread.start();
+
+        ByteBuffer pdu = ByteBuffer.allocate(8192);
+        try {
+            while (true) {
+                pdu.clear();
+                writer.write(pdu, 0L);
+            }
+        } catch (IllegalStateException e) {
+            assertNotNull(e.getCause());
+        }
+        assertNotNull(writer.getFailure());
+        try {
+            writer.write(pdu, 0L);
+            fail("write after failure");
+        } catch (IllegalStateException expected) {
+        }
+        writer.close();
+        thread.join(5000);
+        assertTrue(!thread.isAlive());
+        assertTrue(writer.finishedWriting());
+    }
+}
@@ -0,0 +1,176 @@
+package edu.nps.moves.logger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.nps.moves.dis.EntityID;
+import edu.nps.moves.dis.EntityStatePdu;
+
+public class ReplaySchedulerTest {
+
+    private static final long START = 1500000000000000000L;
+    private static final long STEP = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int COUNT = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * PDUs are captured in pairs sharing a timestamp, 5 ms apart
+     */
+    private static byte[] pdu(int i) {
+        EntityStatePdu espdu = new EntityStatePdu();
+        EntityID id = new EntityID();
+        id.setEntity(i);
+        espdu.setEntityID(id);
+        espdu.setTimestamp(i / 2);
+        return espdu.marshal();
+    }
+
+    private IndexedRecording record() throws Exception {
+        File file = folder.newFile("replay" + IndexedRecordingWriter.FILE_SUFFIX);
+        try (IndexedRecordingWriter writer = new IndexedRecordingWriter(file, null)) {
+            for (int i = 0; i < COUNT; i++) {
+                writer.write(ByteBuffer.wrap(pdu(i)), START + STEP * i);
+            }
+        }
+        return new IndexedRecording(file);
+    }
+
+    /** Keeps what was sent and when */
+    private static class Capture implements ReplayScheduler.Sink {
+        final List<byte[]> datagrams = new ArrayList<byte[]>();
+        final List<Long> times = new ArrayList<Long>();
+
+        @Override
+        public void send(ByteBuffer datagram) {
+            times.add(System.nanoTime());
+            byte[] bytes = new byte[datagram.remaining()];
+            datagram.get(bytes);
+            datagrams.add(bytes);
+        }
+
+        byte[] all() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (byte[] datagram : datagrams) {
+                out.write(datagram, 0, datagram.length);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] expected(int from) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = from; i < COUNT; i++) {
+            byte[] pdu = pdu(i);
+            out.write(pdu, 0, pdu.length);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testTimingAtSpeed() throws Exception {
+        IndexedRecording recording = record();
+        Capture capture = new Capture();
+        ReplayScheduler scheduler = new ReplayScheduler(recording, capture);
+        scheduler.setSpeed(10.0);
+        scheduler.run();
+
+        assertEquals(COUNT, scheduler.getPduCount());
+        assertEquals(COUNT, capture.datagrams.size());
+        assertArrayEquals(expected(0), capture.all());
+        long first = capture.times.get(0);
+        for (int i = 0; i < COUNT; i++) {
+            long due = first + STEP * i / 10;
+            // never early, and not late by more than a loaded machine might be
+            assertTrue(capture.times.get(i) >= due - TimeUnit.MICROSECONDS.toNanos(100));
+            assertTrue(capture.times.get(i) - due < TimeUnit.MILLISECONDS.toNanos(50));
+        }
+    }
+
+    @Test
+    public void testBundling() throws Exception {
+        IndexedRecording recording = record();
+        Capture capture = new Capture();
+        ReplayScheduler scheduler = new ReplayScheduler(recording, capture);
+        scheduler.setSpeed(ReplayScheduler.AS_FAST_AS_POSSIBLE);
+        scheduler.setBundleSize(1400);
+        scheduler.run();
+
+        assertEquals(COUNT, scheduler.getPduCount());
+        assertEquals(COUNT / 2, scheduler.getDatagramCount());
+        assertEquals(2 * pdu(0).length, capture.datagrams.get(0).length);
+        assertArrayEquals(expected(0), capture.all());
+
+        // too small for two
+        capture = new Capture();
+        scheduler = new ReplayScheduler(recording, capture);
+        scheduler.setSpeed(ReplayScheduler.AS_FAST_AS_POSSIBLE);
+        scheduler.setBundleSize(pdu(0).length + 1);
+        scheduler.run();
+        assertEquals(COUNT, capture.datagrams.size());
+    }
+
+    @Test
+    public void testSeekAndStop() throws Exception {
+        IndexedRecording recording = record();
+        final Capture capture = new Capture();
+        final ReplayScheduler[] scheduler = new ReplayScheduler[1];
+        scheduler[0] = new ReplayScheduler(recording, datagram -> {
+            capture.send(datagram);
+            if (capture.datagrams.size() == 10) {
+                scheduler[0].stop();
+            }
+        });
+        scheduler[0].setSpeed(ReplayScheduler.AS_FAST_AS_POSSIBLE);
+        scheduler[0].seekElapsed(STEP * 150);
+        scheduler[0].run();
+
+        assertEquals(10, capture.datagrams.size());
+        assertArrayEquals(pdu(150), capture.datagrams.get(0));
+        assertArrayEquals(pdu(159), capture.datagrams.get(9));
+    }
+
+    @Test
+    public void testPauseAndResume() throws Exception {
+        IndexedRecording recording = record();
+        final Capture capture = new Capture();
+        final ReplayScheduler[] scheduler = new ReplayScheduler[1];
+        scheduler[0] = new ReplayScheduler(recording, datagram -> {
+            capture.send(datagram);
+            if (capture.datagrams.size() == COUNT / 2) {
+                scheduler[0].pause();
+            }
+        });
+        scheduler[0].setSpeed(20.0);
+        Thread thread = new Thread(scheduler[0]);
+        long start = System.nanoTime();
+        thread.start();
+        while (!scheduler[0].isPaused()) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(100);
+        assertEquals(COUNT / 2, capture.datagrams.size());
+        scheduler[0].resume();
+        thread.join(10000);
+
+        assertArrayEquals(expected(0), capture.all());
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed >= STEP * (COUNT - 1) / 20 + TimeUnit.MILLISECONDS.toNanos(100));
+        // the second half is spaced from the resume, not from the start
+        long gap = capture.times.get(COUNT / 2) - capture.times.get(COUNT / 2 - 1);
+        assertTrue(gap >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+}
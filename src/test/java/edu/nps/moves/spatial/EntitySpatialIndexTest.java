@@ -0,0 +1,135 @@
+package edu.nps.moves.spatial;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.disenum.DeadReckoningAlgorithm;
+import edu.nps.moves.disutil.EntityTable;
+import edu.nps.moves.disutil.PduView;
+
+public class EntitySpatialIndexTest {
+
+    private static final int ENTITY_COUNT = 3000;
+
+    // Monterey, roughly, in geocentric coordinates
+    private static final double X0 = -2707000, Y0 = -4353000, Z0 = 3781000;
+
+    private EntitySpatialIndex index;
+    private double[][] positions;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(1234);
+        index = new EntitySpatialIndex(1000);
+        positions = new double[ENTITY_COUNT][];
+        for (int i = 0; i < ENTITY_COUNT; i++) {
+            positions[i] = new double[]{
+                X0 + random.nextDouble() * 40000,
+                Y0 + random.nextDouble() * 40000,
+                Z0 + random.nextDouble() * 2000};
+            index.update(i, positions[i][0], positions[i][1], positions[i][2]);
+        }
+        // move some entities, some into other cells
+        for (int i = 0; i < ENTITY_COUNT; i += 3) {
+            positions[i][0] += random.nextDouble() * 3000 - 1500;
+            index.update(i, positions[i][0], positions[i][1], positions[i][2]);
+        }
+        for (int i = 1; i < ENTITY_COUNT; i += 10) {
+            assertTrue(index.remove(i));
+            positions[i] = null;
+        }
+    }
+
+    private static double distance2(double[] p, double x, double y, double z) {
+        return (p[0] - x) * (p[0] - x) + (p[1] - y) * (p[1] - y) + (p[2] - z) * (p[2] - z);
+    }
+
+    @Test
+    public void testWithinRadius() {
+        final double x = X0 + 20000, y = Y0 + 20000, z = Z0 + 1000, radius = 2500;
+        long[] found = index.withinRadius(x, y, z, radius);
+        Arrays.sort(found);
+
+        long[] expected = new long[ENTITY_COUNT];
+        int count = 0;
+        for (int i = 0; i < ENTITY_COUNT; i++) {
+            if (positions[i] != null && distance2(positions[i], x, y, z) <= radius * radius) {
+                expected[count++] = i;
+            }
+        }
+        assertTrue(count > 0);
+        assertArrayEquals(Arrays.copyOf(expected, count), found);
+        assertEquals(ENTITY_COUNT - ENTITY_COUNT / 10, index.size());
+    }
+
+    @Test
+    public void testWithinBox() {
+        final double minX = X0 + 5000, minY = Y0 + 12000, minZ = Z0;
+        final double maxX = X0 + 9000, maxY = Y0 + 13000, maxZ = Z0 + 500;
+        long[] found = index.withinBox(minX, minY, minZ, maxX, maxY, maxZ);
+        Arrays.sort(found);
+
+        long[] expected = new long[ENTITY_COUNT];
+        int count = 0;
+        for (int i = 0; i < ENTITY_COUNT; i++) {
+            double[] p = positions[i];
+            if (p != null && p[0] >= minX && p[0] <= maxX && p[1] >= minY && p[1] <= maxY && p[2] >= minZ && p[2] <= maxZ) {
+                expected[count++] = i;
+            }
+        }
+        assertTrue(count > 0);
+        assertArrayEquals(Arrays.copyOf(expected, count), found);
+    }
+
+    @Test
+    public void testNearest() {
+        final double x = X0 + 31000, y = Y0 + 7000, z = Z0 + 100;
+        final int k = 25;
+        long[] found = index.nearest(x, y, z, k, Double.MAX_VALUE);
+        assertEquals(k, found.length);
+
+        Integer[] all = new Integer[ENTITY_COUNT];
+        for (int i = 0; i < ENTITY_COUNT; i++) {
+            all[i] = i;
+        }
+        Arrays.sort(all, (a, b) -> Double.compare(
+                positions[a] == null ? Double.MAX_VALUE : distance2(positions[a], x, y, z),
+                positions[b] == null ? Double.MAX_VALUE : distance2(positions[b], x, y, z)));
+        for (int i = 0; i < k; i++) {
+            assertEquals((long) all[i], found[i]);
+        }
+
+        assertEquals(0, index.nearest(X0 - 1e6, Y0, Z0, k, 1000).length);
+    }
+
+    @Test
+    public void testUpdateFromEntityTable() {
+        EntityTable table = new EntityTable();
+        EntityStatePdu espdu = new EntityStatePdu();
+        espdu.getEntityID().setSite(1);
+        espdu.getEntityID().setApplication(1);
+        espdu.getEntityID().setEntity(1);
+        espdu.getEntityLocation().setX(X0);
+        espdu.getEntityLocation().setY(Y0);
+        espdu.getEntityLocation().setZ(Z0);
+        espdu.getEntityLinearVelocity().setX(100);
+        espdu.getDeadReckoningParameters().setDeadReckoningAlgorithm((short) DeadReckoningAlgorithm.DRMF_P_W.value);
+        table.update(espdu, 0);
+
+        EntitySpatialIndex tableIndex = new EntitySpatialIndex(500);
+        tableIndex.update(table, 10000);
+        long key = PduView.entityKey(1, 1, 1);
+        assertArrayEquals(new long[]{key}, tableIndex.withinRadius(X0 + 1000, Y0, Z0, 1));
+
+        table.remove(key);
+        tableIndex.update(table, 10000);
+        assertEquals(0, tableIndex.size());
+        assertEquals(0, tableIndex.withinRadius(X0 + 1000, Y0, Z0, 1000).length);
+    }
+}
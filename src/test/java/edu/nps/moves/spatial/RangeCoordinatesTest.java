@@ -75,6 +75,69 @@ public class RangeCoordinatesTest {
         assertTrue(origin.getX() < 1 && origin.getX() > -1);
     }
 
+    /**
+     * The precomputed frame agrees with the SRM
+     */
+    @Test
+    public void fastPathMatchesSrm()
+    {
+        RangeCoordinates range = new RangeCoordinates(36.6, -121.9, 30.0);
+        Vector3Double fast = new Vector3Double();
+        for (double x = -20000; x <= 20000; x += 5000)
+        {
+            for (double y = -20000; y <= 20000; y += 5000)
+            {
+                Vector3Double reference = range.DISCoordFromLocalFlat(x, y, 100.0);
+                range.localToDis(x, y, 100.0, fast);
+                assertEquals(reference.getX(), fast.getX(), 0.001);
+                assertEquals(reference.getY(), fast.getY(), 0.001);
+                assertEquals(reference.getZ(), fast.getZ(), 0.001);
+
+                reference = range.localCoordFromDis(fast.getX(), fast.getY(), fast.getZ());
+                range.changeVectorToLocalCoordFromDIS(fast);
+                assertEquals(reference.getX(), fast.getX(), 0.001);
+                assertEquals(reference.getY(), fast.getY(), 0.001);
+                assertEquals(reference.getZ(), fast.getZ(), 0.001);
+                assertEquals(x, fast.getX(), 0.001);
+                assertEquals(y, fast.getY(), 0.001);
+            }
+        }
+    }
+
+    /**
+     * An entity at the prime meridian and equator heading north and level
+     * points its nose along DIS z with its belly towards the earth's center
+     */
+    @Test
+    public void localOrientationToDis()
+    {
+        RangeCoordinates primeMeridian = new RangeCoordinates(0.0, 0.0, 0.0);
+        edu.nps.moves.dis.Orientation local = new edu.nps.moves.dis.Orientation();
+        // yaw is counterclockwise from east about up; body z is down when rolled over
+        local.setPsi((float) (Math.PI / 2));
+        local.setPhi((float) Math.PI);
+        edu.nps.moves.dis.Orientation dis = new edu.nps.moves.dis.Orientation();
+        primeMeridian.localRollPitchHeadingToDisEuler(local, dis);
+
+        // body x axis in DIS coordinates is the first row of Rx(phi) Ry(theta) Rz(psi)
+        double psi = dis.getPsi(), theta = dis.getTheta(), phi = dis.getPhi();
+        assertEquals(0.0, Math.cos(theta) * Math.cos(psi), 1e-6);
+        assertEquals(0.0, Math.cos(theta) * Math.sin(psi), 1e-6);
+        assertEquals(1.0, -Math.sin(theta), 1e-6);
+        // body z axis, third row, points at the earth's center
+        assertEquals(-1.0, Math.cos(phi) * Math.sin(theta) * Math.cos(psi) + Math.sin(phi) * Math.sin(psi), 1e-6);
+
+        RangeCoordinates range = new RangeCoordinates(36.6, -121.9, 30.0);
+        local.setPsi(0.7f);
+        local.setTheta(-0.2f);
+        local.setPhi(0.3f);
+        range.localRollPitchHeadingToDisEuler(local, dis);
+        range.disEulerToLocalRollPitchHeading(dis, dis);
+        assertEquals(0.7f, dis.getPsi(), 1e-5);
+        assertEquals(-0.2f, dis.getTheta(), 1e-5);
+        assertEquals(0.3f, dis.getPhi(), 1e-5);
+    }
+
     /**
      * Tests conversion to DIS orientation from local coordinates.
      */
@@ -14,7 +14,7 @@ import org.junit.runners.Suite;
  * @author mcgredo
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({edu.nps.moves.spatial.RangeCoordinatesTest.class})
+@Suite.SuiteClasses({edu.nps.moves.spatial.RangeCoordinatesTest.class, edu.nps.moves.spatial.EntitySpatialIndexTest.class})
 public class SpatialTestSuite {
 
     @BeforeClass